@@ -0,0 +1,320 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer;
+
+import static de.zbit.util.Utils.getMessage;
+
+import java.io.File;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.sbml.jsbml.SBMLException;
+import org.sbml.squeezer.io.SBMLio;
+import org.sbml.squeezer.kinetics.OptionsRateLaws;
+import org.sbml.squeezer.util.Bundles;
+
+import de.zbit.util.ResourceManager;
+import de.zbit.util.prefs.SBPreferences;
+
+/**
+ * Squeezes a whole set of SBML files using a pool of worker threads. Each
+ * worker has its own {@link SBMLio} and, because a new
+ * {@link KineticLawGenerator} is created for every file, its own rate law
+ * generator. All files are kept in one shared queue that is sorted by file
+ * size, such that the largest files are started first and whichever worker
+ * becomes idle takes over the next file. Files that cannot be squeezed do not
+ * stop the batch; instead, a {@link Result} is recorded for every single file.
+ *
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ *
+ * @param <T> the type of SBML documents that can be treated by the
+ *        {@link SBMLsqueezer}.
+ */
+public class BatchSqueezer<T> {
+
+  /**
+   * The outcome of squeezing one single file.
+   *
+   * @author Andreas Dr&auml;ger
+   * @since 2.2
+   */
+  public static class Result {
+
+    /**
+     * The exception that stopped squeezing this file or {@code null}.
+     */
+    private Throwable error;
+    /**
+     * The SBML input file.
+     */
+    private final File inFile;
+    /**
+     * The SBML output file.
+     */
+    private final File outFile;
+    /**
+     * Time in milliseconds needed to squeeze this file.
+     */
+    private long time;
+
+    /**
+     * @param inFile
+     * @param outFile
+     */
+    private Result(File inFile, File outFile) {
+      this.inFile = inFile;
+      this.outFile = outFile;
+    }
+
+    /**
+     * @return the exception that stopped squeezing this file or {@code null}
+     *         if this file has been squeezed successfully.
+     */
+    public Throwable getError() {
+      return error;
+    }
+
+    /**
+     * @return the inFile
+     */
+    public File getInFile() {
+      return inFile;
+    }
+
+    /**
+     * @return the outFile
+     */
+    public File getOutFile() {
+      return outFile;
+    }
+
+    /**
+     * @return the time in milliseconds needed to squeeze this file.
+     */
+    public long getTime() {
+      return time;
+    }
+
+    /**
+     * @return {@code true} if the file has been squeezed without any error.
+     */
+    public boolean isSuccessful() {
+      return error == null;
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder();
+      builder.append("Result [inFile=");
+      builder.append(inFile);
+      builder.append(", outFile=");
+      builder.append(outFile);
+      builder.append(", time=");
+      builder.append(time);
+      if (error != null) {
+        builder.append(", error=");
+        builder.append(getMessage(error));
+      }
+      builder.append(']');
+      return builder.toString();
+    }
+
+  }
+
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final transient Logger logger = Logger.getLogger(BatchSqueezer.class.getName());
+
+  /**
+   * Localization support.
+   */
+  public static final transient ResourceBundle MESSAGES = ResourceManager.getBundle(Bundles.MESSAGES);
+
+  /**
+   * Localization support.
+   */
+  public static final transient ResourceBundle WARNINGS = ResourceManager.getBundle(Bundles.WARNINGS);
+
+  /**
+   * The number of worker threads.
+   */
+  private final int numberOfThreads;
+
+  /**
+   * Also search for kinetics in SABIO-RK.
+   */
+  private final boolean searchSABIO;
+
+  /**
+   * The controller that performs the actual work for each file.
+   */
+  private final SBMLsqueezer<T> squeezer;
+
+  /**
+   *
+   * @param squeezer
+   *        the controller that squeezes each individual file.
+   * @param numberOfThreads
+   *        the number of files to be squeezed in parallel.
+   * @param searchSABIO
+   *        Also search for kinetics in SABIO-RK and add them if possible
+   */
+  public BatchSqueezer(SBMLsqueezer<T> squeezer, int numberOfThreads, boolean searchSABIO) {
+    if (numberOfThreads < 1) {
+      throw new IllegalArgumentException(Integer.toString(numberOfThreads));
+    }
+    this.squeezer = squeezer;
+    this.numberOfThreads = numberOfThreads;
+    this.searchSABIO = searchSABIO;
+  }
+
+  /**
+   * @return the numberOfThreads
+   */
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+
+  /**
+   * Squeezes all given files and blocks until all of them have been
+   * processed.
+   *
+   * @param ioPairs
+   *        pairs of input files and the paths to the corresponding output
+   *        files as created by
+   *        {@link de.zbit.io.FileWalker#filterAndCreate(File, File, java.io.FileFilter, boolean)}.
+   * @return one {@link Result} per input file in the iteration order of the
+   *         given {@link Map}.
+   * @throws InterruptedException
+   *         if the calling thread is interrupted while waiting for the
+   *         workers to finish.
+   */
+  public List<Result> squeeze(Map<File, String> ioPairs) throws InterruptedException {
+    long time = System.currentTimeMillis();
+    final List<Result> results = new ArrayList<Result>(ioPairs.size());
+    for (Map.Entry<File, String> entry : ioPairs.entrySet()) {
+      results.add(new Result(entry.getKey(), new File(entry.getValue())));
+    }
+    // Largest files first, so that no big file is left over for the end:
+    Result sorted[] = results.toArray(new Result[0]);
+    Arrays.sort(sorted, new Comparator<Result>() {
+      @Override
+      public int compare(Result r1, Result r2) {
+        return Long.compare(r2.getInFile().length(), r1.getInFile().length());
+      }
+    });
+    final ConcurrentLinkedQueue<Result> queue = new ConcurrentLinkedQueue<Result>(Arrays.asList(sorted));
+
+    int threads = Math.min(numberOfThreads, results.size());
+    logger.info(MessageFormat.format(MESSAGES.getString("SQUEEZING_FILES_IN_PARALLEL"), results.size(), threads));
+    // Make sure the shared user settings are loaded before any worker needs them.
+    SBPreferences.getPreferencesFor(OptionsGeneral.class);
+    SBPreferences.getPreferencesFor(OptionsRateLaws.class);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int i = 0; i < threads; i++) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          SBMLio<T> sbmlIo = squeezer.createSBMLio();
+          Result result;
+          while (!Thread.currentThread().isInterrupted() && ((result = queue.poll()) != null)) {
+            squeeze(sbmlIo, result);
+          }
+        }
+      });
+    }
+    executor.shutdown();
+    try {
+      while (!executor.awaitTermination(1L, TimeUnit.SECONDS)) {
+        // keep waiting until all files are done.
+      }
+    } catch (InterruptedException exc) {
+      executor.shutdownNow();
+      throw exc;
+    }
+
+    int successful = 0;
+    for (Result result : results) {
+      if (result.isSuccessful()) {
+        successful++;
+      } else {
+        logger.warning(MessageFormat.format(WARNINGS.getString("SQUEEZE_FAILED"),
+          result.getInFile().getAbsolutePath(), getMessage(result.getError())));
+      }
+    }
+    logger.info(MessageFormat.format(MESSAGES.getString("SQUEEZED_FILES_SUMMARY"),
+      successful, results.size(), (System.currentTimeMillis() - time) / 1000d));
+    return Collections.unmodifiableList(results);
+  }
+
+  /**
+   * Squeezes one single file on the current thread.
+   *
+   * @param sbmlIo
+   *        the worker's own reader and writer.
+   * @param result
+   *        where to store the outcome.
+   */
+  private void squeeze(SBMLio<T> sbmlIo, Result result) {
+    long time = System.currentTimeMillis();
+    try {
+      logger.info(MessageFormat.format(
+        MESSAGES.getString("SQUEEZING_FILE"),
+        result.getInFile().getAbsolutePath(),
+        result.getOutFile().getAbsolutePath()));
+      squeezer.squeeze(sbmlIo, result.getInFile(), result.getOutFile(), false, searchSABIO);
+      if (sbmlIo.getListOfOpenedFiles().isEmpty()) {
+        throw new SBMLException(WARNINGS.getString("FILE_CONTAINS_NO_MODEL"));
+      }
+    } catch (Throwable t) {
+      result.error = t;
+      logger.log(Level.SEVERE, MessageFormat.format(
+        WARNINGS.getString("SQUEEZE_ERROR"),
+        result.getInFile().getAbsolutePath(), result.getOutFile().getAbsolutePath()), t);
+    } finally {
+      // The worker does not need the previous documents anymore:
+      sbmlIo.getListOfOpenedFiles().clear();
+      result.time = System.currentTimeMillis() - time;
+    }
+  }
+
+}
@@ -32,16 +32,27 @@ import org.sbml.jsbml.*;
 import org.sbml.squeezer.kinetics.BasicKineticLaw;
 import org.sbml.squeezer.kinetics.OptionsRateLaws;
 import org.sbml.squeezer.kinetics.TypeStandardVersion;
-import org.sbml.squeezer.math.GaussianRank;
+import org.sbml.squeezer.math.SparseMatrix;
+import org.sbml.squeezer.math.SparseRank;
 import org.sbml.squeezer.util.Bundles;
+import org.sbml.squeezer.util.Cancellation;
 import org.sbml.squeezer.util.ModelChangeListener;
 import org.sbml.squeezer.util.ProgressAdapter;
 import org.sbml.squeezer.util.ProgressAdapter.TypeOfProgress;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -99,6 +110,24 @@ public class KineticLawGenerator {
   private boolean reversibility;
   private boolean addParametersGlobally;
   
+  /**
+   * The number of threads that create kinetic equations simultaneously.
+   */
+  private int numberOfThreads;
+  
+  /**
+   * Cached kinetic laws from previous runs or {@code null} if no cache is to
+   * be used.
+   */
+  private RateLawCache rateLawCache;
+  
+  /**
+   * The settings of the last call of {@link #generateLaws(boolean)}, which
+   * are handed over to the {@link ModelChangeListener} of the original model
+   * when the kinetic laws are stored.
+   */
+  private String settings;
+  
   /**
    * @return the setBoundaryCondition
    */
@@ -279,6 +308,13 @@ public class KineticLawGenerator {
     setBoundaryCondition = prefs.getBoolean(OptionsGeneral.SET_BOUNDARY_CONDITION_FOR_GENES);
     defaultSpeciesInitVal = prefs.getDouble(OptionsGeneral.DEFAULT_SPECIES_INIT_VAL);
     defaultCompartmentInitSize = prefs.getDouble(OptionsGeneral.DEFAULT_COMPARTMENT_SIZE);
+    numberOfThreads = Math.max(1, prefs.getInt(OptionsGeneral.NUMBER_OF_RATE_LAW_THREADS));
+    String cacheFile = prefs.get(OptionsGeneral.RATE_LAW_CACHE);
+    if ((cacheFile != null) && (cacheFile.trim().length() > 0)) {
+      rateLawCache = RateLawCache.getCache(new File(cacheFile), prefs.getInt(OptionsGeneral.RATE_LAW_CACHE_SIZE));
+    } else {
+      rateLawCache = null;
+    }
     
     prefs = SBPreferences.getPreferencesFor(OptionsRateLaws.class);
     
@@ -425,6 +461,46 @@ public class KineticLawGenerator {
     this.possibleEnzymes = possibleEnzymes;
   }
   
+  /**
+   * @return the number of threads that create kinetic equations
+   *         simultaneously.
+   */
+  public int getNumberOfThreads() {
+    return numberOfThreads;
+  }
+  
+  /**
+   * @param numberOfThreads
+   *        the number of threads that create kinetic equations
+   *        simultaneously in {@link #generateLaws()}. A value of one means
+   *        that all kinetic equations are created on the calling thread.
+   */
+  public void setNumberOfThreads(int numberOfThreads) {
+    if (numberOfThreads < 1) {
+      throw new IllegalArgumentException(Integer.toString(numberOfThreads));
+    }
+    this.numberOfThreads = numberOfThreads;
+  }
+  
+  /**
+   * @return the cache from which kinetic laws are taken in
+   *         {@link #generateLaws()} or {@code null} if all kinetic laws are
+   *         created anew.
+   */
+  public RateLawCache getRateLawCache() {
+    return rateLawCache;
+  }
+  
+  /**
+   * @param rateLawCache
+   *        the cache from which kinetic laws are taken and to which newly
+   *        created kinetic laws are added in {@link #generateLaws()}. Can be
+   *        {@code null} in order to always create new kinetic laws.
+   */
+  public void setRateLawCache(RateLawCache rateLawCache) {
+    this.rateLawCache = rateLawCache;
+  }
+  
   /**
    * Creates a kinetic law for the given reaction, which can be assigned to the
    * given reaction.
@@ -462,14 +538,46 @@ public class KineticLawGenerator {
     if (reaction == null) {
       reaction = r;
     }
+    // The rank must be computed on the full model. Otherwise it is senseless!
+    boolean fullRank = hasFullColumnRank(submodelController.getSBMLDocument().getModel());
+    return createKineticLaw(reaction, kineticsClass, null, reversibility,
+      version, consistency, defaultNewParamVal, fullRank);
+  }
+  
+  /**
+   * Creates a kinetic law for the given reaction from the sub-model. This
+   * method does not change any field of this {@link KineticLawGenerator} and
+   * can therefore be called from several threads at once.
+   * 
+   * @param reaction
+   *        a reaction from the sub-model.
+   * @param kineticsClass
+   * @param profile
+   *        the profile of the given reaction as computed by its
+   *        {@link ReactionType} or {@code null} to compute it again.
+   * @param reversibility
+   * @param version
+   * @param consistency
+   * @param defaultNewParamVal
+   * @param fullRank
+   *        whether or not the stoichiometric matrix of the full model has full
+   *        column rank.
+   * @return A kinetic law for the given reaction.
+   * @throws Throwable
+   * @see #createKineticLaw(Reaction, Class, boolean, TypeStandardVersion, UnitConsistencyType, double)
+   */
+  private BasicKineticLaw createKineticLaw(Reaction reaction,
+    Class<?> kineticsClass, ReactionProfile profile, boolean reversibility,
+    TypeStandardVersion version, UnitConsistencyType consistency,
+    double defaultNewParamVal, boolean fullRank) throws Throwable {
     reaction.setReversible(reversibility || reaction.getReversible());
     try {
       Object typeParameters[] = new Object[] {
           version,
-          // The rank must be computed on the full model. Otherwise it is senseless!
-          Boolean.valueOf(hasFullColumnRank(submodelController.getSBMLDocument().getModel())),
+          Boolean.valueOf(fullRank),
           consistency,
-          Double.valueOf(defaultNewParamVal)
+          Double.valueOf(defaultNewParamVal),
+          profile
       };
       Constructor<?> constructor = kineticsClass.getConstructor(reaction.getClass(), typeParameters.getClass());
       return (BasicKineticLaw) constructor.newInstance(reaction, typeParameters);
@@ -485,6 +593,19 @@ public class KineticLawGenerator {
    * @param reactionID
    */
   private Model initSubmodel(String reactionID) {
+    return initSubmodel((reactionID != null) ? Collections.singleton(reactionID) : null, true);
+  }
+  
+  /**
+   * Initialize submodel controller and create the mini model:
+   * 
+   * @param reactionIDs
+   *        the reactions to be copied or {@code null} for all reactions.
+   * @param overwrite
+   *        whether existing kinetic laws of the given reactions are to be
+   *        replaced regardless of {@link #generateLawsForAllReactions}.
+   */
+  private Model initSubmodel(Set<String> reactionIDs, boolean overwrite) {
     submodelController.setProgressBar(progressBar);
     submodelController.setDefaultSpatialDimensions(defaultSpatialDimensions);
     submodelController.setReversibility(reversibility);
@@ -498,58 +619,356 @@ public class KineticLawGenerator {
     submodelController.setDefaultCompartmentInitSize(defaultCompartmentInitSize);
     
     listOfFastReactions = new LinkedList<Reaction>();
-    submodelController.createSubmodel(reactionID);
+    submodelController.createSubmodel(reactionIDs, overwrite);
     updateEnzymeCatalysis();
     return submodelController.getSubmodel();
   }
   
   /**
+   * Creates the kinetic laws for all reactions in the sub-model. This can be
+   * cancelled by interrupting the current thread, because the original model
+   * is not changed before {@link #storeKineticLaws()} is called.
+   * 
    * @throws Throwable
+   * @throws CancellationException
+   *         if the current thread has been interrupted.
+   * @see #generateLaws(boolean)
    */
   public void generateLaws() throws Throwable {
+    generateLaws(false);
+  }
+  
+  /**
+   * Creates the kinetic laws for the reactions in the sub-model. If only
+   * changed reactions are requested, the {@link ModelChangeListener} of the
+   * original model decides which reactions are copied to the sub-model: only
+   * those affected by changes since the kinetic laws have been stored the
+   * last time. All reactions are copied if the model has not been squeezed
+   * with the same settings before, if the changes concern the whole model,
+   * or if nothing has been changed at all.
+   * 
+   * @param onlyChanged
+   *        whether to restrict the sub-model to the reactions affected by
+   *        recent changes.
+   * @throws Throwable
+   * @throws CancellationException
+   *         if the current thread has been interrupted.
+   */
+  public void generateLaws(boolean onlyChanged) throws Throwable {
     
-    initSubmodel(null);
+    Cancellation.checkpoint();
+    // Compute this only once instead of once per reaction.
+    boolean fullRank = hasFullColumnRank(getModel());
+    settings = getSettings(fullRank);
+    initSubmodel(onlyChanged ? getAffectedReactions() : null, false);
     
     if (progressBar != null) {
       progressAdapter = new ProgressAdapter(progressBar, TypeOfProgress.generateLaws);
       progressAdapter.setNumberOfTags(getModel(), getSubmodel(), isRemoveUnnecessaryParameters());
     }
     
-    for (Reaction reaction : submodelController.getSubmodel().getListOfReactions()) {
-      ReactionType rt = new ReactionType(reaction, isReversibility(),
-        allReactionsAsEnzymeCatalyzed, isSetBoundaryCondition(), speciesIgnoreList);
-      
-      Class<? extends BasicKineticLaw> kineticsClass = rt.identifyPossibleKineticLaw(
-        kineticsGeneRegulation, kineticsZeroReactants, kineticsZeroProducts,
-        kineticsReversibleNonEnzymeReactions,
-        kineticsIrreversibleNonEnzymeReactions,
-        kineticsReversibleArbitraryEnzymeReaction,
-        kineticsIrreversibleArbitraryEnzymeReaction,
-        kineticsReversibleUniUniType, kineticsIrreversibleUniUniType,
-        kineticsReversibleBiUniType, kineticsIrreversibleBiUniType,
-        kineticsReversibleBiBiType, kineticsIrreversibleBiBiType);
-      
-      if (progressAdapter != null) {
-        //progressAdapter.setNumberOfTags(modelOrig, miniModel, isRemoveUnnecessaryParameters());
-        progressAdapter.progressOn();
-      }
-      
-      if ((reactionsToExclude == null) || !reactionsToExclude.contains(reaction)) {
-        createKineticLaw(reaction, kineticsClass, isReversibility(),
-          typeStandardVersion, typeUnitConsistency, defaultParamVal);
-      }
-      
-      if (progressAdapter != null) {
-        //progressAdapter.setNumberOfTags(modelOrig, miniModel, isRemoveUnnecessaryParameters());
-        progressAdapter.progressOn();
+    if ((numberOfThreads > 1) && (submodelController.getSubmodel().getReactionCount() > 1)) {
+      generateLawsConcurrently(fullRank);
+    } else {
+      for (Reaction reaction : submodelController.getSubmodel().getListOfReactions()) {
+        Cancellation.checkpoint();
+        ReactionType rt = createReactionType(reaction);
+        Class<? extends BasicKineticLaw> kineticsClass = identifyPossibleKineticLaw(rt);
+        
+        if (progressAdapter != null) {
+          //progressAdapter.setNumberOfTags(modelOrig, miniModel, isRemoveUnnecessaryParameters());
+          progressAdapter.progressOn();
+        }
+        
+        if ((reactionsToExclude == null) || !reactionsToExclude.contains(reaction)) {
+          if (rateLawCache == null) {
+            createKineticLaw(reaction, kineticsClass, rt.getProfile(), isReversibility(),
+              typeStandardVersion, typeUnitConsistency, defaultParamVal, fullRank);
+          } else {
+            String fingerprint = RateLawCache.fingerprint(reaction, getSettings(kineticsClass, fullRank));
+            if (!rateLawCache.restore(fingerprint, reaction)) {
+              createKineticLaw(reaction, kineticsClass, rt.getProfile(), isReversibility(),
+                typeStandardVersion, typeUnitConsistency, defaultParamVal, fullRank);
+              rateLawCache.store(fingerprint, reaction);
+            }
+          }
+        }
+        
+        if (progressAdapter != null) {
+          //progressAdapter.setNumberOfTags(modelOrig, miniModel, isRemoveUnnecessaryParameters());
+          progressAdapter.progressOn();
+        }
       }
     }
     
+    if (rateLawCache != null) {
+      saveRateLawCache();
+    }
     if (progressAdapter != null) {
       progressAdapter.finished();
     }
   }
   
+  /**
+   * 
+   * @return the identifiers of all reactions of the original model that are
+   *         affected by changes since the kinetic laws have been stored the
+   *         last time, or {@code null} if all reactions have to be considered.
+   */
+  private Set<String> getAffectedReactions() {
+    ModelChangeListener journal = ModelChangeListener.getJournal(getModel());
+    if ((journal == null) || (reactionsToExclude != null) || !journal.isValidFor(settings)) {
+      return null;
+    }
+    Set<String> affected = journal.getAffectedReactions();
+    if ((affected == null) || affected.isEmpty()) {
+      return null;
+    }
+    if (logger.isLoggable(Level.FINE)) {
+      logger.fine(MessageFormat.format("Creating kinetic laws for {0,number,integer} of {1,number,integer} reactions.",
+        affected.size(), getModel().getReactionCount()));
+    }
+    return affected;
+  }
+  
+  /**
+   * 
+   * @param fullRank
+   * @return a description of all settings that influence the creation of
+   *         kinetic laws for the whole model.
+   */
+  private String getSettings(boolean fullRank) {
+    return Arrays.<Object>asList(KINETICS_PACKAGE.getImplementationVersion(),
+      typeStandardVersion, typeUnitConsistency, defaultParamVal,
+      isReversibility(), addParametersGlobally, possibleEnzymes,
+      allReactionsAsEnzymeCatalyzed, kineticsGeneRegulation,
+      kineticsReversibleNonEnzymeReactions, kineticsReversibleUniUniType,
+      kineticsReversibleArbitraryEnzymeReaction, kineticsReversibleBiUniType,
+      kineticsReversibleBiBiType, kineticsIrreversibleNonEnzymeReactions,
+      kineticsIrreversibleUniUniType, kineticsIrreversibleArbitraryEnzymeReaction,
+      kineticsIrreversibleBiUniType, kineticsIrreversibleBiBiType,
+      kineticsZeroReactants, kineticsZeroProducts,
+      (speciesIgnoreList != null) ? Arrays.asList(speciesIgnoreList) : null,
+      defaultSpatialDimensions, generateLawsForAllReactions,
+      removeUnnecessaryParameters, defaultHasOnlySubstanceUnits,
+      setBoundaryCondition, defaultSpeciesInitVal, defaultCompartmentInitSize,
+      fullRank).toString();
+  }
+  
+  /**
+   * 
+   * @param kineticsClass
+   * @param fullRank
+   * @return a description of all settings that influence the creation of a
+   *         kinetic law of the given class.
+   */
+  private String getSettings(Class<?> kineticsClass, boolean fullRank) {
+    StringBuilder builder = new StringBuilder();
+    builder.append(kineticsClass.getName());
+    builder.append(',');
+    builder.append(KINETICS_PACKAGE.getImplementationVersion());
+    builder.append(',');
+    builder.append(typeStandardVersion);
+    builder.append(',');
+    builder.append(typeUnitConsistency);
+    builder.append(',');
+    builder.append(defaultParamVal);
+    builder.append(',');
+    builder.append(isReversibility());
+    builder.append(',');
+    builder.append(fullRank);
+    return builder.toString();
+  }
+  
+  /**
+   * Writes the {@link #rateLawCache} to its file and logs how often it could
+   * be used.
+   */
+  private void saveRateLawCache() {
+    try {
+      rateLawCache.save();
+    } catch (IOException exc) {
+      logger.log(Level.WARNING, MessageFormat.format(
+        WARNINGS.getString("CANNOT_WRITE_RATE_LAW_CACHE"), rateLawCache.getFile().getAbsolutePath()), exc);
+    }
+    logger.info(MessageFormat.format(MESSAGES.getString("RATE_LAW_CACHE_STATISTICS"),
+      rateLawCache.getFile().getAbsolutePath(), rateLawCache.getHitCount(),
+      rateLawCache.getMissCount(), rateLawCache.size()));
+  }
+  
+  /**
+   * Creates the kinetic laws for all reactions in the sub-model using
+   * {@link #numberOfThreads} threads. All reactions are analyzed on the
+   * current thread first, because this may change the sub-model. Afterwards,
+   * each thread creates kinetic laws within its own copy of the sub-model, so
+   * that no thread changes or reads the sub-model. New global parameters and
+   * unit definitions are collected in {@link PendingModelChanges} and added to
+   * the sub-model together with the kinetic law, one reaction after the other
+   * in their original order. Hence, the result is identical to the sequential
+   * creation of all kinetic laws. Kinetic laws from the {@link #rateLawCache}
+   * are also restored in this order.
+   * 
+   * @param fullRank
+   *        whether the stoichiometric matrix of the original model has full
+   *        column rank.
+   * @throws Throwable
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private void generateLawsConcurrently(final boolean fullRank) throws Throwable {
+    final Model submodel = submodelController.getSubmodel();
+    final boolean reversibility = isReversibility();
+    final TypeStandardVersion version = typeStandardVersion;
+    final UnitConsistencyType consistency = typeUnitConsistency;
+    final double defaultNewParamVal = defaultParamVal;
+    final RateLawCache cache = rateLawCache;
+    
+    final ListOf<Reaction> listOfReactions = submodel.getListOfReactions();
+    int n = listOfReactions.size();
+    String fingerprints[] = new String[n];
+    boolean cached[] = new boolean[n];
+    Class<? extends BasicKineticLaw> kineticsClasses[] = new Class[n];
+    ReactionProfile profiles[] = new ReactionProfile[n];
+    List<Integer> tasks = new ArrayList<Integer>(n);
+    // Replacing a kinetic law changes the identifiers known to the model.
+    for (Reaction reaction : listOfReactions) {
+      if (((reactionsToExclude == null) || !reactionsToExclude.contains(reaction)) && reaction.isSetKineticLaw()) {
+        reaction.unsetKineticLaw();
+      }
+    }
+    // The analysis may change species, it must therefore precede all copies.
+    for (int i = 0; i < n; i++) {
+      Cancellation.checkpoint();
+      Reaction reaction = listOfReactions.get(i);
+      ReactionType rt = createReactionType(reaction);
+      kineticsClasses[i] = identifyPossibleKineticLaw(rt);
+      profiles[i] = rt.getProfile();
+      if ((reactionsToExclude != null) && reactionsToExclude.contains(reaction)) {
+        continue;
+      }
+      if (cache != null) {
+        fingerprints[i] = RateLawCache.fingerprint(reaction, getSettings(kineticsClasses[i], fullRank));
+        // The cached law is restored later on, when all previous reactions are done.
+        cached[i] = cache.contains(fingerprints[i]);
+      }
+      if (!cached[i]) {
+        tasks.add(Integer.valueOf(i));
+      }
+    }
+    
+    List<Future<PendingModelChanges>> listOfChanges = new ArrayList<Future<PendingModelChanges>>(n);
+    for (int i = 0; i < n; i++) {
+      listOfChanges.add(null);
+    }
+    int threads = Math.max(1, Math.min(numberOfThreads, tasks.size()));
+    final BlockingQueue<Model> copies = new LinkedBlockingQueue<Model>();
+    for (int i = 0; i < Math.min(threads, tasks.size()); i++) {
+      copies.add(submodel.getSBMLDocument().clone().getModel());
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (Integer task : tasks) {
+        final int index = task.intValue();
+        final Class<? extends BasicKineticLaw> kineticsClass = kineticsClasses[index];
+        final ReactionProfile profile = profiles[index];
+        listOfChanges.set(index, executor.submit(new Callable<PendingModelChanges>() {
+          /* (non-Javadoc)
+           * @see java.util.concurrent.Callable#call()
+           */
+          @Override
+          public PendingModelChanges call() throws Exception {
+            Cancellation.checkpoint();
+            Model copy = copies.take();
+            try {
+              Reaction reaction = copy.getReaction(index);
+              PendingModelChanges changes = new PendingModelChanges(copy, submodel);
+              changes.activate();
+              try {
+                createKineticLaw(reaction, kineticsClass, profile, reversibility,
+                  version, consistency, defaultNewParamVal, fullRank);
+                changes.detach(reaction);
+              } catch (Error err) {
+                throw err;
+              } catch (Exception exc) {
+                throw exc;
+              } catch (Throwable exc) {
+                throw new Exception(exc);
+              } finally {
+                changes.deactivate();
+              }
+              return changes;
+            } finally {
+              copies.add(copy);
+            }
+          }
+        }));
+      }
+      
+      for (int i = 0; i < n; i++) {
+        Cancellation.checkpoint();
+        Future<PendingModelChanges> future = listOfChanges.get(i);
+        PendingModelChanges changes = (future != null) ? future.get() : null;
+        if (progressAdapter != null) {
+          progressAdapter.progressOn();
+        }
+        Reaction reaction = listOfReactions.get(i);
+        if (cached[i]) {
+          if (!cache.restore(fingerprints[i], reaction)) {
+            // The cached law does not fit anymore:
+            createKineticLaw(reaction, kineticsClasses[i], profiles[i],
+              reversibility, version, consistency, defaultNewParamVal, fullRank);
+            cache.store(fingerprints[i], reaction);
+          }
+        } else if (changes != null) {
+          changes.commit(reaction);
+          if (cache != null) {
+            cache.store(fingerprints[i], reaction);
+          }
+        }
+        if (progressAdapter != null) {
+          progressAdapter.progressOn();
+        }
+      }
+    } catch (ExecutionException exc) {
+      throw exc.getCause();
+    } catch (InterruptedException exc) {
+      throw Cancellation.cancelled(exc);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+  
+  /**
+   * Analyzes the given reaction according to the current settings.
+   * 
+   * @param reaction
+   * @return the {@link ReactionType} of the given reaction.
+   * @throws RateLawNotApplicableException
+   */
+  private ReactionType createReactionType(Reaction reaction)
+      throws RateLawNotApplicableException {
+    return new ReactionType(reaction, isReversibility(),
+      allReactionsAsEnzymeCatalyzed, isSetBoundaryCondition(), speciesIgnoreList);
+  }
+  
+  /**
+   * Determines the kinetic equation for the analyzed reaction according to the
+   * current settings.
+   * 
+   * @param rt
+   * @return the class of the kinetic equation to be applied
+   */
+  private Class<? extends BasicKineticLaw> identifyPossibleKineticLaw(ReactionType rt) {
+    return rt.identifyPossibleKineticLaw(
+      kineticsGeneRegulation, kineticsZeroReactants, kineticsZeroProducts,
+      kineticsReversibleNonEnzymeReactions,
+      kineticsIrreversibleNonEnzymeReactions,
+      kineticsReversibleArbitraryEnzymeReaction,
+      kineticsIrreversibleArbitraryEnzymeReaction,
+      kineticsReversibleUniUniType, kineticsIrreversibleUniUniType,
+      kineticsReversibleBiUniType, kineticsIrreversibleBiUniType,
+      kineticsReversibleBiBiType, kineticsIrreversibleBiBiType);
+  }
+  
   /**
    * Returns all reactions of the model that have the attribute to be fast.
    * 
@@ -625,8 +1044,7 @@ public class KineticLawGenerator {
     if ((subModel == null) || !subModel.containsReaction(reactionID)) {
       subModel = initSubmodel(reactionID);
     }
-    return new ReactionType(subModel.getReaction(reactionID), isReversibility(),
-      allReactionsAsEnzymeCatalyzed, isSetBoundaryCondition(), speciesIgnoreList);
+    return createReactionType(subModel.getReaction(reactionID));
   }
   
   /**
@@ -640,9 +1058,9 @@ public class KineticLawGenerator {
     boolean fullRank = false;
     if ((model.getSpeciesCount() >= model.getReactionCount())
         && (columnRank == -1)) {
-      GaussianRank gaussian = new GaussianRank(stoechMatrix(model));
-      columnRank = gaussian.getColumnRank();
-      fullRank = gaussian.hasFullRank();
+      SparseRank rank = new SparseRank(sparseStoechMatrix(model));
+      columnRank = rank.getColumnRank();
+      fullRank = rank.hasFullRank();
     } else if (columnRank == model.getReactionCount()) {
       fullRank = true;
     }
@@ -674,10 +1092,51 @@ public class KineticLawGenerator {
     }
   }
   
+  /**
+   * Computes the stoichiometric matrix of the model system in a sparse format,
+   * which is suitable also for large networks. Unknown stoichiometries are
+   * assumed to be one.
+   * 
+   * @param model
+   * @return
+   * @see #stoechMatrix(Model)
+   */
+  public SparseMatrix sparseStoechMatrix(Model model) {
+    HashMap<String, Integer> speciesIDandNum = new HashMap<String, Integer>();
+    int i = 0;
+    for (Species s : model.getListOfSpecies()) {
+      speciesIDandNum.put(s.getId(), Integer.valueOf(i++));
+    }
+    int nonZeros = 0;
+    for (Reaction reaction : model.getListOfReactions()) {
+      nonZeros += reaction.getReactantCount() + reaction.getProductCount();
+    }
+    int rows[] = new int[nonZeros], columns[] = new int[nonZeros];
+    double values[] = new double[nonZeros];
+    int k = 0;
+    for (int reactionNum = 0; reactionNum < model.getReactionCount(); reactionNum++) {
+      Reaction reaction = model.getReaction(reactionNum);
+      // Products after reactants, such that the same precedence applies as in stoechMatrix.
+      for (int j = 0; j < reaction.getReactantCount() + reaction.getProductCount(); j++) {
+        boolean product = j >= reaction.getReactantCount();
+        SpeciesReference speciesRef = product ? reaction.getProduct(j - reaction.getReactantCount()) : reaction.getReactant(j);
+        double stoichiometry = speciesRef.getStoichiometry();
+        if (Double.isNaN(stoichiometry) || Double.isInfinite(stoichiometry)) {
+          stoichiometry = 1d;
+        }
+        rows[k] = speciesIDandNum.get(speciesRef.getSpecies()).intValue();
+        columns[k] = reactionNum;
+        values[k++] = product ? stoichiometry : -stoichiometry;
+      }
+    }
+    return new SparseMatrix(model.getSpeciesCount(), model.getReactionCount(), rows, columns, values);
+  }
+  
   /**
    * Computes the stoichiometric matrix of the model system.
    * 
    * @return
+   * @see #sparseStoechMatrix(Model)
    */
   public double[][] stoechMatrix(Model model) {
     double[][] N = new double[model.getSpeciesCount()][model.getReactionCount()];
@@ -730,7 +1189,18 @@ public class KineticLawGenerator {
     submodelController.setDefaultSpeciesInitVal(defaultSpeciesInitVal);
     submodelController.setRemoveUnnecessaryParameters(removeUnnecessaryParameters);
     submodelController.setReversibility(reversibility);
-    Reaction r = submodelController.storeKineticLaw(kineticLaw, true);
+    ModelChangeListener journal = ModelChangeListener.getJournal(getModel());
+    if (journal != null) {
+      journal.setPaused(true);
+    }
+    Reaction r;
+    try {
+      r = submodelController.storeKineticLaw(kineticLaw, true);
+    } finally {
+      if (journal != null) {
+        journal.setPaused(false);
+      }
+    }
     
     if (progressAdapter != null) {
       progressAdapter.finished();
@@ -739,9 +1209,18 @@ public class KineticLawGenerator {
   }
   
   /**
-   * store the generated Kinetics in SBML-File as MathML.
+   * store the generated Kinetics in SBML-File as MathML. Afterwards, the
+   * {@link ModelChangeListener} of the original model records all further
+   * changes, such that {@link #generateLaws(boolean)} can restrict itself to
+   * the affected reactions next time.
+   * 
+   * @throws CancellationException
+   *         if the current thread has been interrupted before the original
+   *         model has been changed.
+   * @see SubmodelController#storeKineticLaws(boolean)
    */
   public void storeKineticLaws() {
+    Cancellation.checkpoint();
 
     if (getFastReactions().size() > 0) {
       logger.log(Level.FINE, MessageFormat.format(MESSAGES.getString("THE_MODEL_CONTAINS"),
@@ -755,12 +1234,16 @@ public class KineticLawGenerator {
       progressAdapter.setNumberOfTags(getModel(), getSubmodel(), isRemoveUnnecessaryParameters());
     }
     
-    ModelChangeListener chl = new ModelChangeListener();
-    getModel().addTreeNodeChangeListener(chl);
-    
-    submodelController.setProgressBar(progressBar);
-    submodelController.storeKineticLaws(isRemoveUnnecessaryParameters());
-    getModel().removeTreeNodeChangeListener(chl);
+    // Changes made by SBMLsqueezer itself are not recorded:
+    ModelChangeListener journal = ModelChangeListener.attach(getModel());
+    journal.setPaused(true);
+    try {
+      submodelController.setProgressBar(progressBar);
+      submodelController.storeKineticLaws(isRemoveUnnecessaryParameters());
+    } finally {
+      journal.setPaused(false);
+    }
+    journal.reset(settings);
 
     if (progressAdapter != null) {
       progressAdapter.finished();
@@ -780,11 +1263,12 @@ public class KineticLawGenerator {
     for (Reaction r : getSubmodel().getListOfReactions()) {
       for (ModifierSpeciesReference modifier : r.getListOfModifiers()) {
         Species species = modifier.getSpeciesInstance();
-        if (SBO.isEnzymaticCatalysis(modifier.getSBOTerm())
+        ModifierRole role = ModifierRole.valueOf(modifier.getSBOTerm());
+        if ((role == ModifierRole.ENZYMATIC_CATALYST)
             && species.isSetSBOTerm()
             && !possibleEnzymes.contains(Integer.valueOf(species.getSBOTerm()))) {
           SBMLtools.setSBOTerm(modifier, SBO.getCatalyst());
-        } else if (SBO.isCatalyst(modifier.getSBOTerm())
+        } else if ((role == ModifierRole.NON_ENZYMATIC_CATALYST)
             && (possibleEnzymes.contains(Integer.valueOf(species.getSBOTerm())) || !species.isSetSBOTerm())) {
           SBMLtools.setSBOTerm(modifier, SBO.getEnzymaticCatalysis());
         }
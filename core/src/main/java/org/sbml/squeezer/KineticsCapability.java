@@ -0,0 +1,147 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer;
+
+import org.sbml.squeezer.kinetics.InterfaceArbitraryEnzymeKinetics;
+import org.sbml.squeezer.kinetics.InterfaceBiBiKinetics;
+import org.sbml.squeezer.kinetics.InterfaceBiUniKinetics;
+import org.sbml.squeezer.kinetics.InterfaceGeneRegulatoryKinetics;
+import org.sbml.squeezer.kinetics.InterfaceIntegerStoichiometry;
+import org.sbml.squeezer.kinetics.InterfaceIrreversibleKinetics;
+import org.sbml.squeezer.kinetics.InterfaceModulatedKinetics;
+import org.sbml.squeezer.kinetics.InterfaceNonEnzymeKinetics;
+import org.sbml.squeezer.kinetics.InterfaceReversibleKinetics;
+import org.sbml.squeezer.kinetics.InterfaceUniUniKinetics;
+import org.sbml.squeezer.kinetics.InterfaceZeroProducts;
+import org.sbml.squeezer.kinetics.InterfaceZeroReactants;
+
+/**
+ * The types of reactions to which a kinetic equation can be applied. Each
+ * capability corresponds to one of the marker interfaces in the kinetics
+ * package, and all capabilities of a kinetic equation can be combined into
+ * one bit mask, see {@link #of(Class)}.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public enum KineticsCapability {
+  /**
+   * Applicable to arbitrary enzyme mechanisms.
+   */
+  ARBITRARY_ENZYME(InterfaceArbitraryEnzymeKinetics.class),
+  /**
+   * Applicable to bi-bi reactions.
+   */
+  BI_BI(InterfaceBiBiKinetics.class),
+  /**
+   * Applicable to bi-uni reactions.
+   */
+  BI_UNI(InterfaceBiUniKinetics.class),
+  /**
+   * Applicable to gene-regulatory processes.
+   */
+  GENE_REGULATORY(InterfaceGeneRegulatoryKinetics.class),
+  /**
+   * Requires integer stoichiometric coefficients.
+   */
+  INTEGER_STOICHIOMETRY(InterfaceIntegerStoichiometry.class),
+  /**
+   * Applicable to irreversible reactions.
+   */
+  IRREVERSIBLE(InterfaceIrreversibleKinetics.class),
+  /**
+   * Considers activators and inhibitors.
+   */
+  MODULATED(InterfaceModulatedKinetics.class),
+  /**
+   * Applicable to reactions that are not catalyzed by enzymes.
+   */
+  NON_ENZYME(InterfaceNonEnzymeKinetics.class),
+  /**
+   * Applicable to reversible reactions.
+   */
+  REVERSIBLE(InterfaceReversibleKinetics.class),
+  /**
+   * Applicable to uni-uni reactions.
+   */
+  UNI_UNI(InterfaceUniUniKinetics.class),
+  /**
+   * Applicable to reactions without products.
+   */
+  ZERO_PRODUCTS(InterfaceZeroProducts.class),
+  /**
+   * Applicable to reactions without reactants.
+   */
+  ZERO_REACTANTS(InterfaceZeroReactants.class);
+  
+  /**
+   * 
+   * @param kinetics
+   *        a kinetic equation
+   * @return the bit mask of all capabilities whose interface is directly
+   *         implemented by the given class.
+   */
+  public static int of(Class<?> kinetics) {
+    int mask = 0;
+    for (Class<?> interf : kinetics.getInterfaces()) {
+      for (KineticsCapability capability : values()) {
+        if (capability.marker.equals(interf)) {
+          mask |= capability.getMask();
+        }
+      }
+    }
+    return mask;
+  }
+  
+  /**
+   * The interface that declares this capability.
+   */
+  private final Class<?> marker;
+  
+  /**
+   * 
+   * @param marker
+   */
+  private KineticsCapability(Class<?> marker) {
+    this.marker = marker;
+  }
+  
+  /**
+   * 
+   * @return the bit that represents this capability.
+   */
+  public int getMask() {
+    return 1 << ordinal();
+  }
+  
+  /**
+   * 
+   * @param mask
+   * @return {@code true} if the given bit mask contains this capability.
+   */
+  public boolean isSetIn(int mask) {
+    return (mask & getMask()) != 0;
+  }
+  
+}
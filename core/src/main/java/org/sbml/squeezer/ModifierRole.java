@@ -0,0 +1,150 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.sbml.jsbml.SBO;
+
+/**
+ * The role of a modifier in a reaction as derived from its SBO term. Finding
+ * the role requires several traversals of the Systems Biology Ontology.
+ * Because there are only few different terms in a model, the role of each
+ * term is determined only once and then kept in a table that can be used by
+ * several threads at once, see {@link #valueOf(int)}.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public enum ModifierRole {
+  /**
+   * Enzymatic catalysts and their children in SBO.
+   */
+  ENZYMATIC_CATALYST("IS_ENZYMATIC_CATALYST"),
+  /**
+   * Catalysts that are not enzymatic.
+   */
+  NON_ENZYMATIC_CATALYST("IS_NON_ENZYMATIC_CATALYST"),
+  /**
+   * Terms below the process catalysis that are not catalysts. These are
+   * also treated as non-enzymatic catalysts.
+   */
+  CATALYSIS("IS_NON_ENZYMATIC_CATALYST"),
+  /**
+   * Transcriptional or translational inhibitors.
+   */
+  TRANSCRIPTIONAL_OR_TRANSLATIONAL_INHIBITOR("IS_TRANSCRIPTIONAL_OR_TRANSLATIONAL_INHIBITOR"),
+  /**
+   * All other inhibitors and terms below the process inhibition.
+   */
+  INHIBITOR("IS_INHIBITOR"),
+  /**
+   * Transcriptional or translational activators.
+   */
+  TRANSCRIPTIONAL_OR_TRANSLATIONAL_ACTIVATOR("IS_TRANSCRIPTIONAL_OR_TRANSLATIONAL_ACTIVATOR"),
+  /**
+   * Triggers, stimulators and terms below the processes stimulation or
+   * necessary stimulation.
+   */
+  ACTIVATOR("IS_ACTIVATOR"),
+  /**
+   * All terms that do not fit into one of the other categories, including
+   * undefined terms.
+   */
+  UNKNOWN(null);
+  
+  /**
+   * The role of each SBO term that has already been requested.
+   */
+  private static final ConcurrentMap<Integer, ModifierRole> roles = new ConcurrentHashMap<Integer, ModifierRole>();
+  
+  /**
+   * 
+   * @param sboTerm
+   * @return the role of modifiers with the given SBO term.
+   */
+  public static ModifierRole valueOf(int sboTerm) {
+    Integer key = Integer.valueOf(sboTerm);
+    ModifierRole role = roles.get(key);
+    if (role == null) {
+      // Two threads might classify the same term, but they agree on the result.
+      role = classify(sboTerm);
+      roles.put(key, role);
+    }
+    return role;
+  }
+  
+  /**
+   * 
+   * @param type
+   * @return the role of the given SBO term from a traversal of the ontology.
+   */
+  private static ModifierRole classify(int type) {
+    if (SBO.isCatalyst(type) || SBO.isChildOf(type, SBO.getCatalysis())) {
+      if (SBO.isEnzymaticCatalysis(type)) {
+        return ENZYMATIC_CATALYST;
+      }
+      return SBO.isCatalyst(type) ? NON_ENZYMATIC_CATALYST : CATALYSIS;
+    } else if (SBO.isTranscriptionalInhibitor(type)
+        || SBO.isTranslationalInhibitor(type)) {
+      return TRANSCRIPTIONAL_OR_TRANSLATIONAL_INHIBITOR;
+    } else if (SBO.isInhibitor(type) || SBO.isChildOf(type, SBO.getInhibition())) {
+      return INHIBITOR;
+    } else if (SBO.isTranscriptionalActivation(type)
+        || SBO.isTranslationalActivation(type)) {
+      return TRANSCRIPTIONAL_OR_TRANSLATIONAL_ACTIVATOR;
+    } else if (SBO.isTrigger(type) || SBO.isStimulator(type)
+        || SBO.isChildOf(type, SBO.getStimulation())
+        || SBO.isChildOf(type, SBO.getNecessaryStimulation())) {
+      // no extra support for unknown catalysis anymore...
+      // physical stimulation is now also a stimulator.
+      return ACTIVATOR;
+    }
+    return UNKNOWN;
+  }
+  
+  /**
+   * The key of the message that is logged for modifiers of this role.
+   */
+  private final String messageKey;
+  
+  /**
+   * 
+   * @param messageKey
+   */
+  private ModifierRole(String messageKey) {
+    this.messageKey = messageKey;
+  }
+  
+  /**
+   * 
+   * @return the key of the localized message that describes a modifier of
+   *         this role or {@code null} if there is none.
+   */
+  public String getMessageKey() {
+    return messageKey;
+  }
+  
+}
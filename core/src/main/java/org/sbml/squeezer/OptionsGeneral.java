@@ -23,6 +23,7 @@
  */
 package org.sbml.squeezer;
 
+import java.io.File;
 import java.util.ResourceBundle;
 
 import org.sbml.jsbml.Compartment;
@@ -170,6 +171,41 @@ public interface OptionsGeneral extends KeyProvider {
       OPTIONS_BUNDLE,
       Boolean.valueOf(true));
   
+  /**
+   * The number of threads that create kinetic equations for the reactions of
+   * one model simultaneously. With one thread, all equations are created
+   * sequentially.
+   */
+  public static final Option<Integer> NUMBER_OF_RATE_LAW_THREADS = new Option<Integer>(
+      "NUMBER_OF_RATE_LAW_THREADS",
+      Integer.class,
+      OPTIONS_BUNDLE,
+      new Range<Integer>(Integer.class, "{[1,1024]}"),
+      Integer.valueOf(1));
+  
+  /**
+   * The file in which kinetic laws are cached across several runs. If a
+   * reaction and all settings are identical to those of a cached kinetic law,
+   * the cached law is reused instead of creating a new one. No cache is used
+   * if this file is not set.
+   */
+  public static final Option<File> RATE_LAW_CACHE = new Option<File>(
+      "RATE_LAW_CACHE",
+      File.class,
+      OPTIONS_BUNDLE,
+      new File(""));
+  
+  /**
+   * The maximal number of kinetic laws in the {@link #RATE_LAW_CACHE}. The
+   * least recently used laws are removed first.
+   */
+  public static final Option<Integer> RATE_LAW_CACHE_SIZE = new Option<Integer>(
+      "RATE_LAW_CACHE_SIZE",
+      Integer.class,
+      OPTIONS_BUNDLE,
+      new Range<Integer>(Integer.class, "{[1,10000000]}"),
+      Integer.valueOf(10000));
+  
   /**
    * Decide whether or not to set the boundary condition for genes to {@code true}.
    */
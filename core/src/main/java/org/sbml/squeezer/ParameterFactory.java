@@ -128,14 +128,20 @@ public class ParameterFactory {
    *            the identifier of the global parameter.
    */
   public Parameter createOrGetGlobalParameter(String id) {
-    Parameter p = model.getParameter(id);
+    // Not null if kinetic laws are currently created concurrently:
+    PendingModelChanges pending = PendingModelChanges.getPendingChanges(model);
+    Parameter p = (pending != null) ? pending.getParameter(id) : model.getParameter(id);
     if (p == null) {
       p = new Parameter(id, model.getLevel(), model.getVersion());
       p.setValue(defaultParamValue);
       if (1 < model.getLevel()) {
         p.setConstant(true);
       }
-      model.addParameter(p);
+      if (pending != null) {
+        pending.addParameter(p);
+      } else {
+        model.addParameter(p);
+      }
     }
     return p;
   }
@@ -167,6 +173,10 @@ public class ParameterFactory {
     if (p == null) {
       p = kineticLaw.createLocalParameter(id);
       p.setValue(defaultParamValue);
+      PendingModelChanges pending = PendingModelChanges.getPendingChanges(model);
+      if (pending != null) {
+        pending.addQuantity(p);
+      }
     }
     return p;
   }
@@ -1055,7 +1065,7 @@ public class ParameterFactory {
       UnitDefinition ud = unitFactory
           .unitPerTimeAndConcentrationOrSubstance(r
             .getListOfReactants(), h, defaultParamValue,
-            defaultParamValue);
+            defaultParamValue).clone();
       ListOf<? extends SimpleSpeciesReference> l = (ListOf<? extends SimpleSpeciesReference>)
           r.getListOfModifiers().filterList(new SBOFilter(SBO.getCatalyst(), SBO.getCatalysis()));
       for (SimpleSpeciesReference ssr : l) {
@@ -1095,9 +1105,12 @@ public class ParameterFactory {
         ud = unitFactory.unitPerTime();
       }
       if (unitFactory.getBringToConcentration() && reaction.isSetListOfModifiers()) {
+        // Do not change the unit definition in the model:
+        ud = ud.clone();
         for (ModifierSpeciesReference modSpecRef : reaction.getListOfModifiers()) {
           ud.multiplyWith(modSpecRef.getSpeciesInstance().getSpatialSizeUnitsInstance());
         }
+        ud = UnitFactory.checkUnitDefinitions(ud, model);
       }
       alpha.setUnits(ud);
     }
@@ -1127,9 +1140,12 @@ public class ParameterFactory {
         ud = unitFactory.unitPerTime();
       }
       if (unitFactory.getBringToConcentration() && reaction.isSetListOfModifiers()) {
+        // Do not change the unit definition in the model:
+        ud = ud.clone();
         for (ModifierSpeciesReference modSpecRef : reaction.getListOfModifiers()) {
           ud.multiplyWith(modSpecRef.getSpeciesInstance().getSpatialSizeUnitsInstance());
         }
+        ud = UnitFactory.checkUnitDefinitions(ud, model);
       }
       beta.setUnits(ud);
     }
@@ -1363,7 +1379,7 @@ public class ParameterFactory {
       Reaction reaction = model.getReaction(rId);
       ////p.setUnits(unitFactory.unitPerTime());
       //p.setUnits(unitFactory.unitPerTimeOrSizePerTime(model.getSpecies(name).getCompartmentInstance()));
-      UnitDefinition ud = unitFactory.unitPerTimeAndConcentrationOrSubstance(reaction.getListOfModifiers(), false);
+      UnitDefinition ud = unitFactory.unitPerTimeAndConcentrationOrSubstance(reaction.getListOfModifiers(), false).clone();
       if (unitFactory.getBringToConcentration()) {
         for (SpeciesReference specRef : reaction.getListOfProducts()) {
           ud.multiplyWith(specRef.getSpeciesInstance().getSpatialSizeUnitsInstance());
@@ -0,0 +1,465 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.tree.TreeNode;
+
+import org.sbml.jsbml.ASTNode;
+import org.sbml.jsbml.CallableSBase;
+import org.sbml.jsbml.JSBML;
+import org.sbml.jsbml.KineticLaw;
+import org.sbml.jsbml.LocalParameter;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.Parameter;
+import org.sbml.jsbml.QuantityWithUnit;
+import org.sbml.jsbml.Reaction;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.SBase;
+import org.sbml.jsbml.Unit;
+import org.sbml.jsbml.UnitDefinition;
+
+/**
+ * Keeps all global {@link Parameter}s and {@link UnitDefinition}s that are
+ * requested while the kinetic law for one single reaction is created on a
+ * worker thread. Each worker thread creates its kinetic laws within a private
+ * copy of the target {@link Model}, which is not shared with other threads.
+ * Instead of changing this copy, the {@link ParameterFactory} and the
+ * {@link UnitFactory} store these components here as long as an instance of
+ * this class is {@link #activate() active} on the current thread. Calling
+ * {@link #commit(Reaction)} for one reaction after the other in their original
+ * order then changes the target {@link Model} exactly in the same way as a
+ * sequential creation of all kinetic laws would have done.
+ *
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+class PendingModelChanges {
+
+  /**
+   * The instance that is active on the current thread.
+   */
+  private static final ThreadLocal<PendingModelChanges> current = new ThreadLocal<PendingModelChanges>();
+
+  /**
+   *
+   * @param model
+   * @return the {@link PendingModelChanges} for the given {@link Model} that
+   *         are active on the current thread or {@code null} if changes can be
+   *         applied to the {@link Model} directly.
+   */
+  static PendingModelChanges getPendingChanges(Model model) {
+    PendingModelChanges pending = current.get();
+    if ((pending != null) && (pending.model == model)) {
+      return pending;
+    }
+    return null;
+  }
+
+  /**
+   * The private copy of the {@link #target} in which the kinetic law is
+   * created.
+   */
+  private final Model model;
+
+  /**
+   * The model that receives all changes when they are committed.
+   */
+  private final Model target;
+
+  /**
+   * The kinetic law that has been created within the {@link #model}.
+   */
+  private KineticLaw kineticLaw;
+
+  /**
+   * The reversibility of the reaction after the creation of the
+   * {@link #kineticLaw}.
+   */
+  private boolean reversible;
+
+  /**
+   * New global parameters and copies of existing ones in the order of their
+   * first request.
+   */
+  private final Map<String, Parameter> parameters;
+
+  /**
+   * The state of each pending {@link Parameter} at the time of its first
+   * request, i.e., before the kinetic law changed it.
+   */
+  private final Map<String, Parameter> snapshots;
+
+  /**
+   * Copies of all {@link UnitDefinition}s that have been requested, but could
+   * not be found in the {@link Model}, in the order of their request.
+   */
+  private final List<UnitDefinition> requests;
+
+  /**
+   * The {@link UnitDefinition} that has been handed out for each element in
+   * {@link #requests}.
+   */
+  private final List<UnitDefinition> unitDefinitions;
+
+  /**
+   * All quantities that may refer to pending {@link UnitDefinition}s, which
+   * are not yet part of the {@link Model}.
+   */
+  private final List<QuantityWithUnit> quantities;
+
+  /**
+   * Copies of pending {@link UnitDefinition}s that have temporarily been added
+   * to the {@link #model}, such that mathematical expressions can refer to
+   * them.
+   */
+  private final List<UnitDefinition> temporary;
+
+  /**
+   *
+   * @param model
+   *        a private copy of the target {@link Model}, in which the kinetic law
+   *        is to be created.
+   * @param target
+   *        the {@link Model} whose components are to be collected.
+   */
+  public PendingModelChanges(Model model, Model target) {
+    this.model = model;
+    this.target = target;
+    parameters = new LinkedHashMap<String, Parameter>();
+    snapshots = new HashMap<String, Parameter>();
+    requests = new ArrayList<UnitDefinition>();
+    unitDefinitions = new ArrayList<UnitDefinition>();
+    quantities = new ArrayList<QuantityWithUnit>();
+    temporary = new ArrayList<UnitDefinition>();
+  }
+
+  /**
+   * From now on, all global parameters and unit definitions that are created
+   * on the current thread for the {@link Model} are collected in this object.
+   */
+  public void activate() {
+    current.set(this);
+  }
+
+  /**
+   * Stops collecting new components on the current thread and restores the
+   * private copy of the {@link Model}.
+   */
+  public void deactivate() {
+    current.remove();
+    for (UnitDefinition ud : temporary) {
+      model.getListOfUnitDefinitions().remove(ud);
+    }
+    temporary.clear();
+  }
+
+  /**
+   * Takes the kinetic law that has just been created for the given reaction
+   * away from the private copy of the {@link Model}, which can then be used
+   * for the next reaction.
+   *
+   * @param reaction
+   *        a reaction within the private copy of the {@link Model}.
+   */
+  public void detach(Reaction reaction) {
+    reversible = reaction.getReversible();
+    if (reaction.isSetKineticLaw()) {
+      kineticLaw = reaction.getKineticLaw();
+      reaction.unsetKineticLaw();
+    }
+  }
+
+  /**
+   * Memorizes the given newly created {@link Parameter}.
+   *
+   * @param p
+   */
+  void addParameter(Parameter p) {
+    parameters.put(p.getId(), p);
+    snapshots.put(p.getId(), p.clone());
+    addQuantity(p);
+  }
+
+  /**
+   * Allows the given quantity to refer to {@link UnitDefinition}s that are
+   * still pending and can therefore not yet be found in the {@link Model}.
+   *
+   * @param quantity
+   */
+  void addQuantity(QuantityWithUnit quantity) {
+    quantity.putUserObject(JSBML.ALLOW_INVALID_SBML, Boolean.TRUE);
+    quantities.add(quantity);
+  }
+
+  /**
+   * Memorizes a {@link UnitDefinition} that could not be found in the
+   * {@link Model}.
+   *
+   * @param request
+   *        a copy of the {@link UnitDefinition} that has originally been
+   *        requested.
+   * @param ud
+   *        the {@link UnitDefinition} that is used instead of the requested
+   *        one. This may either be the request itself or a predefined unit.
+   */
+  void addUnitDefinition(UnitDefinition request, UnitDefinition ud) {
+    requests.add(request);
+    unitDefinitions.add(ud);
+    if (!Unit.isValidUnit(model, ud.getId())) {
+      // Mathematical expressions only accept units that are known to the model.
+      UnitDefinition copy = ud.clone();
+      model.addUnitDefinition(copy);
+      temporary.add(copy);
+    }
+  }
+
+  /**
+   *
+   * @param unitdef
+   * @return the first pending {@link UnitDefinition} that is identical to the
+   *         given one or {@code null} if no such {@link UnitDefinition} exists.
+   */
+  UnitDefinition findIdentical(UnitDefinition unitdef) {
+    for (UnitDefinition ud : unitDefinitions) {
+      if (UnitDefinition.areIdentical(ud, unitdef)) {
+        return ud;
+      }
+    }
+    return null;
+  }
+
+  /**
+   *
+   * @param id
+   * @return a pending copy of the {@link Parameter} with the given identifier
+   *         or {@code null} if neither the {@link Model} nor this object
+   *         contain such a {@link Parameter}.
+   */
+  Parameter getParameter(String id) {
+    Parameter p = parameters.get(id);
+    if (p == null) {
+      p = model.getParameter(id);
+      if (p != null) {
+        // Do not touch the original, other threads might want to read it.
+        p = p.clone();
+        addParameter(p);
+      }
+    }
+    return p;
+  }
+
+  /**
+   *
+   * @param id
+   * @return the pending {@link UnitDefinition} with the given identifier or
+   *         {@code null}.
+   */
+  UnitDefinition getUnitDefinition(String id) {
+    for (UnitDefinition ud : unitDefinitions) {
+      if (id.equals(ud.getId())) {
+        return ud;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Assigns the kinetic law to the given reaction and adds all pending
+   * components to the target {@link Model}. This method must be called for all
+   * kinetic laws in the order of their reactions and must not be called
+   * concurrently.
+   *
+   * @param reaction
+   *        the reaction in the target {@link Model} that corresponds to the
+   *        one passed to {@link #detach(Reaction)}.
+   */
+  public void commit(Reaction reaction) {
+    SBMLDocument doc = target.getSBMLDocument();
+    if (kineticLaw != null) {
+      // Meta identifiers from the private copy might already be in use.
+      renewMetaIds(kineticLaw, doc);
+      reaction.setReversible(reversible);
+      reaction.setKineticLaw(kineticLaw);
+    }
+
+    // Unit definitions that might have been added in the meantime take precedence:
+    Map<String, String> unitIds = new HashMap<String, String>();
+    UnitDefinitionIndex index = UnitDefinitionIndex.getIndex(target);
+    for (int i = 0; i < requests.size(); i++) {
+      UnitDefinition ud = unitDefinitions.get(i);
+      UnitDefinition existing = index.findIdentical(requests.get(i));
+      if (existing == null) {
+        existing = target.getUnitDefinition(ud.getId());
+      }
+      if (existing == null) {
+        renewMetaIds(ud, doc);
+        target.addUnitDefinition(ud);
+      } else if (existing != ud) {
+        unitIds.put(ud.getId(), existing.getId());
+      }
+    }
+    if (!unitIds.isEmpty()) {
+      if (kineticLaw != null) {
+        for (LocalParameter lp : kineticLaw.getListOfLocalParameters()) {
+          updateUnits(lp, unitIds);
+        }
+        if (kineticLaw.isSetMath()) {
+          updateUnits(kineticLaw.getMath(), unitIds);
+        }
+      }
+      for (Parameter p : parameters.values()) {
+        updateUnits(p, unitIds);
+      }
+    }
+
+    for (QuantityWithUnit quantity : quantities) {
+      quantity.removeUserObject(JSBML.ALLOW_INVALID_SBML);
+    }
+
+    Map<CallableSBase, CallableSBase> replacements = new IdentityHashMap<CallableSBase, CallableSBase>();
+    for (Parameter p : parameters.values()) {
+      Parameter existing = target.getParameter(p.getId());
+      if (existing == null) {
+        renewMetaIds(p, doc);
+        target.addParameter(p);
+      } else {
+        applyChanges(p, snapshots.get(p.getId()), existing);
+        replacements.put(p, existing);
+      }
+    }
+    if ((kineticLaw != null) && kineticLaw.isSetMath()) {
+      updateVariables(kineticLaw.getMath(), replacements);
+    }
+  }
+
+  /**
+   * Assigns new meta identifiers from the given {@link SBMLDocument} to the
+   * given element and all its descendants that have a meta identifier.
+   *
+   * @param sbase
+   * @param doc
+   */
+  private static void renewMetaIds(SBase sbase, SBMLDocument doc) {
+    if (sbase.isSetMetaId()) {
+      sbase.setMetaId(doc.nextMetaId());
+    }
+    for (int i = 0; i < sbase.getChildCount(); i++) {
+      TreeNode child = sbase.getChildAt(i);
+      if (child instanceof SBase) {
+        renewMetaIds((SBase) child, doc);
+      }
+    }
+  }
+
+  /**
+   * Transfers all properties that the kinetic law has set on the pending copy
+   * of a {@link Parameter} to the {@link Parameter} in the {@link Model}.
+   *
+   * @param copy
+   *        the pending {@link Parameter}
+   * @param snapshot
+   *        the state of the pending {@link Parameter} before it was changed
+   * @param target
+   *        the {@link Parameter} in the {@link Model}.
+   */
+  private void applyChanges(Parameter copy, Parameter snapshot, Parameter target) {
+    if (copy.isSetValue() && (!snapshot.isSetValue() || (Double.compare(copy.getValue(), snapshot.getValue()) != 0))) {
+      target.setValue(copy.getValue());
+    }
+    if (copy.isSetName() && (!snapshot.isSetName() || !copy.getName().equals(snapshot.getName()))) {
+      target.setName(copy.getName());
+    }
+    if (copy.isSetUnits() && (!snapshot.isSetUnits() || !copy.getUnits().equals(snapshot.getUnits()))) {
+      target.setUnits(copy.getUnits());
+    }
+    if (copy.isSetSBOTerm() && (copy.getSBOTerm() != snapshot.getSBOTerm())) {
+      target.setSBOTerm(copy.getSBOTerm());
+    }
+    if (copy.isSetConstant() && (!snapshot.isSetConstant() || (copy.getConstant() != snapshot.getConstant()))) {
+      target.setConstant(copy.getConstant());
+    }
+  }
+
+  /**
+   *
+   * @param node
+   * @param unitIds
+   *        maps pending unit identifiers to the ones from the {@link Model}.
+   */
+  static void updateUnits(ASTNode node, Map<String, String> unitIds) {
+    if (node.isSetUnits() && unitIds.containsKey(node.getUnits())) {
+      node.setUnits(unitIds.get(node.getUnits()));
+    }
+    for (ASTNode child : node.getChildren()) {
+      updateUnits(child, unitIds);
+    }
+  }
+
+  /**
+   *
+   * @param quantity
+   * @param unitIds
+   *        maps pending unit identifiers to the ones from the {@link Model}.
+   */
+  static void updateUnits(QuantityWithUnit quantity, Map<String, String> unitIds) {
+    if (quantity.isSetUnits() && unitIds.containsKey(quantity.getUnits())) {
+      quantity.setUnits(unitIds.get(quantity.getUnits()));
+    }
+  }
+
+  /**
+   * Lets all nodes that point to a pending {@link Parameter}, which has
+   * become obsolete, point to the corresponding {@link Parameter} in the
+   * target {@link Model}. Nodes that point to components of the private copy
+   * are bound to the target {@link Model} as well.
+   *
+   * @param node
+   * @param replacements
+   */
+  private void updateVariables(ASTNode node, Map<CallableSBase, CallableSBase> replacements) {
+    if (node.getType() == ASTNode.Type.NAME) {
+      CallableSBase variable = node.getVariable();
+      CallableSBase replacement = replacements.get(variable);
+      if (replacement != null) {
+        node.setVariable(replacement);
+      } else if ((variable != null) && (variable.getModel() == model)) {
+        // The variable will be looked up in the target model by its name.
+        String name = node.getName();
+        node.setVariable(null);
+        node.setName(name);
+      }
+    }
+    for (ASTNode child : node.getChildren()) {
+      updateVariables(child, replacements);
+    }
+  }
+
+}
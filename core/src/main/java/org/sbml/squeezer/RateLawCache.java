@@ -0,0 +1,1094 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.swing.tree.TreeNode;
+import javax.xml.stream.XMLStreamException;
+
+import org.sbml.jsbml.ASTNode;
+import org.sbml.jsbml.CallableSBase;
+import org.sbml.jsbml.Compartment;
+import org.sbml.jsbml.KineticLaw;
+import org.sbml.jsbml.LocalParameter;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.ModifierSpeciesReference;
+import org.sbml.jsbml.Parameter;
+import org.sbml.jsbml.Reaction;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.SBMLException;
+import org.sbml.jsbml.SBMLReader;
+import org.sbml.jsbml.SBMLWriter;
+import org.sbml.jsbml.SBase;
+import org.sbml.jsbml.Species;
+import org.sbml.jsbml.SpeciesReference;
+import org.sbml.jsbml.UnitDefinition;
+import org.sbml.jsbml.xml.XMLNode;
+import org.sbml.squeezer.util.Bundles;
+
+import de.zbit.util.ResourceManager;
+
+/**
+ * A persistent cache for kinetic laws. Each entry maps the fingerprint of a
+ * {@link Reaction} together with all settings that influence the creation of
+ * its rate law to the generated {@link KineticLaw}, the global
+ * {@link Parameter}s it refers to, and the {@link UnitDefinition}s it needs.
+ * The fingerprint comprises the identifiers, attributes, and units of the
+ * reaction, all participating {@link Species}, their {@link Compartment}s, the
+ * modifiers' SBO terms, and the default units of the {@link Model}. Hence, a
+ * cached kinetic law is only reused for a reaction that would lead to exactly
+ * the same kinetic law.
+ * <p>
+ * All entries are kept in memory in the order of their last access. If the
+ * cache grows beyond its maximal size, the least recently used entries are
+ * discarded. To this end, the components of many entries share one
+ * {@link Model} per SBML level and version, in which all identifiers are
+ * preceded by the entry's fingerprint. The cache file is a sequence of
+ * records, each of which contains these models for the entries that have been
+ * added since the previous record as well as the fingerprints of all entries
+ * that have been used in the meantime. Hence, calling {@link #save()} only
+ * appends the changes to the file, which is rewritten only if entries have
+ * been discarded or if it consists of too many records.
+ * <p>
+ * All methods of this class are thread-safe. There is only one instance per
+ * cache file, see {@link #getCache(File, int)}.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class RateLawCache {
+  
+  /**
+   * The components of one cached kinetic law.
+   * 
+   * @author Andreas Dr&auml;ger
+   * @since 2.2
+   */
+  private static class Entry {
+    
+    /**
+     * The {@link Model} that contains all components of this entry.
+     */
+    private final Model model;
+    /**
+     * The identifiers of the global {@link Parameter}s in {@link #model}.
+     */
+    private final List<String> parameterIds;
+    /**
+     * Precedes the original identifiers of all components.
+     */
+    private final String prefix;
+    /**
+     * The identifiers of the {@link UnitDefinition}s in {@link #model}.
+     */
+    private final List<String> unitIds;
+    
+    /**
+     * 
+     * @param model
+     * @param fingerprint
+     */
+    private Entry(Model model, String fingerprint) {
+      this.model = model;
+      prefix = 'f' + fingerprint + '_';
+      parameterIds = new ArrayList<String>();
+      unitIds = new ArrayList<String>();
+    }
+    
+    /**
+     * 
+     * @return the {@link Reaction} whose kinetic law is cached.
+     */
+    private Reaction getReaction() {
+      return model.getReaction(prefix.substring(0, prefix.length() - 1));
+    }
+    
+  }
+  
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final transient Logger logger = Logger.getLogger(RateLawCache.class.getName());
+  
+  /**
+   * Localization support.
+   */
+  public static final transient ResourceBundle WARNINGS = ResourceManager.getBundle(Bundles.WARNINGS);
+  
+  /**
+   * Identifies cache files. The last byte is the version of the file format.
+   */
+  private static final int MAGIC_NUMBER = 0x534C4301;
+  
+  /**
+   * The file is rewritten if it consists of more records than this.
+   */
+  private static final int MAX_RECORDS = 64;
+  
+  /**
+   * The encoding of all cached models.
+   */
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  
+  /**
+   * All caches that have been opened so far.
+   */
+  private static final Map<File, RateLawCache> caches = new HashMap<File, RateLawCache>();
+  
+  /**
+   * Opens the cache that is stored in the given file. If the file does not
+   * exist, an empty cache is created, which is written to this file when
+   * calling {@link #save()}. Subsequent calls with the same file return the
+   * same cache.
+   * 
+   * @param file
+   *        where to persistently store the cache.
+   * @param maximumSize
+   *        the maximal number of kinetic laws in the cache.
+   * @return the cache for the given file.
+   */
+  public static RateLawCache getCache(File file, int maximumSize) {
+    File key = file.getAbsoluteFile();
+    synchronized (caches) {
+      RateLawCache cache = caches.get(key);
+      if (cache == null) {
+        cache = new RateLawCache(key, maximumSize);
+        if (key.exists()) {
+          try {
+            cache.load();
+          } catch (IOException exc) {
+            logger.log(Level.WARNING, MessageFormat.format(
+              WARNINGS.getString("CANNOT_READ_RATE_LAW_CACHE"), key.getAbsolutePath()), exc);
+            cache.clear();
+          }
+        }
+        caches.put(key, cache);
+      } else {
+        cache.setMaximumSize(maximumSize);
+      }
+      return cache;
+    }
+  }
+  
+  /**
+   * Whether or not the file must be rewritten because it contains entries
+   * that are no longer part of this cache.
+   */
+  private boolean compact;
+  
+  /**
+   * All cached entries in the order of their last access.
+   */
+  private final LinkedHashMap<String, Entry> entries;
+  
+  /**
+   * The file where this cache is stored.
+   */
+  private final File file;
+  
+  /**
+   * The number of successful look-ups.
+   */
+  private long hitCount;
+  
+  /**
+   * The maximal number of entries.
+   */
+  private int maximumSize;
+  
+  /**
+   * The number of look-ups that did not yield a kinetic law.
+   */
+  private long missCount;
+  
+  /**
+   * For each SBML level and version the {@link Model} with all entries that
+   * have not yet been written to the file.
+   */
+  private final Map<String, Model> pending;
+  
+  /**
+   * The number of records in the file.
+   */
+  private int records;
+  
+  /**
+   * The fingerprints of all entries that have been used since the last
+   * record has been written.
+   */
+  private final List<String> used;
+  
+  /**
+   * 
+   * @param file
+   * @param maximumSize
+   */
+  private RateLawCache(File file, int maximumSize) {
+    this.file = file;
+    setMaximumSize(maximumSize);
+    pending = new HashMap<String, Model>();
+    used = new ArrayList<String>();
+    entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+      /**
+       * Generated serial version identifier.
+       */
+      private static final long serialVersionUID = -3463911474262539016L;
+      
+      /* (non-Javadoc)
+       * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+       */
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        if (size() > RateLawCache.this.maximumSize) {
+          discard(eldest.getValue());
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+  
+  /**
+   * Removes all entries from this cache.
+   */
+  public synchronized void clear() {
+    entries.clear();
+    pending.clear();
+    used.clear();
+    compact = true;
+  }
+  
+  /**
+   * 
+   * @param fingerprint
+   *        see {@link #fingerprint(Reaction, String)}.
+   * @return {@code true} if this cache contains a kinetic law for the given
+   *         fingerprint. Otherwise, the kinetic law has to be created anew,
+   *         which counts as a miss.
+   */
+  public synchronized boolean contains(String fingerprint) {
+    boolean contains = entries.containsKey(fingerprint);
+    if (!contains) {
+      missCount++;
+    }
+    return contains;
+  }
+  
+  /**
+   * Removes all components of the given entry from its {@link Model}.
+   * 
+   * @param entry
+   */
+  private void discard(Entry entry) {
+    entry.model.removeReaction(entry.getReaction());
+    for (String id : entry.parameterIds) {
+      entry.model.removeParameter(id);
+    }
+    for (String id : entry.unitIds) {
+      entry.model.removeUnitDefinition(id);
+    }
+    compact = true;
+  }
+  
+  /**
+   * @return the file where this cache is stored.
+   */
+  public File getFile() {
+    return file;
+  }
+  
+  /**
+   * @return the number of times a kinetic law could be taken from this cache.
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+  
+  /**
+   * @return the maximal number of kinetic laws in this cache.
+   */
+  public synchronized int getMaximumSize() {
+    return maximumSize;
+  }
+  
+  /**
+   * @return the number of times a kinetic law was not found in this cache or
+   *         could not be applied to the model.
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+  
+  /**
+   * 
+   * @param level
+   * @param version
+   * @return the {@link Model} for new entries of the given level and version.
+   */
+  private Model getPendingModel(int level, int version) {
+    String key = "L" + level + "V" + version;
+    Model model = pending.get(key);
+    if (model == null) {
+      model = new SBMLDocument(level, version).createModel();
+      pending.put(key, model);
+    }
+    return model;
+  }
+  
+  /**
+   * Reads all records from {@link #file}. An incomplete last record, which
+   * may result from an interrupted {@link #save()}, is ignored.
+   * 
+   * @throws IOException
+   */
+  private synchronized void load() throws IOException {
+    DataInputStream in = new DataInputStream(new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))));
+    try {
+      if (in.readInt() != MAGIC_NUMBER) {
+        throw new IOException(MessageFormat.format(
+          WARNINGS.getString("INVALID_RATE_LAW_CACHE"), file.getAbsolutePath()));
+      }
+      SBMLReader reader = new SBMLReader();
+      while (true) {
+        int count;
+        try {
+          count = in.readInt();
+        } catch (EOFException exc) {
+          break;
+        }
+        List<Model> models = new ArrayList<Model>(count);
+        List<String> fingerprints = new ArrayList<String>();
+        try {
+          for (int i = 0; i < count; i++) {
+            byte bytes[] = new byte[in.readInt()];
+            in.readFully(bytes);
+            models.add(reader.readSBMLFromString(new String(bytes, UTF8)).getModel());
+          }
+          for (int i = in.readInt(); i > 0; i--) {
+            fingerprints.add(in.readUTF());
+          }
+        } catch (EOFException exc) {
+          compact = true;
+          break;
+        } catch (XMLStreamException exc) {
+          throw new IOException(exc);
+        }
+        for (Model model : models) {
+          addEntries(model);
+        }
+        for (String fingerprint : fingerprints) {
+          entries.get(fingerprint);
+        }
+        records++;
+      }
+    } finally {
+      in.close();
+    }
+  }
+  
+  /**
+   * Adds all entries from a {@link Model} that has been read from the file.
+   * 
+   * @param model
+   */
+  private void addEntries(Model model) {
+    Map<String, Entry> newEntries = new LinkedHashMap<String, Entry>();
+    for (Reaction reaction : model.getListOfReactions()) {
+      String fingerprint = reaction.getId().substring(1);
+      newEntries.put(fingerprint, new Entry(model, fingerprint));
+    }
+    for (Parameter p : model.getListOfParameters()) {
+      Entry entry = newEntries.get(fingerprintOf(p.getId()));
+      if (entry != null) {
+        entry.parameterIds.add(p.getId());
+      }
+    }
+    for (UnitDefinition ud : model.getListOfUnitDefinitions()) {
+      Entry entry = newEntries.get(fingerprintOf(ud.getId()));
+      if (entry != null) {
+        entry.unitIds.add(ud.getId());
+      }
+    }
+    for (Map.Entry<String, Entry> entry : newEntries.entrySet()) {
+      Entry previous = entries.put(entry.getKey(), entry.getValue());
+      if (previous != null) {
+        discard(previous);
+      }
+    }
+  }
+  
+  /**
+   * 
+   * @param id
+   *        the identifier of a component of an entry.
+   * @return the fingerprint of the entry.
+   */
+  private static String fingerprintOf(String id) {
+    int end = id.indexOf('_');
+    return (end > 1) ? id.substring(1, end) : "";
+  }
+  
+  /**
+   * Writes all changes to the file of this cache. Entries that have been
+   * added since the last call are appended to the file. If entries have been
+   * discarded, the entire file is rewritten.
+   * 
+   * @throws IOException
+   */
+  public synchronized void save() throws IOException {
+    if (!compact && pending.isEmpty() && used.isEmpty()) {
+      return;
+    }
+    if (compact || (records >= MAX_RECORDS) || !file.exists()) {
+      rewrite();
+    } else {
+      DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file, true))));
+      try {
+        writeRecord(out, pending.values(), used);
+      } finally {
+        out.close();
+      }
+      records++;
+    }
+    pending.clear();
+    used.clear();
+  }
+  
+  /**
+   * Writes all entries as one single record into a new file, which then
+   * replaces {@link #file}.
+   * 
+   * @throws IOException
+   */
+  private void rewrite() throws IOException {
+    // Copy all entries into new models in the order of their last access:
+    Map<String, Model> models = new LinkedHashMap<String, Model>();
+    for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+      Model source = entry.getValue().model;
+      String key = "L" + source.getLevel() + "V" + source.getVersion();
+      Model target = models.get(key);
+      if (target == null) {
+        target = new SBMLDocument(source.getLevel(), source.getVersion()).createModel();
+        models.put(key, target);
+      }
+      for (String id : entry.getValue().unitIds) {
+        target.addUnitDefinition(source.getUnitDefinition(id).clone());
+      }
+      for (String id : entry.getValue().parameterIds) {
+        target.addParameter(source.getParameter(id).clone());
+      }
+      target.addReaction(entry.getValue().getReaction().clone());
+    }
+    File dir = file.getParentFile();
+    if ((dir != null) && !dir.exists()) {
+      dir.mkdirs();
+    }
+    // Write to a temporary file first, such that a crash cannot corrupt the cache.
+    File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+    try {
+      DataOutputStream out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))));
+      try {
+        out.writeInt(MAGIC_NUMBER);
+        writeRecord(out, models.values(), new ArrayList<String>(entries.keySet()));
+      } finally {
+        out.close();
+      }
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      if (tmp.exists()) {
+        tmp.delete();
+      }
+    }
+    records = 1;
+    compact = false;
+  }
+  
+  /**
+   * 
+   * @param out
+   * @param models
+   *        the models with the entries to be written.
+   * @param fingerprints
+   *        the fingerprints of all entries that have been used, in the order
+   *        of their use.
+   * @throws IOException
+   */
+  private static void writeRecord(DataOutputStream out, Iterable<Model> models, List<String> fingerprints) throws IOException {
+    List<byte[]> documents = new ArrayList<byte[]>();
+    SBMLWriter writer = new SBMLWriter();
+    for (Model model : models) {
+      try {
+        documents.add(writer.writeSBMLToString(model.getSBMLDocument()).getBytes(UTF8));
+      } catch (SBMLException exc) {
+        throw new IOException(exc);
+      } catch (XMLStreamException exc) {
+        throw new IOException(exc);
+      }
+    }
+    out.writeInt(documents.size());
+    for (byte document[] : documents) {
+      out.writeInt(document.length);
+      out.write(document);
+    }
+    out.writeInt(fingerprints.size());
+    for (String fingerprint : fingerprints) {
+      out.writeUTF(fingerprint);
+    }
+  }
+  
+  /**
+   * @param maximumSize
+   *        the maximal number of kinetic laws in this cache. If the cache
+   *        currently contains more entries, the least recently used ones are
+   *        removed as soon as a new kinetic law is added.
+   */
+  public synchronized void setMaximumSize(int maximumSize) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException(Integer.toString(maximumSize));
+    }
+    this.maximumSize = maximumSize;
+  }
+  
+  /**
+   * @return the number of kinetic laws in this cache.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+  
+  /**
+   * Assigns the cached kinetic law for the given fingerprint to the given
+   * {@link Reaction} and adds all global {@link Parameter}s and
+   * {@link UnitDefinition}s the law needs to the reaction's {@link Model} in
+   * the same way as a newly created kinetic law would do. Nothing is changed if
+   * there is no such kinetic law or if the {@link Model} already contains a
+   * different global {@link Parameter} with the identifier of a parameter that
+   * the cached law refers to.
+   * 
+   * @param fingerprint
+   *        see {@link #fingerprint(Reaction, String)}.
+   * @param reaction
+   * @return {@code true} if a cached kinetic law has been assigned to the
+   *         reaction.
+   */
+  public boolean restore(String fingerprint, Reaction reaction) {
+    Reaction cachedReaction;
+    List<UnitDefinition> cachedUnits = new ArrayList<UnitDefinition>();
+    List<Parameter> cachedParameters = new ArrayList<Parameter>();
+    String prefix;
+    synchronized (this) {
+      Entry entry = entries.get(fingerprint);
+      if (entry == null) {
+        missCount++;
+        return false;
+      }
+      prefix = entry.prefix;
+      for (String id : entry.unitIds) {
+        cachedUnits.add(entry.model.getUnitDefinition(id).clone());
+      }
+      for (String id : entry.parameterIds) {
+        cachedParameters.add(entry.model.getParameter(id).clone());
+      }
+      cachedReaction = entry.getReaction().clone();
+    }
+    
+    boolean restored = restore(prefix, cachedReaction, cachedUnits, cachedParameters, reaction);
+    synchronized (this) {
+      if (restored) {
+        hitCount++;
+        used.add(fingerprint);
+      } else {
+        missCount++;
+      }
+    }
+    return restored;
+  }
+  
+  /**
+   * 
+   * @param prefix
+   *        precedes the identifiers of all cached components.
+   * @param cachedReaction
+   *        a copy of the cached reaction.
+   * @param cachedUnits
+   *        copies of the cached unit definitions.
+   * @param cachedParameters
+   *        copies of the cached global parameters.
+   * @param reaction
+   *        the reaction that is to obtain the cached kinetic law.
+   * @return {@code true} if the cached kinetic law has been assigned to the
+   *         reaction.
+   */
+  private boolean restore(String prefix, Reaction cachedReaction,
+    List<UnitDefinition> cachedUnits, List<Parameter> cachedParameters,
+    Reaction reaction) {
+    Model model = reaction.getModel();
+    
+    // Determine which unit definitions the UnitFactory would have chosen:
+    Map<String, String> unitIds = new HashMap<String, String>();
+    List<UnitDefinition> newUnitDefinitions = new ArrayList<UnitDefinition>();
+    UnitDefinitionIndex index = UnitDefinitionIndex.getIndex(model);
+    for (UnitDefinition ud : cachedUnits) {
+      String cachedId = ud.getId();
+      ud.setId(cachedId.substring(prefix.length()));
+      UnitDefinition existing = index.findIdentical(ud);
+      if (existing == null) {
+        existing = model.getUnitDefinition(ud.getId());
+      }
+      if (existing == null) {
+        newUnitDefinitions.add(ud);
+        unitIds.put(cachedId, ud.getId());
+      } else {
+        unitIds.put(cachedId, existing.getId());
+      }
+    }
+    
+    Map<String, String> parameterIds = new HashMap<String, String>();
+    List<Parameter> newParameters = new ArrayList<Parameter>();
+    for (Parameter p : cachedParameters) {
+      String cachedId = p.getId();
+      p.setId(cachedId.substring(prefix.length()));
+      parameterIds.put(cachedId, p.getId());
+      PendingModelChanges.updateUnits(p, unitIds);
+      Parameter existing = model.getParameter(p.getId());
+      if (existing == null) {
+        newParameters.add(p);
+      } else if (!isEqual(existing, p)) {
+        return false;
+      }
+    }
+    
+    SBMLDocument doc = model.getSBMLDocument();
+    for (UnitDefinition ud : newUnitDefinitions) {
+      prepare(ud, doc);
+      model.addUnitDefinition(ud);
+    }
+    for (Parameter p : newParameters) {
+      prepare(p, doc);
+      model.addParameter(p);
+    }
+    KineticLaw kineticLaw = cachedReaction.getKineticLaw().clone();
+    prepare(kineticLaw, doc);
+    rename(kineticLaw, unitIds, parameterIds);
+    reaction.setReversible(cachedReaction.getReversible());
+    reaction.setKineticLaw(kineticLaw);
+    return true;
+  }
+  
+  /**
+   * Stores the kinetic law of the given {@link Reaction} together with all
+   * global {@link Parameter}s it refers to and all {@link UnitDefinition}s it
+   * needs.
+   * 
+   * @param fingerprint
+   *        see {@link #fingerprint(Reaction, String)}.
+   * @param reaction
+   *        a {@link Reaction} whose kinetic law has just been created and
+   *        whose {@link Model} contains all required components.
+   */
+  @SuppressWarnings("deprecation")
+  public void store(String fingerprint, Reaction reaction) {
+    if (!reaction.isSetKineticLaw()) {
+      return;
+    }
+    Model model = reaction.getModel();
+    KineticLaw kineticLaw = reaction.getKineticLaw();
+    Set<String> requiredUnits = new LinkedHashSet<String>();
+    Set<String> requiredParameters = new LinkedHashSet<String>();
+    for (LocalParameter lp : kineticLaw.getListOfLocalParameters()) {
+      if (lp.isSetUnits()) {
+        requiredUnits.add(lp.getUnits());
+      }
+    }
+    if (kineticLaw.isSetMath()) {
+      collectReferences(kineticLaw.getMath(), requiredUnits, requiredParameters);
+    }
+    // Keep the order of the model, which is the order of creation:
+    List<Parameter> parameters = new ArrayList<Parameter>();
+    for (Parameter p : model.getListOfParameters()) {
+      if (requiredParameters.contains(p.getId())) {
+        if (p.isSetUnits()) {
+          requiredUnits.add(p.getUnits());
+        }
+        parameters.add(p.clone());
+      }
+    }
+    List<UnitDefinition> unitDefinitions = new ArrayList<UnitDefinition>();
+    for (UnitDefinition ud : model.getListOfUnitDefinitions()) {
+      if (requiredUnits.contains(ud.getId())) {
+        unitDefinitions.add(ud.clone());
+      }
+    }
+    KineticLaw copy = kineticLaw.clone();
+    
+    synchronized (this) {
+      Entry previous = entries.remove(fingerprint);
+      if (previous != null) {
+        discard(previous);
+      }
+      Model cache = getPendingModel(model.getLevel(), model.getVersion());
+      SBMLDocument doc = cache.getSBMLDocument();
+      Entry entry = new Entry(cache, fingerprint);
+      Map<String, String> unitIds = new HashMap<String, String>();
+      for (UnitDefinition ud : unitDefinitions) {
+        unitIds.put(ud.getId(), entry.prefix + ud.getId());
+        ud.setId(entry.prefix + ud.getId());
+        prepare(ud, doc);
+        cache.addUnitDefinition(ud);
+        entry.unitIds.add(ud.getId());
+      }
+      Map<String, String> parameterIds = new HashMap<String, String>();
+      for (Parameter p : parameters) {
+        parameterIds.put(p.getId(), entry.prefix + p.getId());
+        p.setId(entry.prefix + p.getId());
+        PendingModelChanges.updateUnits(p, unitIds);
+        prepare(p, doc);
+        cache.addParameter(p);
+        entry.parameterIds.add(p.getId());
+      }
+      Reaction cachedReaction = cache.createReaction(entry.prefix.substring(0, entry.prefix.length() - 1));
+      cachedReaction.setReversible(reaction.getReversible());
+      if (reaction.isSetFast()) {
+        cachedReaction.setFast(reaction.getFast());
+      }
+      // The participants are only kept for the sake of completeness:
+      for (SpeciesReference specRef : reaction.getListOfReactants()) {
+        cachedReaction.addReactant(copyParticipant(specRef));
+      }
+      for (SpeciesReference specRef : reaction.getListOfProducts()) {
+        cachedReaction.addProduct(copyParticipant(specRef));
+      }
+      prepare(copy, doc);
+      rename(copy, unitIds, parameterIds);
+      cachedReaction.setKineticLaw(copy);
+      entries.put(fingerprint, entry);
+    }
+  }
+  
+  /**
+   * 
+   * @param specRef
+   * @return a {@link SpeciesReference} that only refers to the same
+   *         {@link Species} with the same stoichiometry as the given one.
+   */
+  private static SpeciesReference copyParticipant(SpeciesReference specRef) {
+    SpeciesReference copy = new SpeciesReference(specRef.getLevel(), specRef.getVersion());
+    copy.setSpecies(specRef.getSpecies());
+    if (specRef.isSetStoichiometry()) {
+      copy.setStoichiometry(specRef.getStoichiometry());
+    }
+    if (specRef.isSetConstant()) {
+      copy.setConstant(specRef.getConstant());
+    }
+    return copy;
+  }
+  
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public synchronized String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("RateLawCache [file=");
+    builder.append(file);
+    builder.append(", size=");
+    builder.append(entries.size());
+    builder.append(", maximumSize=");
+    builder.append(maximumSize);
+    builder.append(", hitCount=");
+    builder.append(hitCount);
+    builder.append(", missCount=");
+    builder.append(missCount);
+    builder.append(']');
+    return builder.toString();
+  }
+  
+  /**
+   * Creates a canonical fingerprint of the given {@link Reaction}. Two
+   * reactions with equal fingerprints obtain identical kinetic laws.
+   * 
+   * @param reaction
+   * @param settings
+   *        a description of all settings that influence the creation of
+   *        kinetic laws, including the class of the kinetic law to be created.
+   * @return a fingerprint of the given reaction and settings.
+   */
+  @SuppressWarnings("deprecation")
+  public static String fingerprint(Reaction reaction, String settings) {
+    Model model = reaction.getModel();
+    StringBuilder sb = new StringBuilder();
+    sb.append(settings);
+    sb.append("\nL").append(model.getLevel()).append('V').append(model.getVersion());
+    sb.append("\nsubstance=").append(units(model.getSubstanceUnitsInstance()));
+    sb.append("\ntime=").append(units(model.getTimeUnitsInstance()));
+    sb.append("\nvolume=").append(units(model.getVolumeUnitsInstance()));
+    sb.append("\narea=").append(units(model.getAreaUnitsInstance()));
+    sb.append("\nlength=").append(units(model.getLengthUnitsInstance()));
+    sb.append("\nreaction=").append(reaction.getId());
+    sb.append(',').append(reaction.getReversible());
+    sb.append(',').append(reaction.isSetFast() && reaction.getFast());
+    sb.append(',').append(reaction.getSBOTerm());
+    sb.append(',').append(reaction.isSetCompartment() ? reaction.getCompartment() : "");
+    
+    Set<Species> species = new LinkedHashSet<Species>();
+    for (SpeciesReference specRef : reaction.getListOfReactants()) {
+      append(sb.append("\nreactant="), specRef);
+      species.add(specRef.getSpeciesInstance());
+    }
+    for (SpeciesReference specRef : reaction.getListOfProducts()) {
+      append(sb.append("\nproduct="), specRef);
+      species.add(specRef.getSpeciesInstance());
+    }
+    for (ModifierSpeciesReference modifier : reaction.getListOfModifiers()) {
+      sb.append("\nmodifier=").append(modifier.isSetId() ? modifier.getId() : "");
+      sb.append(',').append(modifier.getSpecies());
+      sb.append(',').append(modifier.getSBOTerm());
+      species.add(modifier.getSpeciesInstance());
+    }
+    Set<Compartment> compartments = new LinkedHashSet<Compartment>();
+    for (Species s : species) {
+      if (s != null) {
+        append(sb.append("\nspecies="), s);
+        compartments.add(s.getCompartmentInstance());
+      }
+    }
+    for (Compartment c : compartments) {
+      if (c != null) {
+        sb.append("\ncompartment=").append(c.getId());
+        sb.append(',').append(c.getSpatialDimensions());
+        sb.append(',').append(c.isSetSize() ? Double.toString(c.getSize()) : "");
+        sb.append(',').append(units(c.getUnitsInstance()));
+      }
+    }
+    return digest(sb.toString());
+  }
+  
+  /**
+   * 
+   * @param sb
+   * @param specRef
+   */
+  @SuppressWarnings("deprecation")
+  private static void append(StringBuilder sb, SpeciesReference specRef) {
+    sb.append(specRef.isSetId() ? specRef.getId() : "");
+    sb.append(',').append(specRef.getSpecies());
+    sb.append(',').append(specRef.isSetStoichiometry() ? Double.toString(specRef.getStoichiometry()) : "");
+    sb.append(',').append(specRef.isSetConstant() && specRef.getConstant());
+    if (specRef.isSetStoichiometryMath() && specRef.getStoichiometryMath().isSetMath()) {
+      sb.append(',').append(specRef.getStoichiometryMath().getMath().toString());
+    }
+  }
+  
+  /**
+   * 
+   * @param sb
+   * @param species
+   */
+  private static void append(StringBuilder sb, Species species) {
+    sb.append(species.getId());
+    sb.append(',').append(species.getCompartment());
+    sb.append(',').append(species.getSBOTerm());
+    sb.append(',').append(species.getHasOnlySubstanceUnits());
+    sb.append(',').append(species.getBoundaryCondition());
+    sb.append(',').append(species.isSetConstant() && species.getConstant());
+    sb.append(',').append(species.isSetInitialAmount());
+    sb.append(',').append(species.isSetInitialConcentration());
+    sb.append(',').append(species.isSetConversionFactor() ? species.getConversionFactor() : "");
+    sb.append(',').append(units(species.getSubstanceUnitsInstance()));
+  }
+  
+  /**
+   * 
+   * @param node
+   * @param unitIds
+   *        collects the units of all numbers.
+   * @param parameterIds
+   *        collects all global parameters the given node refers to.
+   */
+  private static void collectReferences(ASTNode node, Set<String> unitIds, Set<String> parameterIds) {
+    if (node.isSetUnits()) {
+      unitIds.add(node.getUnits());
+    }
+    if (node.getType() == ASTNode.Type.NAME) {
+      CallableSBase variable = node.getVariable();
+      if ((variable instanceof Parameter) && !(variable instanceof LocalParameter)) {
+        parameterIds.add(variable.getId());
+      }
+    }
+    for (ASTNode child : node.getChildren()) {
+      collectReferences(child, unitIds, parameterIds);
+    }
+  }
+  
+  /**
+   * 
+   * @param text
+   * @return the hexadecimal SHA-256 digest of the given text.
+   */
+  private static String digest(String text) {
+    try {
+      byte hash[] = MessageDigest.getInstance("SHA-256").digest(text.getBytes(UTF8));
+      StringBuilder sb = new StringBuilder(2 * hash.length);
+      for (byte b : hash) {
+        sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+        sb.append(Character.forDigit(b & 0xf, 16));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException exc) {
+      // Every Java platform must support SHA-256.
+      throw new IllegalStateException(exc);
+    }
+  }
+  
+  /**
+   * 
+   * @param p1
+   * @param p2
+   * @return {@code true} if creating a kinetic law cannot have changed any
+   *         property of one parameter to obtain the other one.
+   */
+  private static boolean isEqual(Parameter p1, Parameter p2) {
+    return (p1.isSetValue() == p2.isSetValue())
+        && (!p1.isSetValue() || (Double.compare(p1.getValue(), p2.getValue()) == 0))
+        && (p1.isSetName() ? p1.getName().equals(p2.getName()) : !p2.isSetName())
+        && (p1.isSetUnits() ? p1.getUnits().equals(p2.getUnits()) : !p2.isSetUnits())
+        && (p1.getSBOTerm() == p2.getSBOTerm())
+        && (p1.isSetConstant() == p2.isSetConstant())
+        && (p1.getConstant() == p2.getConstant());
+  }
+  
+  /**
+   * Prepares a copy of a cached element for the given document. The given
+   * element and all its descendants obtain new meta identifiers, because
+   * their meta identifiers have been taken from another document. Moreover,
+   * the {@link SBMLReader} keeps the RDF part of each annotation as it is,
+   * including its white spaces, in addition to the controlled vocabulary
+   * terms. This part is removed if it does not contain anything else, such
+   * that the annotation is written exactly like the one of a newly created
+   * element.
+   * 
+   * @param sbase
+   * @param doc
+   */
+  private static void prepare(SBase sbase, SBMLDocument doc) {
+    if (sbase.isSetMetaId()) {
+      sbase.setMetaId(doc.nextMetaId());
+    }
+    if (sbase.isSetAnnotation() && sbase.getAnnotation().isSetNonRDFannotation()) {
+      XMLNode annotation = sbase.getAnnotation().getNonRDFannotation();
+      boolean rdfOnly = true;
+      for (int i = 0; rdfOnly && (i < annotation.getChildCount()); i++) {
+        XMLNode node = annotation.getChildAt(i);
+        rdfOnly = node.isElement() ? node.getName().equals("RDF") : (node.getCharacters().trim().length() == 0);
+      }
+      if (rdfOnly) {
+        sbase.getAnnotation().unsetNonRDFannotation();
+      }
+    }
+    for (int i = 0; i < sbase.getChildCount(); i++) {
+      TreeNode child = sbase.getChildAt(i);
+      if (child instanceof SBase) {
+        prepare((SBase) child, doc);
+      }
+    }
+  }
+  
+  /**
+   * Replaces the identifiers of units and global parameters in the given
+   * kinetic law.
+   * 
+   * @param kineticLaw
+   * @param unitIds
+   *        maps old to new unit identifiers.
+   * @param parameterIds
+   *        maps old to new identifiers of global parameters.
+   */
+  private static void rename(KineticLaw kineticLaw, Map<String, String> unitIds, Map<String, String> parameterIds) {
+    for (LocalParameter lp : kineticLaw.getListOfLocalParameters()) {
+      PendingModelChanges.updateUnits(lp, unitIds);
+    }
+    if (kineticLaw.isSetMath()) {
+      PendingModelChanges.updateUnits(kineticLaw.getMath(), unitIds);
+      rename(kineticLaw.getMath(), parameterIds);
+    }
+  }
+  
+  /**
+   * 
+   * @param node
+   * @param ids
+   *        maps old to new identifiers.
+   */
+  private static void rename(ASTNode node, Map<String, String> ids) {
+    if ((node.getType() == ASTNode.Type.NAME) && ids.containsKey(node.getName())) {
+      // The variable will be looked up in the model of the new name.
+      String name = ids.get(node.getName());
+      node.setVariable(null);
+      node.setName(name);
+    }
+    for (ASTNode child : node.getChildren()) {
+      rename(child, ids);
+    }
+  }
+  
+  /**
+   * 
+   * @param ud
+   * @return a canonical representation of the given {@link UnitDefinition}.
+   */
+  private static String units(UnitDefinition ud) {
+    if (ud == null) {
+      return "";
+    }
+    return ud.getId() + '=' + UnitDefinition.printUnits(ud, true);
+  }
+  
+}
@@ -0,0 +1,248 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.sbml.jsbml.Reaction;
+import org.sbml.jsbml.SpeciesReference;
+
+/**
+ * The stoichiometric properties of a {@link Reaction} and the roles of its
+ * modifiers, which are needed both to select a kinetic equation and to create
+ * it. A profile is computed once per reaction by {@link ReactionType} and can
+ * be passed on to the kinetic law, which saves further traversals of the
+ * reaction. Profiles cannot be changed, hence they have to be created again
+ * after the reaction has been changed.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public final class ReactionProfile implements Serializable {
+  
+  /**
+   * Generated serial version identifier.
+   */
+  private static final long serialVersionUID = -3516284870352937458L;
+  
+  /**
+   * 
+   * @param role
+   * @return the bit that represents the given role in {@link #getRoles()}.
+   */
+  public static int mask(ModifierRole role) {
+    return 1 << role.ordinal();
+  }
+  
+  /**
+   * The identifiers of the species of the modifiers in each group.
+   */
+  private final String enzymes[], activators[], inhibitors[], nonEnzymeCatalysts[];
+  
+  /**
+   * Whether all stoichiometric coefficients of the reactants are integers.
+   */
+  private final boolean integerStoichiometry;
+  
+  /**
+   * The sum of the stoichiometric coefficients of all reactants or products.
+   */
+  private final double reactantOrder, productOrder;
+  
+  /**
+   * The sum of the stoichiometric coefficients of those reactants or products
+   * whose stoichiometry is not given by a {@code StoichiometryMath}.
+   */
+  private final double numericReactantOrder, numericProductOrder;
+  
+  /**
+   * The roles of all modifiers, see {@link #mask(ModifierRole)}.
+   */
+  private final int roles;
+  
+  /**
+   * 
+   * @param reaction
+   */
+  @SuppressWarnings("deprecation")
+  public ReactionProfile(Reaction reaction) {
+    double order = 0d, numericOrder = 0d;
+    boolean integer = true;
+    for (SpeciesReference specRef : reaction.getListOfReactants()) {
+      double stoichiometry = specRef.getStoichiometry();
+      order += stoichiometry;
+      if (!specRef.isSetStoichiometryMath()) {
+        numericOrder += stoichiometry;
+      }
+      if (((int) stoichiometry) - stoichiometry != 0d) {
+        integer = false;
+      }
+    }
+    reactantOrder = order;
+    numericReactantOrder = numericOrder;
+    integerStoichiometry = integer;
+    
+    order = numericOrder = 0d;
+    for (SpeciesReference specRef : reaction.getListOfProducts()) {
+      double stoichiometry = specRef.getStoichiometry();
+      order += stoichiometry;
+      if (!specRef.isSetStoichiometryMath()) {
+        numericOrder += stoichiometry;
+      }
+    }
+    productOrder = order;
+    numericProductOrder = numericOrder;
+    
+    if (reaction.getModifierCount() == 0) {
+      enzymes = activators = inhibitors = nonEnzymeCatalysts = new String[0];
+      roles = 0;
+      return;
+    }
+    List<String> enzymes = new ArrayList<String>(), activators = new ArrayList<String>();
+    List<String> inhibitors = new ArrayList<String>(), nonEnzymeCatalysts = new ArrayList<String>();
+    int roles = ReactionType.identifyModifers(reaction, enzymes, activators, inhibitors, nonEnzymeCatalysts);
+    this.enzymes = enzymes.toArray(new String[enzymes.size()]);
+    this.activators = activators.toArray(new String[activators.size()]);
+    this.inhibitors = inhibitors.toArray(new String[inhibitors.size()]);
+    this.nonEnzymeCatalysts = nonEnzymeCatalysts.toArray(new String[nonEnzymeCatalysts.size()]);
+    this.roles = roles;
+  }
+  
+  /**
+   * 
+   * @param ids
+   * @return a list view of the given array that cannot be modified.
+   */
+  private static List<String> asList(String ids[]) {
+    return (ids.length == 0) ? Collections.<String>emptyList() : Collections.unmodifiableList(Arrays.asList(ids));
+  }
+  
+  /**
+   * 
+   * @return the identifiers of all activating modifiers.
+   */
+  public List<String> getActivators() {
+    return asList(activators);
+  }
+  
+  /**
+   * 
+   * @return the identifiers of all enzymes.
+   */
+  public List<String> getEnzymes() {
+    return asList(enzymes);
+  }
+  
+  /**
+   * 
+   * @return the identifiers of all inhibiting modifiers.
+   */
+  public List<String> getInhibitors() {
+    return asList(inhibitors);
+  }
+  
+  /**
+   * 
+   * @return the identifiers of all catalysts that are no enzymes.
+   */
+  public List<String> getNonEnzymeCatalysts() {
+    return asList(nonEnzymeCatalysts);
+  }
+  
+  /**
+   * 
+   * @return the sum of the stoichiometric coefficients of those products
+   *         whose stoichiometry is not given by a {@code StoichiometryMath}.
+   */
+  public double getNumericProductOrder() {
+    return numericProductOrder;
+  }
+  
+  /**
+   * 
+   * @return the sum of the stoichiometric coefficients of those reactants
+   *         whose stoichiometry is not given by a {@code StoichiometryMath}.
+   */
+  public double getNumericReactantOrder() {
+    return numericReactantOrder;
+  }
+  
+  /**
+   * 
+   * @return the sum of the stoichiometric coefficients of all products.
+   * @see ReactionType#productOrder(Reaction)
+   */
+  public double getProductOrder() {
+    return productOrder;
+  }
+  
+  /**
+   * 
+   * @return the sum of the stoichiometric coefficients of all reactants.
+   * @see ReactionType#reactantOrder(Reaction)
+   */
+  public double getReactantOrder() {
+    return reactantOrder;
+  }
+  
+  /**
+   * 
+   * @return the roles of all modifiers as a bit mask.
+   * @see #mask(ModifierRole)
+   */
+  public int getRoles() {
+    return roles;
+  }
+  
+  /**
+   * 
+   * @param role
+   * @return {@code true} if at least one modifier has the given role.
+   */
+  public boolean hasRole(ModifierRole role) {
+    return (roles & mask(role)) != 0;
+  }
+  
+  /**
+   * 
+   * @return {@code true} if all stoichiometric coefficients of the reactants
+   *         are integers.
+   */
+  public boolean isIntegerStoichiometry() {
+    return integerStoichiometry;
+  }
+  
+  /**
+   * 
+   * @return {@code true} if there are neither activators nor inhibitors.
+   */
+  public boolean isWithoutModulation() {
+    return (activators.length == 0) && (inhibitors.length == 0);
+  }
+  
+}
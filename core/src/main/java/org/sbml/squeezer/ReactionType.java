@@ -27,10 +27,11 @@ import java.text.MessageFormat;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -101,6 +102,34 @@ public class ReactionType {
      */
     public static final transient ResourceBundle WARNINGS = ResourceManager.getBundle(Bundles.WARNINGS);
 
+    /**
+     * All available kinetic equations, sorted by their names.
+     */
+    private static final Class<?> kinetics[];
+
+    /**
+     * The bit masks of the {@link KineticsCapability capabilities} of all
+     * {@link #kinetics}.
+     */
+    private static final int capabilities[];
+
+    /**
+     * The possible kinetic equations for each shape of a reaction, see
+     * {@link #identifyPossibleKineticLaws()}.
+     */
+    private static final ConcurrentMap<Integer, Class<?>[]> possibleKineticLaws = new ConcurrentHashMap<Integer, Class<?>[]>();
+
+    /**
+     * Bits that describe the shape of a reaction with respect to the selection
+     * of possible kinetic equations.
+     */
+    private static final int EMPTY_REACTANTS = 1, EMPTY_PRODUCTS = 1 << 1,
+            REVERSIBLE = 1 << 2, TREAT_REVERSIBLE = 1 << 3, GENES_OR_RNAS = 1 << 4,
+            NON_ENZYME = 1 << 5, UNI_UNI = 1 << 6, GENE_REGULATION = 1 << 7,
+            INTEGER_STOICHIOMETRY = 1 << 8, WITHOUT_MODULATION = 1 << 9,
+            FIRST_ORDER = 1 << 10, SECOND_ORDER = 1 << 11, BI_UNI = 1 << 12,
+            BI_BI = 1 << 13;
+
     /**
      * Initializes the sets of not reversible and not irreversible kinetic
      * equations.
@@ -114,23 +143,11 @@ public class ReactionType {
          */
         long time = System.currentTimeMillis();
         logger.info("Loading kinetic equations...");
-        setOfKineticsForBiBiReactions = new HashSet<Class>();
-        setOfKineticsForBiUniReactions = new HashSet<Class>();
-        setOfKineticsForGeneRegulatoryNetworks = new HashSet<Class>();
-        setOfKineticsForNonEnzymeReactions = new HashSet<Class>();
-        setOfKineticsForArbitraryEnzymeMechanism = new HashSet<Class>();
-        setOfKineticsForUniUniReactions = new HashSet<Class>();
-        setOfKineticsForReversibleReactions = new HashSet<Class>();
-        setOfKineticsForIrreversibleReactions = new HashSet<Class>();
-        setOfKineticsForZeroReactants = new HashSet<Class>();
-        setOfKineticsForZeroProducts = new HashSet<Class>();
-        setOfKineticsForModulatedReactions = new HashSet<Class>();
-        setOfKineticsForIntStoichiometry = new HashSet<Class>();
         // removed Reflect for JavaWebStart
     /*Class<BasicKineticLaw> classes[] = Reflect.getAllClassesInPackage(
         KINETICS_PACKAGE.getName(), false, true, BasicKineticLaw.class,
         JAR_LOCATION, true);*/
-        Class[] classes = {
+        Class<?>[] classes = {
                 org.sbml.squeezer.kinetics.AdditiveModelLinear.class,
                 org.sbml.squeezer.kinetics.AdditiveModelNonLinear.class,
                 MassActionWithEquilibriumConstant.class,
@@ -161,48 +178,34 @@ public class ReactionType {
                 org.sbml.squeezer.kinetics.ZerothOrderReverseGMAK.class
         };
 
-        for (Class<BasicKineticLaw> c : classes) {
-            Set<Class<?>> s = new HashSet<Class<?>>();
-            for (Class<?> interf : c.getInterfaces()) {
-                s.add(interf);
-            }
-            if (s.contains(InterfaceIrreversibleKinetics.class)) {
-                setOfKineticsForIrreversibleReactions.add(c);
-            }
-            if (s.contains(InterfaceReversibleKinetics.class)) {
-                setOfKineticsForReversibleReactions.add(c);
-            }
-            if (s.contains(InterfaceUniUniKinetics.class)) {
-                setOfKineticsForUniUniReactions.add(c);
-            }
-            if (s.contains(InterfaceBiUniKinetics.class)) {
-                setOfKineticsForBiUniReactions.add(c);
-            }
-            if (s.contains(InterfaceBiBiKinetics.class)) {
-                setOfKineticsForBiBiReactions.add(c);
-            }
-            if (s.contains(InterfaceArbitraryEnzymeKinetics.class)) {
-                setOfKineticsForArbitraryEnzymeMechanism.add(c);
-            }
-            if (s.contains(InterfaceGeneRegulatoryKinetics.class)) {
-                setOfKineticsForGeneRegulatoryNetworks.add(c);
-            }
-            if (s.contains(InterfaceNonEnzymeKinetics.class)) {
-                setOfKineticsForNonEnzymeReactions.add(c);
-            }
-            if (s.contains(InterfaceZeroReactants.class)) {
-                setOfKineticsForZeroReactants.add(c);
-            }
-            if (s.contains(InterfaceZeroProducts.class)) {
-                setOfKineticsForZeroProducts.add(c);
-            }
-            if (s.contains(InterfaceModulatedKinetics.class)) {
-                setOfKineticsForModulatedReactions.add(c);
-            }
-            if (s.contains(InterfaceIntegerStoichiometry.class)) {
-                setOfKineticsForIntStoichiometry.add(c);
+        Arrays.sort(classes, new Comparator<Class<?>>() {
+
+            /* (non-Javadoc)
+             * @see java.util.Comparator#compare(T, T)
+             */
+            @Override
+            public int compare(Class<?> clazz1, Class<?> clazz2) {
+                return clazz1.getName().compareTo(clazz2.getName());
             }
+
+        });
+        kinetics = classes;
+        capabilities = new int[classes.length];
+        for (int i = 0; i < classes.length; i++) {
+            capabilities[i] = KineticsCapability.of(classes[i]);
         }
+        setOfKineticsForIrreversibleReactions = kinetics(KineticsCapability.IRREVERSIBLE);
+        setOfKineticsForReversibleReactions = kinetics(KineticsCapability.REVERSIBLE);
+        setOfKineticsForUniUniReactions = kinetics(KineticsCapability.UNI_UNI);
+        setOfKineticsForBiUniReactions = kinetics(KineticsCapability.BI_UNI);
+        setOfKineticsForBiBiReactions = kinetics(KineticsCapability.BI_BI);
+        setOfKineticsForArbitraryEnzymeMechanism = kinetics(KineticsCapability.ARBITRARY_ENZYME);
+        setOfKineticsForGeneRegulatoryNetworks = kinetics(KineticsCapability.GENE_REGULATORY);
+        setOfKineticsForNonEnzymeReactions = kinetics(KineticsCapability.NON_ENZYME);
+        setOfKineticsForZeroReactants = kinetics(KineticsCapability.ZERO_REACTANTS);
+        setOfKineticsForZeroProducts = kinetics(KineticsCapability.ZERO_PRODUCTS);
+        setOfKineticsForModulatedReactions = kinetics(KineticsCapability.MODULATED);
+        setOfKineticsForIntStoichiometry = kinetics(KineticsCapability.INTEGER_STOICHIOMETRY);
         logger.info(MessageFormat.format(MESSAGES.getString("DONE_IN_MS"), (System.currentTimeMillis() - time)));
 
         notIrreversible = new HashSet<Class>();
@@ -213,6 +216,34 @@ public class ReactionType {
         notReversible.removeAll(getKineticsReversible());
     }
 
+    /**
+     * @param capability
+     * @return a new set of all kinetic equations with the given capability.
+     */
+    private static Set<Class> kinetics(KineticsCapability capability) {
+        Set<Class> set = new HashSet<Class>();
+        for (int i = 0; i < kinetics.length; i++) {
+            if (capability.isSetIn(capabilities[i])) {
+                set.add(kinetics[i]);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * @param clazz a kinetic equation
+     * @return the bit mask of the {@link KineticsCapability capabilities} of
+     * the given kinetic equation or zero if it is unknown.
+     */
+    public static int getCapabilities(Class<?> clazz) {
+        for (int i = 0; i < kinetics.length; i++) {
+            if (kinetics[i].equals(clazz)) {
+                return capabilities[i];
+            }
+        }
+        return 0;
+    }
+
     /**
      * Checks if the given set of kinetics can be used given the property if all
      * reactions should be treated reversibly.
@@ -470,62 +501,50 @@ public class ReactionType {
      * @param activators
      * @param inhibitors
      * @param nonEnzymeCatalysts
+     * @return the roles of all modifiers as a bit mask, see
+     *         {@link ReactionProfile#mask(ModifierRole)}.
      */
-    public static final void identifyModifers(Reaction reaction,
+    public static final int identifyModifers(Reaction reaction,
                                               List<String> enzymes, List<String> activators,
                                               List<String> inhibitors, List<String> nonEnzymeCatalysts) {
         enzymes.clear();
         activators.clear();
         inhibitors.clear();
         nonEnzymeCatalysts.clear();
-        int type;
+        int roles = 0;
         for (ModifierSpeciesReference modifier : reaction.getListOfModifiers()) {
-            type = modifier.getSBOTerm();
             // if (SBO.isModifier(type)) {
             // Ok, this is confusing...
             // inhibitors.add(modifier.getSpecies());
             // activators.add(modifier.getSpecies());
             // }
-            if (SBO.isCatalyst(type) || SBO.isChildOf(type, SBO.getCatalysis())) {
-                if (SBO.isEnzymaticCatalysis(type)) {
-                    if (LogUtil.getCurrentLogLevel().intValue() <= Level.FINE.intValue()) {
-                        logger.fine(MessageFormat.format(MESSAGES.getString("IS_ENZYMATIC_CATALYST"), modifier));
-                    }
+            ModifierRole role = ModifierRole.valueOf(modifier.getSBOTerm());
+            roles |= ReactionProfile.mask(role);
+            if ((role.getMessageKey() != null)
+                    && (LogUtil.getCurrentLogLevel().intValue() <= Level.FINE.intValue())) {
+                logger.fine(MessageFormat.format(MESSAGES.getString(role.getMessageKey()), modifier));
+            }
+            switch (role) {
+                case ENZYMATIC_CATALYST:
                     enzymes.add(modifier.getSpecies());
-                } else {
-                    if (LogUtil.getCurrentLogLevel().intValue() <= Level.FINE.intValue()) {
-                        logger.fine(MessageFormat.format(MESSAGES.getString("IS_NON_ENZYMATIC_CATALYST"), modifier));
-                    }
+                    break;
+                case NON_ENZYMATIC_CATALYST:
+                case CATALYSIS:
                     nonEnzymeCatalysts.add(modifier.getSpecies());
-                }
-            } else if (SBO.isTranscriptionalInhibitor(type)
-                    || SBO.isTranslationalInhibitor(type)) {
-                if (LogUtil.getCurrentLogLevel().intValue() <= Level.FINE.intValue()) {
-                    logger.fine(MessageFormat.format(MESSAGES.getString("IS_TRANSCRIPTIONAL_OR_TRANSLATIONAL_INHIBITOR"), modifier));
-                }
-                inhibitors.add(modifier.getSpecies());
-            } else if (SBO.isInhibitor(type) || SBO.isChildOf(type, SBO.getInhibition())) {
-                if (LogUtil.getCurrentLogLevel().intValue() <= Level.FINE.intValue()) {
-                    logger.fine(MessageFormat.format(MESSAGES.getString("IS_INHIBITOR"), modifier));
-                }
-                inhibitors.add(modifier.getSpecies());
-            } else if (SBO.isTranscriptionalActivation(type)
-                    || SBO.isTranslationalActivation(type)) {
-                if (LogUtil.getCurrentLogLevel().intValue() <= Level.FINE.intValue()) {
-                    logger.fine(MessageFormat.format(MESSAGES.getString("IS_TRANSCRIPTIONAL_OR_TRANSLATIONAL_ACTIVATOR"), modifier));
-                }
-                activators.add(modifier.getSpecies());
-            } else if (SBO.isTrigger(type) || SBO.isStimulator(type)
-                    || SBO.isChildOf(type, SBO.getStimulation())
-                    || SBO.isChildOf(type, SBO.getNecessaryStimulation())) {
-                // no extra support for unknown catalysis anymore...
-                // physical stimulation is now also a stimulator.
-                if (LogUtil.getCurrentLogLevel().intValue() <= Level.FINE.intValue()) {
-                    logger.fine(MessageFormat.format(MESSAGES.getString("IS_ACTIVATOR"), modifier));
-                }
-                activators.add(modifier.getSpecies());
+                    break;
+                case TRANSCRIPTIONAL_OR_TRANSLATIONAL_INHIBITOR:
+                case INHIBITOR:
+                    inhibitors.add(modifier.getSpecies());
+                    break;
+                case TRANSCRIPTIONAL_OR_TRANSLATIONAL_ACTIVATOR:
+                case ACTIVATOR:
+                    activators.add(modifier.getSpecies());
+                    break;
+                default:
+                    break;
             }
         }
+        return roles;
     }
 
     /**
@@ -580,13 +599,18 @@ public class ReactionType {
      */
     private boolean biBi, biUni, integerStoichiometry, nonEnzyme,
             reactionWithGenes = false, reactionWithRNAs = false, reversibility,
-            stoichiometryIntLeft = true, uniUni, withoutModulation;
+            uniUni, withoutModulation;
 
     /**
      *
      */
     private List<String> enzymes, inhibitors, nonEnzymeCatalysts, activators;
 
+    /**
+     * The stoichiometric properties and the modifiers of the reaction.
+     */
+    private ReactionProfile profile;
+
     /**
      *
      */
@@ -620,13 +644,10 @@ public class ReactionType {
         /*
          * Analyze properties of the reaction: compute stoichiometric properties
          */
-        double stoichiometry;
+        profile = new ReactionProfile(reaction);
+        stoichiometryLeft = profile.getReactantOrder();
+        stoichiometryRight = profile.getProductOrder();
         for (i = 0; i < reaction.getReactantCount(); i++) {
-            stoichiometry = reaction.getReactant(i).getStoichiometry();
-            stoichiometryLeft += stoichiometry;
-            if (((int) stoichiometry) - stoichiometry != 0d) {
-                stoichiometryIntLeft = false;
-            }
             // Transcription or translation?
             Species reactantSpecies = reaction.getReactant(i).getSpeciesInstance();
             if (SBO.isGeneOrGeneCodingRegion(reactantSpecies.getSBOTerm())) {
@@ -648,23 +669,11 @@ public class ReactionType {
             }
         }
 
-        // boolean stoichiometryIntRight = true;
-        for (i = 0; i < reaction.getProductCount(); i++) {
-            stoichiometry = reaction.getProduct(i).getStoichiometry();
-            stoichiometryRight += stoichiometry;
-            // if (((int) stoichiometry) - stoichiometry != 0.0)
-            // stoichiometryIntRight = false;
-        }
-
         // identify types of modifiers
-        nonEnzymeCatalysts = new LinkedList<String>();
-        inhibitors = new LinkedList<String>();
-        activators = new LinkedList<String>();
-        enzymes = new LinkedList<String>();
-        if (reaction.getModifierCount() > 0) {
-            identifyModifers(reaction, enzymes, activators, inhibitors,
-                    nonEnzymeCatalysts);
-        }
+        nonEnzymeCatalysts = profile.getNonEnzymeCatalysts();
+        inhibitors = profile.getInhibitors();
+        activators = profile.getActivators();
+        enzymes = profile.getEnzymes();
         nonEnzyme = (!allReactionsAsEnzymeCatalyzed && enzymes.size() == 0)
                 || (nonEnzymeCatalysts.size() > 0)
                 || (((reaction.getProductCount() == 0)
@@ -673,8 +682,8 @@ public class ReactionType {
         uniUni = (stoichiometryLeft == 1d) && (stoichiometryRight == 1d);
         biUni = (stoichiometryLeft == 2d) && (stoichiometryRight == 1d);
         biBi = (stoichiometryLeft == 2d) && (stoichiometryRight == 2d);
-        integerStoichiometry = stoichiometryIntLeft;
-        withoutModulation = (inhibitors.size() == 0) && (activators.size() == 0);
+        integerStoichiometry = profile.isIntegerStoichiometry();
+        withoutModulation = profile.isWithoutModulation();
 
         /*
          * Check if this reaction makes sense at all.
@@ -745,8 +754,7 @@ public class ReactionType {
      * @return
      */
     private boolean checkReversibility(Reaction reaction, Class<?> clazz) {
-        return (reaction.isReversible() && getKineticsReversible().contains(clazz))
-                || (!reaction.isReversible() && getKineticsIrreversible().contains(clazz));
+        return (reaction.isReversible() ? KineticsCapability.REVERSIBLE : KineticsCapability.IRREVERSIBLE).isSetIn(getCapabilities(clazz));
     }
 
     /**
@@ -777,6 +785,14 @@ public class ReactionType {
         return nonEnzymeCatalysts;
     }
 
+    /**
+     * @return the profile of the reaction, which can be passed on to the
+     *         kinetic law.
+     */
+    public ReactionProfile getProfile() {
+        return profile;
+    }
+
     /**
      * @return the reaction
      */
@@ -830,11 +846,13 @@ public class ReactionType {
                                                                        Class<? extends BasicKineticLaw> kineticsIrreversibleBiBiType) {
         if (representsEmptySet(reaction.getListOfReactants())) {
             if (reactionWithGenes || reactionWithRNAs) {
-                if (getKineticsZeroReactants().contains(kineticsGeneRegulation)) {
+                if (KineticsCapability.ZERO_REACTANTS.isSetIn(getCapabilities(kineticsGeneRegulation))) {
                     return kineticsGeneRegulation;
                 }
-                for (Class<? extends BasicKineticLaw> kin : getKineticsGeneRegulatoryNetworks()) {
-                    if (getKineticsZeroReactants().contains(kin)) {
+                int required = KineticsCapability.GENE_REGULATORY.getMask() | KineticsCapability.ZERO_REACTANTS.getMask();
+                for (int i = 0; i < kinetics.length; i++) {
+                    if ((capabilities[i] & required) == required) {
+                        Class<? extends BasicKineticLaw> kin = (Class<? extends BasicKineticLaw>) kinetics[i];
                         if (!kin.equals(kineticsGeneRegulation) && !kin.equals(kineticsZeroReactants)) {
                             logger.warning(MessageFormat.format(
                                     WARNINGS.getString("FALLBACK_KINETICS"),
@@ -850,8 +868,10 @@ public class ReactionType {
         if (representsEmptySet(reaction.getListOfProducts())
                 && (reversibility || reaction.isReversible())) {
             if (reactionWithGenes || reactionWithRNAs) {
-                for (Class<? extends BasicKineticLaw> kin : getKineticsGeneRegulatoryNetworks()) {
-                    if (getKineticsZeroReactants().contains(kin)) {
+                int required = KineticsCapability.GENE_REGULATORY.getMask() | KineticsCapability.ZERO_REACTANTS.getMask();
+                for (int i = 0; i < kinetics.length; i++) {
+                    if ((capabilities[i] & required) == required) {
+                        Class<? extends BasicKineticLaw> kin = (Class<? extends BasicKineticLaw>) kinetics[i];
                         if (!kin.equals(kineticsGeneRegulation) && !kin.equals(kineticsZeroProducts)) {
                             logger.warning(MessageFormat.format(
                                     WARNINGS.getString("FALLBACK_KINETICS"),
@@ -871,7 +891,7 @@ public class ReactionType {
         if (enzymeCatalyzed) {
             if (reaction.isReversible() || reversibility) {
                 whichkin = kineticsReversibleArbitraryEnzymeReaction;
-            } else if (!getKineticsModulated().contains(kineticsIrreversibleArbitraryEnzymeReaction) && !isWithoutModulation()) {
+            } else if (!KineticsCapability.MODULATED.isSetIn(getCapabilities(kineticsIrreversibleArbitraryEnzymeReaction)) && !isWithoutModulation()) {
                 whichkin = kineticsIrreversibleArbitraryEnzymeReaction;
             } else {
                 // TODO: Make this selectable!
@@ -914,54 +934,122 @@ public class ReactionType {
      * classes).
      */
     public Class<?>[] identifyPossibleKineticLaws() {
-        Set<Class> types = new HashSet<Class>();
         boolean emptyListOfReactants = representsEmptySet(reaction.getListOfReactants());
         boolean emptyListOfProducts = representsEmptySet(reaction.getListOfProducts());
+        boolean treatReversible = reaction.isReversible() || reversibility;
+        boolean genesOrRNAs = reactionWithGenes || reactionWithRNAs;
+        int shape = 0;
+        if (emptyListOfReactants) {
+            shape |= EMPTY_REACTANTS;
+        }
+        if (emptyListOfProducts) {
+            shape |= EMPTY_PRODUCTS;
+        }
+        if (reaction.isReversible()) {
+            shape |= REVERSIBLE;
+        }
+        if (treatReversible) {
+            shape |= TREAT_REVERSIBLE;
+        }
+        if (genesOrRNAs) {
+            shape |= GENES_OR_RNAS;
+        }
+        if (nonEnzyme) {
+            shape |= NON_ENZYME;
+        }
+        if (uniUni) {
+            shape |= UNI_UNI;
+            Species reactant = reaction.getReactant(0).getSpeciesInstance();
+            Species product = reaction.getProduct(0).getSpeciesInstance();
+            if (SBO.isGeneOrGeneCodingRegion(reactant.getSBOTerm()) ||
+                    (SBO.isEmptySet(reactant.getSBOTerm()) &&
+                            (SBO.isRNAOrMessengerRNA(product.getSBOTerm())
+                                    || SBO.isProtein(product.getSBOTerm()) ||
+                                    SBO.isGeneric(product.getSBOTerm())))) {
+                shape |= GENE_REGULATION;
+            }
+        }
+        if (integerStoichiometry) {
+            shape |= INTEGER_STOICHIOMETRY;
+        }
+        if (withoutModulation) {
+            shape |= WITHOUT_MODULATION;
+        }
+        if (stoichiometryLeft == 1d) {
+            shape |= FIRST_ORDER;
+        } else if (stoichiometryLeft == 2d) {
+            shape |= SECOND_ORDER;
+        }
+        if (biUni) {
+            shape |= BI_UNI;
+        }
+        if (biBi) {
+            shape |= BI_BI;
+        }
+
+        if ((emptyListOfReactants || (treatReversible && emptyListOfProducts))
+                && !genesOrRNAs && (nonEnzyme || emptyListOfReactants)) {
+            nonEnzyme = true;
+        }
+
+        Integer key = Integer.valueOf(shape);
+        Class<?> t[] = possibleKineticLaws.get(key);
+        if (t == null) {
+            // Other threads may do the same, but they obtain the same result.
+            t = identifyPossibleKineticLaws(shape);
+            possibleKineticLaws.put(key, t);
+        }
+        return t.clone();
+    }
+
+    /**
+     * @param shape the properties of a reaction as a combination of the bits
+     *              {@link #EMPTY_REACTANTS}, {@link #EMPTY_PRODUCTS}, etc.
+     * @return all kinetic equations that can be applied to
+     * reactions of the given shape, sorted by their names.
+     */
+    private static Class<?>[] identifyPossibleKineticLaws(int shape) {
+        boolean emptyListOfReactants = (shape & EMPTY_REACTANTS) != 0;
+        boolean emptyListOfProducts = (shape & EMPTY_PRODUCTS) != 0;
+        boolean reversible = (shape & REVERSIBLE) != 0;
+        boolean treatReversible = (shape & TREAT_REVERSIBLE) != 0;
+        boolean genesOrRNAs = (shape & GENES_OR_RNAS) != 0;
+        boolean integerStoichiometry = (shape & INTEGER_STOICHIOMETRY) != 0;
+        boolean withoutModulation = (shape & WITHOUT_MODULATION) != 0;
         boolean enzymeKinetics = false;
-        if (emptyListOfReactants
-                || ((reaction.isReversible() || reversibility) && emptyListOfProducts)) {
+        int required = 0;
+        boolean possible[] = new boolean[kinetics.length];
+        if (emptyListOfReactants || (treatReversible && emptyListOfProducts)) {
             /*
              * Special case that occurs if we have at least one empty list of
              * species references.
              */
-            if (emptyListOfReactants) {
-                for (Class<?> className : getKineticsZeroReactants()) {
-                    if (!reactionWithGenes && !reactionWithRNAs) {
-                        types.add(className);
-                    }
-                }
-            } else {
-                for (Class<?> className : getKineticsZeroProducts()) {
-                    if (getKineticsReversible().contains(className) && !reactionWithGenes && !reactionWithRNAs) {
-                        types.add(className);
-                    }
+            if (!genesOrRNAs) {
+                if (emptyListOfReactants) {
+                    add(possible, KineticsCapability.ZERO_REACTANTS.getMask(), 0);
+                } else {
+                    add(possible, KineticsCapability.ZERO_PRODUCTS.getMask() | KineticsCapability.REVERSIBLE.getMask(), 0);
                 }
             }
             // Gene-regulation
-            if (reactionWithGenes || reactionWithRNAs) {
-                for (Class<?> className : getKineticsGeneRegulatoryNetworks()) {
-                    if (((reaction.isReversible() && !notReversible.contains(className))
-                            || (!reaction.isReversible() && !notIrreversible.contains(className)))
-                            && (!emptyListOfReactants || setOfKineticsForZeroReactants.contains(className))
-                            && (!emptyListOfProducts || setOfKineticsForZeroProducts.contains(className))) {
-                        types.add(className);
-                    }
+            if (genesOrRNAs) {
+                required = KineticsCapability.GENE_REGULATORY.getMask();
+                if (emptyListOfReactants) {
+                    required |= KineticsCapability.ZERO_REACTANTS.getMask();
+                }
+                if (emptyListOfProducts) {
+                    required |= KineticsCapability.ZERO_PRODUCTS.getMask();
                 }
-            } else if (!nonEnzyme && !emptyListOfReactants) {
+                addApplicable(possible, required, reversible);
+            } else if (((shape & NON_ENZYME) == 0) && !emptyListOfReactants) {
                 enzymeKinetics = true;
-            } else {
-                nonEnzyme = true;
             }
 
         } else {
-            if (nonEnzyme) {
+            if ((shape & NON_ENZYME) != 0) {
                 // non enzyme reactions
-                if (reaction.isReversible()) {
-                    types.addAll(getKineticsReversibleNonEnzyme());
-                }
-                else {
-                    types.addAll(getKineticsIrreversibleNonEnzyme());
-                }
+                add(possible, KineticsCapability.NON_ENZYME.getMask()
+                        | (reversible ? KineticsCapability.REVERSIBLE : KineticsCapability.IRREVERSIBLE).getMask(), 0);
             } else {
                 enzymeKinetics = true;
             }
@@ -969,22 +1057,8 @@ public class ReactionType {
             /*
              * Gene regulation
              */
-            if (uniUni) {
-                Species reactant = reaction.getReactant(0).getSpeciesInstance();
-                Species product = reaction.getProduct(0).getSpeciesInstance();
-                if ((reactionWithGenes || reactionWithRNAs ||
-                        (SBO.isGeneOrGeneCodingRegion(reactant.getSBOTerm()) ||
-                                (SBO.isEmptySet(reactant.getSBOTerm()) &&
-                                        (SBO.isRNAOrMessengerRNA(product.getSBOTerm())
-                                                || SBO.isProtein(product.getSBOTerm()) ||
-                                                SBO.isGeneric(product.getSBOTerm())))))) {
-                    for (Class<?> className : getKineticsGeneRegulatoryNetworks()) {
-                        if ((reaction.isReversible() && !notReversible.contains(className))
-                                || (!reaction.isReversible() && !notIrreversible.contains(className))) {
-                            types.add(className);
-                        }
-                    }
-                }
+            if (((shape & UNI_UNI) != 0) && (genesOrRNAs || ((shape & GENE_REGULATION) != 0))) {
+                addApplicable(possible, KineticsCapability.GENE_REGULATORY.getMask(), reversible);
             }
         }
         if (enzymeKinetics) {
@@ -992,71 +1066,70 @@ public class ReactionType {
              * Enzym-Kinetics: Assign possible rate laws for arbitrary enzyme
              * reations.
              */
-            boolean irreversibleWithEmptyListOfProducts = !reaction.isReversible() && emptyListOfProducts;
-            for (Class<?> className : getKineticsArbitraryEnzymeMechanism()) {
-                if (checkReversibility(reaction, className) && !irreversibleWithEmptyListOfProducts
-                        && (!getKineticsIntStoichiometry().contains(className) || integerStoichiometry)
-                        && (getKineticsModulated().contains(className) || withoutModulation)) {
-                    types.add(className);
-                }
+            int reversibility = (reversible ? KineticsCapability.REVERSIBLE : KineticsCapability.IRREVERSIBLE).getMask();
+            int excluded = integerStoichiometry ? 0 : KineticsCapability.INTEGER_STOICHIOMETRY.getMask();
+            required = withoutModulation ? 0 : KineticsCapability.MODULATED.getMask();
+            if (reversible || !emptyListOfProducts) {
+                add(possible, KineticsCapability.ARBITRARY_ENZYME.getMask() | reversibility | required, excluded);
             }
-            if (uniUni || ((stoichiometryLeft == 1d) && !(reaction.isReversible() || reversibility))) {
-                Set<Class> onlyUniUni = new HashSet<Class>();
-                onlyUniUni.addAll(getKineticsUniUni());
-                onlyUniUni.removeAll(getKineticsArbitraryEnzymeMechanism());
-                if (!integerStoichiometry) {
-                    onlyUniUni.removeAll(getKineticsIntStoichiometry());
-                }
-                if (!withoutModulation) {
-                    onlyUniUni.retainAll(getKineticsModulated());
-                }
-                for (Class<?> className : onlyUniUni) {
-                    if (checkReversibility(reaction, className)) {
-                        types.add(className);
-                    }
-                }
-            } else if (biUni || ((stoichiometryLeft == 2d) && !(reaction.isReversible() || reversibility))) {
-                Set<Class> onlyBiUni = new HashSet<Class>();
-                onlyBiUni.addAll(getKineticsBiUni());
-                onlyBiUni.removeAll(getKineticsArbitraryEnzymeMechanism());
-                if (!integerStoichiometry) {
-                    onlyBiUni.removeAll(getKineticsIntStoichiometry());
-                }
-                if (!withoutModulation) {
-                    onlyBiUni.retainAll(getKineticsModulated());
-                }
-                for (Class<?> className : onlyBiUni) {
-                    if (checkReversibility(reaction, className)) {
-                        types.add(className);
-                    }
-                }
-            } else if (biBi) {
-                Set<Class> onlyBiBi = new HashSet<Class>();
-                onlyBiBi.addAll(getKineticsBiBi());
-                onlyBiBi.removeAll(getKineticsArbitraryEnzymeMechanism());
-                if (!withoutModulation) {
-                    onlyBiBi.retainAll(getKineticsModulated());
-                }
-                for (Class<?> className : onlyBiBi) {
-                    if (checkReversibility(reaction, className)) {
-                        types.add(className);
-                    }
-                }
+            excluded |= KineticsCapability.ARBITRARY_ENZYME.getMask();
+            if (((shape & UNI_UNI) != 0) || (((shape & FIRST_ORDER) != 0) && !treatReversible)) {
+                add(possible, KineticsCapability.UNI_UNI.getMask() | reversibility | required, excluded);
+            } else if (((shape & BI_UNI) != 0) || (((shape & SECOND_ORDER) != 0) && !treatReversible)) {
+                add(possible, KineticsCapability.BI_UNI.getMask() | reversibility | required, excluded);
+            } else if ((shape & BI_BI) != 0) {
+                excluded &= ~KineticsCapability.INTEGER_STOICHIOMETRY.getMask();
+                add(possible, KineticsCapability.BI_BI.getMask() | reversibility | required, excluded);
             }
         }
-        Class<?> t[] = types.toArray(new Class[]{});
-        Arrays.sort(t, new Comparator<Class<?>>() {
+        int count = 0;
+        for (boolean p : possible) {
+            if (p) {
+                count++;
+            }
+        }
+        Class<?> t[] = new Class<?>[count];
+        for (int i = 0, j = 0; i < kinetics.length; i++) {
+            if (possible[i]) {
+                t[j++] = kinetics[i];
+            }
+        }
+        return t;
+    }
 
-            /* (non-Javadoc)
-             * @see java.util.Comparator#compare(T, T)
-             */
-            @Override
-            public int compare(Class<?> clazz1, Class<?> clazz2) {
-                return clazz1.getName().compareTo(clazz2.getName());
+    /**
+     * Marks all kinetic equations that have the required capabilities, but
+     * none of the excluded ones.
+     *
+     * @param possible
+     * @param required
+     * @param excluded
+     */
+    private static void add(boolean possible[], int required, int excluded) {
+        for (int i = 0; i < kinetics.length; i++) {
+            if (((capabilities[i] & required) == required) && ((capabilities[i] & excluded) == 0)) {
+                possible[i] = true;
             }
+        }
+    }
 
-        });
-        return t;
+    /**
+     * Marks all kinetic equations that have the required capabilities and that
+     * are not restricted to the opposite reversibility.
+     *
+     * @param possible
+     * @param required
+     * @param reversible
+     */
+    private static void addApplicable(boolean possible[], int required, boolean reversible) {
+        int reversibility = (reversible ? KineticsCapability.REVERSIBLE : KineticsCapability.IRREVERSIBLE).getMask();
+        int both = KineticsCapability.REVERSIBLE.getMask() | KineticsCapability.IRREVERSIBLE.getMask();
+        for (int i = 0; i < kinetics.length; i++) {
+            if (((capabilities[i] & required) == required)
+                    && (((capabilities[i] & reversibility) != 0) || ((capabilities[i] & both) == 0))) {
+                possible[i] = true;
+            }
+        }
     }
 
     /**
@@ -1123,10 +1196,11 @@ public class ReactionType {
     }
 
     /**
-     * @return the stoichiometryIntLeft
+     * @return whether all stoichiometric coefficients of the reactants are
+     * integers.
      */
     public boolean isStoichiometryIntLeft() {
-        return stoichiometryIntLeft;
+        return profile.isIntegerStoichiometry();
     }
 
     /**
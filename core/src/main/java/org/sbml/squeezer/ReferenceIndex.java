@@ -0,0 +1,222 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.sbml.jsbml.ASTNode;
+import org.sbml.jsbml.Assignment;
+import org.sbml.jsbml.Event;
+import org.sbml.jsbml.KineticLaw;
+import org.sbml.jsbml.MathContainer;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.Reaction;
+import org.sbml.jsbml.SBase;
+import org.sbml.jsbml.SpeciesReference;
+
+/**
+ * Maps each identifier to all elements of a {@link Model} that refer to it,
+ * either in their math or as their variable. The index is created in one
+ * single pass through the {@link Model} and can be updated for individual
+ * elements whose math has changed. This makes it much faster to decide which
+ * parameters are not needed anymore than to test every parameter against
+ * every math element using {@link ASTNode#refersTo(String)}.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+class ReferenceIndex {
+  
+  /**
+   * All identifiers that each element refers to.
+   */
+  private final Map<SBase, Set<String>> references;
+  
+  /**
+   * All elements that refer to each identifier.
+   */
+  private final Map<String, Set<SBase>> referrers;
+  
+  /**
+   * Creates the index for all kinetic laws, stoichiometric math elements,
+   * rules, events, function definitions, initial assignments and constraints
+   * in the given {@link Model}.
+   * 
+   * @param model
+   */
+  public ReferenceIndex(Model model) {
+    references = new IdentityHashMap<SBase, Set<String>>();
+    referrers = new HashMap<String, Set<SBase>>();
+    // Counts instead of lists, because requesting a list creates it if missing.
+    for (int i = 0; i < model.getReactionCount(); i++) {
+      Reaction r = model.getReaction(i);
+      if (r.isSetKineticLaw()) {
+        update(r.getKineticLaw());
+      }
+      for (int j = 0; j < r.getReactantCount(); j++) {
+        updateStoichiometryMath(r.getReactant(j));
+      }
+      for (int j = 0; j < r.getProductCount(); j++) {
+        updateStoichiometryMath(r.getProduct(j));
+      }
+    }
+    for (int i = 0; i < model.getRuleCount(); i++) {
+      update(model.getRule(i));
+    }
+    for (int i = 0; i < model.getEventCount(); i++) {
+      Event e = model.getEvent(i);
+      if (e.isSetTrigger()) {
+        update(e.getTrigger());
+      }
+      if (e.isSetDelay()) {
+        update(e.getDelay());
+      }
+      if (e.isSetPriority()) {
+        update(e.getPriority());
+      }
+      for (int j = 0; j < e.getEventAssignmentCount(); j++) {
+        update(e.getEventAssignment(j));
+      }
+    }
+    for (int i = 0; i < model.getFunctionDefinitionCount(); i++) {
+      update(model.getFunctionDefinition(i));
+    }
+    for (int i = 0; i < model.getInitialAssignmentCount(); i++) {
+      update(model.getInitialAssignment(i));
+    }
+    for (int i = 0; i < model.getConstraintCount(); i++) {
+      update(model.getConstraint(i));
+    }
+  }
+  
+  /**
+   * 
+   * @param referrer
+   * @return all identifiers the given element refers to.
+   */
+  public Set<String> getReferences(SBase referrer) {
+    Set<String> ids = references.get(referrer);
+    return ids != null ? Collections.unmodifiableSet(ids) : Collections.<String>emptySet();
+  }
+  
+  /**
+   * Checks if any element refers to the global component with the given
+   * identifier. References from a {@link KineticLaw} that defines a local
+   * parameter with the same identifier do not count, because the local
+   * parameter shadows the global component.
+   * 
+   * @param id
+   * @return
+   */
+  public boolean isReferenced(String id) {
+    Set<SBase> elements = referrers.get(id);
+    if (elements != null) {
+      for (SBase referrer : elements) {
+        if (!(referrer instanceof KineticLaw)
+            || (((KineticLaw) referrer).getLocalParameter(id) == null)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+  
+  /**
+   * Removes the given element from this index.
+   * 
+   * @param referrer
+   */
+  public void remove(SBase referrer) {
+    Set<String> ids = references.remove(referrer);
+    if (ids != null) {
+      for (String id : ids) {
+        Set<SBase> elements = referrers.get(id);
+        elements.remove(referrer);
+        if (elements.isEmpty()) {
+          referrers.remove(id);
+        }
+      }
+    }
+  }
+  
+  /**
+   * 
+   * @param specRef
+   */
+  @SuppressWarnings("deprecation")
+  private void updateStoichiometryMath(SpeciesReference specRef) {
+    if (specRef.isSetStoichiometryMath()) {
+      update(specRef.getStoichiometryMath());
+    }
+  }
+  
+  /**
+   * Indexes the given element again. This has to be done whenever its math or
+   * its variable has been changed.
+   * 
+   * @param referrer
+   *        an element with math, e.g., a {@link KineticLaw}, or an
+   *        {@link Assignment}.
+   */
+  public void update(SBase referrer) {
+    remove(referrer);
+    Set<String> ids = new HashSet<String>();
+    if ((referrer instanceof Assignment) && ((Assignment) referrer).isSetVariable()) {
+      ids.add(((Assignment) referrer).getVariable());
+    }
+    if ((referrer instanceof MathContainer) && ((MathContainer) referrer).isSetMath()) {
+      // Iteratively, because math can be deeply nested.
+      Deque<ASTNode> stack = new ArrayDeque<ASTNode>();
+      stack.push(((MathContainer) referrer).getMath());
+      while (!stack.isEmpty()) {
+        ASTNode node = stack.pop();
+        if (node.isString() && (node.getName() != null)) {
+          ids.add(node.getName());
+        }
+        for (ASTNode child : node.getChildren()) {
+          stack.push(child);
+        }
+      }
+    }
+    if (!ids.isEmpty()) {
+      references.put(referrer, ids);
+      for (String id : ids) {
+        Set<SBase> elements = referrers.get(id);
+        if (elements == null) {
+          elements = Collections.newSetFromMap(new IdentityHashMap<SBase, Boolean>());
+          referrers.put(id, elements);
+        }
+        elements.add(referrer);
+      }
+    }
+  }
+  
+}
@@ -29,6 +29,9 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -38,6 +41,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -59,10 +63,13 @@ import org.sbml.squeezer.io.SBMLio;
 import org.sbml.squeezer.io.SqSBMLReader;
 import org.sbml.squeezer.io.SqSBMLWriter;
 import org.sbml.squeezer.kinetics.OptionsRateLaws;
+import org.sbml.squeezer.sabiork.SABIORK;
 import org.sbml.squeezer.sabiork.SABIORKOptions;
 import org.sbml.squeezer.sabiork.SABIORKPreferences;
+import org.sbml.squeezer.sabiork.util.CachingTransport;
 import org.sbml.squeezer.sabiork.wizard.SABIORKWizard;
 import org.sbml.squeezer.util.Bundles;
+import org.sbml.squeezer.util.Cancellation;
 import org.sbml.tolatex.LaTeXOptions;
 import org.sbml.tolatex.SBML2LaTeX;
 
@@ -94,6 +101,12 @@ import de.zbit.util.progressbar.ProgressBar;
 @SuppressWarnings("unchecked")
 public class SBMLsqueezer<T> extends Launcher {
 
+  /**
+   * The time in milliseconds to wait for the current file when squeezing is
+   * cancelled on the command line.
+   */
+  private static final long CANCEL_TIMEOUT = 5000L;
+
   private static Boolean libSBMLAvailable = null;
   /**
    * The {@link Logger} for this class.
@@ -202,12 +215,12 @@ public class SBMLsqueezer<T> extends Launcher {
   /**
   * stores the user input which default sign should be applied
   */
-  private Sign sign;
+  private Sign sign = Sign.unknown;
 
   /**
   * stores the user input which default term should be applied
   */
-  private DefaultTerm defaultTerm;
+  private DefaultTerm defaultTerm = DefaultTerm.none;
   
   /**
    *
@@ -275,8 +288,11 @@ public class SBMLsqueezer<T> extends Launcher {
         } catch (NullPointerException e) {
         	defaultTerm = DefaultTerm.none;
         }
-        squeeze(properties.get(IOOptions.SBML_IN_FILE).toString(),
-          properties.get(IOOptions.SBML_OUT_FILE).toString(), searchSABIO);
+        if (!squeeze(properties.get(IOOptions.SBML_IN_FILE).toString(),
+          properties.get(IOOptions.SBML_OUT_FILE).toString(), searchSABIO)) {
+          // Let calling scripts know that not all files could be squeezed.
+          System.exit(1);
+        }
       } catch (Throwable e) {
         e.printStackTrace();
       }
@@ -406,7 +422,18 @@ public class SBMLsqueezer<T> extends Launcher {
    */
   private void initializeReaderAndWriter(boolean tryLoadingLibSBML) {
     logger.info(MESSAGES.getString("LOADING_JSBML"));
-    sbmlIo = (SBMLio<T>) new SBMLio<Model>(new SqSBMLReader(), new SqSBMLWriter());
+    sbmlIo = createSBMLio();
+  }
+
+  /**
+   * Creates a new and independent {@link SBMLio} based on JSBML, i.e., one
+   * that does not share any state with the {@link SBMLio} of this
+   * {@link SBMLsqueezer}.
+   *
+   * @return a new {@link SBMLio} for reading and writing SBML files.
+   */
+  SBMLio<T> createSBMLio() {
+    return (SBMLio<T>) new SBMLio<Model>(new SqSBMLReader(), new SqSBMLWriter());
   }
 
   /* (non-Javadoc)
@@ -422,11 +449,20 @@ public class SBMLsqueezer<T> extends Launcher {
    * @param sbmlSource
    */
   public Model readSBMLSource(Object sbmlSource) {
+    return readSBMLSource(getSBMLIO(), sbmlSource);
+  }
+
+  /**
+   *
+   * @param sbmlio
+   * @param sbmlSource
+   * @return
+   */
+  private Model readSBMLSource(SBMLio<T> sbmlio, Object sbmlSource) {
     Model model = null;
     long time = System.currentTimeMillis();
     logger.info(MESSAGES.getString("READING_SBML_FILE"));
     try {
-      SBMLio<T> sbmlio = getSBMLIO();
       if (sbmlSource instanceof File) {
         model = sbmlio.convertSBMLDocument((File) sbmlSource).getModel();
       } else if (sbmlSource instanceof String) {
@@ -461,8 +497,25 @@ public class SBMLsqueezer<T> extends Launcher {
    * @throws Throwable
    */
   public void squeeze(File source, File outFile, boolean showProgress, boolean searchSABIO) throws Throwable {
+    squeeze(sbmlIo, source, outFile, showProgress, searchSABIO);
+  }
+
+  /**
+   * Squeezes the given source file using the given {@link SBMLio}. This allows
+   * several files to be squeezed simultaneously, as long as each thread uses
+   * its own {@link SBMLio}.
+   *
+   * @param sbmlIo
+   * @param source
+   * @param outFile
+   * @param showProgress
+   * @param searchSABIO
+   * @throws Throwable
+   * @see #squeeze(File, File, boolean, boolean)
+   */
+  void squeeze(SBMLio<T> sbmlIo, File source, File outFile, boolean showProgress, boolean searchSABIO) throws Throwable {
     long workTime = System.currentTimeMillis();
-    readSBMLSource(source.getAbsolutePath());
+    readSBMLSource(sbmlIo, source.getAbsolutePath());
     boolean errorFatal = false;
     SBMLException exception = null;
     List<SBMLException> listOfWarnings = sbmlIo.getWarnings();
@@ -506,6 +559,7 @@ public class SBMLsqueezer<T> extends Launcher {
         progressBar = new ProgressBar(0);
         klg.setProgressBar(progressBar);
       }
+      Cancellation.checkpoint();
       klg.storeKineticLaws();
 
       FunctionTermGenerator ftg = new FunctionTermGenerator();
@@ -518,13 +572,17 @@ public class SBMLsqueezer<T> extends Launcher {
       ftg.generateFunctionTerms(sbmlIo.getSelectedModel());
       logger.info(MessageFormat.format(MESSAGES.getString("DONE_IN_MS"), (System.currentTimeMillis() - time)));
 
+      Cancellation.checkpoint();
       ftg.storeChanges(sbmlIo.getSelectedModel());
 
       time = System.currentTimeMillis();
       logger.info(MESSAGES.getString("SAVING_TO_FILE"));
+      Cancellation.checkpoint();
       if (((outFile != null)
           && (SBFileFilter.hasFileType(outFile, SBFileFilter.FileType.SBML_FILES))) || SBFileFilter.createSBMLFileFilter().accept(outFile)) {
-        sbmlIo.writeSelectedModelToSBML(outFile.getAbsolutePath());
+        if (!writeSelectedModel(sbmlIo, outFile)) {
+          logger.log(Level.WARNING, WARNINGS.getString("OUTPUT_ERROR"));
+        }
         logger.info(MessageFormat.format(MESSAGES.getString("DONE_IN_MS"), (System.currentTimeMillis() - time)));
         SBPreferences preferences = new SBPreferences(OptionsGeneral.class);
         if (preferences.getBoolean(OptionsGeneral.SHOW_SBML_WARNINGS)) {
@@ -545,6 +603,34 @@ public class SBMLsqueezer<T> extends Launcher {
       source.getName()));
   }
 
+  /**
+   * Writes the selected model to a temporary file in the directory of the
+   * given output file and then renames it. Hence, the output file is never
+   * left half-written, even if the virtual machine is shut down meanwhile.
+   *
+   * @param sbmlIo
+   * @param outFile
+   * @return {@code true} if the output file has been written successfully.
+   * @throws SBMLException
+   * @throws IOException
+   */
+  private boolean writeSelectedModel(SBMLio<T> sbmlIo, File outFile) throws SBMLException, IOException {
+    File tmpFile = File.createTempFile(outFile.getName() + '.', ".tmp", outFile.getAbsoluteFile().getParentFile());
+    try {
+      if (!sbmlIo.writeSelectedModelToSBML(tmpFile.getAbsolutePath())) {
+        return false;
+      }
+      try {
+        Files.move(tmpFile.toPath(), outFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException exc) {
+        Files.move(tmpFile.toPath(), outFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+      return true;
+    } finally {
+      Files.deleteIfExists(tmpFile.toPath());
+    }
+  }
+
 
   /**
    * Reads in the given SBML file, squeezes kinetic equations in and writes
@@ -560,17 +646,66 @@ public class SBMLsqueezer<T> extends Launcher {
    *            insensitive).
    * @param searchSABIO
    * 						Also search for kinetics in SABIO-RK and add them if possible
+   * @return {@code true} if all files have been squeezed successfully,
+   *         {@code false} if at least one file failed or squeezing has been
+   *         cancelled.
    * @throws Throwable
    */
-  public void squeeze(Object sbmlSource, String outfile, boolean searchSABIO) throws Throwable {
+  public boolean squeeze(Object sbmlSource, String outfile, boolean searchSABIO) throws Throwable {
     File outFile = outfile != null ? new File(outfile) : null;
     File inFile = sbmlSource != null ? new File(sbmlSource.toString()) : null;
     logger.info(MESSAGES.getString("SCANNING_INPUT_FILES"));
     Map<File, String> ioPairs = FileWalker.filterAndCreate(inFile, outFile, SBFileFilter.createSBMLFileFilter(), true);
+    int numberOfThreads = Math.min(getNumberOfThreads(), ioPairs.size());
     if (ioPairs.size() == 0) {
       logger.info(MESSAGES.getString("EMPTY_INPUT_FILE_LIST"));
+      return true;
+    }
+    Thread cancelHook = createCancelHook(Thread.currentThread());
+    Runtime.getRuntime().addShutdownHook(cancelHook);
+    try {
+      return squeeze(ioPairs, numberOfThreads, searchSABIO);
+    } catch (InterruptedException exc) {
+      logger.info(MESSAGES.getString("OPERATION_CANCELLED"));
+      return false;
+    } finally {
+      try {
+        Runtime.getRuntime().removeShutdownHook(cancelHook);
+      } catch (IllegalStateException exc) {
+        // The virtual machine is already shutting down.
+      }
+    }
+  }
+
+  /**
+   * Squeezes all given files, either sequentially or with a
+   * {@link BatchSqueezer}. Interrupting the current thread stops after the
+   * file that is currently being processed, without writing a partial
+   * result.
+   *
+   * @param ioPairs
+   * @param numberOfThreads
+   * @param searchSABIO
+   * @return {@code true} if all files have been squeezed successfully.
+   * @throws InterruptedException
+   *         if the current thread is interrupted while waiting for the
+   *         workers of a {@link BatchSqueezer}.
+   */
+  private boolean squeeze(Map<File, String> ioPairs, int numberOfThreads, boolean searchSABIO) throws InterruptedException {
+    boolean successful = true;
+    if (numberOfThreads > 1) {
+      BatchSqueezer<T> batch = new BatchSqueezer<T>(this, numberOfThreads, searchSABIO);
+      for (BatchSqueezer.Result result : batch.squeeze(ioPairs)) {
+        successful &= result.isSuccessful();
+      }
     } else {
+      File inFile, outFile;
       for (Map.Entry<File, String> entry : ioPairs.entrySet()) {
+        if (Thread.currentThread().isInterrupted()) {
+          logger.info(MESSAGES.getString("OPERATION_CANCELLED"));
+          successful = false;
+          break;
+        }
         try {
           inFile = entry.getKey();
           outFile = new File(entry.getValue());
@@ -579,13 +714,62 @@ public class SBMLsqueezer<T> extends Launcher {
             inFile.getAbsolutePath(),
             outFile.getAbsolutePath()));
           squeeze(inFile, outFile, false, searchSABIO);
+        } catch (CancellationException exc) {
+          logger.info(MESSAGES.getString("OPERATION_CANCELLED"));
+          successful = false;
+          break;
         } catch (Throwable t) {
+          successful = false;
           logger.log(Level.SEVERE, MessageFormat.format(
             WARNINGS.getString("SQUEEZE_ERROR"),
             entry.getKey().getAbsolutePath(), entry.getValue()), t);
         }
       }
     }
+    return successful;
+  }
+
+  /**
+   * Creates a hook that cancels squeezing on the command line, i.e., when the
+   * user presses Ctrl+C or the process receives a termination signal. The hook
+   * interrupts the given thread and waits a moment until it has stopped.
+   * Output files are only replaced when they are complete, see
+   * {@link #writeSelectedModel(SBMLio, File)}.
+   *
+   * @param squeezing
+   *        the thread that squeezes the files.
+   * @return a thread that can be registered with
+   *         {@link Runtime#addShutdownHook(Thread)}.
+   */
+  private Thread createCancelHook(final Thread squeezing) {
+    return new Thread(new Runnable() {
+      /* (non-Javadoc)
+       * @see java.lang.Runnable#run()
+       */
+      @Override
+      public void run() {
+        logger.info(MESSAGES.getString("CANCELLING"));
+        squeezing.interrupt();
+        try {
+          squeezing.join(CANCEL_TIMEOUT);
+        } catch (InterruptedException exc) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }, "SBMLsqueezer-cancel");
+  }
+
+  /**
+   * @return the number of files that can be squeezed in parallel, according
+   *         to the command-line arguments or, if not given there, the user's
+   *         preferences.
+   */
+  private int getNumberOfThreads() {
+    if ((appConf != null) && appConf.getCmdArgs().containsKey(IOOptions.NUMBER_OF_THREADS)) {
+      return Math.max(1, appConf.getCmdArgs().getInt(IOOptions.NUMBER_OF_THREADS));
+    }
+    SBPreferences prefs = SBPreferences.getPreferencesFor(IOOptions.class);
+    return Math.max(1, prefs.getInt(IOOptions.NUMBER_OF_THREADS));
   }
 
   /**
@@ -740,6 +924,41 @@ public class SBMLsqueezer<T> extends Launcher {
       dateSubmitted = prefs.get(SABIORKPreferences.LOWEST_DATE);
     }
 
+    String responseCache = null;
+    if (properties.containsKey(SABIORKPreferences.RESPONSE_CACHE)) {
+      responseCache = properties.get(SABIORKPreferences.RESPONSE_CACHE);
+    }
+    else {
+      responseCache = prefs.get(SABIORKPreferences.RESPONSE_CACHE);
+    }
+
+    String responseCacheMode = null;
+    if (properties.containsKey(SABIORKPreferences.RESPONSE_CACHE_MODE)) {
+      responseCacheMode = properties.get(SABIORKPreferences.RESPONSE_CACHE_MODE);
+    }
+    else {
+      responseCacheMode = prefs.get(SABIORKPreferences.RESPONSE_CACHE_MODE);
+    }
+
+    int timeToLive;
+    if (properties.containsKey(SABIORKPreferences.RESPONSE_CACHE_TIME_TO_LIVE)) {
+      timeToLive = properties.getInt(SABIORKPreferences.RESPONSE_CACHE_TIME_TO_LIVE);
+    }
+    else {
+      timeToLive = prefs.getInt(SABIORKPreferences.RESPONSE_CACHE_TIME_TO_LIVE);
+    }
+
+    int cacheSize;
+    if (properties.containsKey(SABIORKPreferences.RESPONSE_CACHE_SIZE)) {
+      cacheSize = properties.getInt(SABIORKPreferences.RESPONSE_CACHE_SIZE);
+    }
+    else {
+      cacheSize = prefs.getInt(SABIORKPreferences.RESPONSE_CACHE_SIZE);
+    }
+
+    SABIORK.configureTransport(new File(responseCache),
+      CachingTransport.Mode.valueOf(responseCacheMode), timeToLive, cacheSize);
+
     Set<Reaction> changedReactions = SABIORKWizard.getResultConsole(sbmlDocument, overwriteExistingRateLaws, pathway, tissue, organism, cellularLocation, isWildtype, isMutant, isRecombinant, hasKineticData, lowerpHValue, upperpHValue, lowerTemperature, upperTemperature, isDirectSubmission, isJournal, isEntriesInsertedSince, dateSubmitted);
     return changedReactions;
   }
@@ -28,12 +28,14 @@ import de.zbit.util.ResourceManager;
 import de.zbit.util.progressbar.AbstractProgressBar;
 import org.sbml.jsbml.*;
 import org.sbml.squeezer.util.Bundles;
+import org.sbml.squeezer.util.Cancellation;
 import org.sbml.squeezer.util.ProgressAdapter;
 import org.sbml.squeezer.util.ProgressAdapter.TypeOfProgress;
 
 import javax.swing.tree.TreeNode;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -89,6 +91,13 @@ public class SubmodelController {
   private ProgressAdapter progressAdapter;
   private AbstractProgressBar progressBar;
   
+  /**
+   * All references to identifiers in the original model, which are needed to
+   * decide which parameters can be removed. This index is created when needed
+   * for the first time and updated for each kinetic law stored afterwards.
+   */
+  private ReferenceIndex referenceIndex;
+  
   private double defaultSpatialDimensions = 3;
   
   /**
@@ -152,15 +161,54 @@ public class SubmodelController {
    * @param reactionID
    * 
    * @return
+   * @throws CancellationException
+   *         if the current thread has been interrupted.
    */
   public Model createSubmodel(String reactionID) {
+    return createSubmodel((reactionID != null) ? Collections.singleton(reactionID) : null, true);
+  }
+  
+  /**
+   * Creates a minimal copy of the original model that only covers those
+   * elements needed for the creation of rate equations for the given
+   * reactions. Kinetic laws are created for these reactions, even if they
+   * already have one.
+   * 
+   * @param reactionIDs
+   *        the identifiers of the reactions to be copied or {@code null} to
+   *        copy all reactions.
+   * @return
+   * @throws CancellationException
+   *         if the current thread has been interrupted.
+   */
+  public Model createSubmodel(Set<String> reactionIDs) {
+    return createSubmodel(reactionIDs, true);
+  }
+  
+  /**
+   * Creates a minimal copy of the original model that only covers those
+   * elements needed for the creation of rate equations for the given
+   * reactions.
+   * 
+   * @param reactionIDs
+   *        the identifiers of the reactions to be copied or {@code null} to
+   *        copy all reactions.
+   * @param overwrite
+   *        whether to create kinetic laws for the given reactions even if they
+   *        already have one. Otherwise, existing kinetic laws are only
+   *        replaced if {@link #setGenerateLawsForAllReactions(boolean)} has
+   *        been set.
+   * @return
+   * @throws CancellationException
+   *         if the current thread has been interrupted.
+   */
+  public Model createSubmodel(Set<String> reactionIDs, boolean overwrite) {
     
     if (progressBar != null) {
       progressAdapter = new ProgressAdapter(progressBar, TypeOfProgress.createMiniModel);
       progressAdapter.setNumberOfTags(modelOrig, submodel, removeUnnecessaryParameters);
     }
     
-    boolean create = generateLawsForAllReactions;
     int level = modelOrig.getLevel(), version = modelOrig.getVersion();
     SBMLDocument miniDoc = new SBMLDocument(level, version);
     submodel = miniDoc.createModel("submodel_" + modelOrig.getId());
@@ -298,6 +346,7 @@ public class SubmodelController {
     if (modelOrig.isSetListOfReactions()) {
       boolean isBelowL3_2 = modelOrig.getLevelAndVersion().compareTo(3, 2) < 0;
       for (Reaction reacOrig : modelOrig.getListOfReactions()) {
+        Cancellation.checkpoint();
         /*
          * Let us find all fast reactions. This feature is currently
          * ignored.
@@ -310,12 +359,12 @@ public class SubmodelController {
             listOfFastReactions.add(reacOrig);
           }
         }
-        if (reactionID != null) {
-          if (!reacOrig.getId().equals(reactionID)) {
+        boolean create = generateLawsForAllReactions;
+        if (reactionIDs != null) {
+          if (!reactionIDs.contains(reacOrig.getId())) {
             continue;
-          } else {
-            create = true;
           }
+          create |= overwrite;
         }
         if (reacOrig.isSetKineticLaw()) {
           KineticLaw kl = reacOrig.getKineticLaw();
@@ -334,10 +383,7 @@ public class SubmodelController {
           if (reacOrig.isSetSBOTerm()) {
             SBMLtools.setSBOTerm(reac, reacOrig.getSBOTerm());
           }
-          if (reacOrig.isSetAnnotation()) {
-            reac.setAnnotation(reacOrig.getAnnotation().clone());
-            reac.getAnnotation().setAbout(reacOrig.getAnnotation().getAbout());
-          }
+          copyCVTerms(reacOrig, reac);
           submodel.addReaction(reac);
           if(isBelowL3_2) {
             reac.setFast(reacOrig.isFast());
@@ -406,6 +452,129 @@ public class SubmodelController {
     return submodel;
   }
   
+  /**
+   * Copies the controlled vocabulary terms of one element to another one.
+   * Other annotations, notes and the history are left out, because nothing
+   * reads them from the sub-model.
+   * 
+   * @param orig
+   * @param copy
+   */
+  private static void copyCVTerms(SBase orig, SBase copy) {
+    if (orig.getCVTermCount() > 0) {
+      for (CVTerm term : orig.getCVTerms()) {
+        copy.addCVTerm(term.clone());
+      }
+      copy.getAnnotation().setAbout(orig.getAnnotation().getAbout());
+    }
+  }
+  
+  /**
+   * Creates a copy of the given {@link Compartment} that only contains those
+   * properties that are needed for the creation of rate equations. In
+   * contrast to {@link Compartment#clone()}, large annotations or notes are
+   * not duplicated.
+   * 
+   * @param compartmentOrig
+   * @return
+   */
+  @SuppressWarnings("deprecation")
+  private static Compartment lightCopy(Compartment compartmentOrig) {
+    Compartment compartment = new Compartment(compartmentOrig.getId(),
+      compartmentOrig.getLevel(), compartmentOrig.getVersion());
+    copyProperties(compartmentOrig, compartment);
+    if (compartmentOrig.isSetSize()) {
+      compartment.setSize(compartmentOrig.getSize());
+    }
+    if (compartmentOrig.isSetSpatialDimensions()) {
+      compartment.setSpatialDimensions(compartmentOrig.getSpatialDimensions());
+    }
+    if (compartmentOrig.isSetUnits()) {
+      // The unit definition is not yet part of the sub-model, see copyCompartment.
+      compartment.putUserObject(JSBML.ALLOW_INVALID_SBML, Boolean.TRUE);
+      compartment.setUnits(compartmentOrig.getUnits());
+      compartment.removeUserObject(JSBML.ALLOW_INVALID_SBML);
+    }
+    if (compartmentOrig.isSetConstant()) {
+      compartment.setConstant(compartmentOrig.getConstant());
+    }
+    if (compartmentOrig.isSetOutside()) {
+      compartment.setOutside(compartmentOrig.getOutside());
+    }
+    if (compartmentOrig.isSetCompartmentType()) {
+      compartment.setCompartmentType(compartmentOrig.getCompartmentType());
+    }
+    return compartment;
+  }
+  
+  /**
+   * Creates a copy of the given {@link Species} that only contains those
+   * properties that are needed for the creation of rate equations. In
+   * contrast to {@link Species#clone()}, large annotations or notes are not
+   * duplicated.
+   * 
+   * @param speciesOrig
+   * @return
+   */
+  @SuppressWarnings("deprecation")
+  private static Species lightCopy(Species speciesOrig) {
+    Species species = new Species(speciesOrig.getId(),
+      speciesOrig.getLevel(), speciesOrig.getVersion());
+    copyProperties(speciesOrig, species);
+    if (speciesOrig.isSetCompartment()) {
+      species.setCompartment(speciesOrig.getCompartment());
+    }
+    if (speciesOrig.isSetInitialAmount()) {
+      species.setInitialAmount(speciesOrig.getInitialAmount());
+    } else if (speciesOrig.isSetInitialConcentration()) {
+      species.setInitialConcentration(speciesOrig.getInitialConcentration());
+    }
+    if (speciesOrig.isSetSubstanceUnits()) {
+      species.setSubstanceUnits(speciesOrig.getSubstanceUnits());
+    }
+    if (speciesOrig.isSetSpatialSizeUnits()) {
+      species.setSpatialSizeUnits(speciesOrig.getSpatialSizeUnits());
+    }
+    if (speciesOrig.isSetHasOnlySubstanceUnits()) {
+      species.setHasOnlySubstanceUnits(speciesOrig.getHasOnlySubstanceUnits());
+    }
+    if (speciesOrig.isSetBoundaryCondition()) {
+      species.setBoundaryCondition(speciesOrig.getBoundaryCondition());
+    }
+    if (speciesOrig.isSetConstant()) {
+      species.setConstant(speciesOrig.getConstant());
+    }
+    if (speciesOrig.isSetCharge()) {
+      species.setCharge(speciesOrig.getCharge());
+    }
+    if (speciesOrig.isSetSpeciesType()) {
+      species.setSpeciesType(speciesOrig.getSpeciesType());
+    }
+    if (speciesOrig.isSetConversionFactor()) {
+      species.setConversionFactor(speciesOrig.getConversionFactor());
+    }
+    return species;
+  }
+  
+  /**
+   * Copies the properties that all named elements share.
+   * 
+   * @param orig
+   * @param copy
+   */
+  private static void copyProperties(AbstractNamedSBase orig, AbstractNamedSBase copy) {
+    if (orig.isSetName()) {
+      copy.setName(orig.getName());
+    }
+    if (orig.isSetMetaId()) {
+      copy.setMetaId(orig.getMetaId());
+    }
+    if (orig.isSetSBOTerm()) {
+      SBMLtools.setSBOTerm(copy, orig.getSBOTerm());
+    }
+    copyCVTerms(orig, copy);
+  }
+  
   /**
    * 
    * @param speciesOrig
@@ -414,7 +583,7 @@ public class SubmodelController {
    */
   private Species copySpecies(Species speciesOrig, Model miniModel) {
     if (miniModel.getSpecies(speciesOrig.getId()) == null) {
-      miniModel.addSpecies(speciesOrig.clone());
+      miniModel.addSpecies(lightCopy(speciesOrig));
     }
     Species spec = miniModel.getSpecies(speciesOrig.getId());
     if (!spec.isSetHasOnlySubstanceUnits() && (2 < spec.getLevel())) {
@@ -465,7 +634,7 @@ public class SubmodelController {
   private Compartment copyCompartment(Compartment compartmenOrig, Model miniModel) {
     
     if (miniModel.getCompartment(compartmenOrig.getId()) == null) {
-      miniModel.addCompartment(compartmenOrig.clone());
+      miniModel.addCompartment(lightCopy(compartmenOrig));
     }
     Compartment compartment = miniModel.getCompartment(compartmenOrig.getId());
     // TODO: create a user-configuration for this!
@@ -721,6 +890,9 @@ public class SubmodelController {
       storeFunctionDefinitions(submodel);
     }
     storeParamters(reaction);
+    if (referenceIndex != null) {
+      referenceIndex.update(reaction.getKineticLaw());
+    }
     if (removeParametersAndStoreUnits && removeUnnecessaryParameters) {
       /*
        * delete unnecessary units.
@@ -927,10 +1099,8 @@ public class SubmodelController {
    * 
    * @param model
    */
-  @SuppressWarnings("deprecation")
   private void removeUnnecessaryParameters(Model model) {
-    boolean isNeeded;
-    int i, j, k = 0;
+    int i, j;
     Parameter p;
     
     Set<String> pKeys = new HashSet<String>();
@@ -948,117 +1118,19 @@ public class SubmodelController {
       }
     }
     
+    if (referenceIndex == null) {
+      referenceIndex = new ReferenceIndex(model);
+    }
+    
     // remove unnecessary global parameters
     for (i = model.getParameterCount() - 1; i >= 0; i--) {
       p = model.getParameter(i);
-      isNeeded = pKeys.contains(p.getId());
-      if (isNeeded) {
-        continue;
-      }
-      
       /*
-       * Is this parameter necessary for some kinetic law or is this
-       * parameter a conversion factor in some stoichiometric math?
+       * Is this parameter necessary for some kinetic law (without a local
+       * parameter of the same id), stoichiometric math, rule, event, function,
+       * initial assignment or constraint?
        */
-      for (j = 0; !isNeeded && (j < model.getReactionCount()); j++) {
-        Reaction r = model.getReaction(j);
-        if (r.isSetKineticLaw() && r.getKineticLaw().isSetMath()
-            && r.getKineticLaw().getMath().refersTo(p.getId())) {
-          /*
-           * ok, parameter occurs here but there could also be a local
-           * parameter with the same id.
-           */
-          if (r.getKineticLaw().getLocalParameter(p.getId()) == null) {
-            isNeeded = true;
-          }
-        }
-        if (isNeeded) {
-          break;
-        }
-        SpeciesReference specRef;
-        for (k = 0; k < r.getReactantCount(); k++) {
-          specRef = r.getReactant(k);
-          if (specRef.isSetStoichiometryMath()
-              && specRef.getStoichiometryMath().isSetMath()
-              && specRef.getStoichiometryMath().getMath().refersTo(p.getId())) {
-            isNeeded = true;
-          }
-        }
-        if (isNeeded) {
-          break;
-        }
-        for (k = 0; k < r.getProductCount(); k++) {
-          specRef = r.getProduct(k);
-          if (specRef.isSetStoichiometryMath()
-              && specRef.getStoichiometryMath().isSetMath()
-              && specRef.getStoichiometryMath().getMath().refersTo(p.getId())) {
-            isNeeded = true;
-          }
-        }
-      }
-      
-      // is this parameter necessary for some rule?
-      for (j = 0; !isNeeded && (j < model.getRuleCount()); j++) {
-        Rule r = model.getRule(j);
-        if ((r instanceof AssignmentRule)
-            && ((AssignmentRule) r).getVariable().equals(p.getId())) {
-          isNeeded = true;
-        }
-        if ((r instanceof RateRule)
-            && ((RateRule) r).getVariable().equals(p.getId())) {
-          isNeeded = true;
-        }
-        if (r.isSetMath() && r.getMath().refersTo(p.getId())) {
-          isNeeded = true;
-        }
-      }
-      
-      // is this parameter necessary for some event?
-      for (j = 0; !isNeeded && (j < model.getEventCount()); j++) {
-        Event e = model.getEvent(j);
-        if (e.isSetTrigger() && e.getTrigger().isSetMath()
-            && e.getTrigger().getMath().refersTo(p.getId())) {
-          isNeeded = true;
-        }
-        if (e.isSetDelay() && e.getDelay().isSetMath()
-            && e.getDelay().getMath().refersTo(p.getId())) {
-          isNeeded = true;
-        }
-        for (k = 0; !isNeeded && (k < model.getEvent(j).getEventAssignmentCount()); k++) {
-          EventAssignment ea = e.getEventAssignment(k);
-          if ((ea.isSetVariable() && ea.getVariable().equals(p.getId()))
-              || ea.isSetMath() && ea.getMath().refersTo(p.getId())) {
-            isNeeded = true;
-          }
-        }
-      }
-      
-      // is this parameter necessary for some function?
-      for (j = 0; !isNeeded && (j < model.getFunctionDefinitionCount()); j++) {
-        FunctionDefinition fd = model.getFunctionDefinition(j);
-        if (fd.isSetMath() && fd.getMath().refersTo(p.getId())) {
-          isNeeded = true;
-        }
-      }
-      
-      // is this parameter necessary for some initial assignment?
-      for (j = 0; !isNeeded && (j < model.getInitialAssignmentCount()); j++) {
-        InitialAssignment ia = model.getInitialAssignment(j);
-        if ((ia.isSetVariable() && ia.getVariable().equals(p.getId()))
-            || ia.isSetMath() && ia.getMath().refersTo(p.getId())) {
-          isNeeded = true;
-        }
-      }
-      
-      // is this parameter necessary for some constraint?
-      for (j = 0; !isNeeded && (j < model.getConstraintCount()); j++) {
-        Constraint c = model.getConstraint(j);
-        if (c.isSetMath() && c.getMath().refersTo(p.getId())) {
-          isNeeded = true;
-        }
-      }
-      
-      if (!isNeeded) { // is this parameter necessary at all?
+      if (!pKeys.contains(p.getId()) && !referenceIndex.isReferenced(p.getId())) {
         model.removeParameter(i);
       }
       
@@ -1076,10 +1148,10 @@ public class SubmodelController {
       Reaction r = model.getReaction(i);
       if (r.isSetKineticLaw()) {
         KineticLaw law = r.getKineticLaw();
+        Set<String> references = referenceIndex.getReferences(law);
         for (j = law.getLocalParameterCount() - 1; j >= 0; j--) {
           if (law.isSetMath()
-              && !law.getMath().refersTo(
-                law.getLocalParameter(j).getId())) {
+              && !references.contains(law.getLocalParameter(j).getId())) {
             law.removeLocalParameter(j);
           }
         }
@@ -1308,10 +1380,18 @@ public class SubmodelController {
   }
   
   /**
+   * Copies all kinetic laws from the sub-model to the original model. This
+   * can only be cancelled before the original model is changed, afterwards
+   * all kinetic laws are stored, such that the original model is never left
+   * half-way updated.
    * 
    * @param removeUnnecessaryParameters
+   * @throws CancellationException
+   *         if the current thread has been interrupted before the original
+   *         model has been changed.
    */
   public void storeKineticLaws(boolean removeUnnecessaryParameters) {
+    Cancellation.checkpoint();
     
     if (progressBar != null) {
       progressAdapter = new ProgressAdapter(progressBar, TypeOfProgress.storeKineticLaws);
@@ -1320,6 +1400,8 @@ public class SubmodelController {
     storeUnits();
     storeParameters(submodel);
     storeFunctionDefinitions(submodel);
+    // The model might have been changed since the index was created.
+    referenceIndex = null;
 
 /*    boolean reacStored = false;
     if(!reacStored) {
@@ -1408,7 +1490,7 @@ public class SubmodelController {
    * @return
    */
   public Model createSubModel() {
-    return createSubmodel(null);
+    return createSubmodel(null, false);
   }
   
   /* (non-Javadoc)
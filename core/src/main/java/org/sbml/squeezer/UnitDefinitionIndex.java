@@ -0,0 +1,275 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer;
+
+import java.beans.PropertyChangeEvent;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.swing.tree.TreeNode;
+
+import org.sbml.jsbml.ListOf;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.Unit;
+import org.sbml.jsbml.UnitDefinition;
+import org.sbml.jsbml.util.TreeNodeChangeListener;
+import org.sbml.jsbml.util.TreeNodeRemovedEvent;
+
+/**
+ * Finds the {@link UnitDefinition}s of a {@link Model} by their units in
+ * constant time. Each {@link UnitDefinition} is indexed by a signature of its
+ * simplified units, i.e., their kinds, exponents, scales, multipliers and
+ * offsets. Two {@link UnitDefinition}s have equal signatures exactly if
+ * {@link UnitDefinition#areIdentical(UnitDefinition, UnitDefinition)}
+ * considers them identical (except for rounding errors in the exponents), so
+ * that {@link #findIdentical(UnitDefinition)} yields the same result as
+ * {@link Model#findIdentical(UnitDefinition)} without comparing the given
+ * {@link UnitDefinition} with all others.
+ * <p>
+ * The index listens to the list of {@link UnitDefinition}s of its
+ * {@link Model}: {@link UnitDefinition}s appended to this list are added to
+ * the index, whereas any other change of this list leads to a new index upon
+ * the next request.
+ * The methods of this class are synchronized, because kinetic laws can be
+ * created concurrently.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+class UnitDefinitionIndex implements TreeNodeChangeListener {
+  
+  /**
+   * The key under which the index is stored as user object of its
+   * {@link Model}.
+   */
+  private static final String USER_OBJECT_KEY = UnitDefinitionIndex.class.getName();
+  
+  /**
+   * 
+   * @param model
+   * @return the index of the given {@link Model}, which is created if
+   *         necessary.
+   */
+  static UnitDefinitionIndex getIndex(Model model) {
+    // The user objects of the model are not thread-safe.
+    synchronized (UnitDefinitionIndex.class) {
+      Object index = model.getUserObject(USER_OBJECT_KEY);
+      // A copy of the model would also copy this entry:
+      if ((index instanceof UnitDefinitionIndex) && (((UnitDefinitionIndex) index).model == model)) {
+        return (UnitDefinitionIndex) index;
+      }
+      UnitDefinitionIndex newIndex = new UnitDefinitionIndex(model);
+      model.putUserObject(USER_OBJECT_KEY, newIndex);
+      return newIndex;
+    }
+  }
+  
+  /**
+   * 
+   * @param unitdef
+   * @return a key that is equal for all {@link UnitDefinition}s that are
+   *         identical to the given one.
+   */
+  @SuppressWarnings("deprecation")
+  static String signature(UnitDefinition unitdef) {
+    UnitDefinition simplified = unitdef.clone().simplify();
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < simplified.getUnitCount(); i++) {
+      Unit u = simplified.getUnit(i);
+      Unit.Kind kind = u.getKind();
+      // Both spellings are equivalent:
+      if (kind == Unit.Kind.METER) {
+        kind = Unit.Kind.METRE;
+      } else if (kind == Unit.Kind.LITER) {
+        kind = Unit.Kind.LITRE;
+      }
+      sb.append(kind);
+      sb.append(' ');
+      sb.append(normalize(u.getExponent()));
+      sb.append(' ');
+      sb.append(u.getScale());
+      sb.append(' ');
+      sb.append(normalize(u.getMultiplier()));
+      sb.append(' ');
+      sb.append(normalize(u.getOffset()));
+      sb.append(';');
+    }
+    return sb.toString();
+  }
+  
+  /**
+   * 
+   * @param value
+   * @return the given value, where negative zero is replaced by zero.
+   */
+  private static double normalize(double value) {
+    return (value == 0d) ? 0d : value;
+  }
+  
+  /**
+   * The {@link Model} whose {@link UnitDefinition}s are indexed.
+   */
+  private final Model model;
+  
+  /**
+   * The list of {@link UnitDefinition}s this index listens to or
+   * {@code null} if this index has not been built yet.
+   */
+  private ListOf<UnitDefinition> listOfUnitDefinitions;
+  
+  /**
+   * The first {@link UnitDefinition} in the {@link Model} for each signature.
+   */
+  private final Map<String, UnitDefinition> unitDefinitions;
+  
+  /**
+   * Whether the index has to be built again before it can be used.
+   */
+  private boolean outdated;
+  
+  /**
+   * 
+   * @param model
+   */
+  private UnitDefinitionIndex(Model model) {
+    this.model = model;
+    unitDefinitions = new HashMap<String, UnitDefinition>();
+    outdated = true;
+  }
+  
+  /**
+   * 
+   * @param unitdef
+   * @return the first {@link UnitDefinition} of the {@link Model} that is
+   *         identical to the given one or {@code null} if there is none.
+   */
+  synchronized UnitDefinition findIdentical(UnitDefinition unitdef) {
+    return findIdentical(signature(unitdef));
+  }
+  
+  /**
+   * 
+   * @param signature
+   *        as created by {@link #signature(UnitDefinition)}.
+   * @return the first {@link UnitDefinition} of the {@link Model} with the
+   *         given signature or {@code null} if there is none.
+   */
+  synchronized UnitDefinition findIdentical(String signature) {
+    update();
+    return unitDefinitions.get(signature);
+  }
+  
+  /**
+   * Builds the index again if the {@link Model} has been changed in a way
+   * that could not be tracked. This does not change the {@link Model}, even
+   * if it does not have a list of {@link UnitDefinition}s yet.
+   */
+  private void update() {
+    ListOf<UnitDefinition> current = model.isSetListOfUnitDefinitions() ? model.getListOfUnitDefinitions() : null;
+    if (current != listOfUnitDefinitions) {
+      if (listOfUnitDefinitions != null) {
+        listOfUnitDefinitions.removeTreeNodeChangeListener(this);
+      }
+      listOfUnitDefinitions = current;
+      if (current != null) {
+        current.addTreeNodeChangeListener(this);
+      }
+      outdated = true;
+    }
+    if (outdated) {
+      unitDefinitions.clear();
+      if (current != null) {
+        for (UnitDefinition ud : current) {
+          add(ud);
+        }
+      }
+      outdated = false;
+    }
+  }
+  
+  /**
+   * Indexes the given {@link UnitDefinition} unless there is already an
+   * identical one.
+   * 
+   * @param ud
+   */
+  private void add(UnitDefinition ud) {
+    String signature = signature(ud);
+    if (!unitDefinitions.containsKey(signature)) {
+      unitDefinitions.put(signature, ud);
+    }
+  }
+  
+  /* (non-Javadoc)
+   * @see org.sbml.jsbml.util.TreeNodeChangeListener#nodeAdded(javax.swing.tree.TreeNode)
+   */
+  @Override
+  public synchronized void nodeAdded(TreeNode node) {
+    if (node instanceof UnitDefinition) {
+      if (!outdated && (node.getParent() == listOfUnitDefinitions)
+          && (listOfUnitDefinitions.getLast() == node)) {
+        add((UnitDefinition) node);
+      } else {
+        // An inserted unit definition might precede an identical one.
+        outdated = true;
+      }
+    } else if (affectsUnits(node)) {
+      outdated = true;
+    }
+  }
+  
+  /* (non-Javadoc)
+   * @see org.sbml.jsbml.util.TreeNodeChangeListener#nodeRemoved(org.sbml.jsbml.util.TreeNodeRemovedEvent)
+   */
+  @Override
+  public synchronized void nodeRemoved(TreeNodeRemovedEvent event) {
+    TreeNode node = event.getSource();
+    if ((node instanceof UnitDefinition) || affectsUnits(node)) {
+      outdated = true;
+    }
+  }
+  
+  /* (non-Javadoc)
+   * @see java.beans.PropertyChangeListener#propertyChange(java.beans.PropertyChangeEvent)
+   */
+  @Override
+  public synchronized void propertyChange(PropertyChangeEvent event) {
+    // Identifiers, names and annotations of unit definitions do not matter.
+    if ((event.getSource() instanceof TreeNode) && affectsUnits((TreeNode) event.getSource())) {
+      outdated = true;
+    }
+  }
+  
+  /**
+   * 
+   * @param node
+   * @return {@code true} if the given node is a {@link Unit} or a list of
+   *         {@link Unit}s.
+   */
+  private static boolean affectsUnits(TreeNode node) {
+    return (node instanceof Unit) || ((node instanceof ListOf<?>)
+        && (node.getParent() instanceof UnitDefinition));
+  }
+  
+}
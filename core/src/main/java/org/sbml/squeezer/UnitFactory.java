@@ -86,27 +86,57 @@ public class UnitFactory {
         }
       }
     }
-    UnitDefinition ud = model.findIdentical(unitdef);
+    // Not null if kinetic laws are currently created concurrently:
+    PendingModelChanges pending = PendingModelChanges.getPendingChanges(model);
+    // Same as model.findIdentical(unitdef), but without comparing all unit definitions:
+    UnitDefinition ud = UnitDefinitionIndex.getIndex(model).findIdentical(unitdef);
+    if ((ud == null) && (pending != null)) {
+      ud = pending.findIdentical(unitdef);
+    }
     if (ud == null) {
       String identifier = createId(unitdef);
       //      if (Unit.Kind.isValidUnitKindString(identifier, model.getLevel(), model.getVersion())) {
       //
       //      }
       ud = model.getUnitDefinition(identifier);
+      if ((ud == null) && (pending != null)) {
+        ud = pending.getUnitDefinition(identifier);
+      }
       if (ud == null) {
         updateAnnotation(unitdef, model.getSBMLDocument());
-        if (Unit.Kind.isValidUnitKindString(identifier, model.getLevel(), model.getVersion())) {
-          unitdef = model.getPredefinedUnitDefinition(identifier.toLowerCase() + UnitDefinition.BASE_UNIT_SUFFIX);
-        } else {
-          unitdef.setId(identifier);
-          unitdef.setName(createName(unitdef));
+        if (pending != null) {
+          // The model will be updated later on, see PendingModelChanges#commit.
+          UnitDefinition request = unitdef.clone();
+          ud = createUnitDefinition(unitdef, identifier, model);
+          pending.addUnitDefinition(request, ud);
+          return ud;
         }
+        unitdef = createUnitDefinition(unitdef, identifier, model);
         model.addUnitDefinition(unitdef);
         return unitdef;
       }
     }
     return ud;
   }
+
+  /**
+   *
+   * @param unitdef
+   * @param identifier
+   * @param model
+   * @return the predefined unit definition with the given identifier or the
+   *         given unit definition, equipped with the identifier and a
+   *         suitable name.
+   */
+  private static UnitDefinition createUnitDefinition(UnitDefinition unitdef,
+    String identifier, Model model) {
+    if (Unit.Kind.isValidUnitKindString(identifier, model.getLevel(), model.getVersion())) {
+      return model.getPredefinedUnitDefinition(identifier.toLowerCase() + UnitDefinition.BASE_UNIT_SUFFIX);
+    }
+    unitdef.setId(identifier);
+    unitdef.setName(createName(unitdef));
+    return unitdef;
+  }
   
   /**
    * 
@@ -0,0 +1,382 @@
+package org.sbml.squeezer.functionTermGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small engine for reduced ordered binary decision diagrams. Nodes are
+ * identified by non-negative integers, where {@link #FALSE} and {@link #TRUE}
+ * are the two terminal nodes, and variables are ordered by their index. The
+ * number of nodes is bounded, and results of the if-then-else operation are
+ * kept in a cache of fixed size, in which newer entries replace older ones.
+ * <p>
+ * Instances of this class are not thread-safe.
+ *
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+class BDD {
+
+    /**
+     * Thrown if a diagram requires more nodes than allowed.
+     *
+     * @author Andreas Dr&auml;ger
+     * @since 2.2
+     */
+    static class NodeLimitExceededException extends RuntimeException {
+
+        /**
+         * Generated serial version identifier.
+         */
+        private static final long serialVersionUID = -2874052389424807185L;
+
+        /**
+         * @param limit
+         */
+        public NodeLimitExceededException(int limit) {
+            super(Integer.toString(limit));
+        }
+    }
+
+    /**
+     * The terminal node that represents the constant {@code false}.
+     */
+    public static final int FALSE = 0;
+
+    /**
+     * The terminal node that represents the constant {@code true}.
+     */
+    public static final int TRUE = 1;
+
+    /**
+     * The size of the cache for the if-then-else operation, must be a power of
+     * two.
+     */
+    private static final int CACHE_SIZE = 1 << 12;
+
+    /**
+     * The maximal number of nodes.
+     */
+    private final int maxNodes;
+
+    /**
+     * The variable, the low and the high successor of each node.
+     */
+    private int var[], low[], high[];
+
+    /**
+     * The number of nodes, including both terminals.
+     */
+    private int size;
+
+    /**
+     * Open addressing hash table for the unique nodes, contains node numbers
+     * plus one, such that zero marks an empty slot.
+     */
+    private int unique[];
+
+    /**
+     * The arguments and the results of cached if-then-else operations.
+     */
+    private final int cacheF[], cacheG[], cacheH[], cacheResult[];
+
+    /**
+     * @param maxNodes
+     *        the maximal number of nodes of this diagram.
+     */
+    public BDD(int maxNodes) {
+        this.maxNodes = maxNodes;
+        int capacity = 64;
+        var = new int[capacity];
+        low = new int[capacity];
+        high = new int[capacity];
+        unique = new int[2 * capacity];
+        var[FALSE] = var[TRUE] = Integer.MAX_VALUE;
+        size = 2;
+        cacheF = new int[CACHE_SIZE];
+        cacheG = new int[CACHE_SIZE];
+        cacheH = new int[CACHE_SIZE];
+        cacheResult = new int[CACHE_SIZE];
+    }
+
+    /**
+     * Removes all nodes except for both terminals, such that this object can
+     * be used for another function.
+     */
+    public void clear() {
+        if (size > 2) {
+            size = 2;
+            Arrays.fill(unique, 0);
+            // The operation never looks up a terminal as its first argument.
+            Arrays.fill(cacheF, FALSE);
+        }
+    }
+
+    /**
+     * @param v
+     *        the index of a variable
+     * @return the node that represents the given variable.
+     */
+    public int variable(int v) {
+        return mk(v, FALSE, TRUE);
+    }
+
+    /**
+     * @param f
+     * @return the negation of {@code f}
+     */
+    public int not(int f) {
+        return ite(f, FALSE, TRUE);
+    }
+
+    /**
+     * @param f
+     * @param g
+     * @return the conjunction of both arguments
+     */
+    public int and(int f, int g) {
+        return ite(f, g, FALSE);
+    }
+
+    /**
+     * @param f
+     * @param g
+     * @return the disjunction of both arguments
+     */
+    public int or(int f, int g) {
+        return ite(f, TRUE, g);
+    }
+
+    /**
+     * @param f
+     * @param g
+     * @return the exclusive disjunction of both arguments
+     */
+    public int xor(int f, int g) {
+        return ite(f, not(g), g);
+    }
+
+    /**
+     * @param f
+     * @param g
+     * @param h
+     * @return the node that represents {@code (f and g) or (not f and h)}.
+     */
+    public int ite(int f, int g, int h) {
+        if (f == TRUE) {
+            return g;
+        }
+        if (f == FALSE) {
+            return h;
+        }
+        if (g == h) {
+            return g;
+        }
+        if ((g == TRUE) && (h == FALSE)) {
+            return f;
+        }
+        int slot = hash(f, g, h) & (CACHE_SIZE - 1);
+        if ((cacheF[slot] == f) && (cacheG[slot] == g) && (cacheH[slot] == h)) {
+            return cacheResult[slot];
+        }
+        int v = Math.min(var[f], Math.min(var[g], var[h]));
+        int result = mk(v, ite(low(f, v), low(g, v), low(h, v)), ite(high(f, v), high(g, v), high(h, v)));
+        cacheF[slot] = f;
+        cacheG[slot] = g;
+        cacheH[slot] = h;
+        cacheResult[slot] = result;
+        return result;
+    }
+
+    /**
+     * Computes an irredundant sum of products for the given function with the
+     * algorithm of Minato and Morreale. Each product is given as an array of
+     * literals in ascending order of their variables, where the literal
+     * {@code 2 * v} stands for the variable {@code v} and {@code 2 * v + 1}
+     * for its negation. An empty product stands for {@code true}, an empty
+     * sum for {@code false}.
+     *
+     * @param f
+     * @return the products, whose disjunction is equivalent to {@code f}.
+     */
+    public List<int[]> isop(int f) {
+        return isop(f, f, new HashMap<Long, Cover>()).products;
+    }
+
+    /**
+     * The result of {@link BDD#isop(int, int, Map)}.
+     *
+     * @author Andreas Dr&auml;ger
+     * @since 2.2
+     */
+    private static class Cover {
+
+        /**
+         * The node that represents the disjunction of all products.
+         */
+        private final int node;
+
+        /**
+         *
+         */
+        private final List<int[]> products;
+
+        /**
+         * @param node
+         * @param products
+         */
+        public Cover(int node, List<int[]> products) {
+            this.node = node;
+            this.products = products;
+        }
+    }
+
+    /**
+     * @param l
+     *        the lower bound of the interval of functions
+     * @param u
+     *        the upper bound of the interval of functions
+     * @param computed
+     *        the covers of all intervals that have already been processed
+     * @return an irredundant cover of a function between both bounds.
+     */
+    private Cover isop(int l, int u, Map<Long, Cover> computed) {
+        if (l == FALSE) {
+            return new Cover(FALSE, new ArrayList<int[]>());
+        }
+        if (u == TRUE) {
+            List<int[]> products = new ArrayList<int[]>();
+            products.add(new int[0]);
+            return new Cover(TRUE, products);
+        }
+        Long key = Long.valueOf(((long) l << 32) | u);
+        Cover cover = computed.get(key);
+        if (cover != null) {
+            return cover;
+        }
+        int v = Math.min(var[l], var[u]);
+        int l0 = low(l, v), l1 = high(l, v), u0 = low(u, v), u1 = high(u, v);
+        Cover c0 = isop(and(l0, not(u1)), u0, computed);
+        Cover c1 = isop(and(l1, not(u0)), u1, computed);
+        Cover cd = isop(or(and(l0, not(c0.node)), and(l1, not(c1.node))), and(u0, u1), computed);
+
+        List<int[]> products = new ArrayList<int[]>(c0.products.size() + c1.products.size() + cd.products.size());
+        for (int[] product : c0.products) {
+            products.add(prepend(2 * v + 1, product));
+        }
+        for (int[] product : c1.products) {
+            products.add(prepend(2 * v, product));
+        }
+        products.addAll(cd.products);
+        cover = new Cover(ite(variable(v), or(c1.node, cd.node), or(c0.node, cd.node)), products);
+        computed.put(key, cover);
+        return cover;
+    }
+
+    /**
+     * @param literal
+     * @param product
+     * @return a new product that starts with the given literal
+     */
+    private static int[] prepend(int literal, int[] product) {
+        int result[] = new int[product.length + 1];
+        result[0] = literal;
+        System.arraycopy(product, 0, result, 1, product.length);
+        return result;
+    }
+
+    /**
+     * @param f
+     * @param v
+     * @return the cofactor of {@code f} for {@code v = false}
+     */
+    private int low(int f, int v) {
+        return (var[f] == v) ? low[f] : f;
+    }
+
+    /**
+     * @param f
+     * @param v
+     * @return the cofactor of {@code f} for {@code v = true}
+     */
+    private int high(int f, int v) {
+        return (var[f] == v) ? high[f] : f;
+    }
+
+    /**
+     * @return the number of nodes in this diagram, including both terminals.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param v
+     * @param l
+     * @param h
+     * @return the unique node with the given variable and successors.
+     */
+    private int mk(int v, int l, int h) {
+        if (l == h) {
+            return l;
+        }
+        int mask = unique.length - 1;
+        int slot = hash(v, l, h) & mask;
+        while (unique[slot] != 0) {
+            int node = unique[slot] - 1;
+            if ((var[node] == v) && (low[node] == l) && (high[node] == h)) {
+                return node;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (size == maxNodes) {
+            throw new NodeLimitExceededException(maxNodes);
+        }
+        if (size == var.length) {
+            var = Arrays.copyOf(var, 2 * size);
+            low = Arrays.copyOf(low, 2 * size);
+            high = Arrays.copyOf(high, 2 * size);
+        }
+        int node = size++;
+        var[node] = v;
+        low[node] = l;
+        high[node] = h;
+        if (2 * size > unique.length) {
+            rehash();
+        } else {
+            unique[slot] = node + 1;
+        }
+        return node;
+    }
+
+    /**
+     * Doubles the size of the table of unique nodes.
+     */
+    private void rehash() {
+        unique = new int[2 * unique.length];
+        int mask = unique.length - 1;
+        for (int node = 2; node < size; node++) {
+            int slot = hash(var[node], low[node], high[node]) & mask;
+            while (unique[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            unique[slot] = node + 1;
+        }
+    }
+
+    /**
+     * @param a
+     * @param b
+     * @param c
+     * @return a hash code for the three given values
+     */
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1 + b;
+        h = h * 0x9E3779B1 + c;
+        return h ^ (h >>> 16);
+    }
+
+}
@@ -0,0 +1,816 @@
+package org.sbml.squeezer.functionTermGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.sbml.jsbml.ASTNode;
+import org.sbml.jsbml.ASTNode.Type;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.ext.qual.FunctionTerm;
+import org.sbml.jsbml.ext.qual.Output;
+import org.sbml.jsbml.ext.qual.QualConstants;
+import org.sbml.jsbml.ext.qual.QualModelPlugin;
+import org.sbml.jsbml.ext.qual.QualitativeSpecies;
+import org.sbml.jsbml.ext.qual.Transition;
+
+/**
+ * Simulates a Boolean qual model for 64 initial states at a time. The function
+ * terms of all transitions are compiled into programs that operate on whole
+ * {@code long} values, in which each bit belongs to another trajectory. A
+ * state of the simulator is therefore an array with one {@code long} for each
+ * qualitative species, whose bit {@code j} is the level of this species in
+ * trajectory (lane) {@code j}.
+ * <p>
+ * The level of a species that is the output of a transition becomes the
+ * result level of the first function term of this transition that is
+ * {@code true}, or the result level of the default term if there is no such
+ * term. If a species is the output of several transitions, the results are
+ * combined with a logical or. Species that are not the output of any
+ * transition keep their level.
+ *
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class BooleanNetworkSimulator {
+
+    /**
+     * An attractor of the synchronous dynamics, i.e., a fixed point or a
+     * cycle. The states are packed into {@code long} arrays, in which bit
+     * {@code i % 64} of element {@code i / 64} is the level of the species
+     * with index {@code i}.
+     *
+     * @author Andreas Dr&auml;ger
+     * @since 2.2
+     */
+    public static class Attractor {
+
+        /**
+         * The states of this attractor in the order in which they are
+         * visited, starting with the smallest one.
+         */
+        private final List<long[]> states;
+
+        /**
+         * The number of initial states from which this attractor has been
+         * reached.
+         */
+        private int hits;
+
+        /**
+         * @param states
+         */
+        private Attractor(List<long[]> states) {
+            this.states = Collections.unmodifiableList(states);
+        }
+
+        /**
+         * @return the number of initial states from which this attractor has
+         *         been reached.
+         */
+        public int getHits() {
+            return hits;
+        }
+
+        /**
+         * @return the number of states in this attractor.
+         */
+        public int getLength() {
+            return states.size();
+        }
+
+        /**
+         * @return the states of this attractor in the order in which they are
+         *         visited, starting with the smallest one.
+         */
+        public List<long[]> getStates() {
+            return states;
+        }
+
+        /**
+         * @return {@code true} if this attractor consists of a single state.
+         */
+        public boolean isFixedPoint() {
+            return states.size() == 1;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(getClass().getSimpleName());
+            sb.append(" [length=");
+            sb.append(getLength());
+            sb.append(", hits=");
+            sb.append(hits);
+            sb.append(']');
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Wraps a packed state such that it can be used as a key of a map.
+     *
+     * @author Andreas Dr&auml;ger
+     * @since 2.2
+     */
+    private static class Key {
+
+        /**
+         *
+         */
+        private final long words[];
+
+        /**
+         * @param words
+         */
+        public Key(long[] words) {
+            this.words = words;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj) {
+            return (obj instanceof Key) && Arrays.equals(words, ((Key) obj).words);
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(words);
+        }
+    }
+
+    /**
+     * Instructions of the compiled programs. The argument of an instruction is
+     * stored in the bits above the lowest three.
+     */
+    private static final int VAR = 0, NOT_VAR = 1, CONST = 2, AND = 3, OR = 4, XOR = 5, NOT = 6, ITE = 7;
+
+    /**
+     * The identifiers of all qualitative species.
+     */
+    private final String species[];
+
+    /**
+     * Maps the identifiers of the qualitative species to their indices.
+     */
+    private final Map<String, Integer> indices;
+
+    /**
+     * The indices of all species that are the output of some transition.
+     */
+    private final int updated[];
+
+    /**
+     * The program that computes the next level of each species in
+     * {@link #updated}.
+     */
+    private final int programs[][];
+
+    /**
+     * The maximal size of the stack needed by any program.
+     */
+    private int stackSize;
+
+    /**
+     * The number of threads that search for attractors simultaneously.
+     */
+    private int numberOfThreads = 1;
+
+    /**
+     * @param model
+     *        a qual model, in which all species are Boolean, i.e., have a
+     *        maximal level of at most one.
+     * @throws IllegalArgumentException
+     *         if the model is not Boolean or if a function term contains an
+     *         element that cannot be compiled.
+     */
+    public BooleanNetworkSimulator(Model model) {
+        QualModelPlugin qm = (QualModelPlugin) model.getPlugin(QualConstants.shortLabel);
+        species = new String[qm.getQualitativeSpeciesCount()];
+        indices = new HashMap<String, Integer>();
+        for (QualitativeSpecies qs : qm.getListOfQualitativeSpecies()) {
+            if (qs.isSetMaxLevel() && (qs.getMaxLevel() > 1)) {
+                throw new IllegalArgumentException(qs.getId());
+            }
+            indices.put(qs.getId(), Integer.valueOf(indices.size()));
+            species[indices.size() - 1] = qs.getId();
+        }
+
+        // the results of several transitions for the same species are combined
+        Map<Integer, List<Integer>> code = new LinkedHashMap<Integer, List<Integer>>();
+        for (Transition t : qm.getListOfTransitions()) {
+            for (Output o : t.getListOfOutputs()) {
+                Integer index = indexOf(o.getQualitativeSpecies(), t);
+                List<Integer> program = code.get(index);
+                if (program == null) {
+                    program = new ArrayList<Integer>();
+                    code.put(index, program);
+                    compile(t, program);
+                } else {
+                    compile(t, program);
+                    program.add(Integer.valueOf((2 << 3) | OR));
+                }
+            }
+        }
+        updated = new int[code.size()];
+        programs = new int[code.size()][];
+        int k = 0;
+        for (Map.Entry<Integer, List<Integer>> entry : code.entrySet()) {
+            updated[k] = entry.getKey().intValue();
+            programs[k] = new int[entry.getValue().size()];
+            for (int i = 0; i < programs[k].length; i++) {
+                programs[k][i] = entry.getValue().get(i).intValue();
+            }
+            stackSize = Math.max(stackSize, depth(programs[k]));
+            k++;
+        }
+    }
+
+    /**
+     * Appends the instructions that compute the result of the given
+     * transition.
+     *
+     * @param t
+     * @param program
+     */
+    private void compile(Transition t, List<Integer> program) {
+        List<FunctionTerm> terms = new ArrayList<FunctionTerm>();
+        FunctionTerm defaultTerm = null;
+        for (FunctionTerm ft : t.getListOfFunctionTerms()) {
+            if (ft.isDefaultTerm()) {
+                defaultTerm = ft;
+            } else if (ft.isSetMath()) {
+                terms.add(ft);
+            }
+        }
+        for (FunctionTerm ft : terms) {
+            compile(ft.getMath(), program, t);
+            program.add(Integer.valueOf((level(ft, t) << 3) | CONST));
+        }
+        program.add(Integer.valueOf((((defaultTerm != null) ? level(defaultTerm, t) : 0) << 3) | CONST));
+        for (int i = 0; i < terms.size(); i++) {
+            program.add(Integer.valueOf(ITE));
+        }
+    }
+
+    /**
+     * Appends the instructions that evaluate the given term.
+     *
+     * @param node
+     * @param program
+     * @param t
+     *        the transition to which the term belongs
+     */
+    private void compile(ASTNode node, List<Integer> program, Transition t) {
+        switch (node.getType()) {
+        case CONSTANT_TRUE:
+            program.add(Integer.valueOf((1 << 3) | CONST));
+            return;
+        case CONSTANT_FALSE:
+            program.add(Integer.valueOf(CONST));
+            return;
+        case LOGICAL_NOT:
+            compile(node.getChild(0), program, t);
+            program.add(Integer.valueOf(NOT));
+            return;
+        case LOGICAL_AND:
+        case LOGICAL_OR:
+        case LOGICAL_XOR:
+            for (ASTNode child : node.getChildren()) {
+                compile(child, program, t);
+            }
+            int op = (node.getType() == Type.LOGICAL_AND) ? AND : ((node.getType() == Type.LOGICAL_OR) ? OR : XOR);
+            if (node.getChildCount() == 0) {
+                program.add(Integer.valueOf(((op == AND) ? (1 << 3) : 0) | CONST));
+            } else if (node.getChildCount() > 1) {
+                program.add(Integer.valueOf((node.getChildCount() << 3) | op));
+            }
+            return;
+        case RELATIONAL_EQ:
+        case RELATIONAL_NEQ:
+        case RELATIONAL_GEQ:
+        case RELATIONAL_GT:
+        case RELATIONAL_LEQ:
+        case RELATIONAL_LT:
+            if (node.getChildCount() == 2) {
+                ASTNode left = node.getChild(0), right = node.getChild(1);
+                if ((left.getType() == Type.NAME) && right.isInteger()) {
+                    compile(node.getType(), indexOf(left.getName(), t).intValue(), right.getInteger(), false, program);
+                    return;
+                }
+                if (left.isInteger() && (right.getType() == Type.NAME)) {
+                    compile(node.getType(), indexOf(right.getName(), t).intValue(), left.getInteger(), true, program);
+                    return;
+                }
+            }
+            break;
+        default:
+            break;
+        }
+        throw new IllegalArgumentException(t.getId() + ": " + node.toFormula());
+    }
+
+    /**
+     * Appends the instruction that evaluates the comparison of a species with
+     * a level.
+     *
+     * @param relation
+     * @param index
+     *        the index of the species
+     * @param level
+     * @param swapped
+     *        whether the level is the left operand
+     * @param program
+     */
+    private static void compile(Type relation, int index, int level, boolean swapped, List<Integer> program) {
+        boolean atZero = compare(relation, swapped ? level : 0, swapped ? 0 : level);
+        boolean atOne = compare(relation, swapped ? level : 1, swapped ? 1 : level);
+        if (atZero == atOne) {
+            program.add(Integer.valueOf(((atOne ? 1 : 0) << 3) | CONST));
+        } else {
+            program.add(Integer.valueOf((index << 3) | (atOne ? VAR : NOT_VAR)));
+        }
+    }
+
+    /**
+     * @param relation
+     * @param a
+     * @param b
+     * @return the result of the given comparison
+     */
+    private static boolean compare(Type relation, int a, int b) {
+        switch (relation) {
+        case RELATIONAL_EQ:
+            return a == b;
+        case RELATIONAL_NEQ:
+            return a != b;
+        case RELATIONAL_GEQ:
+            return a >= b;
+        case RELATIONAL_GT:
+            return a > b;
+        case RELATIONAL_LEQ:
+            return a <= b;
+        default:
+            return a < b;
+        }
+    }
+
+    /**
+     * @param ft
+     * @param t
+     * @return one if the result level of the given function term is one, zero
+     *         otherwise.
+     */
+    private static int level(FunctionTerm ft, Transition t) {
+        int level = ft.isSetResultLevel() ? ft.getResultLevel() : 0;
+        if ((level < 0) || (level > 1)) {
+            throw new IllegalArgumentException(t.getId() + ": " + level);
+        }
+        return level;
+    }
+
+    /**
+     * @param program
+     * @return the maximal size of the stack during the execution of the given
+     *         program.
+     */
+    private static int depth(int[] program) {
+        int depth = 0, max = 0;
+        for (int instruction : program) {
+            int op = instruction & 7;
+            if ((op == VAR) || (op == NOT_VAR) || (op == CONST)) {
+                depth++;
+            } else if (op == ITE) {
+                depth -= 2;
+            } else if (op != NOT) {
+                depth -= (instruction >>> 3) - 1;
+            }
+            max = Math.max(max, depth);
+        }
+        return max;
+    }
+
+    /**
+     * @param id
+     * @param t
+     * @return the index of the species with the given identifier
+     */
+    private Integer indexOf(String id, Transition t) {
+        Integer index = indices.get(id);
+        if (index == null) {
+            throw new IllegalArgumentException(t.getId() + ": " + id);
+        }
+        return index;
+    }
+
+    /**
+     * @param id
+     * @return the index of the species with the given identifier or -1 if
+     *         there is no such species.
+     */
+    public int indexOf(String id) {
+        Integer index = indices.get(id);
+        return (index != null) ? index.intValue() : -1;
+    }
+
+    /**
+     * @param index
+     * @return the identifier of the species with the given index
+     */
+    public String getSpeciesId(int index) {
+        return species[index];
+    }
+
+    /**
+     * @return the number of species, i.e., the length of each state.
+     */
+    public int getSpeciesCount() {
+        return species.length;
+    }
+
+    /**
+     * @return the number of threads that search for attractors simultaneously.
+     */
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    /**
+     * @param numberOfThreads
+     *        the number of threads that search for attractors simultaneously.
+     */
+    public void setNumberOfThreads(int numberOfThreads) {
+        if (numberOfThreads < 1) {
+            throw new IllegalArgumentException(Integer.toString(numberOfThreads));
+        }
+        this.numberOfThreads = numberOfThreads;
+    }
+
+    /**
+     * @return a new state of 64 trajectories, in which all species are at
+     *         level zero.
+     */
+    public long[] createState() {
+        return new long[species.length];
+    }
+
+    /**
+     * @return a stack that is large enough for all programs
+     */
+    private long[] createStack() {
+        return new long[Math.max(1, stackSize)];
+    }
+
+    /**
+     * @param program
+     * @param state
+     * @param stack
+     * @return the result of the given program for all 64 trajectories
+     */
+    private static long evaluate(int[] program, long[] state, long[] stack) {
+        int top = -1;
+        long value;
+        for (int instruction : program) {
+            int arg = instruction >>> 3;
+            switch (instruction & 7) {
+            case VAR:
+                stack[++top] = state[arg];
+                break;
+            case NOT_VAR:
+                stack[++top] = ~state[arg];
+                break;
+            case CONST:
+                stack[++top] = (arg == 0) ? 0L : -1L;
+                break;
+            case AND:
+                value = stack[top--];
+                for (int i = 1; i < arg; i++) {
+                    value &= stack[top--];
+                }
+                stack[++top] = value;
+                break;
+            case OR:
+                value = stack[top--];
+                for (int i = 1; i < arg; i++) {
+                    value |= stack[top--];
+                }
+                stack[++top] = value;
+                break;
+            case XOR:
+                value = stack[top--];
+                for (int i = 1; i < arg; i++) {
+                    value ^= stack[top--];
+                }
+                stack[++top] = value;
+                break;
+            case NOT:
+                stack[top] = ~stack[top];
+                break;
+            default:
+                // if-then-else
+                long otherwise = stack[top--];
+                long then = stack[top--];
+                stack[top] = (stack[top] & then) | (~stack[top] & otherwise);
+                break;
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * Updates all species at the same time.
+     *
+     * @param state
+     *        the current state of 64 trajectories
+     * @param next
+     *        receives the successor of the given state, must not be the same
+     *        array.
+     */
+    public void stepSynchronous(long[] state, long[] next) {
+        stepSynchronous(state, next, createStack());
+    }
+
+    /**
+     * @param state
+     * @param next
+     * @param stack
+     */
+    private void stepSynchronous(long[] state, long[] next, long[] stack) {
+        System.arraycopy(state, 0, next, 0, state.length);
+        for (int k = 0; k < updated.length; k++) {
+            next[updated[k]] = evaluate(programs[k], state, stack);
+        }
+    }
+
+    /**
+     * Updates one randomly chosen species, which is the output of some
+     * transition, in each of the 64 trajectories.
+     *
+     * @param state
+     *        the current state of 64 trajectories, which is replaced by its
+     *        successor.
+     * @param random
+     */
+    public void stepAsynchronous(long[] state, Random random) {
+        if (updated.length == 0) {
+            return;
+        }
+        long masks[] = new long[updated.length];
+        for (int lane = 0; lane < 64; lane++) {
+            masks[random.nextInt(updated.length)] |= 1L << lane;
+        }
+        long stack[] = createStack();
+        // the trajectories of different species do not overlap
+        for (int k = 0; k < updated.length; k++) {
+            if (masks[k] != 0L) {
+                int i = updated[k];
+                state[i] = (state[i] & ~masks[k]) | (evaluate(programs[k], state, stack) & masks[k]);
+            }
+        }
+    }
+
+    /**
+     * @param state
+     *        the current state of 64 trajectories
+     * @return a mask whose bits are set for all trajectories that are in a
+     *         fixed point, i.e., in a state that no update changes.
+     */
+    public long getFixedPoints(long[] state) {
+        long stack[] = createStack();
+        long changed = 0L;
+        for (int k = 0; k < updated.length; k++) {
+            changed |= state[updated[k]] ^ evaluate(programs[k], state, stack);
+        }
+        return ~changed;
+    }
+
+    /**
+     * @param state
+     *        a state of 64 trajectories
+     * @param lane
+     * @return the state of the given trajectory, packed into an array of
+     *         {@code long} values.
+     */
+    public long[] getLane(long[] state, int lane) {
+        long packed[] = new long[(species.length + 63) / 64];
+        for (int i = 0; i < species.length; i++) {
+            if (((state[i] >>> lane) & 1L) != 0L) {
+                packed[i / 64] |= 1L << (i % 64);
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * @param state
+     *        a state of 64 trajectories
+     * @param lane
+     * @param packed
+     *        the new state of the given trajectory, as returned by
+     *        {@link #getLane(long[], int)}.
+     */
+    public void setLane(long[] state, int lane, long[] packed) {
+        for (int i = 0; i < species.length; i++) {
+            if (((packed[i / 64] >>> (i % 64)) & 1L) != 0L) {
+                state[i] |= 1L << lane;
+            } else {
+                state[i] &= ~(1L << lane);
+            }
+        }
+    }
+
+    /**
+     * Searches the attractors of the synchronous dynamics that are reached
+     * from random initial states. Each trajectory is followed with the
+     * algorithm of Floyd until it enters a cycle.
+     *
+     * @param initialStates
+     *        the number of random initial states
+     * @param random
+     * @param maxSteps
+     *        the maximal number of steps that a trajectory may take until it
+     *        enters its attractor and the maximal length of an attractor.
+     *        Trajectories that need more steps are ignored.
+     * @return all attractors found, in the order in which they have been found
+     *         first.
+     * @throws Exception
+     */
+    public List<Attractor> findAttractors(int initialStates, Random random, final int maxSteps) throws Exception {
+        // the seeds are drawn first, such that the result does not depend on the number of threads
+        int batches = (initialStates + 63) / 64;
+        final long seeds[] = new long[batches];
+        for (int b = 0; b < batches; b++) {
+            seeds[b] = random.nextLong();
+        }
+        final int lanes[] = new int[batches];
+        for (int b = 0; b < batches; b++) {
+            lanes[b] = Math.min(64, initialStates - 64 * b);
+        }
+
+        List<Future<List<Attractor>>> futures = new ArrayList<Future<List<Attractor>>>(batches);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(numberOfThreads, batches)));
+        Map<Key, Attractor> attractors = new LinkedHashMap<Key, Attractor>();
+        try {
+            for (int b = 0; b < batches; b++) {
+                final int batch = b;
+                futures.add(executor.submit(new Callable<List<Attractor>>() {
+                    /* (non-Javadoc)
+                     * @see java.util.concurrent.Callable#call()
+                     */
+                    @Override
+                    public List<Attractor> call() {
+                        return findAttractors(new Random(seeds[batch]), lanes[batch], maxSteps);
+                    }
+                }));
+            }
+            for (Future<List<Attractor>> future : futures) {
+                for (Attractor attractor : future.get()) {
+                    Key key = new Key(attractor.getStates().get(0));
+                    Attractor known = attractors.get(key);
+                    if (known == null) {
+                        attractors.put(key, attractor);
+                    } else {
+                        known.hits += attractor.hits;
+                    }
+                }
+            }
+        } catch (ExecutionException exc) {
+            if (exc.getCause() instanceof Error) {
+                throw (Error) exc.getCause();
+            }
+            throw (Exception) exc.getCause();
+        } finally {
+            executor.shutdownNow();
+        }
+        return new ArrayList<Attractor>(attractors.values());
+    }
+
+    /**
+     * Follows up to 64 random trajectories.
+     *
+     * @param random
+     * @param lanes
+     *        the number of trajectories
+     * @param maxSteps
+     * @return the attractors of these trajectories, each one with the number
+     *         of trajectories that reach it.
+     */
+    private List<Attractor> findAttractors(Random random, int lanes, int maxSteps) {
+        long active = (lanes == 64) ? -1L : ((1L << lanes) - 1L);
+        long stack[] = createStack();
+        long tortoise[] = createState(), hare[] = createState(), next[] = createState();
+        for (int i = 0; i < species.length; i++) {
+            tortoise[i] = hare[i] = random.nextLong();
+        }
+
+        // Floyd: the tortoise takes one step, the hare two steps at a time.
+        long met = 0L;
+        for (int step = 0; (step < maxSteps) && (met != active); step++) {
+            stepSynchronous(hare, next, stack);
+            stepSynchronous(next, hare, stack);
+            stepSynchronous(tortoise, next, stack);
+            long diff = 0L;
+            for (int i = 0; i < species.length; i++) {
+                // trajectories that have already met keep their state
+                tortoise[i] = (next[i] & ~met) | (tortoise[i] & met);
+                diff |= tortoise[i] ^ hare[i];
+            }
+            met |= ~diff & active;
+        }
+
+        // walk around the cycle of each trajectory, starting at the meeting point
+        Map<Key, Attractor> attractors = new LinkedHashMap<Key, Attractor>();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        List<long[]> cycles[] = new List[64];
+        long open = met;
+        long current[] = tortoise.clone();
+        for (int lane = 0; lane < 64; lane++) {
+            if (((met >>> lane) & 1L) != 0L) {
+                cycles[lane] = new ArrayList<long[]>();
+                cycles[lane].add(getLane(tortoise, lane));
+            }
+        }
+        for (int step = 0; (step < maxSteps) && (open != 0L); step++) {
+            stepSynchronous(current, next, stack);
+            long tmp[] = current;
+            current = next;
+            next = tmp;
+            long diff = 0L;
+            for (int i = 0; i < species.length; i++) {
+                diff |= current[i] ^ tortoise[i];
+            }
+            for (int lane = 0; lane < 64; lane++) {
+                if (((open >>> lane) & 1L) != 0L) {
+                    if (((diff >>> lane) & 1L) == 0L) {
+                        open &= ~(1L << lane);
+                        add(attractors, cycles[lane]);
+                    } else {
+                        cycles[lane].add(getLane(current, lane));
+                    }
+                }
+            }
+        }
+        return new ArrayList<Attractor>(attractors.values());
+    }
+
+    /**
+     * Rotates the given cycle such that it starts with its smallest state and
+     * counts it as reached once.
+     *
+     * @param attractors
+     * @param cycle
+     */
+    private static void add(Map<Key, Attractor> attractors, List<long[]> cycle) {
+        int first = 0;
+        for (int k = 1; k < cycle.size(); k++) {
+            if (compare(cycle.get(k), cycle.get(first)) < 0) {
+                first = k;
+            }
+        }
+        Key key = new Key(cycle.get(first));
+        Attractor attractor = attractors.get(key);
+        if (attractor == null) {
+            List<long[]> states = new ArrayList<long[]>(cycle.size());
+            states.addAll(cycle.subList(first, cycle.size()));
+            states.addAll(cycle.subList(0, first));
+            attractor = new Attractor(states);
+            attractors.put(key, attractor);
+        }
+        attractor.hits++;
+    }
+
+    /**
+     * @param a
+     * @param b
+     * @return the result of comparing both packed states as unsigned numbers
+     *         with the last element being the most significant.
+     */
+    private static int compare(long[] a, long[] b) {
+        for (int i = a.length - 1; i >= 0; i--) {
+            int c = Long.compare(a[i] + Long.MIN_VALUE, b[i] + Long.MIN_VALUE);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
+}
@@ -1,14 +1,10 @@
 package org.sbml.squeezer.functionTermGenerator;
 
-import de.zbit.gui.GUITools;
 import de.zbit.util.ResourceManager;
 import de.zbit.util.prefs.SBPreferences;
 import org.sbml.jsbml.ASTNode;
 import org.sbml.jsbml.ext.qual.Sign;
 import org.sbml.jsbml.ext.qual.Transition;
-import org.sbml.jsbml.math.ASTFunction;
-import org.sbml.jsbml.text.parser.FormulaParserLL3;
-import org.sbml.jsbml.text.parser.IFormulaParser;
 import org.sbml.jsbml.util.compilers.LaTeXCompiler;
 import org.sbml.squeezer.gui.LaTeXRenderer;
 import org.sbml.squeezer.io.SBMLio;
@@ -19,7 +15,6 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
-import java.io.StringReader;
 import java.util.Arrays;
 import java.util.List;
 import java.util.ResourceBundle;
@@ -208,23 +203,16 @@ public class FunctionTermDisplayPanel extends JPanel implements ItemListener {
 
         eqnPrev = new JPanel();
 
-        ASTFunction math;
-        ASTNode math2 = new ASTNode();
+        ASTNode math2;
 
         if(curDefTerm == DefaultTerm.allActivatorsAndNoInhibitor) {
-            math = ftg.generateFunctionTermForOneTransition(transition, ASTNode.Type.LOGICAL_AND);
+            math2 = ftg.generateFunctionTermForOneTransition(transition, ASTNode.Type.LOGICAL_AND);
         }
         else {
-            math = ftg.generateFunctionTermForOneTransition(transition, ASTNode.Type.LOGICAL_OR);
+            math2 = ftg.generateFunctionTermForOneTransition(transition, ASTNode.Type.LOGICAL_OR);
         }
-        IFormulaParser parser = new FormulaParserLL3(new StringReader(""));
-        String helper = math.toFormula().replace("xor", "Xor");
-        try {
-            math2 = ASTNode.parseFormula(helper, parser);
-        }
-        catch (Exception exc){
-            exc.printStackTrace();
-            GUITools.showErrorMessage(this.getParent(), exc);
+        if (math2 == null) {
+            math2 = new ASTNode();
         }
 
         prefsLaTeX = SBPreferences.getPreferencesFor(LaTeXOptions.class);
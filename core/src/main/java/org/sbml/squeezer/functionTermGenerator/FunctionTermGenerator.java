@@ -1,8 +1,21 @@
 package org.sbml.squeezer.functionTermGenerator;
 
-import java.io.StringReader;
+import java.text.MessageFormat;
 import java.util.ArrayList;
-
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import de.zbit.util.ResourceManager;
 import de.zbit.util.prefs.SBPreferences;
 import de.zbit.util.progressbar.AbstractProgressBar;
 import org.sbml.jsbml.ASTNode;
@@ -10,14 +23,8 @@ import org.sbml.jsbml.ASTNode.Type;
 import org.sbml.jsbml.ListOf;
 import org.sbml.jsbml.Model;
 import org.sbml.jsbml.ext.qual.*;
-import org.sbml.jsbml.math.ASTCiNumberNode;
-import org.sbml.jsbml.math.ASTCnIntegerNode;
-import org.sbml.jsbml.math.ASTFunction;
-import org.sbml.jsbml.math.ASTLogicalOperatorNode;
-import org.sbml.jsbml.math.ASTNode2;
-import org.sbml.jsbml.math.ASTRelationalOperatorNode;
-import org.sbml.jsbml.text.parser.FormulaParserLL3;
-import org.sbml.jsbml.text.parser.IFormulaParser;
+import org.sbml.squeezer.util.Bundles;
+import org.sbml.squeezer.util.Cancellation;
 import org.sbml.squeezer.util.ProgressAdapter;
 
 /**
@@ -31,6 +38,17 @@ import org.sbml.squeezer.util.ProgressAdapter;
  */
 
 public class FunctionTermGenerator {
+
+    /**
+     * A {@link Logger} for this class.
+     */
+    private static final transient Logger logger = Logger.getLogger(FunctionTermGenerator.class.getName());
+
+    /**
+     * Localization support.
+     */
+    private static final transient ResourceBundle MESSAGES = ResourceManager.getBundle(Bundles.MESSAGES);
+
     private Sign sign = null;
     private static DefaultTerm defaultTerm = null;
 
@@ -39,18 +57,64 @@ public class FunctionTermGenerator {
 
     protected AbstractProgressBar progressBar = null;
 
-    private ListOf<Transition> tempListOfTransitions;
-
-    private QualModelPlugin qm;
+    /**
+     * The default sign of each input whose sign is not specified in the model.
+     * Inputs are compared by identity, because their identifiers are optional.
+     */
+    private Map<Input, Sign> signOverrides = new IdentityHashMap<Input, Sign>();
 
     private int createdFunctionTermsCount = 0;
 
     private ArrayList<Transition> modifiedTransitions = new ArrayList<Transition>();
 
+    /**
+     * The generated function term for each element of
+     * {@link #modifiedTransitions}, which is not yet part of the model.
+     */
+    private ArrayList<ASTNode> generatedFunctionTerms = new ArrayList<ASTNode>();
+
+    /**
+     * Whether existing function terms are to be replaced when the generated
+     * terms are stored.
+     */
+    private boolean overwriteExistingFunctionTerms = false;
+
+    /**
+     * Whether the generated function terms have already been added to the
+     * model.
+     */
+    private boolean functionTermsStored = false;
+
+    /**
+     * The number of threads that create function terms simultaneously.
+     */
+    private int numberOfThreads;
+
+    /**
+     * Whether the generated function terms are simplified with a
+     * {@link FunctionTermMinimizer}.
+     */
+    private boolean minimizeFunctionTerms;
+
+    /**
+     * All modified transitions whose function term is always {@code true} or
+     * always {@code false}.
+     */
+    private ArrayList<Transition> transitionsWithConstantFunctionTerms = new ArrayList<Transition>();
+
     public ArrayList<Transition> getModifiedTransitions() {
         return modifiedTransitions;
     }
 
+    /**
+     * @param index
+     * @return the function term that has been generated for the modified
+     *         transition at the given position.
+     */
+    public ASTNode getGeneratedFunctionTerm(int index) {
+        return generatedFunctionTerms.get(index);
+    }
+
     public DefaultTerm getDefaultTerm() {
         return defaultTerm;
     }
@@ -84,7 +148,54 @@ public class FunctionTermGenerator {
     }
 
     public FunctionTermGenerator() {
+        SBPreferences prefs = SBPreferences.getPreferencesFor(FunctionTermOptions.class);
+        numberOfThreads = Math.max(1, prefs.getInt(FunctionTermOptions.NUMBER_OF_FUNCTION_TERM_THREADS));
+        minimizeFunctionTerms = prefs.getBoolean(FunctionTermOptions.MINIMIZE_FUNCTION_TERMS);
+    }
+
+    /**
+     * @return whether the generated function terms are simplified.
+     */
+    public boolean isMinimizeFunctionTerms() {
+        return minimizeFunctionTerms;
+    }
+
+    /**
+     * @param minimizeFunctionTerms
+     *        if {@code true}, {@link #generateFunctionTerms(Model)} replaces
+     *        each function term by an equivalent, smaller term if possible.
+     */
+    public void setMinimizeFunctionTerms(boolean minimizeFunctionTerms) {
+        this.minimizeFunctionTerms = minimizeFunctionTerms;
+    }
+
+    /**
+     * @return all modified transitions whose minimized function term turned
+     *         out to be always {@code true} or always {@code false}.
+     */
+    public ArrayList<Transition> getTransitionsWithConstantFunctionTerms() {
+        return transitionsWithConstantFunctionTerms;
+    }
 
+    /**
+     * @return the number of threads that create function terms
+     *         simultaneously.
+     */
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    /**
+     * @param numberOfThreads
+     *        the number of threads that create function terms simultaneously
+     *        in {@link #generateFunctionTerms(Model)}. A value of one means
+     *        that all function terms are created on the calling thread.
+     */
+    public void setNumberOfThreads(int numberOfThreads) {
+        if (numberOfThreads < 1) {
+            throw new IllegalArgumentException(Integer.toString(numberOfThreads));
+        }
+        this.numberOfThreads = numberOfThreads;
     }
 
     /**
@@ -95,24 +206,35 @@ public class FunctionTermGenerator {
     public void setDefaultSign(Model model) {
 
         QualModelPlugin qm = (QualModelPlugin) model.getPlugin(QualConstants.shortLabel);
-        if (tempListOfTransitions == null) {
-            this.tempListOfTransitions = qm.getListOfTransitions().clone();
-        }
+        signOverrides.clear();
 
         for (Transition t : qm.getListOfTransitions()) {
             for (Input i : t.getListOfInputs()) {
                 // if no sign or sign=unknown the default sign is set
                 if (!i.isSetSign() || i.getSign().equals(Sign.unknown)) {
-                    tempListOfTransitions.get(t.getId()).getListOfInputs().get(i.getId()).setSign(sign);
+                    signOverrides.put(i, sign);
                 }
             }
         }
     }
 
+    /**
+     * @param i
+     * @return the default sign of the given input if its sign is not specified
+     *         and its own sign otherwise.
+     */
+    private Sign getSign(Input i) {
+        Sign s = signOverrides.get(i);
+        return (s != null) ? s : i.getSign();
+    }
+
     /**
      * Generates function terms for every transition which does not contain a function term
      *
      * @param model, that a default function term should be assigned
+     * @throws CancellationException
+     *         if the current thread has been interrupted. The model is not
+     *         changed before {@link #storeChanges(Model)} is called.
      */
     public void generateFunctionTerms(Model model) throws Exception {
 
@@ -123,6 +245,10 @@ public class FunctionTermGenerator {
 
         this.createdFunctionTermsCount = 0;
         this.modifiedTransitions.clear();
+        this.generatedFunctionTerms.clear();
+        this.transitionsWithConstantFunctionTerms.clear();
+        this.overwriteExistingFunctionTerms = generateTermsForAllReactions;
+        this.functionTermsStored = false;
 
         // exit the method if no default function term scheme is applied
         if (defaultTerm.equals(DefaultTerm.none)) {
@@ -133,72 +259,202 @@ public class FunctionTermGenerator {
             progressAdapter.setNumberOfTags(model, null, false);
         }
 
-        for (Transition t : tempListOfTransitions) {
+        QualModelPlugin qm = (QualModelPlugin) model.getPlugin(QualConstants.shortLabel);
+        ListOf<Transition> listOfTransitions = qm.getListOfTransitions();
+
+        // scheme oneActivatorAndNoInhibitor or allActivatorsAndNoInhibitor
+        Type logicalJunction = defaultTerm.equals(DefaultTerm.oneActivatorAndNoInhibitor)
+                ? ASTNode.Type.LOGICAL_OR : ASTNode.Type.LOGICAL_AND;
+
+        Map<String, Integer> maxLevels = null;
+        if (minimizeFunctionTerms) {
+            maxLevels = new HashMap<String, Integer>();
+            for (QualitativeSpecies qs : qm.getListOfQualitativeSpecies()) {
+                if (qs.isSetMaxLevel()) {
+                    maxLevels.put(qs.getId(), Integer.valueOf(qs.getMaxLevel()));
+                }
+            }
+        }
 
-            if (progressAdapter != null) {
-                //progressAdapter.setNumberOfTags(modelOrig, miniModel, isRemoveUnnecessaryParameters());
-                progressAdapter.progressOn();
+        FunctionTermMinimizer minimizer = (maxLevels != null) ? new FunctionTermMinimizer(maxLevels) : null;
+        if ((numberOfThreads > 1) && (listOfTransitions.size() > 1)) {
+            ASTNode nodes[] = generateFunctionTermsConcurrently(listOfTransitions, logicalJunction,
+                    generateTermsForAllReactions, maxLevels);
+            // the terms are collected in the original order of the transitions
+            for (int k = 0; k < nodes.length; k++) {
+                if (progressAdapter != null) {
+                    progressAdapter.progressOn();
+                }
+                if (nodes[k] != null) {
+                    addFunctionTerm(listOfTransitions.get(k), nodes[k]);
+                }
             }
+        } else {
+            for (Transition t : listOfTransitions) {
+                Cancellation.checkpoint();
 
-            if (!t.isSetListOfFunctionTerms() || (t.isSetListOfFunctionTerms() &&
-                    ((t.getListOfFunctionTerms().size() == 1 && t.getListOfFunctionTerms().get(0).isDefaultTerm()) ||
-                            t.getListOfFunctionTerms().isEmpty())) || generateTermsForAllReactions) {
+                if (progressAdapter != null) {
+                    //progressAdapter.setNumberOfTags(modelOrig, miniModel, isRemoveUnnecessaryParameters());
+                    progressAdapter.progressOn();
+                }
 
-                ASTNode2 math;
+                if (isFunctionTermRequired(t, generateTermsForAllReactions)) {
 
-                // scheme oneActivatorAndNoInhibitor
-                if (defaultTerm.equals(DefaultTerm.oneActivatorAndNoInhibitor)) {
-                    math = generateFunctionTermForOneTransition(t, ASTNode.Type.LOGICAL_OR);
-                }
-                // scheme allActivatorsAndNoInhibitor
-                else {
-                    math = generateFunctionTermForOneTransition(t, ASTNode.Type.LOGICAL_AND);
-                }
+                    ASTNode node = generateFunctionTerm(t, logicalJunction, minimizer);
 
-                // beta solution to use a parser to convert from ASTNode2 to ASTNode
-                // TODO: implementation converter in JSBML
-                IFormulaParser parser = new FormulaParserLL3(new StringReader(""));
-                String helper = math.toFormula().replace("xor", "Xor");
-                ASTNode node = ASTNode.parseFormula(helper, parser);
+                    // transitions without inputs do not get a default term
+                    if (node != null) {
+                        addFunctionTerm(t, node);
+                    }
+                }
+            }
+        }
 
-                if(generateTermsForAllReactions) {
-                    t.getListOfFunctionTerms().clear();
+        if (!transitionsWithConstantFunctionTerms.isEmpty()) {
+            StringBuilder ids = new StringBuilder();
+            for (Transition t : transitionsWithConstantFunctionTerms) {
+                if (ids.length() > 0) {
+                    ids.append(", ");
                 }
-                t.createFunctionTerm(node);
+                ids.append(t.getId());
+            }
+            logger.warning(MessageFormat.format(MESSAGES.getString("CONSTANT_FUNCTION_TERMS"),
+                    transitionsWithConstantFunctionTerms.size(), ids));
+        }
+    }
 
-                //set the resultLevel of the newly created default function term
-                t.getListOfFunctionTerms().get(t.getFunctionTermCount() - 1).setResultLevel(1);
-                //
-                this.modifiedTransitions.add(t);
-                this.createdFunctionTermsCount++;
+    /**
+     * Creates the function terms for all given transitions using
+     * {@link #numberOfThreads} threads. The threads only read the model, so
+     * that the result is identical to the sequential creation of all terms.
+     *
+     * @param listOfTransitions
+     * @param logicalJunction
+     * @param generateTermsForAllReactions
+     * @param maxLevels
+     *        the maximal levels of the qualitative species or {@code null} if
+     *        the terms are not to be minimized
+     * @return the function term for each transition at the same position or
+     *         {@code null} if no term is to be created for this transition.
+     * @throws Exception
+     */
+    private ASTNode[] generateFunctionTermsConcurrently(final ListOf<Transition> listOfTransitions,
+            final Type logicalJunction, final boolean generateTermsForAllReactions,
+            final Map<String, Integer> maxLevels) throws Exception {
+        final ASTNode nodes[] = new ASTNode[listOfTransitions.size()];
+        // single terms are small, hence each task processes a block of transitions
+        int blockSize = (nodes.length + 4 * numberOfThreads - 1) / (4 * numberOfThreads);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(numberOfThreads,
+                (nodes.length + blockSize - 1) / blockSize));
+        try {
+            for (int from = 0; from < nodes.length; from += blockSize) {
+                final int start = from;
+                final int end = Math.min(nodes.length, from + blockSize);
+                futures.add(executor.submit(new Callable<Void>() {
+                    /* (non-Javadoc)
+                     * @see java.util.concurrent.Callable#call()
+                     */
+                    @Override
+                    public Void call() {
+                        // minimizers must not be shared between threads
+                        FunctionTermMinimizer minimizer = (maxLevels != null) ? new FunctionTermMinimizer(maxLevels) : null;
+                        for (int k = start; k < end; k++) {
+                            Cancellation.checkpoint();
+                            Transition t = listOfTransitions.get(k);
+                            if (isFunctionTermRequired(t, generateTermsForAllReactions)) {
+                                nodes[k] = generateFunctionTerm(t, logicalJunction, minimizer);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
             }
+        } catch (ExecutionException exc) {
+            if (exc.getCause() instanceof Error) {
+                throw (Error) exc.getCause();
+            }
+            throw (Exception) exc.getCause();
+        } catch (InterruptedException exc) {
+            throw Cancellation.cancelled(exc);
+        } finally {
+            executor.shutdownNow();
+        }
+        return nodes;
+    }
+
+    /**
+     * @param t
+     * @param logicalJunction
+     * @param minimizer
+     *        simplifies the term or is {@code null} if the term is not to be
+     *        minimized
+     * @return the (minimized) default function term or {@code null} if the
+     *         transition does not have any inputs
+     */
+    private ASTNode generateFunctionTerm(Transition t, Type logicalJunction, FunctionTermMinimizer minimizer) {
+        ASTNode node = generateFunctionTermForOneTransition(t, logicalJunction);
+        if ((node != null) && (minimizer != null)) {
+            node = minimizer.minimize(node);
+        }
+        return node;
+    }
+
+    /**
+     * @param t
+     * @param generateTermsForAllReactions
+     * @return {@code true} if a default function term is to be created for the
+     *         given transition.
+     */
+    private static boolean isFunctionTermRequired(Transition t, boolean generateTermsForAllReactions) {
+        return !t.isSetListOfFunctionTerms() || (t.isSetListOfFunctionTerms() &&
+                ((t.getListOfFunctionTerms().size() == 1 && t.getListOfFunctionTerms().get(0).isDefaultTerm()) ||
+                        t.getListOfFunctionTerms().isEmpty())) || generateTermsForAllReactions;
+    }
+
+    /**
+     * Memorizes a generated function term, the model is only changed when the
+     * terms are stored.
+     *
+     * @param t
+     * @param node
+     */
+    private void addFunctionTerm(Transition t, ASTNode node) {
+        this.modifiedTransitions.add(t);
+        this.generatedFunctionTerms.add(node);
+        this.createdFunctionTermsCount++;
+        if ((node.getType() == Type.CONSTANT_TRUE) || (node.getType() == Type.CONSTANT_FALSE)) {
+            this.transitionsWithConstantFunctionTerms.add(t);
         }
     }
 
     /**
      * Generates default function term for a single transition
      *
-     * @param ogT
+     * @param t
      * @param logicalJunction
-     * @return
+     * @return the default function term of the transition, which is built
+     *         directly as {@link ASTNode}, or {@code null} if the transition
+     *         does not have any inputs
      */
-    public ASTFunction generateFunctionTermForOneTransition(Transition ogT, Type logicalJunction) {
-
-        Transition t = tempListOfTransitions.get(ogT.getId());
+    public ASTNode generateFunctionTermForOneTransition(Transition t, Type logicalJunction) {
 
         if (t.isSetListOfInputs()) {
 
-            ASTFunction ai = new ASTLogicalOperatorNode(logicalJunction);
-            ASTFunction ri = new ASTLogicalOperatorNode(ASTNode.Type.LOGICAL_AND);
-            ASTFunction ari = new ASTLogicalOperatorNode(ASTNode.Type.LOGICAL_XOR);
-            ASTFunction singleA = null;
-            ASTFunction singleR = null;
-            ASTFunction functionTerm = new ASTLogicalOperatorNode(ASTNode.Type.LOGICAL_AND);
+            ASTNode ai = new ASTNode(logicalJunction);
+            ASTNode ri = new ASTNode(ASTNode.Type.LOGICAL_AND);
+            ASTNode ari = new ASTNode(ASTNode.Type.LOGICAL_XOR);
+            ASTNode singleA = null;
+            ASTNode singleR = null;
+            ASTNode functionTerm = new ASTNode(ASTNode.Type.LOGICAL_AND);
 
             for (Input i : t.getListOfInputs()) {
 
                 // concatenate all activators
-                if (i.getSign().name().equals("positive")) {
+                if (getSign(i) == Sign.positive) {
                     if (singleA != null) {
                         ai.addChild(singleA);
                     }
@@ -206,7 +462,7 @@ public class FunctionTermGenerator {
                 }
 
                 // concatenate all inhibitors
-                if (i.getSign().name().equals("negative")) {
+                if (getSign(i) == Sign.negative) {
                     if (singleR != null) {
                         ri.addChild(singleR);
                     }
@@ -214,7 +470,7 @@ public class FunctionTermGenerator {
                 }
 
                 // activator or inhibitor depending on the co-factors
-                if (i.getSign().name().equals("dual")) {
+                if (getSign(i) == Sign.dual) {
                     ari.addChild(generateEquation(i, 0));
                     ari.addChild(generateEquation(i, 1));
                 }
@@ -307,19 +563,17 @@ public class FunctionTermGenerator {
      * @param value
      * @return
      */
-    private static ASTFunction generateEquation(Input i, int value) {
+    private static ASTNode generateEquation(Input i, int value) {
 
-        ASTRelationalOperatorNode eq = new ASTRelationalOperatorNode(ASTNode.Type.RELATIONAL_EQ);
+        ASTNode eq = new ASTNode(ASTNode.Type.RELATIONAL_EQ);
 
         // generate node with id
-        ASTCiNumberNode ci = new ASTCiNumberNode();
-        ci.setRefId(i.getQualitativeSpecies());
+        ASTNode ci = new ASTNode(ASTNode.Type.NAME);
+        ci.setName(i.getQualitativeSpecies());
         eq.addChild(ci);
 
         //generate node with number
-        ASTCnIntegerNode cn = new ASTCnIntegerNode();
-        cn.setNumber(value);
-        eq.addChild(cn);
+        eq.addChild(new ASTNode(value));
 
         return eq;
     }
@@ -330,12 +584,23 @@ public class FunctionTermGenerator {
      * @param model
      */
     public void storeChanges(Model model) {
-        if (!tempListOfTransitions.isEmpty()) {
-
-            QualModelPlugin qm = (QualModelPlugin) (model.getPlugin(QualConstants.shortLabel));
+        for (Map.Entry<Input, Sign> entry : signOverrides.entrySet()) {
+            entry.getKey().setSign(entry.getValue());
+        }
+        signOverrides.clear();
 
-            qm.setListOfTransitions(tempListOfTransitions);
+        if (functionTermsStored) {
+            return;
+        }
+        for (int k = 0; k < modifiedTransitions.size(); k++) {
+            Transition t = modifiedTransitions.get(k);
+            if (overwriteExistingFunctionTerms) {
+                t.getListOfFunctionTerms().clear();
+            }
+            //set the resultLevel of the newly created default function term
+            t.createFunctionTerm(generatedFunctionTerms.get(k)).setResultLevel(1);
         }
+        functionTermsStored = true;
     }
 
     /**
@@ -5,6 +5,7 @@ import org.sbml.jsbml.Model;
 import org.sbml.squeezer.util.Bundles;
 
 import javax.swing.*;
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,6 +55,8 @@ public class FunctionTermGeneratorWorker extends SwingWorker<Void, Void> {
             ftg.setDefaultSign(model);
             try {
                 ftg.generateFunctionTerms(model);
+            } catch (CancellationException exc) {
+                logger.info(exc.getMessage());
             } catch (Exception exc) {
                 exc.printStackTrace();
             }
@@ -69,7 +72,9 @@ public class FunctionTermGeneratorWorker extends SwingWorker<Void, Void> {
      */
     @Override
     protected void done() {
-        logger.log(Level.INFO, ResourceManager.getBundle(Bundles.LABELS).getString("READY"));
-        firePropertyChange("generateFunctionTermsDone", null, null);
+        if (!isCancelled()) {
+            logger.log(Level.INFO, ResourceManager.getBundle(Bundles.LABELS).getString("READY"));
+            firePropertyChange("generateFunctionTermsDone", null, null);
+        }
     }
 }
@@ -0,0 +1,287 @@
+package org.sbml.squeezer.functionTermGenerator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sbml.jsbml.ASTNode;
+import org.sbml.jsbml.ASTNode.Type;
+
+/**
+ * Simplifies Boolean function terms with the help of a {@link BDD}. Terms may
+ * consist of logical operators, the constants {@code true} and
+ * {@code false}, and (in)equations that compare a qualitative species with a
+ * level. A species whose maximal level is one has two states, hence
+ * {@code s == 0} is the negation of {@code s == 1}. For all other species,
+ * each comparison with a level is treated as an independent proposition.
+ * <p>
+ * The minimized term is a sum of products, from which all literals that are
+ * common to all products have been factored out. It is only used if it is
+ * smaller than the original term or if the term is constant.
+ * <p>
+ * Instances of this class can be used for many terms, but they are not
+ * thread-safe.
+ *
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class FunctionTermMinimizer {
+
+    /**
+     * The default maximal number of nodes of the {@link BDD} for one term.
+     */
+    public static final int DEFAULT_MAX_NODES = 1 << 16;
+
+    /**
+     * The maximal level of each qualitative species whose maximal level is
+     * known.
+     */
+    private final Map<String, Integer> maxLevels;
+
+    /**
+     * The diagram for the current term, which is reused for all terms.
+     */
+    private final BDD bdd;
+
+    /**
+     * The identifier of the species of each variable.
+     */
+    private List<String> species;
+
+    /**
+     * The level of each variable or -1 if the variable stands for a species
+     * with two states, which is at level one if the variable is true.
+     */
+    private List<Integer> levels;
+
+    /**
+     * Maps species identifiers or comparisons to their variables.
+     */
+    private Map<String, Integer> variables;
+
+    /**
+     * @param maxLevels
+     *        the maximal level of each qualitative species whose maximal level
+     *        is known. This map is only read.
+     */
+    public FunctionTermMinimizer(Map<String, Integer> maxLevels) {
+        this(maxLevels, DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param maxLevels
+     *        the maximal level of each qualitative species whose maximal level
+     *        is known. This map is only read.
+     * @param maxNodes
+     *        the maximal number of nodes of the {@link BDD} for one term. Terms
+     *        that require more nodes are not minimized.
+     */
+    public FunctionTermMinimizer(Map<String, Integer> maxLevels, int maxNodes) {
+        this.maxLevels = maxLevels;
+        bdd = new BDD(maxNodes);
+    }
+
+    /**
+     * @param term
+     * @return an equivalent term that is not larger than the given one, or the
+     *         given term itself if it cannot be simplified. Constant terms are
+     *         given as {@link Type#CONSTANT_TRUE} or {@link Type#CONSTANT_FALSE}.
+     */
+    public ASTNode minimize(ASTNode term) {
+        species = new ArrayList<String>();
+        levels = new ArrayList<Integer>();
+        variables = new HashMap<String, Integer>();
+        bdd.clear();
+        int f;
+        try {
+            f = toBDD(term, bdd);
+        } catch (BDD.NodeLimitExceededException exc) {
+            return term;
+        }
+        if (f < 0) {
+            return term;
+        }
+        if (f == BDD.FALSE) {
+            return new ASTNode(Type.CONSTANT_FALSE);
+        }
+        if (f == BDD.TRUE) {
+            return new ASTNode(Type.CONSTANT_TRUE);
+        }
+        ASTNode minimized;
+        try {
+            minimized = factor(bdd.isop(f));
+        } catch (BDD.NodeLimitExceededException exc) {
+            return term;
+        }
+        return (size(minimized) < size(term)) ? minimized : term;
+    }
+
+    /**
+     * @param node
+     * @param bdd
+     * @return the node of the given {@link BDD} that represents the given term
+     *         or -1 if the term contains unsupported elements.
+     */
+    private int toBDD(ASTNode node, BDD bdd) {
+        switch (node.getType()) {
+        case CONSTANT_TRUE:
+            return BDD.TRUE;
+        case CONSTANT_FALSE:
+            return BDD.FALSE;
+        case LOGICAL_NOT:
+            if (node.getChildCount() != 1) {
+                return -1;
+            }
+            int f = toBDD(node.getChild(0), bdd);
+            return (f < 0) ? f : bdd.not(f);
+        case LOGICAL_AND:
+        case LOGICAL_OR:
+        case LOGICAL_XOR:
+            int result = (node.getType() == Type.LOGICAL_AND) ? BDD.TRUE : BDD.FALSE;
+            for (ASTNode child : node.getChildren()) {
+                int g = toBDD(child, bdd);
+                if (g < 0) {
+                    return g;
+                }
+                if (node.getType() == Type.LOGICAL_AND) {
+                    result = bdd.and(result, g);
+                } else if (node.getType() == Type.LOGICAL_OR) {
+                    result = bdd.or(result, g);
+                } else {
+                    result = bdd.xor(result, g);
+                }
+            }
+            return result;
+        case RELATIONAL_EQ:
+        case RELATIONAL_NEQ:
+            if (node.getChildCount() != 2) {
+                return -1;
+            }
+            ASTNode name = node.getChild(0), level = node.getChild(1);
+            if (name.isInteger() && (level.getType() == Type.NAME)) {
+                name = node.getChild(1);
+                level = node.getChild(0);
+            }
+            if ((name.getType() != Type.NAME) || !level.isInteger()) {
+                return -1;
+            }
+            int atom = toBDD(name.getName(), level.getInteger(), bdd);
+            return (node.getType() == Type.RELATIONAL_EQ) ? atom : bdd.not(atom);
+        default:
+            return -1;
+        }
+    }
+
+    /**
+     * @param id
+     *        the identifier of a species
+     * @param level
+     * @param bdd
+     * @return the node that represents the proposition that the given species
+     *         is at the given level.
+     */
+    private int toBDD(String id, int level, BDD bdd) {
+        Integer maxLevel = maxLevels.get(id);
+        boolean twoStates = (maxLevel != null) && (maxLevel.intValue() == 1);
+        if (twoStates && (level != 0) && (level != 1)) {
+            return BDD.FALSE;
+        }
+        String key = twoStates ? id : id + "==" + level;
+        Integer v = variables.get(key);
+        if (v == null) {
+            v = Integer.valueOf(species.size());
+            variables.put(key, v);
+            species.add(id);
+            levels.add(Integer.valueOf(twoStates ? -1 : level));
+        }
+        int x = bdd.variable(v.intValue());
+        return (twoStates && (level == 0)) ? bdd.not(x) : x;
+    }
+
+    /**
+     * @param products
+     *        a sum of products as returned by {@link BDD#isop(int)}
+     * @return a term that first lists the literals that are common to all
+     *         products, followed by the disjunction of the remaining products.
+     */
+    private ASTNode factor(List<int[]> products) {
+        int counts[] = new int[2 * species.size()];
+        for (int[] product : products) {
+            for (int literal : product) {
+                counts[literal]++;
+            }
+        }
+        ASTNode conjunction = new ASTNode(Type.LOGICAL_AND);
+        for (int literal = 0; literal < counts.length; literal++) {
+            if (counts[literal] == products.size()) {
+                conjunction.addChild(toASTNode(literal));
+            }
+        }
+        ASTNode disjunction = new ASTNode(Type.LOGICAL_OR);
+        for (int[] product : products) {
+            ASTNode rest = new ASTNode(Type.LOGICAL_AND);
+            for (int literal : product) {
+                if (counts[literal] < products.size()) {
+                    rest.addChild(toASTNode(literal));
+                }
+            }
+            if (rest.getChildCount() > 0) {
+                disjunction.addChild(unwrap(rest));
+            }
+        }
+        if (disjunction.getChildCount() > 0) {
+            conjunction.addChild(unwrap(disjunction));
+        }
+        return unwrap(conjunction);
+    }
+
+    /**
+     * @param literal
+     * @return the (in)equation that represents the given literal.
+     */
+    private ASTNode toASTNode(int literal) {
+        int v = literal / 2;
+        boolean negated = (literal % 2) == 1;
+        int level = levels.get(v).intValue();
+        ASTNode relation;
+        if (level < 0) {
+            relation = new ASTNode(Type.RELATIONAL_EQ);
+            level = negated ? 0 : 1;
+        } else {
+            relation = new ASTNode(negated ? Type.RELATIONAL_NEQ : Type.RELATIONAL_EQ);
+        }
+        ASTNode ci = new ASTNode(Type.NAME);
+        ci.setName(species.get(v));
+        relation.addChild(ci);
+        relation.addChild(new ASTNode(level));
+        return relation;
+    }
+
+    /**
+     * @param node
+     *        a logical operator
+     * @return the only child of the given node if there is only one.
+     */
+    private static ASTNode unwrap(ASTNode node) {
+        if (node.getChildCount() == 1) {
+            ASTNode child = node.getChild(0);
+            node.removeChild(0);
+            return child;
+        }
+        return node;
+    }
+
+    /**
+     * @param node
+     * @return the number of nodes in the given tree
+     */
+    private static int size(ASTNode node) {
+        int size = 1;
+        for (ASTNode child : node.getChildren()) {
+            size += size(child);
+        }
+        return size;
+    }
+
+}
@@ -53,12 +53,35 @@ public interface FunctionTermOptions extends KeyProvider{
 			OPTIONS_BUNDLE,
 			Boolean.valueOf(false));
 
+	/**
+	 * The number of threads that create the default function terms for the
+	 * transitions of one model simultaneously. With one thread, all terms are
+	 * created sequentially.
+	 */
+	public static final Option<Integer> NUMBER_OF_FUNCTION_TERM_THREADS = new Option<Integer>(
+			"NUMBER_OF_FUNCTION_TERM_THREADS",
+			Integer.class,
+			OPTIONS_BUNDLE,
+			new Range<Integer>(Integer.class, "{[1,1024]}"),
+			Integer.valueOf(1));
+
+	/**
+	 * If {@code true}, each generated function term is replaced by an
+	 * equivalent, smaller term if possible.
+	 */
+	public static final Option<Boolean> MINIMIZE_FUNCTION_TERMS = new Option<Boolean>(
+			"MINIMIZE_FUNCTION_TERMS",
+			Boolean.class,
+			OPTIONS_BUNDLE,
+			Boolean.valueOf(false));
+
 	/**
 	 *
 	 */
-	@SuppressWarnings({ "unchecked" })
-	public static final OptionGroup<Boolean> GROUP_GENERAL_OPTIONS = new OptionGroup<Boolean>(
-			"GROUP_GENERAL_OPTIONS", OPTIONS_BUNDLE, OVERWRITE_EXISTING_FUNCTION_TERMS);
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static final OptionGroup<?> GROUP_GENERAL_OPTIONS = new OptionGroup(
+			"GROUP_GENERAL_OPTIONS", OPTIONS_BUNDLE, OVERWRITE_EXISTING_FUNCTION_TERMS,
+			MINIMIZE_FUNCTION_TERMS, NUMBER_OF_FUNCTION_TERM_THREADS);
 
 	/**
 	 *
@@ -61,7 +61,7 @@ public class FunctionTermTableModel extends AbstractTableModel {
         for(Transition t: modifiedTransitions) {
 
             data[functionTermNum][0] = t.getId();
-            data[functionTermNum][1] = t.getListOfFunctionTerms().get(0).getMath().toFormula();
+            data[functionTermNum][1] = ftg.getGeneratedFunctionTerm(functionTermNum).toFormula();
 
             // Notify progress listener:
             double percent = functionTermNum * 100d/ftg.getCreatedFunctionTermsCount();
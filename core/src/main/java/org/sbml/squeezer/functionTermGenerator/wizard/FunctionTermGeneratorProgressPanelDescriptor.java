@@ -2,15 +2,22 @@ package org.sbml.squeezer.functionTermGenerator.wizard;
 
 import de.zbit.gui.wizard.Wizard;
 import de.zbit.gui.wizard.WizardPanelDescriptor;
+import de.zbit.util.ResourceManager;
 import de.zbit.util.progressbar.gui.ProgressBarSwing;
 import org.sbml.jsbml.Model;
 import org.sbml.squeezer.functionTermGenerator.FunctionTermGenerator;
 import org.sbml.squeezer.functionTermGenerator.FunctionTermGeneratorWorker;
+import org.sbml.squeezer.util.Bundles;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.event.WindowListener;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.util.ResourceBundle;
+import java.util.logging.Logger;
 
 /**
  * This class implements the progress panel
@@ -30,12 +37,43 @@ public class FunctionTermGeneratorProgressPanelDescriptor extends WizardPanelDes
 
     public static final String IDENTIFIER = "FUNCTION_TERM_GENERATOR_PROGRESS_PANEL";
 
+    /**
+     * Localization support.
+     */
+    public static final transient ResourceBundle MESSAGES = ResourceManager.getBundle(Bundles.MESSAGES);
+
+    /**
+     * A {@link Logger} for this class.
+     */
+    private static final transient Logger logger = Logger.getLogger(FunctionTermGeneratorProgressPanelDescriptor.class.getName());
+
     /**
      *
      */
     private FunctionTermGenerator ftg;
     private Model model;
 
+    /**
+     * The worker that generates the function terms.
+     */
+    private FunctionTermGeneratorWorker worker;
+
+    /**
+     * Cancels the generation of function terms if the wizard is closed.
+     */
+    private final WindowListener closeListener = new WindowAdapter() {
+        /* (non-Javadoc)
+         * @see java.awt.event.WindowAdapter#windowClosed(java.awt.event.WindowEvent)
+         */
+        @Override
+        public void windowClosed(WindowEvent e) {
+            if ((worker != null) && !worker.isDone()) {
+                logger.info(MESSAGES.getString("CANCELLING"));
+                worker.cancel(true);
+            }
+        }
+    };
+
     public FunctionTermGeneratorProgressPanelDescriptor(FunctionTermGenerator ftg, Model model) {
         super(IDENTIFIER, new JPanel(new BorderLayout()));
         this.ftg = ftg;
@@ -57,8 +95,10 @@ public class FunctionTermGeneratorProgressPanelDescriptor extends WizardPanelDes
         p.add(progressBar, BorderLayout.CENTER);
         ftg.setProgressBar(new ProgressBarSwing(progressBar));
         // generate function terms
-        FunctionTermGeneratorWorker worker = new FunctionTermGeneratorWorker(ftg, model);
+        worker = new FunctionTermGeneratorWorker(ftg, model);
         worker.addPropertyChangeListener(this);
+        wizard.getDialog().removeWindowListener(closeListener);
+        wizard.getDialog().addWindowListener(closeListener);
         worker.execute();
     }
 
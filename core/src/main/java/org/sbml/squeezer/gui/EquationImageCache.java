@@ -0,0 +1,280 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.gui;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.scilab.forge.jlatexmath.TeXConstants;
+import org.scilab.forge.jlatexmath.TeXFormula;
+import org.scilab.forge.jlatexmath.TeXIcon;
+
+/**
+ * Renders LaTeX equations to images on a background thread and keeps the
+ * most recently used images, such that equations that are displayed again,
+ * for instance, when the user navigates through a table or a tree, do not
+ * have to be parsed and rendered again. Images are identified by the
+ * equation and the font size.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+class EquationImageCache {
+  
+  /**
+   * Identifies an image.
+   * 
+   * @author Andreas Dr&auml;ger
+   * @since 2.2
+   */
+  private static final class Key {
+    
+    /**
+     * 
+     */
+    private final String texCode;
+    
+    /**
+     * 
+     */
+    private final float fontSize;
+    
+    /**
+     * 
+     * @param texCode
+     * @param fontSize
+     */
+    public Key(String texCode, float fontSize) {
+      this.texCode = texCode;
+      this.fontSize = fontSize;
+    }
+    
+    /* (non-Javadoc)
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) obj;
+      return (fontSize == key.fontSize) && texCode.equals(key.texCode);
+    }
+    
+    /* (non-Javadoc)
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+      return 31 * texCode.hashCode() + Float.floatToIntBits(fontSize);
+    }
+    
+  }
+  
+  /**
+   * The default maximal number of images in the cache.
+   */
+  public static final int DEFAULT_CAPACITY = 128;
+  
+  /**
+   * 
+   */
+  private static EquationImageCache instance;
+  
+  /**
+   * 
+   * @return the cache that is shared by all renderers.
+   */
+  public static synchronized EquationImageCache getInstance() {
+    if (instance == null) {
+      instance = new EquationImageCache(DEFAULT_CAPACITY);
+    }
+    return instance;
+  }
+  
+  /**
+   * The most recently used images in access order.
+   */
+  private final Map<Key, Image> images;
+  
+  /**
+   * Images that are being rendered.
+   */
+  private final Map<Key, Future<Image>> pending;
+  
+  /**
+   * Parses and renders the equations.
+   */
+  private final ExecutorService executor;
+  
+  /**
+   * 
+   * @param capacity
+   *        the maximal number of images in this cache.
+   */
+  public EquationImageCache(final int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException(Integer.toString(capacity));
+    }
+    images = new LinkedHashMap<Key, Image>(16, 0.75f, true) {
+      /**
+       * Generated serial version identifier.
+       */
+      private static final long serialVersionUID = -6190385839640711418L;
+      
+      /* (non-Javadoc)
+       * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+       */
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Image> eldest) {
+        return size() > capacity;
+      }
+    };
+    pending = new HashMap<Key, Future<Image>>();
+    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      /* (non-Javadoc)
+       * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+       */
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, EquationImageCache.class.getSimpleName());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      }
+    });
+  }
+  
+  /**
+   * 
+   * @param texCode
+   * @param fontSize
+   * @return the image of the given equation, which is rendered in the
+   *         background unless it is already available.
+   */
+  public synchronized Future<Image> getImage(final String texCode, final float fontSize) {
+    final Key key = new Key(texCode, fontSize);
+    Image image = images.get(key);
+    if (image != null) {
+      return CompletableFuture.completedFuture(image);
+    }
+    Future<Image> future = pending.get(key);
+    if (future == null) {
+      future = executor.submit(new Callable<Image>() {
+        /* (non-Javadoc)
+         * @see java.util.concurrent.Callable#call()
+         */
+        @Override
+        public Image call() throws Exception {
+          try {
+            return getImageNow(key);
+          } finally {
+            synchronized (EquationImageCache.this) {
+              pending.remove(key);
+            }
+          }
+        }
+      });
+      pending.put(key, future);
+    }
+    return future;
+  }
+  
+  /**
+   * Creates the equation and its image in the background, unless the image is
+   * already available. This is meant for equations that might be displayed
+   * soon and whose creation should not delay the event dispatch thread.
+   * 
+   * @param texCode
+   *        creates the equation.
+   * @param fontSize
+   * @return the image of the equation.
+   */
+  public Future<Image> prefetch(final Callable<String> texCode, final float fontSize) {
+    return executor.submit(new Callable<Image>() {
+      /* (non-Javadoc)
+       * @see java.util.concurrent.Callable#call()
+       */
+      @Override
+      public Image call() throws Exception {
+        return getImageNow(new Key(texCode.call(), fontSize));
+      }
+    });
+  }
+  
+  /**
+   * Renders the image on the current thread unless it is already available.
+   * 
+   * @param key
+   * @return the image for the given key
+   */
+  private Image getImageNow(Key key) {
+    Image image;
+    synchronized (this) {
+      image = images.get(key);
+    }
+    if (image == null) {
+      image = render(key.texCode, key.fontSize);
+      synchronized (this) {
+        images.put(key, image);
+      }
+    }
+    return image;
+  }
+  
+  /**
+   * 
+   * @param texCode
+   * @param fontSize
+   * @return an image of the given equation on a white background.
+   */
+  public static Image render(String texCode, float fontSize) {
+    TeXFormula formula = new TeXFormula(texCode);
+    TeXIcon texIcon = formula.createTeXIcon(TeXConstants.STYLE_DISPLAY, fontSize, TeXFormula.SANSSERIF);
+    texIcon.setForeground(Color.BLACK);
+    BufferedImage image = new BufferedImage(Math.max(1, texIcon.getIconWidth()),
+      Math.max(1, texIcon.getIconHeight()), BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = image.createGraphics();
+    try {
+      g.setColor(Color.WHITE);
+      g.fillRect(0, 0, image.getWidth(), image.getHeight());
+      texIcon.paintIcon(null, g, 0, 0);
+    } finally {
+      g.dispose();
+    }
+    return image;
+  }
+  
+}
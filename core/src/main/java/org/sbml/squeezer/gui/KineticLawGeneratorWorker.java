@@ -22,6 +22,7 @@
  */
 package org.sbml.squeezer.gui;
 
+import java.util.concurrent.CancellationException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,7 +34,8 @@ import org.sbml.squeezer.util.Bundles;
 import de.zbit.util.ResourceManager;
 
 /**
- * Generates kinetic laws using SwingWorker
+ * Generates kinetic laws using SwingWorker. Cancelling this worker interrupts
+ * the generation, which leaves the original model unchanged.
  * 
  * @author Sebastian Nagel
  * @since 2.0
@@ -65,7 +67,10 @@ public class KineticLawGeneratorWorker extends SwingWorker<Void, Void> {
   @Override
   protected Void doInBackground() {
     try {
-      klg.generateLaws();
+      // Users edit one reaction at a time, only these need new laws:
+      klg.generateLaws(true);
+    } catch (CancellationException exc) {
+      logger.info(exc.getMessage());
     } catch (Throwable e) {
       logger.log(Level.WARNING, e.getLocalizedMessage());
       e.printStackTrace();
@@ -78,8 +83,10 @@ public class KineticLawGeneratorWorker extends SwingWorker<Void, Void> {
    */
   @Override
   protected void done() {
-    logger.log(Level.INFO, ResourceManager.getBundle(Bundles.LABELS).getString("READY"));
-    firePropertyChange("generateKineticLawDone", null, null);
+    if (!isCancelled()) {
+      logger.log(Level.INFO, ResourceManager.getBundle(Bundles.LABELS).getString("READY"));
+      firePropertyChange("generateKineticLawDone", null, null);
+    }
   }
   
 }
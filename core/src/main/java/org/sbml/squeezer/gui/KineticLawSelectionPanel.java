@@ -25,6 +25,7 @@ package org.sbml.squeezer.gui;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.GridBagLayout;
 import java.awt.Window;
 import java.awt.event.ItemEvent;
@@ -134,37 +135,63 @@ public class KineticLawSelectionPanel extends JPanel implements ItemListener {
   public KineticLawSelectionPanel(Reaction reaction, BasicKineticLaw[] possibleLaws,
     int selected)
         throws RateLawNotApplicableException {
-    super(new BorderLayout());
-    prefsLaTeX = SBPreferences.getPreferencesFor(LaTeXOptions.class);
+    this(reaction);
     if ((possibleLaws == null) || (selected < 0)
         || (selected > possibleLaws.length) || (possibleLaws.length < 1)) {
       throw new IllegalArgumentException(WARNINGS.getString("INVALID_RATE_LAW_COUNT"));
     }
-    this.reaction = reaction;
-    possibleTypes = new Class[possibleLaws.length];
-    String[] possibleTypesNames = new String[possibleLaws.length];
-    laTeXpreview = new String[possibleTypes.length];
-    for (int i = 0; i < possibleTypes.length; i++) {
-      possibleTypesNames[i] = possibleLaws[i].getSimpleName();
-      possibleTypes[i] = possibleLaws[i].getClass();
-      try {
-        laTeXpreview[i] = possibleLaws[i].getMath().compile(
-          new LaTeXCompiler(prefsLaTeX
-            .getBoolean(LaTeXOptions.PRINT_NAMES_IF_AVAILABLE)))
-            .toString();
-      } catch (SBMLException e) {
-        laTeXpreview[i] = "invalid";
-      }
+    for (int i = 0; i < possibleLaws.length; i++) {
+      addKineticLaw(possibleLaws[i], i == selected);
     }
-    kineticLawComboBox = new JComboBox(possibleTypesNames);
+  }
+  
+  /**
+   * Creates a panel without any kinetic laws to choose from. Kinetic laws can
+   * be added with {@link #addKineticLaw(BasicKineticLaw, boolean)} as soon as
+   * they become available.
+   * 
+   * @param reaction
+   */
+  public KineticLawSelectionPanel(Reaction reaction) {
+    super(new BorderLayout());
+    prefsLaTeX = SBPreferences.getPreferencesFor(LaTeXOptions.class);
+    this.reaction = reaction;
+    possibleTypes = new Class[0];
+    laTeXpreview = new String[0];
+    kineticLawComboBox = new JComboBox();
     kineticLawComboBox.setEditable(false);
     kineticLawComboBox.setBackground(Color.WHITE);
-    kineticLawComboBox.setSelectedIndex(selected);
     createPreviewPanel(kineticLawComboBox.getSelectedIndex());
     kineticLawComboBox.addItemListener(this);
     add(kineticLawComboBox, BorderLayout.NORTH);
     add(eqnPrev, BorderLayout.CENTER);
   }
+  
+  /**
+   * Adds another kinetic law to the choice of this panel.
+   * 
+   * @param kineticLaw
+   * @param select
+   *        whether or not the given kinetic law is to be selected.
+   */
+  public void addKineticLaw(BasicKineticLaw kineticLaw, boolean select) {
+    int index = possibleTypes.length;
+    possibleTypes = Arrays.copyOf(possibleTypes, index + 1);
+    possibleTypes[index] = kineticLaw.getClass();
+    laTeXpreview = Arrays.copyOf(laTeXpreview, index + 1);
+    try {
+      laTeXpreview[index] = kineticLaw.getMath().compile(
+        new LaTeXCompiler(prefsLaTeX
+          .getBoolean(LaTeXOptions.PRINT_NAMES_IF_AVAILABLE)))
+          .toString();
+    } catch (SBMLException e) {
+      laTeXpreview[index] = "invalid";
+    }
+    kineticLawComboBox.addItem(kineticLaw.getSimpleName());
+    if (select) {
+      kineticLawComboBox.setSelectedIndex(index);
+    }
+  }
 
   /**
    * A {@link Logger} for this class.
@@ -314,6 +341,12 @@ public class KineticLawSelectionPanel extends JPanel implements ItemListener {
    * @param kinNum
    */
   private void createPreviewPanel(int kinNum) {
+    if (kinNum < 0) {
+      eqnPrev = new JPanel(new BorderLayout());
+      eqnPrev.setBorder(BorderFactory.createTitledBorder(' ' + MESSAGES.getString("EQUATION_PREVIEW") + ' '));
+      eqnPrev.setPreferredSize(new Dimension(width, height));
+      return;
+    }
     StringBuilder sb = new StringBuilder("v_\\mbox{");
     sb.append(reaction.getId());
     sb.append("}=");
@@ -340,7 +373,8 @@ public class KineticLawSelectionPanel extends JPanel implements ItemListener {
   /**
    * Returns the selected kinetic law from the list of possible kinetic laws.
    *
-   * @return
+   * @return the selected class or {@code null} if no kinetic law has been
+   *         selected yet.
    */
   public Class<?> getSelectedKinetic() {
     int i = 0;
@@ -352,7 +386,7 @@ public class KineticLawSelectionPanel extends JPanel implements ItemListener {
     } else if (kineticLawComboBox != null) {
       i = kineticLawComboBox.getSelectedIndex();
     }
-    return possibleTypes[i];
+    return (i >= 0) && (i < possibleTypes.length) ? possibleTypes[i] : null;
   }
 
   /**
@@ -41,8 +41,15 @@ import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.lang.reflect.InvocationTargetException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Logger;
 
 import javax.swing.BorderFactory;
@@ -95,8 +102,173 @@ public class KineticLawTable extends JTable implements MouseInputListener {
 
   private KineticLawGenerator klg;
   
+  /**
+   * Creates the {@link KineticLawTableModel} in the background.
+   */
+  private TableModelWorker tableModelWorker;
+  
   // private static final int widthMultiplier = 7;
   
+  /**
+   * The maximal number of reactions whose alternative kinetic laws are kept
+   * in {@link #candidateLaws}.
+   */
+  private static final int MAX_CACHED_CANDIDATES = 32;
+  
+  /**
+   * The alternative kinetic laws of the reactions for which the user has
+   * recently opened the selection dialog, such that reopening the dialog
+   * does not require to create them again.
+   */
+  private Map<String, BasicKineticLaw[]> candidateLaws;
+  
+  /**
+   * Creates all kinetic laws that can be chosen for one reaction in the
+   * background and passes them to a {@link KineticLawSelectionPanel} one after
+   * the other. The kinetic laws are not created concurrently, because each of
+   * them replaces the kinetic law of the reaction while it is being created.
+   * 
+   * @author Andreas Dr&auml;ger
+   * @since 2.2
+   */
+  private final class CandidateLawWorker extends SwingWorker<BasicKineticLaw[], BasicKineticLaw> {
+    
+    private final Reaction reaction;
+    private final Class<?> possibleTypes[];
+    private final boolean reversibility;
+    private final TypeStandardVersion version;
+    private final UnitConsistencyType consistency;
+    private final double defaultParamVal;
+    
+    /**
+     * The simple name of the current kinetic law of the reaction, which is to
+     * be selected, or {@code null}.
+     */
+    private final String oldName;
+    private final KineticLawSelectionPanel klsp;
+    
+    /**
+     * The key for {@link KineticLawTable#candidateLaws}.
+     */
+    private final String key;
+    
+    /**
+     * All kinetic laws that have been created so far.
+     */
+    private final List<BasicKineticLaw> created;
+    
+    /**
+     * Whether or not the creation of further kinetic laws has been stopped.
+     */
+    private volatile boolean stopped;
+    
+    /**
+     * 
+     * @param reaction
+     * @param possibleTypes
+     * @param reversibility
+     * @param version
+     * @param consistency
+     * @param defaultParamVal
+     * @param oldName
+     * @param klsp
+     * @param key
+     */
+    public CandidateLawWorker(Reaction reaction, Class<?> possibleTypes[],
+      boolean reversibility, TypeStandardVersion version,
+      UnitConsistencyType consistency, double defaultParamVal, String oldName,
+      KineticLawSelectionPanel klsp, String key) {
+      super();
+      this.reaction = reaction;
+      this.possibleTypes = possibleTypes;
+      this.reversibility = reversibility;
+      this.version = version;
+      this.consistency = consistency;
+      this.defaultParamVal = defaultParamVal;
+      this.oldName = oldName;
+      this.klsp = klsp;
+      this.key = key;
+      created = Collections.synchronizedList(new ArrayList<BasicKineticLaw>(possibleTypes.length));
+      stopped = false;
+    }
+    
+    /* (non-Javadoc)
+     * @see javax.swing.SwingWorker#doInBackground()
+     */
+    @Override
+    protected BasicKineticLaw[] doInBackground() throws Exception {
+      BasicKineticLaw possibleLaws[] = new BasicKineticLaw[possibleTypes.length];
+      for (int i = 0; i < possibleLaws.length; i++) {
+        if (stopped) {
+          return null;
+        }
+        try {
+          possibleLaws[i] = klg.createKineticLaw(reaction, possibleTypes[i],
+            reversibility, version, consistency, defaultParamVal);
+        } catch (Error err) {
+          throw err;
+        } catch (Exception exc) {
+          throw exc;
+        } catch (Throwable exc) {
+          throw new Exception(exc);
+        }
+        created.add(possibleLaws[i]);
+        publish(possibleLaws[i]);
+      }
+      return possibleLaws;
+    }
+    
+    /* (non-Javadoc)
+     * @see javax.swing.SwingWorker#process(java.util.List)
+     */
+    @Override
+    protected void process(List<BasicKineticLaw> chunks) {
+      if (!stopped) {
+        for (BasicKineticLaw candidate : chunks) {
+          klsp.addKineticLaw(candidate, candidate.getSimpleName().equals(oldName));
+        }
+      }
+    }
+    
+    /* (non-Javadoc)
+     * @see javax.swing.SwingWorker#done()
+     */
+    @Override
+    protected void done() {
+      try {
+        BasicKineticLaw possibleLaws[] = get();
+        if (possibleLaws != null) {
+          candidateLaws.put(key, possibleLaws);
+        }
+      } catch (InterruptedException exc) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException exc) {
+        GUITools.showErrorMessage(KineticLawTable.this, exc.getCause());
+      }
+    }
+    
+    /**
+     * Stops the creation of further kinetic laws and waits until the kinetic
+     * law that is currently being created is done.
+     * 
+     * @return all kinetic laws that have been created.
+     */
+    public List<BasicKineticLaw> stop() {
+      stopped = true;
+      try {
+        get();
+      } catch (InterruptedException exc) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException exc) {
+        // Reported by done()
+      }
+      synchronized (created) {
+        return new ArrayList<BasicKineticLaw>(created);
+      }
+    }
+    
+  }
+  
   /**
    * 
    * @author Andreas Dr&auml;ger
@@ -160,8 +332,23 @@ public class KineticLawTable extends JTable implements MouseInputListener {
    */
   public KineticLawTable(KineticLawGenerator klg, AbstractProgressBar progressBar, PropertyChangeListener listener) {
     super();
-    new TableModelWorker(klg, progressBar, this, listener).execute();
+    tableModelWorker = new TableModelWorker(klg, progressBar, this, listener);
+    tableModelWorker.execute();
     this.klg = klg;
+    candidateLaws = new LinkedHashMap<String, BasicKineticLaw[]>(16, 0.75f, true) {
+      /**
+       * Generated serial version identifier.
+       */
+      private static final long serialVersionUID = -3020484564870117567L;
+      
+      /* (non-Javadoc)
+       * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+       */
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, BasicKineticLaw[]> eldest) {
+        return size() > MAX_CACHED_CANDIDATES;
+      }
+    };
     getModel().addTableModelListener(this);
     setDefaultRenderer(Object.class, new KineticLawTableCellRenderer());
     getTableHeader().setToolTipText(
@@ -172,6 +359,18 @@ public class KineticLawTable extends JTable implements MouseInputListener {
     editing = false;
   }
   
+  /* (non-Javadoc)
+   * @see javax.swing.JTable#removeNotify()
+   */
+  @Override
+  public void removeNotify() {
+    // The table model is not needed anymore if the table is not displayed.
+    if (!tableModelWorker.isDone()) {
+      tableModelWorker.cancel(true);
+    }
+    super.removeNotify();
+  }
+  
   /**
    * 
    */
@@ -199,39 +398,114 @@ public class KineticLawTable extends JTable implements MouseInputListener {
     if (colIndex != 1) {
       Object o = ((KineticLawTableModel) dataModel).getKineticLaw(rowIndex);
       if (o instanceof BasicKineticLaw) {
-        BasicKineticLaw kinetic = (BasicKineticLaw) o;
-        String LaTeX;
-        try {
-          SBPreferences prefs = SBPreferences
-              .getPreferencesFor(LaTeXOptions.class);
-          LaTeX = kinetic.getMath().compile(new LaTeXCompiler(
-            prefs.getBoolean(LaTeXOptions.PRINT_NAMES_IF_AVAILABLE)))
-            .toString().replace("text", "mbox").replace(
-              "mathrm", "mbox").replace("mathtt", "mbox");
-        } catch (SBMLException e1) {
-          LaTeX = "invalid";
-        }
-        JComponent component = new LaTeXRenderer().renderEquation("\\begin{equation}" + LaTeX
-          + "\\end{equation}");
-        JPanel panel = new JPanel(new BorderLayout());
-        component.setBackground(Color.WHITE);
-        panel.setBackground(Color.WHITE);
-        panel.add(component, BorderLayout.CENTER);
-        panel.setLocation(((int) MouseInfo.getPointerInfo()
-            .getLocation().getX())
-            - getTopLevelAncestor().getX(), getY() + 10);
-        panel.setBorder(BorderFactory.createLoweredBevelBorder());
-        JOptionPane.showMessageDialog(this, panel,
-          MessageFormat.format(MESSAGES.getString("RATE_LAW_OF_REACTION"),
-            kinetic.getParentSBMLObject().getId()),
-            JOptionPane.INFORMATION_MESSAGE);
-        // JLayeredPane.getLayeredPaneAbove(getParent()).add(component,
-        // JLayeredPane.POPUP_LAYER);
-        validate();
+        final BasicKineticLaw kinetic = (BasicKineticLaw) o;
+        // The equation is created and rendered in the background.
+        new SwingWorker<String, Void>() {
+          /* (non-Javadoc)
+           * @see javax.swing.SwingWorker#doInBackground()
+           */
+          @Override
+          protected String doInBackground() throws Exception {
+            String equation = createEquation(kinetic);
+            LaTeXRenderer.prefetch(equation, LaTeXRenderer.DEFAULT_FONT_SIZE).get();
+            return equation;
+          }
+          
+          /* (non-Javadoc)
+           * @see javax.swing.SwingWorker#done()
+           */
+          @Override
+          protected void done() {
+            try {
+              showEquation(kinetic, get());
+            } catch (InterruptedException exc) {
+              Thread.currentThread().interrupt();
+            } catch (ExecutionException exc) {
+              GUITools.showErrorMessage(KineticLawTable.this, exc.getCause());
+            }
+          }
+        }.execute();
+        prefetchEquations(rowIndex);
+      }
+    }
+  }
+  
+  /**
+   * The number of rows before and after a clicked row whose equations are
+   * rendered in advance.
+   */
+  private static final int PREFETCH_DISTANCE = 2;
+  
+  /**
+   * Renders the equations of the rows next to the given row in the
+   * background, because these are likely to be displayed next.
+   * 
+   * @param rowIndex
+   */
+  private void prefetchEquations(int rowIndex) {
+    KineticLawTableModel model = (KineticLawTableModel) dataModel;
+    for (int row = Math.max(0, rowIndex - PREFETCH_DISTANCE); row <= Math.min(
+      getRowCount() - 1, rowIndex + PREFETCH_DISTANCE); row++) {
+      final KineticLaw kineticLaw = model.getKineticLaw(row);
+      if ((row != rowIndex) && (kineticLaw instanceof BasicKineticLaw)) {
+        LaTeXRenderer.prefetch(new Callable<String>() {
+          /* (non-Javadoc)
+           * @see java.util.concurrent.Callable#call()
+           */
+          @Override
+          public String call() throws Exception {
+            return createEquation(kineticLaw);
+          }
+        }, LaTeXRenderer.DEFAULT_FONT_SIZE);
       }
     }
   }
   
+  /**
+   * 
+   * @param kinetic
+   * @return the LaTeX code of the equation of the given rate law.
+   */
+  private static String createEquation(KineticLaw kinetic) {
+    String LaTeX;
+    try {
+      SBPreferences prefs = SBPreferences
+          .getPreferencesFor(LaTeXOptions.class);
+      LaTeX = kinetic.getMath().compile(new LaTeXCompiler(
+        prefs.getBoolean(LaTeXOptions.PRINT_NAMES_IF_AVAILABLE)))
+        .toString().replace("text", "mbox").replace(
+          "mathrm", "mbox").replace("mathtt", "mbox");
+    } catch (SBMLException e1) {
+      LaTeX = "invalid";
+    }
+    return "\\begin{equation}" + LaTeX + "\\end{equation}";
+  }
+  
+  /**
+   * Displays the given equation in a dialog.
+   * 
+   * @param kinetic
+   * @param equation
+   */
+  private void showEquation(KineticLaw kinetic, String equation) {
+    JComponent component = new LaTeXRenderer().renderEquation(equation);
+    JPanel panel = new JPanel(new BorderLayout());
+    component.setBackground(Color.WHITE);
+    panel.setBackground(Color.WHITE);
+    panel.add(component, BorderLayout.CENTER);
+    panel.setLocation(((int) MouseInfo.getPointerInfo()
+        .getLocation().getX())
+        - getTopLevelAncestor().getX(), getY() + 10);
+    panel.setBorder(BorderFactory.createLoweredBevelBorder());
+    JOptionPane.showMessageDialog(this, panel,
+      MessageFormat.format(MESSAGES.getString("RATE_LAW_OF_REACTION"),
+        kinetic.getParentSBMLObject().getId()),
+        JOptionPane.INFORMATION_MESSAGE);
+    // JLayeredPane.getLayeredPaneAbove(getParent()).add(component,
+    // JLayeredPane.POPUP_LAYER);
+    validate();
+  }
+  
   /* (non-Javadoc)
    * @see java.awt.event.MouseMotionListener#mouseDragged(java.awt.event.MouseEvent)
    */
@@ -286,6 +560,39 @@ public class KineticLawTable extends JTable implements MouseInputListener {
   public void mouseReleased(MouseEvent e) {
   }
   
+  /**
+   * 
+   * @param reaction
+   * @param possibleTypes
+   * @param reversibility
+   * @param version
+   * @param consistency
+   * @param defaultParamVal
+   * @return a description of the reaction and all settings that influence
+   *         the creation of its alternative kinetic laws.
+   */
+  private String getCandidateKey(Reaction reaction, Class<?> possibleTypes[],
+    boolean reversibility, TypeStandardVersion version,
+    UnitConsistencyType consistency, double defaultParamVal) {
+    StringBuilder builder = new StringBuilder();
+    builder.append(reaction.getId());
+    builder.append(',');
+    builder.append(reaction.getReversible());
+    builder.append(',');
+    builder.append(Arrays.toString(possibleTypes));
+    builder.append(',');
+    builder.append(reversibility);
+    builder.append(',');
+    builder.append(version);
+    builder.append(',');
+    builder.append(consistency);
+    builder.append(',');
+    builder.append(defaultParamVal);
+    builder.append(',');
+    builder.append(klg.isAddParametersGlobally());
+    return builder.toString();
+  }
+  
   /**
    * Sets up a combo box, which allows to select an appropriate value for a
    * kinetic law in the given row.
@@ -309,8 +616,6 @@ public class KineticLawTable extends JTable implements MouseInputListener {
       try {
         final Class<?> possibleTypes[] = klg.getReactionType(
           reaction.getId()).identifyPossibleKineticLaws();
-        final BasicKineticLaw possibleLaws[] = new BasicKineticLaw[possibleTypes.length];
-        int selected = 0;
         final KineticLaw oldLaw = klg.getModifiedReaction(reaction.getId()).getKineticLaw();
         SBPreferences prefs = SBPreferences.getPreferencesFor(OptionsGeneral.class);
         double defaultParamVal = prefs.getDouble(OptionsGeneral.DEFAULT_NEW_PARAMETER_VAL);
@@ -318,17 +623,25 @@ public class KineticLawTable extends JTable implements MouseInputListener {
         prefs = SBPreferences.getPreferencesFor(OptionsRateLaws.class);
         boolean reversibility = prefs.getBoolean(OptionsRateLaws.TREAT_ALL_REACTIONS_REVERSIBLE);
         TypeStandardVersion version = TypeStandardVersion.valueOf(prefs.get(OptionsRateLaws.TYPE_STANDARD_VERSION));
+        String oldName = (oldLaw instanceof BasicKineticLaw) ? ((BasicKineticLaw) oldLaw).getSimpleName() : null;
         
-        for (int i = 0; i < possibleLaws.length; i++) {
-          possibleLaws[i] = klg.createKineticLaw(reaction,
-            possibleTypes[i], reversibility, version, consistency, defaultParamVal);
-          if ((oldLaw instanceof BasicKineticLaw) &&
-              possibleLaws[i].getSimpleName().equals(((BasicKineticLaw) oldLaw).getSimpleName())) {
-            selected = i;
+        // TODO	klg.getPreferences().flush();
+        final KineticLawSelectionPanel klsp = new KineticLawSelectionPanel(reaction);
+        String key = getCandidateKey(reaction, possibleTypes, reversibility, version, consistency, defaultParamVal);
+        final BasicKineticLaw cached[] = candidateLaws.get(key);
+        final CandidateLawWorker worker;
+        if (cached != null) {
+          worker = null;
+          for (BasicKineticLaw candidate : cached) {
+            klsp.addKineticLaw(candidate, candidate.getSimpleName().equals(oldName));
           }
+        } else {
+          // The dialog is shown while the kinetic laws are being created.
+          worker = new CandidateLawWorker(reaction, possibleTypes, reversibility,
+            version, consistency, defaultParamVal, oldName, klsp, key);
+          worker.execute();
         }
-        // TODO	klg.getPreferences().flush();
-        final KineticLawSelectionPanel klsp = new KineticLawSelectionPanel(reaction, possibleLaws, selected);
+        final boolean accepted[] = new boolean[1];
         final JOptionPane pane = new JOptionPane(klsp,
           JOptionPane.QUESTION_MESSAGE,
           JOptionPane.OK_CANCEL_OPTION, UIManager
@@ -408,22 +721,8 @@ public class KineticLawTable extends JTable implements MouseInputListener {
                 && (event.getPropertyName().equals(JOptionPane.VALUE_PROPERTY))
                 && (event.getNewValue() != null)
                 && (event.getNewValue() != JOptionPane.UNINITIALIZED_VALUE)) {
+              accepted[0] = ((Integer) event.getNewValue()).intValue() == JOptionPane.OK_OPTION;
               dialog.setVisible(false);
-              int i = 0;
-              if (((Integer) event.getNewValue()).intValue() == JOptionPane.OK_OPTION) {
-                while ((i < possibleTypes.length - 1)
-                    && !possibleTypes[i].equals(klsp.getSelectedKinetic())) {
-                  i++;
-                }
-              } else {
-                while ((i < possibleTypes.length - 1)
-                    && !possibleTypes[i].equals(oldLaw.getClass().getCanonicalName())) {
-                  i++;
-                }
-              }
-              // TODO: Check!
-              reaction.setKineticLaw(possibleLaws[i].clone());
-              updateTable(reaction.getKineticLaw(), rowIndex);
             }
           }
         });
@@ -434,6 +733,25 @@ public class KineticLawTable extends JTable implements MouseInputListener {
         dialog.setVisible(true);
         dialog.dispose();
         
+        // Creating kinetic laws changes the reaction, hence wait for the last one.
+        List<BasicKineticLaw> possibleLaws = (worker != null) ? worker.stop() : Arrays.asList(cached);
+        KineticLaw newLaw = null;
+        Class<?> selected = klsp.getSelectedKinetic();
+        if (accepted[0] && (selected != null)) {
+          for (BasicKineticLaw candidate : possibleLaws) {
+            if (candidate.getClass().equals(selected)) {
+              newLaw = candidate.clone();
+              break;
+            }
+          }
+        }
+        if (newLaw != null) {
+          reaction.setKineticLaw(newLaw);
+        } else if (reaction.getKineticLaw() != oldLaw) {
+          reaction.setKineticLaw(oldLaw);
+        }
+        updateTable(reaction.getKineticLaw(), rowIndex);
+        
         // This would be too simple for CellDesigner. We need the more
         // complicated
         // code...
@@ -503,13 +821,22 @@ public class KineticLawTable extends JTable implements MouseInputListener {
   }
   
   /**
-   * 
+   * The maximal number of rows that are inspected to estimate the width of
+   * the columns.
+   */
+  private static final int COLUMN_WIDTH_SAMPLE_SIZE = 200;
+  
+  /**
+   * Estimates the width of each column from the header and a sample of evenly
+   * spaced rows, because the values of all rows are not available in large
+   * tables.
    */
   private void setColumnWidthAppropriately() {
+    int step = Math.max(1, (getRowCount() + COLUMN_WIDTH_SAMPLE_SIZE - 1) / COLUMN_WIDTH_SAMPLE_SIZE);
     for (int col = 0; col < getColumnCount(); col++) {
       int maxLength = getColumnModel().getColumn(col).getHeaderValue()
           .toString().length();
-      for (int row = 0; row < getRowCount(); row++) {
+      for (int row = 0; row < getRowCount(); row += step) {
         if (maxLength < getValueAt(row, col).toString().length()) {
           maxLength = getValueAt(row, col).toString().length();
         }
@@ -23,6 +23,9 @@
  */
 package org.sbml.squeezer.gui;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 import javax.swing.table.AbstractTableModel;
@@ -34,6 +37,7 @@ import org.sbml.squeezer.KineticLawGenerator;
 import org.sbml.squeezer.OptionsGeneral;
 import org.sbml.squeezer.kinetics.BasicKineticLaw;
 import org.sbml.squeezer.util.Bundles;
+import org.sbml.squeezer.util.Cancellation;
 
 import de.zbit.util.ResourceManager;
 import de.zbit.util.prefs.SBPreferences;
@@ -60,13 +64,36 @@ public class KineticLawTableModel extends AbstractTableModel {
    */
   private static final long serialVersionUID = -5755507700427800869L;
   
-  private Object[][] data;
+  /**
+   * The maximal number of rows whose values are kept in {@link #rows}.
+   */
+  public static final int MAX_CACHED_ROWS = 512;
+  
+  /**
+   * The values of the rows that have been displayed most recently. All other
+   * rows are created on demand, because formatting all kinetic equations of
+   * a large model takes a lot of time and memory.
+   */
+  private Map<Integer, Object[]> rows;
+  
+  /**
+   * Rows that contain values set by {@link #setValueAt(Object, int, int)},
+   * which must not be discarded.
+   */
+  private Map<Integer, Object[]> editedRows;
   
   private String[] columnNames;
   
+  private Reaction reactions[];
   private boolean warnings[];
   private KineticLaw kineticLaws[];
   
+  /**
+   * The sums of the stoichiometries of the reactants and (for reversible
+   * reactions) the products of each reaction.
+   */
+  private double numReactants[], numProducts[];
+  
   private int numOfWarnings;
   
   private int maxNumReactants;
@@ -90,20 +117,40 @@ public class KineticLawTableModel extends AbstractTableModel {
         //				MESSAGES.getString("COL_PRODUCTS"),
         //				MESSAGES.getString("COL_PARAMETERS"),
         MESSAGES.getString("COL_FORMULA")};
-    data = new Object[klg.getCreatedKineticsCount()][columnNames.length];
-    warnings = new boolean[data.length];
-    kineticLaws = new KineticLaw[data.length];
+    int rowCount = klg.getCreatedKineticsCount();
+    reactions = new Reaction[rowCount];
+    warnings = new boolean[rowCount];
+    kineticLaws = new KineticLaw[rowCount];
+    numReactants = new double[rowCount];
+    numProducts = new double[rowCount];
     numOfWarnings = 0;
+    rows = new LinkedHashMap<Integer, Object[]>(16, 0.75f, true) {
+      /**
+       * Generated serial version identifier.
+       */
+      private static final long serialVersionUID = 4468279011829962766L;
+      
+      /* (non-Javadoc)
+       * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+       */
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+        return size() > MAX_CACHED_ROWS;
+      }
+    };
+    editedRows = new HashMap<Integer, Object[]>();
     
     maxNumReactants = SBPreferences.getPreferencesFor(OptionsGeneral.class).getInt(OptionsGeneral.MAX_NUMBER_OF_REACTANTS);
     double startTime = System.currentTimeMillis();
-    for (reactionNum = 0; reactionNum < klg.getCreatedKineticsCount(); reactionNum++) {
+    for (reactionNum = 0; reactionNum < rowCount; reactionNum++) {
+      Cancellation.checkpoint();
       Reaction reaction = klg.getModifiedReaction(reactionNum);
       
-      fillData(reaction, reactionNum);
+      // The values of the row are only created when the row is displayed.
+      updateReaction(reaction, reactionNum);
       
       // Notify progress listener:
-      double percent = reactionNum * 100d/klg.getCreatedKineticsCount();
+      double percent = reactionNum * 100d/rowCount;
       double remainingTime = 100 * ((System.currentTimeMillis() - startTime) / percent);
       progressBar.percentageChanged((int) Math.round(percent), remainingTime, MESSAGES.getString("CREATE_KINETIC_OVERVIEW"));
     }
@@ -111,23 +158,41 @@ public class KineticLawTableModel extends AbstractTableModel {
   }
   
   /**
+   * Updates the given row after the kinetic law of its reaction has been
+   * changed.
    * 
    * @param reaction
    * @param reactionNum
    */
   public void fillData(Reaction reaction, int reactionNum) {
+    updateReaction(reaction, reactionNum);
+    Integer row = Integer.valueOf(reactionNum);
+    rows.remove(row);
+    editedRows.remove(row);
+    fireTableRowsUpdated(reactionNum, reactionNum);
+  }
+  
+  /**
+   * Determines the kinetic law and the number of reaction participants of the
+   * given row, which is cheap compared to formatting the values of the row.
+   * 
+   * @param reaction
+   * @param reactionNum
+   */
+  private void updateReaction(Reaction reaction, int reactionNum) {
     int speciesNum;
+    reactions[reactionNum] = reaction;
     kineticLaws[reactionNum] = reaction.isSetKineticLaw() ? reaction.getKineticLaw() : null;
-    String kinetic = (kineticLaws[reactionNum] != null) && kineticLaws[reactionNum].isSetMath() ? kineticLaws[reactionNum].getMath().toFormula() : " - ";
     
-    //		List<LocalParameter> param = reaction.isSetKineticLaw() ? reaction.getKineticLaw().getListOfLocalParameters() : new LinkedList<LocalParameter>();
     double numReac = 0d, numProduct = 0d;
+    if (warnings[reactionNum]) {
+      numOfWarnings--;
+    }
     warnings[reactionNum] = false;
     for (speciesNum = 0; speciesNum < reaction.getReactantCount(); speciesNum++) {
       numReac += reaction.getReactant(speciesNum).getStoichiometry();
     }
     if (numReac >= maxNumReactants) {
-      numOfWarnings++;
       warnings[reactionNum] = true;
     }
     if (reaction.isReversible()) {
@@ -135,60 +200,65 @@ public class KineticLawTableModel extends AbstractTableModel {
         numProduct += reaction.getProduct(speciesNum).getStoichiometry();
       }
       if (numProduct >= maxNumReactants) {
-        numOfWarnings++;
         warnings[reactionNum] = true;
       }
     }
-    
-    //		String reac = "";
-    //		String pro = "";
-    //		String para = "";
-    //
-    //		if (reaction.getReactantCount() > 0) {
-    //			reac += reaction.getReactant(0).getSpecies();
-    //		}
-    //		for (speciesNum = 1; speciesNum < reaction.getReactantCount(); speciesNum++) {
-    //			reac += ", " + reaction.getReactant(speciesNum).getSpecies();
-    //		}
-    //		if (reaction.getProductCount() > 0) {
-    //			pro += reaction.getProduct(0).getSpecies();
-    //		}
-    //		for (speciesNum = 1; speciesNum < reaction.getProductCount(); speciesNum++) {
-    //			pro += ", " + reaction.getProduct(speciesNum).getSpecies();
-    //		}
-    //		for (int j = 0; j < param.size() - 1; j++) {
-    //			para += param.get(j).getId() + ", ";
-    //		}
-    //		para += param.get(param.size() - 1).getId();
-    
-    KineticLaw kl = reaction.getKineticLaw();
+    if (warnings[reactionNum]) {
+      numOfWarnings++;
+    }
+    numReactants[reactionNum] = numReac;
+    numProducts[reactionNum] = numProduct;
+  }
+  
+  /**
+   * 
+   * @param reactionNum
+   * @return the values of the given row
+   */
+  private Object[] getRow(int reactionNum) {
+    Integer key = Integer.valueOf(reactionNum);
+    Object row[] = editedRows.get(key);
+    if (row == null) {
+      row = rows.get(key);
+      if (row == null) {
+        row = createRow(reactionNum);
+        rows.put(key, row);
+      }
+    }
+    return row;
+  }
+  
+  /**
+   * 
+   * @param reactionNum
+   * @return the values of the given row
+   */
+  private Object[] createRow(int reactionNum) {
+    Reaction reaction = reactions[reactionNum];
+    KineticLaw kl = kineticLaws[reactionNum];
+    Object row[] = new Object[columnNames.length];
+    String kinetic = (kl != null) && kl.isSetMath() ? kl.getMath().toFormula() : " - ";
     
     // Reaction Identifier
     int column = -1;
-    data[reactionNum][++column] = reaction.isSetName() ? reaction.getName() : reaction.getId();
+    row[++column] = reaction.isSetName() ? reaction.getName() : reaction.getId();
     // Kinetic Law
     if (kl != null) {
       if (kl.isSetSBOTerm()) {
-        data[reactionNum][++column] = SBO.getTerm(kl.getSBOTerm()).getName();
+        row[++column] = SBO.getTerm(kl.getSBOTerm()).getName();
       } else {
-        data[reactionNum][++column] =  kl instanceof BasicKineticLaw ? ((BasicKineticLaw) kl).getSimpleName() : kl.toString();
+        row[++column] =  kl instanceof BasicKineticLaw ? ((BasicKineticLaw) kl).getSimpleName() : kl.toString();
       }
     } else {
-      data[reactionNum][++column] = " - ";
+      row[++column] = " - ";
     }
-    // Derived Unit
-    //data[reactionNum][++column] = reaction.getDerivedUnitDefinition();
     // #Reactants
-    data[reactionNum][++column] = Double.valueOf(numReac);
-    //		// Reactants
-    //		data[reactionNum][++column] = reac;
-    //		// Products
-    //		data[reactionNum][++column] = pro;
-    //		// Parameters
-    //		data[reactionNum][++column] = para;
-    data[reactionNum][++column] = Double.valueOf(numProduct);
+    row[++column] = Double.valueOf(numReactants[reactionNum]);
+    // #Products
+    row[++column] = Double.valueOf(numProducts[reactionNum]);
     // Formula
-    data[reactionNum][++column] = kinetic;
+    row[++column] = kinetic;
+    return row;
   }
   
   /* (non-Javadoc)
@@ -222,7 +292,7 @@ public class KineticLawTableModel extends AbstractTableModel {
    */
   @Override
   public int getRowCount() {
-    return data.length;
+    return reactions.length;
   }
   
   /* (non-Javadoc)
@@ -230,7 +300,7 @@ public class KineticLawTableModel extends AbstractTableModel {
    */
   @Override
   public Object getValueAt(int row, int column) {
-    return data[row][column];
+    return getRow(row)[column];
   }
   
   /* (non-Javadoc)
@@ -246,7 +316,14 @@ public class KineticLawTableModel extends AbstractTableModel {
    */
   @Override
   public void setValueAt(Object aValue, int rowIndex, int columnIndex) {
-    data[rowIndex][columnIndex] = aValue;
+    Integer key = Integer.valueOf(rowIndex);
+    Object row[] = editedRows.get(key);
+    if (row == null) {
+      row = getRow(rowIndex).clone();
+      editedRows.put(key, row);
+      rows.remove(key);
+    }
+    row[columnIndex] = aValue;
     fireTableCellUpdated(rowIndex, columnIndex);
   }
   
@@ -24,16 +24,23 @@
 
 package org.sbml.squeezer.gui;
 
+import static de.zbit.util.Utils.getMessage;
+
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.Image;
 import java.awt.event.ActionListener;
 import java.beans.EventHandler;
 import java.text.MessageFormat;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import javax.swing.BorderFactory;
+import javax.swing.ImageIcon;
 import javax.swing.JButton;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
@@ -41,12 +48,9 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JToolBar;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 
-import org.scilab.forge.jlatexmath.TeXConstants;
-import org.scilab.forge.jlatexmath.TeXFormula;
-import org.scilab.forge.jlatexmath.TeXIcon;
-
 import de.zbit.sbml.gui.EquationRenderer;
 import de.zbit.util.ResourceManager;
 
@@ -64,6 +68,11 @@ public class LaTeXRenderer implements EquationRenderer {
    */
   private static final transient Logger logger = Logger.getLogger(LaTeXRenderer.class.getName());
   
+  /**
+   * The initial size of the font.
+   */
+  public static final float DEFAULT_FONT_SIZE = 14f;
+  
   /**
    * 
    */
@@ -100,6 +109,7 @@ public class LaTeXRenderer implements EquationRenderer {
   public LaTeXRenderer() {
     this(450, 80);
   }
+
   
   /**
    * 
@@ -109,7 +119,7 @@ public class LaTeXRenderer implements EquationRenderer {
   public LaTeXRenderer(int width, int height) {
     super();
     dimension = new Dimension(width, height);
-    fontSize = 14;
+    fontSize = DEFAULT_FONT_SIZE;
     panel = new JPanel(new BorderLayout());
     panel.setOpaque(true);
     buttonZoomIn = new JButton(UIManager.getIcon("ICON_ZOOM_IN_16"));
@@ -174,16 +184,42 @@ public class LaTeXRenderer implements EquationRenderer {
       panel.remove(scroll);
     }
     
-    texCode = equation.replace("dmath", "align");
+    texCode = normalize(equation);
     
     logger.fine(MessageFormat.format("Font size: {0,number,integer}", fontSize));
     logger.fine(texCode);
     
-    TeXFormula formula = new TeXFormula(texCode);
-    TeXIcon texIcon = formula.createTeXIcon(TeXConstants.STYLE_DISPLAY, fontSize, TeXFormula.SANSSERIF);
-    JLabel teXDisplay = new JLabel(texIcon);
+    // The equation is rendered in the background unless its image is cached.
+    final Future<Image> image = EquationImageCache.getInstance().getImage(texCode, fontSize);
+    final JLabel teXDisplay = new JLabel();
     teXDisplay.setOpaque(true);
     teXDisplay.setBackground(Color.WHITE);
+    if (image.isDone()) {
+      setImage(teXDisplay, image);
+    } else {
+      teXDisplay.setText("...");
+      new SwingWorker<Void, Void>() {
+        /* (non-Javadoc)
+         * @see javax.swing.SwingWorker#doInBackground()
+         */
+        @Override
+        protected Void doInBackground() throws Exception {
+          image.get();
+          return null;
+        }
+        
+        /* (non-Javadoc)
+         * @see javax.swing.SwingWorker#done()
+         */
+        @Override
+        protected void done() {
+          teXDisplay.setText(null);
+          setImage(teXDisplay, image);
+          teXDisplay.revalidate();
+          teXDisplay.repaint();
+        }
+      }.execute();
+    }
     
     scroll = new JScrollPane(teXDisplay);
     scroll.setBorder(BorderFactory.createLoweredBevelBorder());
@@ -195,6 +231,66 @@ public class LaTeXRenderer implements EquationRenderer {
     return panel;
   }
   
+  /**
+   * Displays the given image in the given label.
+   * 
+   * @param label
+   * @param image
+   *        an image that is already available.
+   */
+  private static void setImage(JLabel label, Future<Image> image) {
+    try {
+      label.setIcon(new ImageIcon(image.get()));
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException exc) {
+      logger.warning(getMessage(exc.getCause()));
+      label.setText(getMessage(exc.getCause()));
+    }
+  }
+  
+  /**
+   * 
+   * @param equation
+   * @return the LaTeX code that is actually rendered for the given equation.
+   */
+  private static String normalize(String equation) {
+    return equation.replace("dmath", "align");
+  }
+  
+  /**
+   * Renders the given equation in the background, such that it can be
+   * displayed without delay afterwards.
+   * 
+   * @param equation
+   * @param fontSize
+   * @return the image of the given equation.
+   */
+  public static Future<Image> prefetch(String equation, float fontSize) {
+    return EquationImageCache.getInstance().getImage(normalize(equation), fontSize);
+  }
+  
+  /**
+   * Creates the equation and renders it in the background, such that it can
+   * be displayed without delay afterwards.
+   * 
+   * @param equation
+   *        creates the equation.
+   * @param fontSize
+   * @return the image of the equation.
+   */
+  public static Future<Image> prefetch(final Callable<String> equation, float fontSize) {
+    return EquationImageCache.getInstance().prefetch(new Callable<String>() {
+      /* (non-Javadoc)
+       * @see java.util.concurrent.Callable#call()
+       */
+      @Override
+      public String call() throws Exception {
+        return normalize(equation.call());
+      }
+    }, fontSize);
+  }
+  
   /**
    * @param dimension the dimension to set
    */
@@ -25,16 +25,23 @@ package org.sbml.squeezer.gui.wizard;
 
 import java.awt.BorderLayout;
 import java.beans.PropertyChangeEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.awt.event.WindowListener;
 import java.beans.PropertyChangeListener;
+import java.util.ResourceBundle;
+import java.util.logging.Logger;
 
 import javax.swing.JPanel;
 import javax.swing.JProgressBar;
 
 import org.sbml.squeezer.KineticLawGenerator;
 import org.sbml.squeezer.gui.KineticLawGeneratorWorker;
+import org.sbml.squeezer.util.Bundles;
 
 import de.zbit.gui.wizard.Wizard;
 import de.zbit.gui.wizard.WizardPanelDescriptor;
+import de.zbit.util.ResourceManager;
 import de.zbit.util.progressbar.gui.ProgressBarSwing;
 
 /**
@@ -51,11 +58,42 @@ public class KineticLawSelectionEquationProgressPanelDescriptor extends WizardPa
    */
   public static final String IDENTIFIER = "KINETIC_LAW_EQUATION_PROGRESS_PANEL";
   
+  /**
+   * Localization support.
+   */
+  public static final transient ResourceBundle MESSAGES = ResourceManager.getBundle(Bundles.MESSAGES);
+  
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final transient Logger logger = Logger.getLogger(KineticLawSelectionEquationProgressPanelDescriptor.class.getName());
+  
   /**
    * 
    */
   private KineticLawGenerator klg;
   
+  /**
+   * The worker that generates the kinetic laws.
+   */
+  private KineticLawGeneratorWorker worker;
+  
+  /**
+   * Cancels the generation of kinetic laws if the wizard is closed.
+   */
+  private final WindowListener closeListener = new WindowAdapter() {
+    /* (non-Javadoc)
+     * @see java.awt.event.WindowAdapter#windowClosed(java.awt.event.WindowEvent)
+     */
+    @Override
+    public void windowClosed(WindowEvent e) {
+      if ((worker != null) && !worker.isDone()) {
+        logger.info(MESSAGES.getString("CANCELLING"));
+        worker.cancel(true);
+      }
+    }
+  };
+  
   /**
    * 
    * @param klg
@@ -80,8 +118,10 @@ public class KineticLawSelectionEquationProgressPanelDescriptor extends WizardPa
     p.add(progressBar, BorderLayout.CENTER);
     klg.setProgressBar(new ProgressBarSwing(progressBar));
     // generate kinetic laws
-    KineticLawGeneratorWorker worker = new KineticLawGeneratorWorker(klg);
+    worker = new KineticLawGeneratorWorker(klg);
     worker.addPropertyChangeListener(this);
+    wizard.getDialog().removeWindowListener(closeListener);
+    wizard.getDialog().addWindowListener(closeListener);
     worker.execute();
   }
   
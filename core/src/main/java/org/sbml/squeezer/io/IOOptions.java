@@ -31,6 +31,7 @@ import org.sbml.squeezer.util.Bundles;
 import de.zbit.util.ResourceManager;
 import de.zbit.util.prefs.KeyProvider;
 import de.zbit.util.prefs.Option;
+import de.zbit.util.prefs.Range;
 
 /**
  * This is a list of possible io command line options. Each element
@@ -71,4 +72,17 @@ public interface IOOptions extends KeyProvider {
       OPTIONS_BUNDLE,
       false);
   
+  /**
+   * The number of files that are squeezed simultaneously when the input is a
+   * directory. Each thread works on its own copy of the reader, writer and
+   * rate law generator, hence, one thread per available processor is a
+   * reasonable choice.
+   */
+  public static final Option<Integer> NUMBER_OF_THREADS = new Option<Integer>(
+      "NUMBER_OF_THREADS",
+      Integer.class,
+      OPTIONS_BUNDLE,
+      new Range<Integer>(Integer.class, "{[1,1024]}"),
+      Integer.valueOf(Runtime.getRuntime().availableProcessors()));
+  
 }
@@ -40,7 +40,7 @@ import org.sbml.jsbml.SpeciesReference;
 import org.sbml.jsbml.UnitDefinition;
 import org.sbml.squeezer.ParameterFactory;
 import org.sbml.squeezer.RateLawNotApplicableException;
-import org.sbml.squeezer.ReactionType;
+import org.sbml.squeezer.ReactionProfile;
 import org.sbml.squeezer.UnitConsistencyType;
 
 /**
@@ -71,11 +71,6 @@ public abstract class BasicKineticLaw extends KineticLaw {
    */
   private static final long serialVersionUID = -7857020266193305483L;
   
-  /**
-   * The ids of activators that enhance the progress of this rate law.
-   */
-  private List<String> activators;
-  
   /**
    * If {@code true} all species whose hasOnlySubstanceUnits attribute is true
    * are divided by the size of their surrounding compartment. If false species
@@ -96,12 +91,6 @@ public abstract class BasicKineticLaw extends KineticLaw {
    */
   private double defaultParamValue;
   
-  /**
-   * The ids of the enzymes catalyzing the reaction described by this rate
-   * law.
-   */
-  private List<String> enzymes;
-  
   /**
    * True if the reaction system to which the parent reaction belongs has a
    * full collumn rank.
@@ -109,19 +98,14 @@ public abstract class BasicKineticLaw extends KineticLaw {
   boolean fullRank;
   
   /**
-   * Ids of inhibitors that lower the velocity of this rate law.
-   */
-  private List<String> inhibitors;
-  
-  /**
-   * The ids of catalysts that are no enzymes.
+   * Allows for zeroth order reverse kinetics.
    */
-  private List<String> nonEnzymeCatalysts;
+  double orderProducts;
   
   /**
-   * Allows for zeroth order reverse kinetics.
+   * The stoichiometric properties and the modifiers of the parent reaction.
    */
-  double orderProducts;
+  private ReactionProfile profile;
   
   /**
    * Allows for zeroth order forward kinetics.
@@ -180,18 +164,21 @@ public abstract class BasicKineticLaw extends KineticLaw {
     if (typeParameters.length > 3) {
       defaultParamValue = Double.parseDouble(typeParameters[3].toString());
     }
-    enzymes = new LinkedList<String>();
-    activators = new LinkedList<String>();
-    inhibitors = new LinkedList<String>();
-    nonEnzymeCatalysts = new LinkedList<String>();
+    if ((typeParameters.length > 4) && (typeParameters[4] instanceof ReactionProfile)) {
+      profile = (ReactionProfile) typeParameters[4];
+    } else {
+      profile = new ReactionProfile(parentReaction);
+    }
     orderReactants = getOrderReactants();
     orderProducts = getOrderProducts();
-    ReactionType.identifyModifers(parentReaction, enzymes, activators,
-      inhibitors, nonEnzymeCatalysts);
     parameterFactory = new ParameterFactory(this, defaultParamValue,
       orderReactants, orderProducts, bringToConcentration);
-    setMath(createKineticEquation(enzymes, activators, inhibitors,
-      nonEnzymeCatalysts));
+    // Subclasses may change these lists.
+    setMath(createKineticEquation(
+      new LinkedList<String>(profile.getEnzymes()),
+      new LinkedList<String>(profile.getActivators()),
+      new LinkedList<String>(profile.getInhibitors()),
+      new LinkedList<String>(profile.getNonEnzymeCatalysts())));
   }
   
   /**
@@ -238,7 +225,7 @@ public abstract class BasicKineticLaw extends KineticLaw {
    * @return
    */
   double getOrderProducts() {
-    return ReactionType.productOrder(getParent());
+    return profile.getProductOrder();
   }
   
   /**
@@ -246,7 +233,16 @@ public abstract class BasicKineticLaw extends KineticLaw {
    * @return
    */
   double getOrderReactants() {
-    return ReactionType.reactantOrder(getParent());
+    return profile.getReactantOrder();
+  }
+  
+  /**
+   * 
+   * @return the stoichiometric properties and the modifiers of the parent
+   *         reaction as they were when this rate law was created.
+   */
+  ReactionProfile getProfile() {
+    return profile;
   }
   
   /**
@@ -185,14 +185,12 @@ InterfaceIrreversibleKinetics, InterfaceModulatedKinetics {
         }
       }
       i = 0;
-      double stoichReac = 0d, stoichProd = 0d;
       for (SpeciesReference ref : reaction.getListOfReactants()) {
         reactantsroot[i++] = ASTNode.times(
           this,
           parameterFactory.parameterKG(ref.getSpecies()),
           parameterFactory.parameterMichaelis(ref.getSpecies(),
             enzyme, forward)).raiseByThePowerOf(stoichiometryTerm(ref));
-        stoichReac += ref.getStoichiometry();
       }
       i = 0;
       for (SpeciesReference ref : reaction.getListOfProducts()) {
@@ -201,11 +199,11 @@ InterfaceIrreversibleKinetics, InterfaceModulatedKinetics {
           parameterFactory.parameterKG(ref.getSpecies()),
           parameterFactory.parameterMichaelis(ref.getSpecies(),
             enzyme, forward)).raiseByThePowerOf(stoichiometryTerm(ref));
-        stoichProd += ref.getStoichiometry();
       }
       ASTNode rroot = ASTNode.times(reactantsroot);
       ASTNode proot = ASTNode.times(productroot);
       
+      double stoichReac = getProfile().getReactantOrder(), stoichProd = getProfile().getProductOrder();
       double diff = Math.abs((Double.isNaN(stoichReac) ? 1d : stoichReac) - (Double.isNaN(stoichProd) ? 1d : stoichProd));
       // TODO: UnitFix!!!
       diff = 0d;
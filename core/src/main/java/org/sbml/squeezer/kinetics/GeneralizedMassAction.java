@@ -79,22 +79,11 @@ InterfaceIrreversibleKinetics, InterfaceModulatedKinetics {
   /**
    * 
    */
-  @SuppressWarnings("deprecation")
   protected void setSBOTerm() {
     Reaction r = getParentSBMLObject();
     SBMLtools.setSBOTerm(this, 12);
-    double stoichiometryLeft = 0d;
-    double stoichiometryRight = 0d;
-    for (SpeciesReference specRef : r.getListOfReactants()) {
-      if (!specRef.isSetStoichiometryMath()) {
-        stoichiometryLeft += specRef.getStoichiometry();
-      }
-    }
-    for (SpeciesReference specRef : r.getListOfProducts()) {
-      if (!specRef.isSetStoichiometryMath()) {
-        stoichiometryRight += specRef.getStoichiometry();
-      }
-    }
+    double stoichiometryLeft = getProfile().getNumericReactantOrder();
+    double stoichiometryRight = getProfile().getNumericProductOrder();
     if (r.getReversible()) {
       SBMLtools.setSBOTerm(this, 42);
       if (orderReactants == 0) {
@@ -31,8 +31,11 @@ package org.sbml.squeezer.math;
  * @author Nadine Hassis
  * @author Andreas Dr&auml;ger
  * @since 1.0
- *
+ * @deprecated Floating-point pivots may lead to a wrong rank and dense
+ *             matrices become too large for genome-scale networks. Use
+ *             {@link SparseRank} instead.
  */
+@Deprecated
 public class GaussianRank {
   
   /**
@@ -0,0 +1,265 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.math;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * An immutable sparse matrix in compressed sparse row (CSR) format. Only
+ * non-zero entries are stored, i.e., the memory needed for this matrix grows
+ * with the number of its non-zero entries rather than with the product of its
+ * dimensions.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class SparseMatrix {
+  
+  /**
+   * The column of each non-zero entry, sorted in ascending order within each
+   * row.
+   */
+  private final int[] columnIndices;
+  
+  /**
+   * 
+   */
+  private final int columnCount;
+  
+  /**
+   * The entries of row {@code i} are stored at the positions
+   * {@code rowPointers[i]} to {@code rowPointers[i + 1] - 1}.
+   */
+  private final int[] rowPointers;
+  
+  /**
+   * 
+   */
+  private final int rowCount;
+  
+  /**
+   * The non-zero entries.
+   */
+  private final double[] values;
+  
+  /**
+   * Creates a sparse copy of the given dense matrix.
+   * 
+   * @param matrix
+   *        This double matrix has to have an equal number of columns for each
+   *        row.
+   */
+  public SparseMatrix(double[][] matrix) {
+    rowCount = matrix.length;
+    columnCount = rowCount > 0 ? matrix[0].length : 0;
+    int nonZeros = 0;
+    for (double[] row : matrix) {
+      if (row.length != columnCount) {
+        throw new IllegalArgumentException("The given matrix is not rectangular.");
+      }
+      for (double value : row) {
+        if (value != 0d) {
+          nonZeros++;
+        }
+      }
+    }
+    rowPointers = new int[rowCount + 1];
+    columnIndices = new int[nonZeros];
+    values = new double[nonZeros];
+    int k = 0;
+    for (int i = 0; i < rowCount; i++) {
+      for (int j = 0; j < columnCount; j++) {
+        if (matrix[i][j] != 0d) {
+          columnIndices[k] = j;
+          values[k++] = matrix[i][j];
+        }
+      }
+      rowPointers[i + 1] = k;
+    }
+  }
+  
+  /**
+   * Creates a sparse matrix from a list of entries in coordinate format. If
+   * the same position occurs multiple times, the last one of these entries
+   * determines the value. Entries that are zero are not stored.
+   * 
+   * @param rowCount
+   *        the number of rows
+   * @param columnCount
+   *        the number of columns
+   * @param rows
+   *        the row of each entry
+   * @param columns
+   *        the column of each entry
+   * @param entries
+   *        the values of all entries
+   */
+  public SparseMatrix(int rowCount, int columnCount, final int[] rows,
+    final int[] columns, double[] entries) {
+    if ((rowCount < 0) || (columnCount < 0)) {
+      throw new IllegalArgumentException("The dimension of a matrix must not be negative.");
+    }
+    if ((rows.length != columns.length) || (rows.length != entries.length)) {
+      throw new IllegalArgumentException("All arrays must have the same length.");
+    }
+    this.rowCount = rowCount;
+    this.columnCount = columnCount;
+    Integer order[] = new Integer[rows.length];
+    for (int k = 0; k < order.length; k++) {
+      if ((rows[k] < 0) || (rows[k] >= rowCount) || (columns[k] < 0) || (columns[k] >= columnCount)) {
+        throw new IndexOutOfBoundsException("(" + rows[k] + ", " + columns[k] + ")");
+      }
+      order[k] = Integer.valueOf(k);
+    }
+    // Stable sort, i.e., the last of several entries for one position comes last.
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer k1, Integer k2) {
+        int c = Integer.compare(rows[k1.intValue()], rows[k2.intValue()]);
+        return c != 0 ? c : Integer.compare(columns[k1.intValue()], columns[k2.intValue()]);
+      }
+    });
+    int k[] = new int[order.length];
+    int nonZeros = 0;
+    for (int l = 0; l < order.length; l++) {
+      int current = order[l].intValue();
+      boolean last = (l == order.length - 1)
+          || (rows[order[l + 1].intValue()] != rows[current])
+          || (columns[order[l + 1].intValue()] != columns[current]);
+      if (last && (entries[current] != 0d)) {
+        k[nonZeros++] = current;
+      }
+    }
+    rowPointers = new int[rowCount + 1];
+    columnIndices = new int[nonZeros];
+    values = new double[nonZeros];
+    for (int l = 0; l < nonZeros; l++) {
+      rowPointers[rows[k[l]] + 1]++;
+      columnIndices[l] = columns[k[l]];
+      values[l] = entries[k[l]];
+    }
+    for (int i = 0; i < rowCount; i++) {
+      rowPointers[i + 1] += rowPointers[i];
+    }
+  }
+  
+  /**
+   * 
+   * @param i
+   *        the row
+   * @param j
+   *        the column
+   * @return the entry at the given position.
+   */
+  public double get(int i, int j) {
+    if ((j < 0) || (j >= columnCount)) {
+      throw new IndexOutOfBoundsException(Integer.toString(j));
+    }
+    int k = Arrays.binarySearch(columnIndices, rowPointers[i], rowPointers[i + 1], j);
+    return k < 0 ? 0d : values[k];
+  }
+  
+  /**
+   * 
+   * @param k
+   *        the position of a non-zero entry, see {@link #getRowStart(int)}.
+   * @return the column of the non-zero entry at the given position.
+   */
+  public int getColumnIndex(int k) {
+    return columnIndices[k];
+  }
+  
+  /**
+   * @return the number of columns
+   */
+  public int getColumnCount() {
+    return columnCount;
+  }
+  
+  /**
+   * @return the number of non-zero entries
+   */
+  public int getNonZeroCount() {
+    return values.length;
+  }
+  
+  /**
+   * @return the number of rows
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+  
+  /**
+   * 
+   * @param i
+   *        a row
+   * @return the position of the first non-zero entry of the given row. The
+   *         non-zero entries of this row can be found at all positions from
+   *         this one up to {@link #getRowEnd(int)} (exclusive).
+   */
+  public int getRowStart(int i) {
+    return rowPointers[i];
+  }
+  
+  /**
+   * 
+   * @param i
+   *        a row
+   * @return the position directly after the last non-zero entry of the given
+   *         row.
+   * @see #getRowStart(int)
+   */
+  public int getRowEnd(int i) {
+    return rowPointers[i + 1];
+  }
+  
+  /**
+   * 
+   * @param k
+   *        the position of a non-zero entry, see {@link #getRowStart(int)}.
+   * @return the value of the non-zero entry at the given position.
+   */
+  public double getValue(int k) {
+    return values[k];
+  }
+  
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("SparseMatrix [rowCount=");
+    builder.append(rowCount);
+    builder.append(", columnCount=");
+    builder.append(columnCount);
+    builder.append(", nonZeroCount=");
+    builder.append(getNonZeroCount());
+    builder.append(']');
+    return builder.toString();
+  }
+  
+}
@@ -0,0 +1,324 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.math;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * Computes the column rank of a {@link SparseMatrix} by Gaussian elimination
+ * over the finite field of integers modulo a large prime number. In contrast
+ * to {@link GaussianRank}, this does not suffer from rounding errors: every
+ * finite double value is a fraction whose denominator is a power of two and
+ * can therefore exactly be represented modulo an odd prime. The elimination
+ * works iteratively on sparse rows, which are processed in the order of their
+ * number of non-zero entries. This keeps the fill-in small for typical
+ * stoichiometric matrices.
+ * <p>
+ * The rank modulo a prime number can never exceed the rank over the rational
+ * numbers. It can only be smaller if the prime divides all maximal minors of
+ * the matrix. For this reason, the rank is computed modulo a second prime
+ * number if the first one does not yield full rank, and the larger one of
+ * both results is taken. A full column rank is hence always exact.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class SparseRank {
+  
+  /**
+   * Large primes whose squares still fit into a {@code long} value.
+   */
+  private static final int PRIMES[] = {2147483647, 2147483629};
+  
+  /**
+   * 
+   */
+  private final int columnCount;
+  
+  /**
+   * 
+   */
+  private final int columnRank;
+  
+  /**
+   * Initialize this object with the given matrix. This will also compute the
+   * column rank and store it in an according field. The rank can be obtained
+   * by invoking the method {@link #getColumnRank}.
+   * 
+   * @param matrix
+   *        A matrix whose entries must all be finite numbers.
+   */
+  public SparseRank(SparseMatrix matrix) {
+    columnCount = matrix.getColumnCount();
+    int maxRank = Math.min(matrix.getRowCount(), columnCount);
+    int rank = 0;
+    for (int i = 0; (i < PRIMES.length) && (rank < maxRank); i++) {
+      rank = Math.max(rank, rank(matrix, PRIMES[i]));
+    }
+    columnRank = rank;
+  }
+  
+  /**
+   * Returns the column rank of the given matrix.
+   * 
+   * @return
+   */
+  public int getColumnRank() {
+    return columnRank;
+  }
+  
+  /**
+   * Returns true if the matrix has full column rank.
+   * 
+   * @return
+   */
+  public boolean hasFullRank() {
+    return columnRank == columnCount;
+  }
+  
+  /**
+   * 
+   * @param a
+   * @param p
+   *        a prime number
+   * @return the multiplicative inverse of {@code a} modulo {@code p}.
+   */
+  private static long inverse(long a, int p) {
+    return power(a, p - 2, p);
+  }
+  
+  /**
+   * 
+   * @param base
+   * @param exponent
+   * @param p
+   * @return {@code base} to the power of {@code exponent} modulo {@code p}.
+   */
+  private static long power(long base, long exponent, int p) {
+    long result = 1L;
+    base %= p;
+    while (exponent > 0L) {
+      if ((exponent & 1L) == 1L) {
+        result = result * base % p;
+      }
+      base = base * base % p;
+      exponent >>= 1;
+    }
+    return result;
+  }
+  
+  /**
+   * Computes the rank of the given matrix modulo the given prime number. In
+   * each step, the pivot is taken from the column with the fewest non-zero
+   * entries and within this column from the shortest row. This keeps the
+   * fill-in small. In particular, all columns with only one single non-zero
+   * entry are eliminated without any arithmetic operation.
+   * 
+   * @param matrix
+   * @param p
+   *        a prime number
+   * @return the rank of the matrix modulo {@code p}.
+   */
+  private static int rank(SparseMatrix matrix, int p) {
+    int rowCount = matrix.getRowCount();
+    int columnCount = matrix.getColumnCount();
+    int maxRank = Math.min(rowCount, columnCount);
+    
+    // The rows modulo p, whose column indices are sorted in ascending order.
+    int rowIndices[][] = new int[rowCount][];
+    long rowValues[][] = new long[rowCount][];
+    // For each column all rows that contain (or once contained) an entry in it.
+    int columnRows[][] = new int[columnCount][];
+    int columnSize[] = new int[columnCount];
+    // The actual number of non-zero entries in each column.
+    int columnLength[] = new int[columnCount];
+    for (int i = 0; i < rowCount; i++) {
+      int start = matrix.getRowStart(i), end = matrix.getRowEnd(i);
+      int indices[] = new int[end - start];
+      long values[] = new long[end - start];
+      int n = 0;
+      for (int k = start; k < end; k++) {
+        long value = residue(matrix.getValue(k), p);
+        if (value != 0L) {
+          indices[n] = matrix.getColumnIndex(k);
+          values[n++] = value;
+          columnLength[indices[n - 1]]++;
+        }
+      }
+      rowIndices[i] = Arrays.copyOf(indices, n);
+      rowValues[i] = Arrays.copyOf(values, n);
+    }
+    for (int j = 0; j < columnCount; j++) {
+      columnRows[j] = new int[Math.max(columnLength[j], 1)];
+    }
+    for (int i = 0; i < rowCount; i++) {
+      for (int j : rowIndices[i]) {
+        columnRows[j][columnSize[j]++] = i;
+      }
+    }
+    
+    // Each key contains the length of a column in its upper and the column itself in its lower half.
+    PriorityQueue<Long> queue = new PriorityQueue<Long>(Math.max(columnCount, 1));
+    for (int j = 0; j < columnCount; j++) {
+      queue.add(Long.valueOf(key(columnLength[j], j)));
+    }
+    boolean rowDone[] = new boolean[rowCount];
+    boolean columnDone[] = new boolean[columnCount];
+    int rank = 0;
+    while (!queue.isEmpty() && (rank < maxRank)) {
+      long key = queue.poll().longValue();
+      int column = (int) key;
+      if (columnDone[column] || ((int) (key >>> 32) != columnLength[column])) {
+        // outdated key
+        continue;
+      }
+      columnDone[column] = true;
+      if (columnLength[column] == 0) {
+        continue;
+      }
+      
+      int pivot = -1;
+      for (int k = 0; k < columnSize[column]; k++) {
+        int i = columnRows[column][k];
+        if (!rowDone[i] && (Arrays.binarySearch(rowIndices[i], column) >= 0)
+            && ((pivot < 0) || (rowIndices[i].length < rowIndices[pivot].length))) {
+          pivot = i;
+        }
+      }
+      rank++;
+      rowDone[pivot] = true;
+      int pIndices[] = rowIndices[pivot];
+      long pValues[] = rowValues[pivot];
+      long inverse = inverse(pValues[Arrays.binarySearch(pIndices, column)], p);
+      
+      // Remove the entries in this column from all other rows.
+      for (int k = 0; k < columnSize[column]; k++) {
+        int i = columnRows[column][k];
+        int indices[] = rowIndices[i];
+        int l = rowDone[i] ? -1 : Arrays.binarySearch(indices, column);
+        if (l < 0) {
+          continue;
+        }
+        long values[] = rowValues[i];
+        long factor = values[l] * inverse % p;
+        int newIndices[] = new int[indices.length + pIndices.length];
+        long newValues[] = new long[indices.length + pIndices.length];
+        int a = 0, b = 0, c = 0;
+        while ((a < indices.length) || (b < pIndices.length)) {
+          int j;
+          long value;
+          if ((b >= pIndices.length) || ((a < indices.length) && (indices[a] < pIndices[b]))) {
+            newIndices[c] = indices[a];
+            newValues[c++] = values[a++];
+            continue;
+          }
+          j = pIndices[b];
+          value = (p - factor * pValues[b++] % p) % p;
+          if ((a < indices.length) && (indices[a] == j)) {
+            value = (value + values[a++]) % p;
+            if (value == 0L) {
+              // cancellation
+              columnLength[j]--;
+              if (!columnDone[j]) {
+                queue.add(Long.valueOf(key(columnLength[j], j)));
+              }
+              continue;
+            }
+          } else {
+            // fill-in
+            columnLength[j]++;
+            if (columnSize[j] == columnRows[j].length) {
+              columnRows[j] = Arrays.copyOf(columnRows[j], 2 * columnSize[j]);
+            }
+            columnRows[j][columnSize[j]++] = i;
+            if (!columnDone[j]) {
+              queue.add(Long.valueOf(key(columnLength[j], j)));
+            }
+          }
+          newIndices[c] = j;
+          newValues[c++] = value;
+        }
+        rowIndices[i] = Arrays.copyOf(newIndices, c);
+        rowValues[i] = Arrays.copyOf(newValues, c);
+      }
+      
+      for (int j : pIndices) {
+        columnLength[j]--;
+        if (!columnDone[j]) {
+          queue.add(Long.valueOf(key(columnLength[j], j)));
+        }
+      }
+      rowIndices[pivot] = null;
+      rowValues[pivot] = null;
+    }
+    return rank;
+  }
+  
+  /**
+   * 
+   * @param length
+   *        the number of non-zero entries in a column
+   * @param column
+   * @return a key for the priority queue of columns
+   */
+  private static long key(int length, int column) {
+    return ((long) length << 32) | column;
+  }
+  
+  /**
+   * Maps the given number to the field of integers modulo {@code p}. This is
+   * always possible without loss of precision, because the denominator of each
+   * finite double value is a power of two.
+   * 
+   * @param value
+   *        a finite number
+   * @param p
+   *        an odd prime number
+   * @return the residue of the given value modulo {@code p}.
+   */
+  private static long residue(double value, int p) {
+    if (Double.isNaN(value) || Double.isInfinite(value)) {
+      throw new IllegalArgumentException(Double.toString(value));
+    }
+    long bits = Double.doubleToLongBits(value);
+    int exponent = (int) ((bits >> 52) & 0x7ffL);
+    long mantissa = bits & 0xfffffffffffffL;
+    if (exponent == 0) {
+      // subnormal number
+      exponent = 1;
+    } else {
+      mantissa |= 1L << 52;
+    }
+    exponent -= 1075;
+    long result = mantissa % p;
+    if (exponent >= 0) {
+      result = result * power(2L, exponent, p) % p;
+    } else {
+      result = result * power((p + 1L) / 2L, -exponent, p) % p;
+    }
+    return (value < 0d) && (result != 0L) ? p - result : result;
+  }
+  
+}
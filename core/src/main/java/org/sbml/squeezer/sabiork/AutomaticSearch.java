@@ -30,9 +30,15 @@ import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -48,8 +54,14 @@ import org.sbml.jsbml.SBMLReader;
 import org.sbml.jsbml.TidySBMLWriter;
 import org.sbml.jsbml.util.filters.CVTermFilter;
 import org.sbml.jsbml.xml.parsers.SBMLCoreParser;
+import org.sbml.squeezer.sabiork.util.CachingTransport;
+import org.sbml.squeezer.sabiork.util.CachingTransport.Mode;
+import org.sbml.squeezer.sabiork.util.HttpTransport;
+import org.sbml.squeezer.sabiork.util.RateLimitedTransport;
 import org.sbml.squeezer.sabiork.util.WebServiceConnectException;
 import org.sbml.squeezer.sabiork.util.WebServiceResponseException;
+import org.sbml.squeezer.sabiork.util.WebServiceTransport;
+import org.sbml.squeezer.sabiork.wizard.model.CVTermIndex;
 import org.sbml.squeezer.sabiork.wizard.model.KineticLawImporter;
 
 import de.zbit.io.filefilter.SBFileFilter;
@@ -57,6 +69,15 @@ import de.zbit.io.filefilter.SBFileFilter;
 /**
  * In this class the searching of kinetic equations in SABIO-RK for several
  * models is implemented.
+ * <p>
+ * The search is organized as a pipeline: while the SBML files of a folder are
+ * read, the entry ids for the reactions of the models that have already been
+ * read are requested from SABIO-RK, the kinetic equations of all entries of a
+ * model are retrieved in large chunks, and the kinetic equations found for
+ * previous models are matched with their reactions. All stages run on their own threads. The load on
+ * SABIO-RK is limited by the {@link WebServiceTransport} of {@link SABIORK},
+ * see {@link RateLimitedTransport}. The results are the same as if all models
+ * were processed one after the other.
  *
  * @author Matthias Rall
  * @author Roland Keller
@@ -65,6 +86,225 @@ import de.zbit.io.filefilter.SBFileFilter;
  */
 public class AutomaticSearch {
 
+  /**
+   * Searches kinetic equations for all reactions of one model.
+   *
+   * @author Andreas Dr&auml;ger
+   * @since 2.2
+   */
+  private static class ModelSearch implements Callable<SearchResult> {
+
+    /**
+     * The organism of the model or {@code null}.
+     */
+    private final String organism;
+
+    /**
+     * Where the resulting model is to be written.
+     */
+    private final File outputFile;
+
+    /**
+     * Sends the queries to SABIO-RK.
+     */
+    private final ExecutorService queries;
+
+    /**
+     * The model whose reactions are to be equipped with kinetic equations.
+     */
+    private final SBMLDocument sbmlDocument;
+
+    /**
+     *
+     * @param sbmlDocument
+     * @param organism
+     * @param queries
+     * @param outputFile
+     */
+    public ModelSearch(SBMLDocument sbmlDocument, String organism,
+      ExecutorService queries, File outputFile) {
+      this.sbmlDocument = sbmlDocument;
+      this.organism = organism;
+      this.queries = queries;
+      this.outputFile = outputFile;
+    }
+
+    /* (non-Javadoc)
+     * @see java.util.concurrent.Callable#call()
+     */
+    @Override
+    public SearchResult call() throws Exception {
+      SearchResult result = new SearchResult();
+      /*
+       * Constraints (Falls du bestimmte zusätzliche Bedingungen an die
+       * Suche stellen willst)
+       *
+       * Der Constraint: " AND " + SABIORK.QueryField.HAS_KINETIC_DATA +
+       * ":true"
+       *
+       * sollte aber immer verwendet werden, da SABIO-RK dann nur
+       * KineticLaws, die eine kinetische Gleichung besitzen, auswählt.
+       */
+      StringBuilder constraints = new StringBuilder();
+      if (organism != null) {
+        constraints.append(" AND " + SABIORK.QueryField.ORGANISM + ":\""
+            + organism + "\"");
+      }
+      //constraints.append(" AND " + SABIORK.QueryField.TISSUE + ":liver");
+      //constraints.append(" AND " + SABIORK.QueryField.PH_VALUE_RANGE + ":[0.0 TO 14.0]");
+      constraints.append(" AND " + SABIORK.QueryField.HAS_KINETIC_DATA
+        + ":true");
+
+      /*
+       * Send the queries for all reactions at once, such that they are
+       * processed while the results are being evaluated. Only the entry ids
+       * are requested per reaction, the kinetic laws of all reactions are
+       * retrieved together afterwards.
+       */
+      List<Reaction> reactions = sbmlDocument.getModel().getListOfReactions();
+      List<String> keggReactionIDs = new ArrayList<String>(reactions.size());
+      List<Future<List<Integer>>> entryIDs = new ArrayList<Future<List<Integer>>>(reactions.size());
+      for (Reaction reaction : reactions) {
+        String keggReactionID = getKeggReactionID(reaction);
+        keggReactionIDs.add(keggReactionID);
+        entryIDs.add(keggReactionID.isEmpty() ? null : submitQuery(keggReactionID, constraints));
+      }
+
+      /*
+       * As soon as the organism of the model does not yield any kinetic law
+       * for a reaction, the search continues with the species of the
+       * organism for this and all subsequent reactions.
+       */
+      String alternativeOrganism = null;
+      List<List<Integer>> entryIDsOfReactions = new ArrayList<List<Integer>>(reactions.size());
+      for (int i = 0; i < reactions.size(); i++) {
+        if (entryIDs.get(i) == null) {
+          entryIDsOfReactions.add(Collections.<Integer>emptyList());
+          continue;
+        }
+        List<Integer> entryIDsOfReaction = SABIORK.get(entryIDs.get(i));
+
+        if ((entryIDsOfReaction.size() == 0) && (organism != null) && (alternativeOrganism == null)) {
+          String[] splits = organism.split(" ");
+          if (splits.length > 2) {
+            constraints = new StringBuilder();
+            alternativeOrganism = splits[0].concat(" " + splits[1]);
+            constraints.append(" AND " + SABIORK.QueryField.ORGANISM + ":\""
+                + alternativeOrganism + "\"");
+            constraints.append(" AND " + SABIORK.QueryField.HAS_KINETIC_DATA
+              + ":true");
+            // The queries with the original organism are no longer needed.
+            for (int j = i; j < reactions.size(); j++) {
+              if (entryIDs.get(j) != null) {
+                entryIDs.get(j).cancel(false);
+                entryIDs.set(j, submitQuery(keggReactionIDs.get(j), constraints));
+              }
+            }
+            entryIDsOfReaction = SABIORK.get(entryIDs.get(i));
+          }
+        }
+        entryIDsOfReactions.add(entryIDsOfReaction);
+      }
+      List<List<KineticLaw>> kineticLaws = SABIORK.getKineticLawsForIDs(entryIDsOfReactions, queries);
+
+      // All importers share one index of the components of the model.
+      CVTermIndex cvTermIndex = new CVTermIndex(sbmlDocument.getModel());
+
+      for (int i = 0; i < reactions.size(); i++) {
+        Reaction reaction = reactions.get(i);
+        if (keggReactionIDs.get(i).isEmpty()) {
+          result.noReactionID++;
+          continue;
+        }
+        List<KineticLaw> kineticLawsOfReaction = kineticLaws.get(i);
+
+        boolean imported = false;
+        for (KineticLaw kineticLaw : kineticLawsOfReaction) {
+          KineticLawImporter importer = new KineticLawImporter(
+            kineticLaw, reaction, cvTermIndex);
+          if (importer.isImportableKineticLaw()) {
+            importer.importKineticLaw();
+            imported = true;
+            break;
+          }
+        }
+        if (imported == true) {
+          result.matched++;
+        } else {
+          if (kineticLawsOfReaction.size() > 0) {
+            result.matchingNotPossible++;
+          } else {
+            result.noKineticLawFound++;
+          }
+        }
+      }
+      /*
+       * SBML-Output
+       */
+      // TODO: use SBMLio!
+      TidySBMLWriter.write(sbmlDocument, outputFile, ' ', (short) 2);
+      return result;
+    }
+
+    /**
+     *
+     * @param keggReactionID
+     * @param constraints
+     * @return the SABIO-RK entry ids for the given reaction, which will be
+     *         available as soon as SABIO-RK has answered.
+     */
+    private Future<List<Integer>> submitQuery(String keggReactionID, CharSequence constraints) {
+      final String query = SABIORK.QueryField.KEGG_REACTION_ID + ":"
+          + keggReactionID + constraints;
+      return queries.submit(new Callable<List<Integer>>() {
+        /* (non-Javadoc)
+         * @see java.util.concurrent.Callable#call()
+         */
+        @Override
+        public List<Integer> call() throws Exception {
+          return SABIORK.getIDs(query);
+        }
+      });
+    }
+
+  }
+
+  /**
+   * The numbers of reactions with a certain outcome of the search.
+   *
+   * @author Andreas Dr&auml;ger
+   * @since 2.2
+   */
+  private static class SearchResult {
+
+    private int matched;
+    private int matchingNotPossible;
+    private int noKineticLawFound;
+    private int noReactionID;
+
+    /**
+     *
+     * @param result
+     */
+    public void add(SearchResult result) {
+      matched += result.matched;
+      matchingNotPossible += result.matchingNotPossible;
+      noKineticLawFound += result.noKineticLawFound;
+      noReactionID += result.noReactionID;
+    }
+
+  }
+
+  /**
+   * The default number of requests that are sent to SABIO-RK at the same time.
+   */
+  public static final int DEFAULT_CONCURRENT_REQUESTS = 4;
+
+  /**
+   * The default maximal number of requests per second.
+   */
+  public static final double DEFAULT_REQUESTS_PER_SECOND = 4d;
+
   /**
    * A {@link Logger} for this class.
    */
@@ -93,7 +333,43 @@ public class AutomaticSearch {
   }
 
   /**
-   * usage: model folder, file "names.dmp", output file
+   *
+   * @param sbmlDocument
+   * @param taxonToName
+   * @param organism
+   *        the organism of the previous model
+   * @return the organism given in the annotation of the model or the given
+   *         organism if the model does not refer to an organism.
+   */
+  private static String getOrganism(SBMLDocument sbmlDocument,
+    HashMap<Integer, String> taxonToName, String organism) {
+    CVTermFilter filter = new CVTermFilter(Qualifier.BQB_OCCURS_IN,
+        "urn:miriam:taxonomy");
+
+    for (CVTerm cv : sbmlDocument.getModel().getAnnotation()
+        .getListOfCVTerms()) {
+      if (filter.accepts(cv)) {
+        for (String resource : cv.getResources()) {
+          if (resource.contains("urn:miriam:taxonomy")) {
+            String name = resource.replace("urn:miriam:taxonomy:", "");
+            int t = Integer.valueOf(name);
+            organism = taxonToName.get(t);
+          }
+        }
+      }
+    }
+    return organism;
+  }
+
+  /**
+   * usage: model folder, file "names.dmp", output file[, response directory[,
+   * CACHE|RECORD|REPLAY[, concurrent requests[, requests per second]]]]
+   * <p>
+   * If a response directory is given, all responses of SABIO-RK are kept
+   * there, see {@link CachingTransport}. The default mode is
+   * {@link Mode#CACHE}; stored responses do not expire. An empty directory
+   * name disables the response directory.
+   * 
    * @param args
    * @throws XMLStreamException
    * @throws IOException
@@ -104,7 +380,18 @@ public class AutomaticSearch {
   IOException, WebServiceConnectException, WebServiceResponseException {
     org.apache.log4j.LogManager.getLogger(SBMLCoreParser.class).setLevel(org.apache.log4j.Level.OFF);
     org.apache.log4j.LogManager.getLogger(AbstractSBase.class).setLevel(org.apache.log4j.Level.OFF);
-    automaticSearch(args[0], args[1], args[2]);
+    int concurrentRequests = (args.length > 5) ? Integer.parseInt(args[5]) : DEFAULT_CONCURRENT_REQUESTS;
+    double requestsPerSecond = (args.length > 6) ? Double.parseDouble(args[6]) : DEFAULT_REQUESTS_PER_SECOND;
+    WebServiceTransport transport = new RateLimitedTransport(new HttpTransport(), concurrentRequests, requestsPerSecond);
+    if ((args.length > 3) && !args[3].isEmpty()) {
+      Mode mode = (args.length > 4) ? Mode.valueOf(args[4]) : Mode.CACHE;
+      transport = new CachingTransport(transport, new File(args[3]), mode, 0L, 0L);
+    }
+    SABIORK.setTransport(transport);
+    automaticSearch(args[0], args[1], args[2], concurrentRequests);
+    if (transport instanceof CachingTransport) {
+      logger.info(transport.toString());
+    }
   }
 
   /**
@@ -118,9 +405,32 @@ public class AutomaticSearch {
    * @throws IOException
    * @throws WebServiceConnectException
    * @throws WebServiceResponseException
+   * @see #automaticSearch(String, String, String, int)
    */
   public static void automaticSearch(String rootFolder, String taxonomyFile, String outputFolder)
       throws XMLStreamException, IOException, WebServiceConnectException, WebServiceResponseException {
+    automaticSearch(rootFolder, taxonomyFile, outputFolder, DEFAULT_CONCURRENT_REQUESTS);
+  }
+
+  /**
+   * Automatic search for kinetic equations in SABIO-RK for several models in
+   * the rootFolder.
+   *
+   * @param rootFolder
+   * @param taxonomyFile
+   * @param outputFolder
+   * @param numberOfThreads
+   *        the number of threads for each stage of the pipeline, i.e., the
+   *        number of models that are read or matched and the number of
+   *        queries that are sent at the same time.
+   * @throws XMLStreamException
+   * @throws IOException
+   * @throws WebServiceConnectException
+   * @throws WebServiceResponseException
+   */
+  public static void automaticSearch(String rootFolder, String taxonomyFile,
+    String outputFolder, int numberOfThreads) throws XMLStreamException,
+    IOException, WebServiceConnectException, WebServiceResponseException {
     int matched = 0;
     int noReactionID = 0;
     int matchingNotPossible = 0;
@@ -164,160 +474,112 @@ public class AutomaticSearch {
 
     SBFileFilter sbmlFilter = SBFileFilter.createSBMLFileFilter();
 
-    for (File dir : directoryList) {
-      String folder = dir.getAbsolutePath().replace("\\", "/")
-          .replace(parentFolder, sabioRootFolder);
-      (new File(folder)).mkdir();
-      int matched_Organism = 0;
-      int noReactionID_Organism = 0;
-      int matchingNotPossible_Organism = 0;
-      int noKineticLawFound_Organism = 0;
-      String organism = null;
-      for (File file : dir.listFiles()) {
-        if (sbmlFilter.accept(file)) {
-          /*
-           * SBML-Input
-           */
-          SBMLDocument sbmlDocument = null;
-          try {
-            sbmlDocument = SBMLReader.read(file);
-          } catch(Exception exc) {
-            logger.log(Level.WARNING, file.getAbsolutePath(), exc);
-            continue;
+    /*
+     * Models are read and matched on their own threads. The number of models
+     * that are in progress at the same time is limited to save memory.
+     */
+    ExecutorService readers = Executors.newFixedThreadPool(numberOfThreads);
+    ExecutorService queries = Executors.newFixedThreadPool(numberOfThreads);
+    ExecutorService matchers = Executors.newFixedThreadPool(numberOfThreads);
+    int window = 2 * numberOfThreads;
+    try {
+      for (File dir : directoryList) {
+        String folder = dir.getAbsolutePath().replace("\\", "/")
+            .replace(parentFolder, sabioRootFolder);
+        (new File(folder)).mkdir();
+        String organism = null;
+        List<File> sbmlFiles = new ArrayList<File>();
+        for (File file : dir.listFiles()) {
+          if (sbmlFilter.accept(file)) {
+            sbmlFiles.add(file);
           }
-          CVTermFilter filter = new CVTermFilter(Qualifier.BQB_OCCURS_IN,
-              "urn:miriam:taxonomy");
-
-          for (CVTerm cv : sbmlDocument.getModel().getAnnotation()
-              .getListOfCVTerms()) {
-            if (filter.accepts(cv)) {
-              for (String resource : cv.getResources()) {
-                if (resource.contains("urn:miriam:taxonomy")) {
-                  String name = resource.replace("urn:miriam:taxonomy:", "");
-                  int t = Integer.valueOf(name);
-                  organism = taxonToName.get(t);
-                }
-              }
-            }
+        }
+        List<Future<SBMLDocument>> documents = new ArrayList<Future<SBMLDocument>>(sbmlFiles.size());
+        for (int i = 0; (i < window) && (i < sbmlFiles.size()); i++) {
+          documents.add(read(readers, sbmlFiles.get(i)));
+        }
+        LinkedList<Future<SearchResult>> results = new LinkedList<Future<SearchResult>>();
+        SearchResult organismResult = new SearchResult();
+        for (int i = 0; i < sbmlFiles.size(); i++) {
+          if (i + window < sbmlFiles.size()) {
+            documents.add(read(readers, sbmlFiles.get(i + window)));
           }
           /*
-           * Constraints (Falls du bestimmte zusätzliche Bedingungen an die
-           * Suche stellen willst)
-           *
-           * Der Constraint: " AND " + SABIORK.QueryField.HAS_KINETIC_DATA +
-           * ":true"
-           *
-           * sollte aber immer verwendet werden, da SABIO-RK dann nur
-           * KineticLaws, die eine kinetische Gleichung besitzen, auswählt.
+           * SBML-Input
            */
-          StringBuilder constraints = new StringBuilder();
-          if (organism != null) {
-            constraints.append(" AND " + SABIORK.QueryField.ORGANISM + ":\""
-                + organism + "\"");
-          }
-          //constraints.append(" AND " + SABIORK.QueryField.TISSUE + ":liver");
-          //constraints.append(" AND " + SABIORK.QueryField.PH_VALUE_RANGE + ":[0.0 TO 14.0]");
-          constraints.append(" AND " + SABIORK.QueryField.HAS_KINETIC_DATA
-            + ":true");
-          String alternativeOrganism = null;
-          for (Reaction reaction : sbmlDocument.getModel().getListOfReactions()) {
-            String keggReactionID = getKeggReactionID(reaction);
-            if (!keggReactionID.isEmpty()) {
-              String query = SABIORK.QueryField.KEGG_REACTION_ID + ":"
-                  + keggReactionID + constraints;
-              List<KineticLaw> kineticLaws = SABIORK.getKineticLaws(query);
-
-              if ((kineticLaws.size() == 0) && (organism != null)) {
-                if (alternativeOrganism == null) {
-                  String[] splits = organism.split(" ");
-                  if (splits.length > 2) {
-                    constraints = new StringBuilder();
-                    alternativeOrganism = splits[0].concat(" " + splits[1]);
-                    constraints.append(" AND " + SABIORK.QueryField.ORGANISM + ":\""
-                        + alternativeOrganism + "\"");
-                    constraints.append(" AND " + SABIORK.QueryField.HAS_KINETIC_DATA
-                      + ":true");
-                  }
-                }
-                if (alternativeOrganism != null) {
-                  query = SABIORK.QueryField.KEGG_REACTION_ID + ":"
-                      + keggReactionID + constraints;
-                  kineticLaws = SABIORK.getKineticLaws(query);
-                }
-              }
-
-              boolean imported = false;
-              for (KineticLaw kineticLaw : kineticLaws) {
-                KineticLawImporter importer = new KineticLawImporter(
-                  kineticLaw, reaction);
-                if (importer.isImportableKineticLaw()) {
-                  importer.importKineticLaw();
-                  imported = true;
-                  break;
-                }
-              }
-              if (imported == true) {
-                matched++;
-                matched_Organism++;
-              } else {
-                if (kineticLaws.size() > 0) {
-                  matchingNotPossible++;
-                  matchingNotPossible_Organism++;
-                } else {
-                  noKineticLawFound++;
-                  noKineticLawFound_Organism++;
-                }
-              }
-
-            } else {
-              noReactionID++;
-              noReactionID_Organism++;
-            }
+          SBMLDocument sbmlDocument = SABIORK.get(documents.get(i));
+          documents.set(i, null);
+          if (sbmlDocument == null) {
+            continue;
           }
+          organism = getOrganism(sbmlDocument, taxonToName, organism);
           /*
            * SBML-Output
            */
-          String outputFile = file.getAbsolutePath().replace("\\", "/")
+          String outputFile = sbmlFiles.get(i).getAbsolutePath().replace("\\", "/")
               .replace(parentFolder, sabioRootFolder);
-          // TODO: use SBMLio!
-          TidySBMLWriter.write(sbmlDocument, new File(outputFile), ' ', (short) 2);
+          results.add(matchers.submit(new ModelSearch(sbmlDocument, organism,
+            queries, new File(outputFile))));
+          if (results.size() > window) {
+            organismResult.add(SABIORK.get(results.removeFirst()));
+          }
         }
-      }
-      writer.write(organism + "\t" + matched_Organism + "\t" + noKineticLawFound_Organism + "\t" + + matchingNotPossible_Organism + "\t" + noReactionID_Organism);
-      writer.newLine();
-      writer.newLine();
+        while (!results.isEmpty()) {
+          organismResult.add(SABIORK.get(results.removeFirst()));
+        }
+        matched += organismResult.matched;
+        noReactionID += organismResult.noReactionID;
+        matchingNotPossible += organismResult.matchingNotPossible;
+        noKineticLawFound += organismResult.noKineticLawFound;
 
-      logger.info("Organism: " + organism);
-      if (matched_Organism == 0) {
-        logger.warning("No matches!");
+        writer.write(organism + "\t" + organismResult.matched + "\t" + organismResult.noKineticLawFound + "\t" + + organismResult.matchingNotPossible + "\t" + organismResult.noReactionID);
+        writer.newLine();
+        writer.newLine();
+
+        logger.info("Organism: " + organism);
+        if (organismResult.matched == 0) {
+          logger.warning("No matches!");
+        }
+        logger.info("Matched: " + organismResult.matched);
+        logger.info("Law not found: " + organismResult.noKineticLawFound);
+        logger.info("Matching not possible: " + organismResult.matchingNotPossible);
+        logger.info("No KEGG id given: " + organismResult.noReactionID);
       }
-      logger.info("Matched: " + matched_Organism);
-      logger.info("Law not found: " + noKineticLawFound_Organism);
-      logger.info("Matching not possible: " + matchingNotPossible_Organism);
-      logger.info("No KEGG id given: " + noReactionID_Organism);
+    } finally {
+      readers.shutdownNow();
+      queries.shutdownNow();
+      matchers.shutdownNow();
+      writer.close();
     }
 
-    //		writer.append("Matched: " + matched);
-    //		writer.newLine();
-    //		writer.append("Law not found " + noKineticLawFound);
-    //		writer.newLine();
-    //		writer.append("Matching not possible "
-    //					+ matchingNotPossible);
-    //		writer.newLine();
-    //		writer.append("No KEGG id given " + noReactionID);
-    //		writer.newLine();
-    writer.close();
-
     logger.info("matched: " + matched);
     logger.info("no reaction id: " + noReactionID);
     logger.info("matching not possible: " + matchingNotPossible);
     logger.info("no kinetic law found: " + noKineticLawFound);
-    //
-    //		logger.info("Matched: " + matched);
-    //		logger.info("Law not found " + noKineticLawFound);
-    //		logger.info("Matching not possible " + matchingNotPossible);
-    //		logger.info("No KEGG id given " + noReactionID);
+  }
 
+  /**
+   *
+   * @param readers
+   * @param file
+   * @return the {@link SBMLDocument} in the given file as soon as it has been
+   *         read or {@code null} if the file cannot be read.
+   */
+  private static Future<SBMLDocument> read(ExecutorService readers, final File file) {
+    return readers.submit(new Callable<SBMLDocument>() {
+      /* (non-Javadoc)
+       * @see java.util.concurrent.Callable#call()
+       */
+      @Override
+      public SBMLDocument call() {
+        try {
+          return SBMLReader.read(file);
+        } catch(Exception exc) {
+          logger.log(Level.WARNING, file.getAbsolutePath(), exc);
+          return null;
+        }
+      }
+    });
   }
 
 }
@@ -23,21 +23,29 @@
  */
 package org.sbml.squeezer.sabiork;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.UnsupportedEncodingException;
-import java.net.HttpURLConnection;
-import java.net.NoRouteToHostException;
-import java.net.URL;
 import java.net.URLEncoder;
-import java.net.UnknownHostException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.xml.stream.XMLStreamException;
 
@@ -46,9 +54,14 @@ import org.sbml.jsbml.Reaction;
 import org.sbml.jsbml.SBMLDocument;
 import org.sbml.jsbml.SBMLReader;
 import org.sbml.jsbml.util.ValuePair;
+import org.sbml.squeezer.sabiork.util.CachingTransport;
+import org.sbml.squeezer.sabiork.util.CachingTransport.Mode;
+import org.sbml.squeezer.sabiork.util.HttpTransport;
 import org.sbml.squeezer.sabiork.util.WebServiceConnectException;
 import org.sbml.squeezer.sabiork.util.WebServiceResponseException;
+import org.sbml.squeezer.sabiork.util.WebServiceTransport;
 import org.sbml.squeezer.sabiork.util.XMLParser;
+import org.sbml.squeezer.sabiork.util.XMLParser.XMLElementTextContentHandler;
 
 /**
  * The SABIO-RK class provides access to the SABIO-RK database via their RESTful
@@ -137,32 +150,33 @@ public class SABIORK {
    */
   public enum Resource {
     
-    ENTRY_IDS_BY_QUERY("http://sabio.h-its.org/sabioRestWebServices/searchKineticLaws/kinlaws?q="),
-    SBML_MODEL_BY_ENTRY_ID("http://sabio.h-its.org/sabioRestWebServices/kineticLaws/"),
-    SBML_MODEL_BY_ENTRY_IDS("http://sabio.h-its.org/sabioRestWebServices/kineticLaws?kinlawids="),
-    SBML_MODEL_BY_QUERY("http://sabio.h-its.org/sabioRestWebServices/searchKineticLaws/sbml?q="),
-    SUGGESTIONS_COMPOUNDS("http://sabio.h-its.org/sabioRestWebServices/suggestions/Compounds?searchCompounds="),
-    SUGGESTIONS_ENZYMES("http://sabio.h-its.org/sabioRestWebServices/suggestions/Enzymes?searchEnzymes="),
-    SUGGESTIONS_ORGANISMS("http://sabio.h-its.org/sabioRestWebServices/suggestions/Organisms?searchOrganisms="),
-    SUGGESTIONS_PATHWAYS("http://sabio.h-its.org/sabioRestWebServices/suggestions/Pathways?searchPathways="),
-    SUGGESTIONS_TISSUES("http://sabio.h-its.org/sabioRestWebServices/suggestions/Tissues?searchTissues="),
-    SUGGESTIONS_UNIPROT_IDS("http://sabio.h-its.org/sabioRestWebServices/suggestions/UniprotIDs?searchUniprotIDs="),
-    SUGGESTIONS_KEGG_COMPOUND_IDS("http://sabio.h-its.org/sabioRestWebServices/suggestions/KEGGCompoundIDs?searchKEGGCompoundIDs="),
-    SUGGESTIONS_KEGG_REACTION_IDS("http://sabio.h-its.org/sabioRestWebServices/suggestions/KEGGReactionIDs?searchKEGGReactionIDs="),
-    SUGGESTIONS_SABIO_COMPOUND_IDS("http://sabio.h-its.org/sabioRestWebServices/suggestions/SABIOCompoundIDs?searchSABIOCompoundIDs="),
-    SUGGESTIONS_SABIO_REACTION_IDS("http://sabio.h-its.org/sabioRestWebServices/suggestions/SABIOReactionIDs?searchSABIOReactionIDs="),
-    SUGGESTIONS_CHEBI_COMPOUND_IDS("http://sabio.h-its.org/sabioRestWebServices/suggestions/CHEBICompoundIDs?searchCHEBICompoundIDs="),
-    SUGGESTIONS_PUBCHEM_COMPOUND_IDS("http://sabio.h-its.org/sabioRestWebServices/suggestions/PUBCHEMCompoundIDs?searchPUBCHEMCompoundIDs="),
-    SUGGESTIONS_PUBMED_IDS("http://sabio.h-its.org/sabioRestWebServices/suggestions/PubmedIDs?searchPubmedIDs=");
+    ENTRY_IDS_BY_QUERY("searchKineticLaws/kinlaws?q="),
+    SBML_MODEL_BY_ENTRY_ID("kineticLaws/"),
+    SBML_MODEL_BY_ENTRY_IDS("kineticLaws?kinlawids="),
+    SBML_MODEL_BY_QUERY("searchKineticLaws/sbml?q="),
+    SUGGESTIONS_COMPOUNDS("suggestions/Compounds?searchCompounds="),
+    SUGGESTIONS_ENZYMES("suggestions/Enzymes?searchEnzymes="),
+    SUGGESTIONS_ORGANISMS("suggestions/Organisms?searchOrganisms="),
+    SUGGESTIONS_PATHWAYS("suggestions/Pathways?searchPathways="),
+    SUGGESTIONS_TISSUES("suggestions/Tissues?searchTissues="),
+    SUGGESTIONS_UNIPROT_IDS("suggestions/UniprotIDs?searchUniprotIDs="),
+    SUGGESTIONS_KEGG_COMPOUND_IDS("suggestions/KEGGCompoundIDs?searchKEGGCompoundIDs="),
+    SUGGESTIONS_KEGG_REACTION_IDS("suggestions/KEGGReactionIDs?searchKEGGReactionIDs="),
+    SUGGESTIONS_SABIO_COMPOUND_IDS("suggestions/SABIOCompoundIDs?searchSABIOCompoundIDs="),
+    SUGGESTIONS_SABIO_REACTION_IDS("suggestions/SABIOReactionIDs?searchSABIOReactionIDs="),
+    SUGGESTIONS_CHEBI_COMPOUND_IDS("suggestions/CHEBICompoundIDs?searchCHEBICompoundIDs="),
+    SUGGESTIONS_PUBCHEM_COMPOUND_IDS("suggestions/PUBCHEMCompoundIDs?searchPUBCHEMCompoundIDs="),
+    SUGGESTIONS_PUBMED_IDS("suggestions/PubmedIDs?searchPubmedIDs=");
     
-    private final String url;
+    private final String path;
     
     /**
      * 
-     * @param url
+     * @param path
+     *            the location of the resource relative to the base URL
      */
-    private Resource(String url) {
-      this.url = url;
+    private Resource(String path) {
+      this.path = path;
     }
     
     /**
@@ -170,9 +184,10 @@ public class SABIORK {
      * @param query
      * @return
      * @throws UnsupportedEncodingException
+     * @see SABIORK#getBaseURL()
      */
     public String getURL(String query) throws UnsupportedEncodingException {
-      return url + URLEncoder.encode(query, "UTF-8");
+      return baseURL + path + URLEncoder.encode(query, "UTF-8");
     }
     
   }
@@ -194,49 +209,205 @@ public class SABIORK {
   
   
   /**
-   * Returns the direct response from the SABIO-RK resource.
+   * The maximal number of entries that are retrieved with one request.
+   */
+  public static final int MAX_IDS_PER_REQUEST = 100;
+  
+  /**
+   * The message of SABIO-RK if an entry must not be viewed.
+   */
+  private static final String PERMISSION_DENIED = "You do not have permission to view Kinetic Law";
+  
+  /**
+   * The location of the SABIO-RK RESTful Web Services.
+   */
+  public static final String DEFAULT_BASE_URL = "http://sabio.h-its.org/sabioRestWebServices/";
+  
+  /**
+   * The URL relative to which all {@link Resource}s are located.
+   */
+  private static volatile String baseURL = DEFAULT_BASE_URL;
+  
+  /**
+   * @return the URL relative to which all {@link Resource}s are located
+   */
+  public static String getBaseURL() {
+    return baseURL;
+  }
+  
+  /**
+   * Lets all {@link Resource}s point to a different server, such as a
+   * mirror or a local stand-in for tests.
+   * 
+   * @param baseURL
+   *            the URL relative to which all {@link Resource}s are located,
+   *            including the trailing slash
+   */
+  public static void setBaseURL(String baseURL) {
+    SABIORK.baseURL = baseURL;
+  }
+  
+  /**
+   * Retrieves all responses from SABIO-RK.
+   */
+  private static volatile WebServiceTransport transport = new HttpTransport();
+  
+  /**
+   * Lets all subsequent queries to SABIO-RK go through a
+   * {@link CachingTransport} if a directory is given. Otherwise, SABIO-RK is
+   * queried directly. The current transport is kept if it already has the
+   * given configuration, because files may be squeezed in parallel and all
+   * of them have to share one {@link CachingTransport} for the same
+   * directory.
+   * 
+   * @param directory
+   *            where to store the responses or an empty path to disable the
+   *            local store
+   * @param mode
+   *            how to use the directory
+   * @param timeToLive
+   *            the number of hours after which stored responses are requested
+   *            again in {@link Mode#CACHE} mode, zero if they never expire
+   * @param maximumSize
+   *            the maximal total size of all stored responses in megabytes
+   */
+  public static synchronized void configureTransport(File directory, Mode mode,
+    int timeToLive, int maximumSize) {
+    WebServiceTransport current = transport;
+    if ((directory == null) || (directory.getPath().length() == 0)) {
+      if (!(current instanceof HttpTransport)) {
+        setTransport(new HttpTransport());
+      }
+    } else {
+      long time = timeToLive * 3600000L;
+      long size = maximumSize * 1048576L;
+      if (!(current instanceof CachingTransport)
+          || !isConfigured((CachingTransport) current, directory, mode, time, size)) {
+        setTransport(new CachingTransport(new HttpTransport(), directory, mode,
+          time, size));
+      }
+    }
+  }
+  
+  /**
+   * 
+   * @param transport
+   * @param directory
+   * @param mode
+   * @param timeToLive
+   *            in milliseconds
+   * @param maximumSize
+   *            in bytes
+   * @return {@code true} if the given {@link CachingTransport} has the given
+   *         configuration.
+   */
+  private static boolean isConfigured(CachingTransport transport,
+    File directory, Mode mode, long timeToLive, long maximumSize) {
+    return transport.getDirectory().getAbsoluteFile().equals(directory.getAbsoluteFile())
+        && (transport.getMode() == mode) && (transport.getTimeToLive() == timeToLive)
+        && (transport.getMaximumSize() == maximumSize);
+  }
+  
+  /**
+   * @return the {@link WebServiceTransport} that retrieves all responses from
+   *         SABIO-RK
+   */
+  public static WebServiceTransport getTransport() {
+    return transport;
+  }
+  
+  /**
+   * @param transport
+   *            the {@link WebServiceTransport} that is to retrieve all
+   *            responses from SABIO-RK
+   */
+  public static void setTransport(WebServiceTransport transport) {
+    SABIORK.transport = transport;
+  }
+  
+  /**
+   * Opens the direct response from the SABIO-RK resource for reading.
    * 
    * @param url
    *            the URL of the resource
-   * @return the response from the SABIO-RK resource
+   * @return the response from the SABIO-RK resource, which has to be closed
+   *         by the caller, or {@code null} if there are no results
    * @throws WebServiceConnectException
    * @throws WebServiceResponseException
    * @throws IOException
    */
-  private static String getResourceResponse(String url)
+  private static InputStream openResourceStream(String url)
       throws WebServiceConnectException, WebServiceResponseException,
       IOException {
+    return transport.openStream(url);
+  }
+  
+  /**
+   * Returns all text contents of the given XML element in the response of
+   * the SABIO-RK resource, which is parsed while it is being received.
+   * 
+   * @param url
+   *            the URL of the resource
+   * @param xmlElementQNameLocalPart
+   *            the qualified name of the XML element
+   * @return a list of all text contents of the given XML element
+   * @throws WebServiceConnectException
+   * @throws WebServiceResponseException
+   * @throws IOException
+   * @throws XMLStreamException
+   */
+  private static List<String> getMultipleXMLElementTextContent(String url,
+    String xmlElementQNameLocalPart) throws WebServiceConnectException,
+    WebServiceResponseException, IOException, XMLStreamException {
+    InputStream resourceStream = openResourceStream(url);
+    if (resourceStream == null) {
+      return new ArrayList<String>();
+    }
     try {
-      URL resourceURL = new URL(url);
-      HttpURLConnection resourceConnection = (HttpURLConnection) resourceURL
-          .openConnection();
-      if (resourceConnection.getResponseCode() == 200) {
-        StringBuilder resourceResponse = new StringBuilder();
-        BufferedReader resourceReader = new BufferedReader(
-          new InputStreamReader(
-            resourceConnection.getInputStream()));
-        for (String line = resourceReader.readLine(); line != null; line = resourceReader
-            .readLine()) {
-          resourceResponse.append(line);
-        }
-        return resourceResponse.toString();
-      }
-      else if (resourceConnection.getResponseCode() == 404) {
-        return "No results found for query";
+      return XMLParser.getMultipleXMLElementTextContent(resourceStream,
+        xmlElementQNameLocalPart, "");
+    } finally {
+      resourceStream.close();
+    }
+  }
+  
+  /**
+   * Reads the SBML document that the SABIO-RK resource returns directly from
+   * its response.
+   * 
+   * @param url
+   *            the URL of the resource
+   * @return the SBML document or {@code null} if there are no results or if
+   *         the entries must not be viewed
+   * @throws WebServiceConnectException
+   * @throws WebServiceResponseException
+   * @throws IOException
+   * @throws XMLStreamException
+   */
+  private static SBMLDocument readSBMLDocument(String url)
+      throws WebServiceConnectException, WebServiceResponseException,
+      IOException, XMLStreamException {
+    InputStream resourceStream = openResourceStream(url);
+    if (resourceStream == null) {
+      return null;
+    }
+    try {
+      BufferedInputStream bufferedStream = new BufferedInputStream(resourceStream);
+      // Error messages are short, only the beginning must be checked.
+      byte head[] = new byte[512];
+      bufferedStream.mark(head.length);
+      int length = 0;
+      for (int n = 0; (n >= 0) && (length < head.length); n = bufferedStream
+          .read(head, length, head.length - length)) {
+        length += n;
       }
-      else {
-        throw new WebServiceResponseException(
-          "SABIO-RK returned HTTP response code "
-              + resourceConnection.getResponseCode()
-              + " for URL: " + resourceConnection.getURL(),
-              resourceConnection.getResponseCode());
+      bufferedStream.reset();
+      if (new String(head, 0, length, "UTF-8").contains(PERMISSION_DENIED)) {
+        return null;
       }
-    } catch (UnknownHostException e) {
-      throw new WebServiceConnectException(
-        "Unable to connect to SABIO-RK.", e);
-    } catch (NoRouteToHostException e) {
-      throw new WebServiceConnectException(
-        "Unable to connect to SABIO-RK.", e);
+      return SBMLReader.read(bufferedStream);
+    } finally {
+      resourceStream.close();
     }
   }
   
@@ -317,13 +488,23 @@ public class SABIORK {
   public static List<Integer> getIDs(String query)
       throws WebServiceConnectException, WebServiceResponseException,
       IOException, XMLStreamException {
-    List<Integer> ids = new ArrayList<Integer>();
+    final List<Integer> ids = new ArrayList<Integer>();
     String url = Resource.ENTRY_IDS_BY_QUERY.getURL(query);
-    String resourceResponse = getResourceResponse(url);
-    if (!resourceResponse.equals("No results found for query")) {
-      for (String id : XMLParser.getMultipleXMLElementTextContent(
-        resourceResponse, "SabioEntryID", "")) {
-        ids.add(Integer.valueOf(id));
+    InputStream resourceStream = openResourceStream(url);
+    if (resourceStream != null) {
+      try {
+        XMLParser.parseMultipleXMLElementTextContent(resourceStream,
+          "SabioEntryID", "", new XMLElementTextContentHandler() {
+          /* (non-Javadoc)
+           * @see org.sbml.squeezer.sabiork.util.XMLParser.XMLElementTextContentHandler#handle(java.lang.String)
+           */
+          @Override
+          public void handle(String textContent) {
+            ids.add(Integer.valueOf(textContent));
+          }
+        });
+      } finally {
+        resourceStream.close();
       }
     }
     return ids;
@@ -347,10 +528,8 @@ public class SABIORK {
       IOException, XMLStreamException {
     KineticLaw kineticLaw = null;
     String url = Resource.SBML_MODEL_BY_ENTRY_ID.getURL(String.valueOf(id));
-    String resourceResponse = getResourceResponse(url);
-    if (!resourceResponse
-        .equals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlErrorMessage><messageText>You do not have permission to view Kinetic Law</messageText></xmlErrorMessage>")) {
-      SBMLDocument sbmlDocument = SBMLReader.read(resourceResponse);
+    SBMLDocument sbmlDocument = readSBMLDocument(url);
+    if (sbmlDocument != null) {
       List<KineticLaw> kineticLaws = getKineticLaws(sbmlDocument);
       if (!kineticLaws.isEmpty()) {
         kineticLaw = kineticLaws.get(0);
@@ -377,10 +556,8 @@ public class SABIORK {
       IOException, XMLStreamException {
     List<KineticLaw> kineticLaws = new ArrayList<KineticLaw>();
     String url = Resource.SBML_MODEL_BY_ENTRY_IDS.getURL(getIDsQuery(ids));
-    String resourceResponse = getResourceResponse(url);
-    if (!resourceResponse
-        .equals("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><xmlErrorMessage><messageText>You do not have permission to view Kinetic Law</messageText></xmlErrorMessage>")) {
-      SBMLDocument sbmlDocument = SBMLReader.read(resourceResponse);
+    SBMLDocument sbmlDocument = readSBMLDocument(url);
+    if (sbmlDocument != null) {
       kineticLaws.addAll(getKineticLaws(sbmlDocument));
     }
     return kineticLaws;
@@ -402,14 +579,202 @@ public class SABIORK {
       IOException, XMLStreamException {
     List<KineticLaw> kineticLaws = new ArrayList<KineticLaw>();
     String url = Resource.SBML_MODEL_BY_QUERY.getURL(query);
-    String resourceResponse = getResourceResponse(url);
-    if (!resourceResponse.equals("No results found for query")) {
-      SBMLDocument sbmlDocument = SBMLReader.read(resourceResponse);
+    SBMLDocument sbmlDocument = readSBMLDocument(url);
+    if (sbmlDocument != null) {
       kineticLaws.addAll(getKineticLaws(sbmlDocument));
     }
     return kineticLaws;
   }
   
+  /**
+   * Returns all {@link KineticLaw}s matching each of the given queries. In
+   * contrast to calling {@link #getKineticLaws(String)} for each query, only
+   * the SABIO-RK entry ids are requested per query. The SBML of all distinct
+   * entries is then retrieved in large chunks, see
+   * {@link #getKineticLawsForIDs(List, ExecutorService)}.
+   * 
+   * @param queries
+   *            the queries, may contain {@code null} for which no search is
+   *            performed
+   * @return for each query, all {@link KineticLaw}s matching the query in
+   *         the order of their entry ids
+   * @throws WebServiceConnectException
+   * @throws WebServiceResponseException
+   * @throws IOException
+   * @throws XMLStreamException
+   */
+  public static List<List<KineticLaw>> getKineticLawsForQueries(
+    List<String> queries) throws WebServiceConnectException,
+    WebServiceResponseException, IOException, XMLStreamException {
+    Map<String, List<Integer>> idsByQuery = new HashMap<String, List<Integer>>();
+    List<List<Integer>> ids = new ArrayList<List<Integer>>(queries.size());
+    for (String query : queries) {
+      List<Integer> queryIDs = Collections.emptyList();
+      if (query != null) {
+        queryIDs = idsByQuery.get(query);
+        if (queryIDs == null) {
+          queryIDs = getIDs(query);
+          idsByQuery.put(query, queryIDs);
+        }
+      }
+      ids.add(queryIDs);
+    }
+    return getKineticLawsForIDs(ids, null);
+  }
+  
+  /**
+   * Returns the {@link KineticLaw}s for several lists of SABIO-RK entry ids.
+   * Each distinct entry is retrieved only once, together with up to
+   * {@link #MAX_IDS_PER_REQUEST} other entries. Since a {@link KineticLaw}
+   * may be changed while it is imported, an entry that occurs in several lists
+   * is copied together with its {@link SBMLDocument} for all but the first
+   * list.
+   * 
+   * @param ids
+   *            lists of SABIO-RK entry ids
+   * @param executor
+   *            retrieves the chunks of entries concurrently or {@code null}
+   *            to retrieve them one after the other on the current thread
+   * @return for each list of entry ids, the {@link KineticLaw}s in the same
+   *         order, without the entries that could not be retrieved
+   * @throws WebServiceConnectException
+   * @throws WebServiceResponseException
+   * @throws IOException
+   * @throws XMLStreamException
+   */
+  public static List<List<KineticLaw>> getKineticLawsForIDs(
+    List<List<Integer>> ids, ExecutorService executor)
+        throws WebServiceConnectException, WebServiceResponseException,
+        IOException, XMLStreamException {
+    Set<Integer> distinctIDs = new LinkedHashSet<Integer>();
+    for (List<Integer> list : ids) {
+      distinctIDs.addAll(list);
+    }
+    List<List<Integer>> chunks = new ArrayList<List<Integer>>();
+    List<Integer> chunk = null;
+    for (Integer id : distinctIDs) {
+      if ((chunk == null) || (chunk.size() == MAX_IDS_PER_REQUEST)) {
+        chunk = new ArrayList<Integer>(MAX_IDS_PER_REQUEST);
+        chunks.add(chunk);
+      }
+      chunk.add(id);
+    }
+    
+    Map<Integer, KineticLaw> kineticLawByID = new HashMap<Integer, KineticLaw>();
+    if (executor == null) {
+      for (List<Integer> c : chunks) {
+        kineticLawByID.putAll(getKineticLawsByID(c));
+      }
+    } else {
+      List<Future<Map<Integer, KineticLaw>>> futures = new ArrayList<Future<Map<Integer, KineticLaw>>>(chunks.size());
+      for (final List<Integer> c : chunks) {
+        futures.add(executor.submit(new Callable<Map<Integer, KineticLaw>>() {
+          /* (non-Javadoc)
+           * @see java.util.concurrent.Callable#call()
+           */
+          @Override
+          public Map<Integer, KineticLaw> call() throws Exception {
+            return getKineticLawsByID(c);
+          }
+        }));
+      }
+      for (Future<Map<Integer, KineticLaw>> future : futures) {
+        kineticLawByID.putAll(get(future));
+      }
+    }
+    
+    Set<KineticLaw> used = Collections.newSetFromMap(new IdentityHashMap<KineticLaw, Boolean>());
+    List<List<KineticLaw>> kineticLaws = new ArrayList<List<KineticLaw>>(ids.size());
+    for (List<Integer> list : ids) {
+      List<KineticLaw> kineticLawsOfList = new ArrayList<KineticLaw>(list.size());
+      for (Integer id : list) {
+        KineticLaw kineticLaw = kineticLawByID.get(id);
+        if (kineticLaw != null) {
+          if (!used.add(kineticLaw)) {
+            SBMLDocument copy = kineticLaw.getSBMLDocument().clone();
+            kineticLaw = copy.getModel().getReaction(
+              kineticLaw.getParent().getId()).getKineticLaw();
+          }
+          kineticLawsOfList.add(kineticLaw);
+        }
+      }
+      kineticLaws.add(kineticLawsOfList);
+    }
+    return kineticLaws;
+  }
+  
+  /**
+   * 
+   * @param ids
+   *            SABIO-RK entry ids
+   * @return the {@link KineticLaw}s for the given entry ids
+   * @throws WebServiceConnectException
+   * @throws WebServiceResponseException
+   * @throws IOException
+   * @throws XMLStreamException
+   */
+  private static Map<Integer, KineticLaw> getKineticLawsByID(List<Integer> ids)
+      throws WebServiceConnectException, WebServiceResponseException,
+      IOException, XMLStreamException {
+    Map<Integer, KineticLaw> kineticLaws = new HashMap<Integer, KineticLaw>();
+    for (KineticLaw kineticLaw : getKineticLaws(ids)) {
+      String id = getKineticLawID(kineticLaw).trim();
+      if (!id.isEmpty()) {
+        kineticLaws.put(Integer.valueOf(id), kineticLaw);
+      }
+    }
+    if (kineticLaws.isEmpty() && (ids.size() > 1)) {
+      /*
+       * SABIO-RK denies the whole request if a single entry must not be
+       * viewed, hence retrieve the entries separately.
+       */
+      for (Integer id : ids) {
+        KineticLaw kineticLaw = getKineticLaw(id.intValue());
+        if (kineticLaw != null) {
+          kineticLaws.put(id, kineticLaw);
+        }
+      }
+    }
+    return kineticLaws;
+  }
+  
+  /**
+   * Waits for the result of a task that accesses SABIO-RK and passes on its
+   * exceptions.
+   * 
+   * @param future
+   * @return the result of the given {@link Future}
+   * @throws XMLStreamException
+   * @throws IOException
+   * @throws WebServiceConnectException
+   * @throws WebServiceResponseException
+   */
+  static <T> T get(Future<T> future) throws XMLStreamException,
+  IOException, WebServiceConnectException, WebServiceResponseException {
+    try {
+      return future.get();
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException exc) {
+      Throwable cause = exc.getCause();
+      if (cause instanceof XMLStreamException) {
+        throw (XMLStreamException) cause;
+      } else if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof WebServiceConnectException) {
+        throw (WebServiceConnectException) cause;
+      } else if (cause instanceof WebServiceResponseException) {
+        throw (WebServiceResponseException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+  
   /**
    * Returns suggestions for a partial string with regard to a given SABIO-RK
    * query field.
@@ -431,72 +796,56 @@ public class SABIORK {
     List<String> suggestions = new ArrayList<String>();
     switch (queryField) {
       case PATHWAY:
-        suggestions.addAll(XMLParser.getMultipleXMLElementTextContent(
-          getResourceResponse(Resource.SUGGESTIONS_PATHWAYS
-            .getURL(partialString)), "Pathway", ""));
+        suggestions.addAll(getMultipleXMLElementTextContent(
+          Resource.SUGGESTIONS_PATHWAYS.getURL(partialString), "Pathway"));
         break;
       case KEGG_REACTION_ID:
-        suggestions.addAll(XMLParser.getMultipleXMLElementTextContent(
-          getResourceResponse(Resource.SUGGESTIONS_KEGG_REACTION_IDS
-            .getURL(partialString)), "KEGGReactionID", ""));
+        suggestions.addAll(getMultipleXMLElementTextContent(
+          Resource.SUGGESTIONS_KEGG_REACTION_IDS.getURL(partialString), "KEGGReactionID"));
         break;
       case SABIO_REACTION_ID:
-        suggestions.addAll(XMLParser.getMultipleXMLElementTextContent(
-          getResourceResponse(Resource.SUGGESTIONS_SABIO_REACTION_IDS
-            .getURL(partialString)), "SABIOReactionID", ""));
+        suggestions.addAll(getMultipleXMLElementTextContent(
+          Resource.SUGGESTIONS_SABIO_REACTION_IDS.getURL(partialString), "SABIOReactionID"));
         break;
       case ANY_ROLE:
-        suggestions.addAll(XMLParser.getMultipleXMLElementTextContent(
-          getResourceResponse(Resource.SUGGESTIONS_COMPOUNDS
-            .getURL(partialString)), "Compound", ""));
+        suggestions.addAll(getMultipleXMLElementTextContent(
+          Resource.SUGGESTIONS_COMPOUNDS.getURL(partialString), "Compound"));
         break;
       case PUBCHEM_ID:
-        suggestions
-        .addAll(XMLParser
-          .getMultipleXMLElementTextContent(
-            getResourceResponse(Resource.SUGGESTIONS_PUBCHEM_COMPOUND_IDS
-              .getURL(partialString)),
-              "PUBCHEMCompoundID", ""));
+        suggestions.addAll(getMultipleXMLElementTextContent(
+          Resource.SUGGESTIONS_PUBCHEM_COMPOUND_IDS.getURL(partialString), "PUBCHEMCompoundID"));
         break;
       case KEGG_ID:
-        suggestions.addAll(XMLParser.getMultipleXMLElementTextContent(
-          getResourceResponse(Resource.SUGGESTIONS_KEGG_COMPOUND_IDS
-            .getURL(partialString)), "KEGGCompoundID", ""));
+        suggestions.addAll(getMultipleXMLElementTextContent(
+          Resource.SUGGESTIONS_KEGG_COMPOUND_IDS.getURL(partialString), "KEGGCompoundID"));
         break;
       case CHEBI_ID:
-        suggestions.addAll(XMLParser.getMultipleXMLElementTextContent(
-          getResourceResponse(Resource.SUGGESTIONS_CHEBI_COMPOUND_IDS
-            .getURL(partialString)), "CHEBICompoundID", ""));
+        suggestions.addAll(getMultipleXMLElementTextContent(
+          Resource.SUGGESTIONS_CHEBI_COMPOUND_IDS.getURL(partialString), "CHEBICompoundID"));
         break;
       case SABIO_COMPOUND_ID:
-        suggestions.addAll(XMLParser.getMultipleXMLElementTextContent(
-          getResourceResponse(Resource.SUGGESTIONS_SABIO_COMPOUND_IDS
-            .getURL(partialString)), "SABIOCompoundID", ""));
+        suggestions.addAll(getMultipleXMLElementTextContent(
+          Resource.SUGGESTIONS_SABIO_COMPOUND_IDS.getURL(partialString), "SABIOCompoundID"));
         break;
       case ENZYMENAME:
-        suggestions.addAll(XMLParser.getMultipleXMLElementTextContent(
-          getResourceResponse(Resource.SUGGESTIONS_ENZYMES
-            .getURL(partialString)), "Enzyme", ""));
+        suggestions.addAll(getMultipleXMLElementTextContent(
+          Resource.SUGGESTIONS_ENZYMES.getURL(partialString), "Enzyme"));
         break;
       case UNIPROT_ID:
-        suggestions.addAll(XMLParser.getMultipleXMLElementTextContent(
-          getResourceResponse(Resource.SUGGESTIONS_UNIPROT_IDS
-            .getURL(partialString)), "UniprotID", ""));
+        suggestions.addAll(getMultipleXMLElementTextContent(
+          Resource.SUGGESTIONS_UNIPROT_IDS.getURL(partialString), "UniprotID"));
         break;
       case TISSUE:
-        suggestions.addAll(XMLParser.getMultipleXMLElementTextContent(
-          getResourceResponse(Resource.SUGGESTIONS_TISSUES
-            .getURL(partialString)), "Tissue", ""));
+        suggestions.addAll(getMultipleXMLElementTextContent(
+          Resource.SUGGESTIONS_TISSUES.getURL(partialString), "Tissue"));
         break;
       case ORGANISM:
-        suggestions.addAll(XMLParser.getMultipleXMLElementTextContent(
-          getResourceResponse(Resource.SUGGESTIONS_ORGANISMS
-            .getURL(partialString)), "Organism", ""));
+        suggestions.addAll(getMultipleXMLElementTextContent(
+          Resource.SUGGESTIONS_ORGANISMS.getURL(partialString), "Organism"));
         break;
       case PUBMED_ID:
-        suggestions.addAll(XMLParser.getMultipleXMLElementTextContent(
-          getResourceResponse(Resource.SUGGESTIONS_PUBMED_IDS
-            .getURL(partialString)), "PubmedID", ""));
+        suggestions.addAll(getMultipleXMLElementTextContent(
+          Resource.SUGGESTIONS_PUBMED_IDS.getURL(partialString), "PubmedID"));
         break;
       default:
         break;
@@ -23,9 +23,11 @@
  */
 package org.sbml.squeezer.sabiork;
 
+import java.io.File;
 import java.util.Date;
 import java.util.ResourceBundle;
 
+import org.sbml.squeezer.sabiork.util.CachingTransport.Mode;
 import org.sbml.squeezer.util.Bundles;
 
 import de.zbit.util.ResourceManager;
@@ -172,6 +174,49 @@ public interface SABIORKPreferences extends KeyProvider {
       OPTIONS_BUNDLE,
       SABIORK.getDefaultDate());
   
+  /**
+   * A directory in which the responses of SABIO-RK are stored. An empty path
+   * means that SABIO-RK is always queried directly.
+   */
+  public static final Option<File> RESPONSE_CACHE = new Option<File>(
+      "RESPONSE_CACHE",
+      File.class,
+      OPTIONS_BUNDLE,
+      new File(""));
+  
+  /**
+   * Decides whether stored responses are reused until they expire, whether
+   * all responses are recorded, or whether all responses are replayed from
+   * the {@link #RESPONSE_CACHE} without network access.
+   */
+  public static final Option<Mode> RESPONSE_CACHE_MODE = new Option<Mode>(
+      "RESPONSE_CACHE_MODE",
+      Mode.class,
+      OPTIONS_BUNDLE,
+      new Range<Mode>(Mode.class, Range.toRangeString(Mode.class)),
+      Mode.CACHE);
+  
+  /**
+   * The number of hours after which a response in the {@link #RESPONSE_CACHE}
+   * is requested again. Zero means that responses never expire.
+   */
+  public static final Option<Integer> RESPONSE_CACHE_TIME_TO_LIVE = new Option<Integer>(
+      "RESPONSE_CACHE_TIME_TO_LIVE",
+      Integer.class,
+      OPTIONS_BUNDLE,
+      new Range<Integer>(Integer.class, "{[0,87600]}"),
+      Integer.valueOf(168));
+  
+  /**
+   * The maximal size of the {@link #RESPONSE_CACHE} in megabytes.
+   */
+  public static final Option<Integer> RESPONSE_CACHE_SIZE = new Option<Integer>(
+      "RESPONSE_CACHE_SIZE",
+      Integer.class,
+      OPTIONS_BUNDLE,
+      new Range<Integer>(Integer.class, "{[1,1000000]}"),
+      Integer.valueOf(512));
+  
   /**
    * 
    */
@@ -203,4 +248,12 @@ public interface SABIORKPreferences extends KeyProvider {
   public static final OptionGroup<Date> GROUP_DATE = new OptionGroup<Date>(
       "GROUP_DATE", OPTIONS_BUNDLE, LOWEST_DATE);
   
+  /**
+   * 
+   */
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public static final OptionGroup<?> GROUP_RESPONSE_CACHE = new OptionGroup(
+    "GROUP_RESPONSE_CACHE", OPTIONS_BUNDLE, RESPONSE_CACHE,
+    RESPONSE_CACHE_MODE, RESPONSE_CACHE_TIME_TO_LIVE, RESPONSE_CACHE_SIZE);
+  
 }
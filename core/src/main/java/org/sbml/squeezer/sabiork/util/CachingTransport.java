@@ -0,0 +1,534 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.sabiork.util;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the responses of another {@link WebServiceTransport} in a local
+ * directory. Each response is stored in a compressed file whose name is the
+ * SHA-256 digest of the requested URL. Depending on the {@link Mode}, this
+ * directory serves as a cache for repeated queries, records all responses
+ * of a run, or replaces the web service entirely.
+ * <p>
+ * In {@link Mode#CACHE} mode, responses that are older than the time to live
+ * are requested again. If the directory grows beyond its maximal size, the
+ * oldest responses are removed. Responses that indicate an error are never
+ * stored. Instances of this class can be used by several threads, and so can
+ * several instances that share one directory.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class CachingTransport implements WebServiceTransport {
+  
+  /**
+   * How a {@link CachingTransport} uses its directory.
+   * 
+   * @author Andreas Dr&auml;ger
+   * @since 2.2
+   */
+  public enum Mode {
+    /**
+     * Stored responses are reused as long as they have not expired. All
+     * other queries are forwarded to the web service and their responses
+     * are stored.
+     */
+    CACHE,
+    /**
+     * All queries are forwarded to the web service and their responses are
+     * stored for a later {@link #REPLAY}.
+     */
+    RECORD,
+    /**
+     * All responses are taken from the directory, regardless of their age.
+     * Queries without a stored response fail without accessing the network.
+     */
+    REPLAY;
+  }
+  
+  /**
+   * A {@link Logger} for this class.
+   */
+  private static final transient Logger logger = Logger.getLogger(CachingTransport.class.getName());
+  
+  /**
+   * The file extension of stored responses.
+   */
+  private static final String EXTENSION = ".gz";
+  
+  /**
+   * The encoding of all stored responses.
+   */
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  
+  /**
+   * Where all responses are stored.
+   */
+  private final File directory;
+  
+  /**
+   * The {@link WebServiceTransport} that actually retrieves the responses.
+   */
+  private final WebServiceTransport transport;
+  
+  /**
+   * The number of responses taken from the {@link #directory}.
+   */
+  private long hitCount;
+  
+  /**
+   * The maximal total size of all stored responses in bytes or a value
+   * smaller than one if the size is unlimited.
+   */
+  private final long maximumSize;
+  
+  /**
+   * The number of responses that could not be taken from the
+   * {@link #directory}.
+   */
+  private long missCount;
+  
+  /**
+   * 
+   */
+  private final Mode mode;
+  
+  /**
+   * The total size of all files in the {@link #directory} or -1 if it has not
+   * yet been determined.
+   */
+  private long size;
+  
+  /**
+   * The time in milliseconds after which a stored response expires in
+   * {@link Mode#CACHE} mode or a value smaller than one if responses never
+   * expire.
+   */
+  private final long timeToLive;
+  
+  /**
+   * 
+   * @param transport
+   *        retrieves all responses that are not taken from the directory.
+   * @param directory
+   *        where the responses are stored.
+   * @param mode
+   * @param timeToLive
+   *        the time in milliseconds after which a stored response is requested
+   *        again in {@link Mode#CACHE} mode. A value smaller than one means
+   *        that stored responses never expire.
+   * @param maximumSize
+   *        the maximal total size of all stored responses in bytes. A value
+   *        smaller than one means that the size is unlimited.
+   */
+  public CachingTransport(WebServiceTransport transport, File directory,
+    Mode mode, long timeToLive, long maximumSize) {
+    this.transport = transport;
+    this.directory = directory;
+    this.mode = mode;
+    this.timeToLive = timeToLive;
+    this.maximumSize = maximumSize;
+    size = -1L;
+  }
+  
+  /**
+   * @return the directory where all responses are stored.
+   */
+  public File getDirectory() {
+    return directory;
+  }
+  
+  /**
+   * 
+   * @param url
+   * @return the file for the response to the given URL.
+   */
+  private File getFile(String url) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      StringBuilder name = new StringBuilder();
+      for (byte b : digest.digest(url.getBytes(UTF8))) {
+        name.append(Character.forDigit((b >> 4) & 0xF, 16));
+        name.append(Character.forDigit(b & 0xF, 16));
+      }
+      name.append(EXTENSION);
+      return new File(directory, name.toString());
+    } catch (NoSuchAlgorithmException exc) {
+      // Every Java platform is required to support SHA-256.
+      throw new IllegalStateException(exc);
+    }
+  }
+  
+  /**
+   * @return the number of responses that have been taken from the directory.
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+  
+  /**
+   * @return the maximal total size of all stored responses in bytes or a
+   *         value smaller than one if the size is unlimited.
+   */
+  public long getMaximumSize() {
+    return maximumSize;
+  }
+  
+  /**
+   * @return the number of responses that were not found in the directory or
+   *         that had expired.
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+  
+  /**
+   * @return the mode
+   */
+  public Mode getMode() {
+    return mode;
+  }
+  
+  /**
+   * @return the time in milliseconds after which a stored response expires in
+   *         {@link Mode#CACHE} mode or a value smaller than one if responses
+   *         never expire.
+   */
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+  
+  /* (non-Javadoc)
+   * @see org.sbml.squeezer.sabiork.util.WebServiceTransport#getResponse(java.lang.String)
+   */
+  @Override
+  public String getResponse(String url) throws WebServiceConnectException,
+  WebServiceResponseException, IOException {
+    File file = getFile(url);
+    if (mode != Mode.RECORD) {
+      String response = read(file, url);
+      if (response != null) {
+        synchronized (this) {
+          hitCount++;
+        }
+        return response;
+      }
+    }
+    miss(url);
+    String response = transport.getResponse(url);
+    evict(write(file, url, new ByteArrayInputStream(response.getBytes(UTF8))));
+    return response;
+  }
+  
+  /* (non-Javadoc)
+   * @see org.sbml.squeezer.sabiork.util.WebServiceTransport#openStream(java.lang.String)
+   */
+  @Override
+  public InputStream openStream(String url) throws WebServiceConnectException,
+  WebServiceResponseException, IOException {
+    File file = getFile(url);
+    if (mode != Mode.RECORD) {
+      InputStream in = open(file, url);
+      if (in != null) {
+        synchronized (this) {
+          hitCount++;
+        }
+        return skipNoResults(in);
+      }
+    }
+    miss(url);
+    InputStream response = transport.openStream(url);
+    long added;
+    if (response == null) {
+      added = write(file, url, new ByteArrayInputStream(NO_RESULTS.getBytes(UTF8)));
+    } else {
+      // The response is passed on to the disk without keeping it in memory.
+      try {
+        added = write(file, url, response);
+      } finally {
+        response.close();
+      }
+    }
+    // Open the response before it might be evicted again.
+    InputStream in = (response == null) ? null : open(file, url);
+    evict(added);
+    return in;
+  }
+  
+  /**
+   * Counts a query whose response is not taken from the directory.
+   * 
+   * @param url
+   * @throws WebServiceConnectException
+   *         in {@link Mode#REPLAY} mode.
+   */
+  private void miss(String url) throws WebServiceConnectException {
+    synchronized (this) {
+      missCount++;
+    }
+    if (mode == Mode.REPLAY) {
+      throw new WebServiceConnectException("No recorded response for URL: " + url);
+    }
+  }
+  
+  /**
+   * 
+   * @param file
+   * @param url
+   * @return the response that is stored in the given file without the URL or
+   *         {@code null} if there is no such file, if it belongs to a
+   *         different URL, or if it has expired.
+   * @throws IOException
+   */
+  private InputStream open(File file, String url) throws IOException {
+    if (!file.exists()) {
+      return null;
+    }
+    if ((mode == Mode.CACHE) && (timeToLive > 0L)
+        && (System.currentTimeMillis() - file.lastModified() > timeToLive)) {
+      return null;
+    }
+    InputStream in;
+    try {
+      in = new BufferedInputStream(new GZIPInputStream(new FileInputStream(file)));
+    } catch (FileNotFoundException exc) {
+      // Removed in the meantime.
+      return null;
+    }
+    // The first line holds the URL, the remainder is the response.
+    ByteArrayOutputStream line = new ByteArrayOutputStream();
+    for (int b = in.read(); b != '\n'; b = in.read()) {
+      if (b < 0) {
+        in.close();
+        return null;
+      }
+      line.write(b);
+    }
+    if (!new String(line.toByteArray(), UTF8).equals(url)) {
+      in.close();
+      return null;
+    }
+    return in;
+  }
+  
+  /**
+   * 
+   * @param file
+   * @param url
+   * @return the response that is stored in the given file or {@code null} if
+   *         there is no such file, if it belongs to a different URL, or if it
+   *         has expired.
+   * @throws IOException
+   */
+  private String read(File file, String url) throws IOException {
+    InputStream in = open(file, url);
+    if (in == null) {
+      return null;
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      byte buffer[] = new byte[8192];
+      for (int length = in.read(buffer); length >= 0; length = in.read(buffer)) {
+        bytes.write(buffer, 0, length);
+      }
+    } finally {
+      in.close();
+    }
+    return new String(bytes.toByteArray(), UTF8);
+  }
+  
+  /**
+   * 
+   * @param in
+   *        a stored response
+   * @return {@code null} if the given response is {@link #NO_RESULTS} or
+   *         the unchanged response otherwise.
+   * @throws IOException
+   */
+  private InputStream skipNoResults(InputStream in) throws IOException {
+    byte noResults[] = NO_RESULTS.getBytes(UTF8);
+    in.mark(noResults.length + 1);
+    int length = 0;
+    int b = in.read();
+    while ((b >= 0) && (length < noResults.length) && (b == noResults[length])) {
+      length++;
+      b = in.read();
+    }
+    if ((b < 0) && (length == noResults.length)) {
+      in.close();
+      return null;
+    }
+    in.reset();
+    return in;
+  }
+  
+  /**
+   * Stores the given response. The file is written completely before it
+   * becomes visible, such that concurrent readers never see partial
+   * responses.
+   * 
+   * @param file
+   * @param url
+   * @param response
+   * @return the number of bytes by which the directory has grown.
+   * @throws IOException
+   */
+  private long write(File file, String url, InputStream response) throws IOException {
+    if (!directory.exists() && !directory.mkdirs() && !directory.isDirectory()) {
+      throw new IOException("Cannot create directory " + directory.getAbsolutePath());
+    }
+    File tmp = File.createTempFile(file.getName(), ".tmp", directory);
+    try {
+      OutputStream out = new GZIPOutputStream(new FileOutputStream(tmp));
+      try {
+        out.write((url + '\n').getBytes(UTF8));
+        byte buffer[] = new byte[8192];
+        for (int length = response.read(buffer); length >= 0; length = response.read(buffer)) {
+          out.write(buffer, 0, length);
+        }
+      } finally {
+        out.close();
+      }
+      long previous = file.length();
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      return file.length() - previous;
+    } finally {
+      if (tmp.exists()) {
+        tmp.delete();
+      }
+    }
+  }
+  
+  /**
+   * Removes the oldest responses until the total size of the directory does
+   * no longer exceed the maximal size.
+   * 
+   * @param added
+   *        the number of bytes that have just been added to the directory.
+   */
+  private synchronized void evict(long added) {
+    if (maximumSize < 1L) {
+      return;
+    }
+    File files[] = null;
+    if (size < 0L) {
+      files = listFiles();
+      size = 0L;
+      for (File file : files) {
+        size += file.length();
+      }
+    } else {
+      size += added;
+    }
+    if (size <= maximumSize) {
+      return;
+    }
+    if (files == null) {
+      files = listFiles();
+    }
+    // Sorting requires stable keys, files might be touched in the meantime.
+    final long lastModified[] = new long[files.length];
+    Integer indices[] = new Integer[files.length];
+    for (int i = 0; i < files.length; i++) {
+      lastModified[i] = files[i].lastModified();
+      indices[i] = Integer.valueOf(i);
+    }
+    Arrays.sort(indices, new Comparator<Integer>() {
+      /* (non-Javadoc)
+       * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+       */
+      @Override
+      public int compare(Integer i, Integer j) {
+        return Long.compare(lastModified[i.intValue()], lastModified[j.intValue()]);
+      }
+    });
+    for (int i = 0; (i < indices.length) && (size > maximumSize); i++) {
+      File file = files[indices[i].intValue()];
+      long length = file.length();
+      if (file.delete()) {
+        size -= length;
+      } else {
+        logger.log(Level.FINE, "Cannot delete " + file.getAbsolutePath());
+      }
+    }
+  }
+  
+  /**
+   * 
+   * @return all stored responses.
+   */
+  private File[] listFiles() {
+    File files[] = directory.listFiles();
+    if (files == null) {
+      return new File[0];
+    }
+    int count = 0;
+    for (File file : files) {
+      if (file.isFile() && file.getName().endsWith(EXTENSION)) {
+        files[count++] = file;
+      }
+    }
+    return Arrays.copyOf(files, count);
+  }
+  
+  /* (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public synchronized String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("CachingTransport [directory=");
+    builder.append(directory);
+    builder.append(", mode=");
+    builder.append(mode);
+    builder.append(", hitCount=");
+    builder.append(hitCount);
+    builder.append(", missCount=");
+    builder.append(missCount);
+    builder.append(']');
+    return builder.toString();
+  }
+  
+}
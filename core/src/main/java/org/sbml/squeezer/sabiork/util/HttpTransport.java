@@ -0,0 +1,100 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.sabiork.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.NoRouteToHostException;
+import java.net.URL;
+import java.net.UnknownHostException;
+
+/**
+ * Retrieves responses of web services via HTTP.
+ * 
+ * @author Matthias Rall
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class HttpTransport implements WebServiceTransport {
+  
+  /* (non-Javadoc)
+   * @see org.sbml.squeezer.sabiork.util.WebServiceTransport#getResponse(java.lang.String)
+   */
+  @Override
+  public String getResponse(String url) throws WebServiceConnectException,
+  WebServiceResponseException, IOException {
+    InputStream resourceStream = openStream(url);
+    if (resourceStream == null) {
+      return NO_RESULTS;
+    }
+    StringBuilder resourceResponse = new StringBuilder();
+    BufferedReader resourceReader = new BufferedReader(
+      new InputStreamReader(resourceStream, "UTF-8"));
+    try {
+      for (String line = resourceReader.readLine(); line != null; line = resourceReader
+          .readLine()) {
+        resourceResponse.append(line);
+      }
+    } finally {
+      resourceReader.close();
+    }
+    return resourceResponse.toString();
+  }
+  
+  /* (non-Javadoc)
+   * @see org.sbml.squeezer.sabiork.util.WebServiceTransport#openStream(java.lang.String)
+   */
+  @Override
+  public InputStream openStream(String url) throws WebServiceConnectException,
+  WebServiceResponseException, IOException {
+    try {
+      URL resourceURL = new URL(url);
+      HttpURLConnection resourceConnection = (HttpURLConnection) resourceURL
+          .openConnection();
+      if (resourceConnection.getResponseCode() == 200) {
+        return resourceConnection.getInputStream();
+      }
+      else if (resourceConnection.getResponseCode() == 404) {
+        return null;
+      }
+      else {
+        throw new WebServiceResponseException(
+          "SABIO-RK returned HTTP response code "
+              + resourceConnection.getResponseCode()
+              + " for URL: " + resourceConnection.getURL(),
+              resourceConnection.getResponseCode());
+      }
+    } catch (UnknownHostException e) {
+      throw new WebServiceConnectException(
+        "Unable to connect to SABIO-RK.", e);
+    } catch (NoRouteToHostException e) {
+      throw new WebServiceConnectException(
+        "Unable to connect to SABIO-RK.", e);
+    }
+  }
+  
+}
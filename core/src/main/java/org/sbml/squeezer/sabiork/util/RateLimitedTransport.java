@@ -0,0 +1,176 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.sabiork.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restricts the load that is put on a web service by another
+ * {@link WebServiceTransport}. At most a fixed number of requests are
+ * processed at the same time, and subsequent requests start with a minimal
+ * delay, regardless of the number of threads that use this object.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class RateLimitedTransport implements WebServiceTransport {
+  
+  /**
+   * The minimal time between the start of two requests in nanoseconds.
+   */
+  private final long interval;
+  
+  /**
+   * The earliest time at which the next request may start, as given by
+   * {@link System#nanoTime()}.
+   */
+  private long next;
+  
+  /**
+   * Limits the number of concurrent requests.
+   */
+  private final Semaphore permits;
+  
+  /**
+   * The {@link WebServiceTransport} that actually retrieves the responses.
+   */
+  private final WebServiceTransport transport;
+  
+  /**
+   * 
+   * @param transport
+   *        retrieves the responses.
+   * @param maximumConcurrentRequests
+   *        the maximal number of requests processed at the same time.
+   * @param requestsPerSecond
+   *        the maximal number of requests that start within one second. A
+   *        value that is not positive means that there is no such limit.
+   */
+  public RateLimitedTransport(WebServiceTransport transport,
+    int maximumConcurrentRequests, double requestsPerSecond) {
+    if (maximumConcurrentRequests < 1) {
+      throw new IllegalArgumentException(Integer.toString(maximumConcurrentRequests));
+    }
+    this.transport = transport;
+    permits = new Semaphore(maximumConcurrentRequests, true);
+    interval = (requestsPerSecond > 0d) ? (long) (TimeUnit.SECONDS.toNanos(1L) / requestsPerSecond) : 0L;
+    next = System.nanoTime();
+  }
+  
+  /**
+   * Waits until the next request may start and occupies one of the permits,
+   * which has to be released after the request has been processed.
+   * 
+   * @param url
+   * @throws InterruptedIOException
+   *         if the current thread is interrupted while waiting.
+   */
+  private void acquire(String url) throws InterruptedIOException {
+    try {
+      permits.acquire();
+    } catch (InterruptedException exc) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException(url);
+    }
+    long delay;
+    synchronized (this) {
+      long now = System.nanoTime();
+      long start = Math.max(now, next);
+      next = start + interval;
+      delay = start - now;
+    }
+    if (delay > 0L) {
+      try {
+        TimeUnit.NANOSECONDS.sleep(delay);
+      } catch (InterruptedException exc) {
+        permits.release();
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException(url);
+      }
+    }
+  }
+  
+  /* (non-Javadoc)
+   * @see org.sbml.squeezer.sabiork.util.WebServiceTransport#getResponse(java.lang.String)
+   */
+  @Override
+  public String getResponse(String url) throws WebServiceConnectException,
+  WebServiceResponseException, IOException {
+    acquire(url);
+    try {
+      return transport.getResponse(url);
+    } finally {
+      permits.release();
+    }
+  }
+  
+  /* (non-Javadoc)
+   * @see org.sbml.squeezer.sabiork.util.WebServiceTransport#openStream(java.lang.String)
+   */
+  @Override
+  public InputStream openStream(String url) throws WebServiceConnectException,
+  WebServiceResponseException, IOException {
+    acquire(url);
+    InputStream in = null;
+    try {
+      in = transport.openStream(url);
+    } finally {
+      if (in == null) {
+        permits.release();
+      }
+    }
+    if (in == null) {
+      return null;
+    }
+    // The request is being processed until the response has been read.
+    return new FilterInputStream(in) {
+      
+      /**
+       * Whether the permit has already been released.
+       */
+      private boolean closed = false;
+      
+      /* (non-Javadoc)
+       * @see java.io.FilterInputStream#close()
+       */
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          if (!closed) {
+            closed = true;
+            permits.release();
+          }
+        }
+      }
+    };
+  }
+  
+}
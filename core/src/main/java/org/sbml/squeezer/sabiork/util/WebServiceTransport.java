@@ -0,0 +1,89 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.sabiork.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Retrieves the responses of the SABIO-RK web services. All queries to
+ * SABIO-RK are sent through an instance of this interface, which allows to
+ * serve them from a local store instead of the network.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public interface WebServiceTransport {
+  
+  /**
+   * The response of SABIO-RK if a query does not lead to any result.
+   */
+  public static final String NO_RESULTS = "No results found for query";
+  
+  /**
+   * Returns the direct response from the resource.
+   * 
+   * @param url
+   *            the URL of the resource
+   * @return the response from the resource or {@link #NO_RESULTS}
+   * @throws WebServiceConnectException
+   *             if the resource cannot be reached
+   * @throws WebServiceResponseException
+   *             if the resource returns an error
+   * @throws IOException
+   */
+  public String getResponse(String url) throws WebServiceConnectException,
+  WebServiceResponseException, IOException;
+  
+  /**
+   * Opens the response from the resource for reading. In contrast to
+   * {@link #getResponse(String)}, implementations should not keep the whole
+   * response in memory, such that large responses can be parsed while they
+   * are received. The caller has to close the returned stream.
+   * <p>
+   * By default, this method only wraps the result of
+   * {@link #getResponse(String)}.
+   * 
+   * @param url
+   *            the URL of the resource
+   * @return the UTF-8 encoded response from the resource or {@code null} if
+   *         the query does not lead to any result
+   * @throws WebServiceConnectException
+   *             if the resource cannot be reached
+   * @throws WebServiceResponseException
+   *             if the resource returns an error
+   * @throws IOException
+   */
+  public default InputStream openStream(String url)
+      throws WebServiceConnectException, WebServiceResponseException,
+      IOException {
+    String response = getResponse(url);
+    if (response.equals(NO_RESULTS)) {
+      return null;
+    }
+    return new ByteArrayInputStream(response.getBytes("UTF-8"));
+  }
+  
+}
@@ -23,7 +23,8 @@
  */
 package org.sbml.squeezer.sabiork.util;
 
-import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.List;
@@ -43,6 +44,134 @@ import javax.xml.stream.events.XMLEvent;
  */
 public class XMLParser {
   
+  /**
+   * Receives the text contents of XML elements one after the other while a
+   * document is parsed.
+   * 
+   * @author Andreas Dr&auml;ger
+   * @since 2.2
+   */
+  public interface XMLElementTextContentHandler {
+    
+    /**
+     * Called for each text content in the order of the document.
+     * 
+     * @param textContent
+     *            the trimmed text content of an XML element
+     * @throws XMLStreamException
+     *             to stop parsing
+     */
+    public void handle(String textContent) throws XMLStreamException;
+    
+  }
+  
+  /**
+   * 
+   * @return a factory that merges adjacent character data, which is required
+   *         to obtain the complete text content of an element.
+   */
+  private static XMLInputFactory createXMLInputFactory() {
+    XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    xmlInputFactory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+    return xmlInputFactory;
+  }
+  
+  /**
+   * Passes all text contents of a given XML element to a handler.
+   * 
+   * @param xmlEventReader
+   *            the XML document
+   * @param xmlElementQNameLocalPart
+   *            the qualified name of the XML element
+   * @param xmlElementQNameNamespaceURI
+   *            the namespace of the XML element
+   * @param handler
+   *            receives the text contents
+   * @throws XMLStreamException
+   */
+  private static void parseMultipleXMLElementTextContent(
+    XMLEventReader xmlEventReader, String xmlElementQNameLocalPart,
+    String xmlElementQNameNamespaceURI, XMLElementTextContentHandler handler)
+        throws XMLStreamException {
+    try {
+      while (xmlEventReader.hasNext()) {
+        XMLEvent xmlEvent = xmlEventReader.nextEvent();
+        if (xmlEvent.isStartElement()) {
+          StartElement startElement = xmlEvent.asStartElement();
+          String startElementQNameLocalPart = startElement.getName()
+              .getLocalPart();
+          String startElementQNameNamespaceURI = startElement.getName()
+              .getNamespaceURI();
+          if (startElementQNameLocalPart.equals(xmlElementQNameLocalPart)
+              && startElementQNameNamespaceURI
+              .equals(xmlElementQNameNamespaceURI)) {
+            xmlEvent = xmlEventReader.nextEvent();
+            if (xmlEvent.isCharacters()) {
+              Characters characters = xmlEvent.asCharacters();
+              if (!characters.isWhiteSpace()) {
+                handler.handle(characters.getData().trim());
+              }
+            }
+          }
+        }
+      }
+    } finally {
+      xmlEventReader.close();
+    }
+  }
+  
+  /**
+   * Passes all text contents of a given XML element to a handler as soon as
+   * they have been read from the stream. The document is never kept in
+   * memory completely.
+   * 
+   * @param xml
+   *            the XML document, which is not closed by this method
+   * @param xmlElementQNameLocalPart
+   *            the qualified name of the XML element
+   * @param xmlElementQNameNamespaceURI
+   *            the namespace of the XML element
+   * @param handler
+   *            receives the text contents
+   * @throws XMLStreamException
+   */
+  public static void parseMultipleXMLElementTextContent(InputStream xml,
+    String xmlElementQNameLocalPart, String xmlElementQNameNamespaceURI,
+    XMLElementTextContentHandler handler) throws XMLStreamException {
+    parseMultipleXMLElementTextContent(
+      createXMLInputFactory().createXMLEventReader(xml),
+      xmlElementQNameLocalPart, xmlElementQNameNamespaceURI, handler);
+  }
+  
+  /**
+   * Returns all text contents of a given XML element.
+   * 
+   * @param xml
+   *            the XML document, which is not closed by this method
+   * @param xmlElementQNameLocalPart
+   *            the qualified name of the XML element
+   * @param xmlElementQNameNamespaceURI
+   *            the namespace of the XML element
+   * @return a list of all text contents of the given XML element
+   * @throws XMLStreamException
+   */
+  public static List<String> getMultipleXMLElementTextContent(InputStream xml,
+    String xmlElementQNameLocalPart, String xmlElementQNameNamespaceURI)
+        throws XMLStreamException {
+    final List<String> multipleXMLElementTextContent = new ArrayList<String>();
+    parseMultipleXMLElementTextContent(xml, xmlElementQNameLocalPart,
+      xmlElementQNameNamespaceURI, new XMLElementTextContentHandler() {
+      /* (non-Javadoc)
+       * @see org.sbml.squeezer.sabiork.util.XMLParser.XMLElementTextContentHandler#handle(java.lang.String)
+       */
+      @Override
+      public void handle(String textContent) {
+        multipleXMLElementTextContent.add(textContent);
+      }
+    });
+    return multipleXMLElementTextContent;
+  }
+  
   /**
    * Returns all text contents of a given XML element.
    * 
@@ -59,33 +188,19 @@ public class XMLParser {
   public static List<String> getMultipleXMLElementTextContent(String xml,
     String xmlElementQNameLocalPart, String xmlElementQNameNamespaceURI)
         throws XMLStreamException, UnsupportedEncodingException {
-    List<String> multipleXMLElementTextContent = new ArrayList<String>();
-    XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
-    XMLEventReader xmlEventReader = xmlInputFactory
-        .createXMLEventReader(new ByteArrayInputStream(xml
-          .getBytes("UTF-8")));
-    while (xmlEventReader.hasNext()) {
-      XMLEvent xmlEvent = xmlEventReader.nextEvent();
-      if (xmlEvent.isStartElement()) {
-        StartElement startElement = xmlEvent.asStartElement();
-        String startElementQNameLocalPart = startElement.getName()
-            .getLocalPart();
-        String startElementQNameNamespaceURI = startElement.getName()
-            .getNamespaceURI();
-        if (startElementQNameLocalPart.equals(xmlElementQNameLocalPart)
-            && startElementQNameNamespaceURI
-            .equals(xmlElementQNameNamespaceURI)) {
-          xmlEvent = xmlEventReader.nextEvent();
-          if (xmlEvent.isCharacters()) {
-            Characters characters = xmlEvent.asCharacters();
-            if (!characters.isWhiteSpace()) {
-              multipleXMLElementTextContent.add(characters
-                .getData().trim());
-            }
-          }
+    final List<String> multipleXMLElementTextContent = new ArrayList<String>();
+    parseMultipleXMLElementTextContent(
+      createXMLInputFactory().createXMLEventReader(new StringReader(xml)),
+      xmlElementQNameLocalPart, xmlElementQNameNamespaceURI,
+      new XMLElementTextContentHandler() {
+        /* (non-Javadoc)
+         * @see org.sbml.squeezer.sabiork.util.XMLParser.XMLElementTextContentHandler#handle(java.lang.String)
+         */
+        @Override
+        public void handle(String textContent) {
+          multipleXMLElementTextContent.add(textContent);
         }
-      }
-    }
+      });
     return multipleXMLElementTextContent;
   }
   
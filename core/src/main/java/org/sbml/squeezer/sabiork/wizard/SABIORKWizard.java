@@ -25,14 +25,20 @@ package org.sbml.squeezer.sabiork.wizard;
 
 import java.awt.Dialog.ModalityType;
 import java.awt.Window;
+import java.io.File;
 import java.util.Set;
 
 import org.sbml.jsbml.Reaction;
 import org.sbml.jsbml.SBMLDocument;
 import org.sbml.squeezer.SubmodelController;
+import org.sbml.squeezer.sabiork.SABIORK;
+import org.sbml.squeezer.sabiork.SABIORKPreferences;
+import org.sbml.squeezer.sabiork.util.CachingTransport.Mode;
 import org.sbml.squeezer.sabiork.wizard.console.ConsoleWizard;
 import org.sbml.squeezer.sabiork.wizard.gui.JDialogWizard;
 
+import de.zbit.util.prefs.SBPreferences;
+
 /**
  * The SABIORKWizard class allows easy access to the data provided by the
  * SABIO-RK database.
@@ -43,6 +49,19 @@ import org.sbml.squeezer.sabiork.wizard.gui.JDialogWizard;
  */
 public class SABIORKWizard {
   
+  /**
+   * Lets the wizard query SABIO-RK as defined in the user's
+   * {@link SABIORKPreferences}.
+   */
+  private static void configureTransport() {
+    SBPreferences prefs = SBPreferences.getPreferencesFor(SABIORKPreferences.class);
+    SABIORK.configureTransport(
+      new File(prefs.get(SABIORKPreferences.RESPONSE_CACHE)),
+      Mode.valueOf(prefs.get(SABIORKPreferences.RESPONSE_CACHE_MODE)),
+      prefs.getInt(SABIORKPreferences.RESPONSE_CACHE_TIME_TO_LIVE),
+      prefs.getInt(SABIORKPreferences.RESPONSE_CACHE_SIZE));
+  }
+  
   /**
    * Starts the SABIO-RK wizard in GUI mode and returns the result of the
    * wizard.
@@ -57,6 +76,7 @@ public class SABIORKWizard {
    */
   public static SubmodelController getResultGUI(Window owner,
     ModalityType modalityType, SBMLDocument sbmlDocument, boolean overwriteExistingLaws) {
+    configureTransport();
     JDialogWizard dialogWizard = new JDialogWizard(owner, modalityType,
       sbmlDocument, overwriteExistingLaws);
     dialogWizard.setLocationRelativeTo(owner);
@@ -119,6 +139,7 @@ public class SABIORKWizard {
    */
   public static SubmodelController getResultGUI(Window owner,
     ModalityType modalityType, SBMLDocument sbmlDocument, String reactionId) {
+    configureTransport();
     JDialogWizard dialogWizard = new JDialogWizard(owner, modalityType,
       sbmlDocument, reactionId);
     dialogWizard.setLocationRelativeTo(owner);
@@ -38,6 +38,7 @@ import org.sbml.squeezer.sabiork.SABIORK;
 import org.sbml.squeezer.sabiork.SABIORK.QueryField;
 import org.sbml.squeezer.sabiork.util.WebServiceConnectException;
 import org.sbml.squeezer.sabiork.util.WebServiceResponseException;
+import org.sbml.squeezer.sabiork.wizard.model.CVTermIndex;
 import org.sbml.squeezer.sabiork.wizard.model.KineticLawImporter;
 import org.sbml.squeezer.sabiork.wizard.model.WizardModel;
 
@@ -221,59 +222,73 @@ public class ConsoleWizard {
         /**
          * Search for Kinetic Laws
          */
-        List<SearchAResult> searchAResults = new ArrayList<SearchAResult>();
-        System.out.println("Reaction ID [ Num. of possible kinetic importers| Num. of impossible kinetic importers | " +
-                "Num. of total kinetic Importers]");
+        List<String> queries = new ArrayList<String>(selectedReactions.size());
         for (Reaction selectedReaction : selectedReactions) {
-            List<KineticLawImporter> possibleKineticLawImporters = new ArrayList<KineticLawImporter>();
-            List<KineticLawImporter> impossibleKineticLawImporters = new ArrayList<KineticLawImporter>();
-            List<KineticLawImporter> totalKineticLawImporters = new ArrayList<KineticLawImporter>();
+            String query = null;
             HashMap<SABIORK.QueryField, List<String>> reactionIDs = model.getReactionIDs(selectedReaction);
             if (!reactionIDs.isEmpty()) {
-                StringBuilder query = new StringBuilder("");
+                StringBuilder queryBuilder = new StringBuilder("");
                 for (Map.Entry<SABIORK.QueryField, List<String>> entry : reactionIDs.entrySet()) {
                     for (String id : entry.getValue()) {
-                        if (query.length() == 0) {
-                            query.append("( " + entry.getKey() + ":" + id);
+                        if (queryBuilder.length() == 0) {
+                            queryBuilder.append("( " + entry.getKey() + ":" + id);
                         } else {
-                            query.append(" OR " + entry.getKey() + ":" + id);
+                            queryBuilder.append(" OR " + entry.getKey() + ":" + id);
                         }
                     }
                 }
-                if(query.length() > 0) {
-                    query.append(" )");
+                if(queryBuilder.length() > 0) {
+                    queryBuilder.append(" )");
                 }
                 if (!searchTermsQuery.isEmpty()) {
-                    query.append(" AND " + searchTermsQuery);
-                }
-                query.append(filterOptionsQuery);
-                List<KineticLaw> kineticLaws = new ArrayList<>();
-                try {
-                    kineticLaws = SABIORK.getKineticLaws(query.toString());
-                } catch (WebServiceConnectException e) {
-                    System.err.println(e.getMessage());
-                    return changedReactions;
-                } catch (WebServiceResponseException e) {
-                    System.err.println(e.getMessage());
-                    return changedReactions;
-                } catch (IOException e) {
-                    System.err.println(e.getMessage());
-                    return changedReactions;
-                } catch (XMLStreamException e) {
-                    System.err.println(e.getMessage());
-                    return changedReactions;
+                    queryBuilder.append(" AND " + searchTermsQuery);
                 }
-                for (KineticLaw kineticLaw : kineticLaws) {
-                    if (kineticLaw != null) {
-                        KineticLawImporter kineticLawImporter = new KineticLawImporter(
-                                kineticLaw, selectedReaction);
-                        totalKineticLawImporters.add(kineticLawImporter);
-                        if (kineticLawImporter.isImportableKineticLaw()) {
-                            possibleKineticLawImporters.add(kineticLawImporter);
-                        } else {
-                            impossibleKineticLawImporters
-                                    .add(kineticLawImporter);
-                        }
+                queryBuilder.append(filterOptionsQuery);
+                query = queryBuilder.toString();
+            }
+            queries.add(query);
+        }
+        // Entry ids are requested per reaction, the kinetic laws all together.
+        List<List<KineticLaw>> kineticLaws;
+        try {
+            kineticLaws = SABIORK.getKineticLawsForQueries(queries);
+        } catch (WebServiceConnectException e) {
+            System.err.println(e.getMessage());
+            return changedReactions;
+        } catch (WebServiceResponseException e) {
+            System.err.println(e.getMessage());
+            return changedReactions;
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return changedReactions;
+        } catch (XMLStreamException e) {
+            System.err.println(e.getMessage());
+            return changedReactions;
+        }
+
+        List<SearchAResult> searchAResults = new ArrayList<SearchAResult>();
+        System.out.println("Reaction ID [ Num. of possible kinetic importers| Num. of impossible kinetic importers | " +
+                "Num. of total kinetic Importers]");
+        CVTermIndex cvTermIndex = null;
+        for (int i = 0; i < selectedReactions.size(); i++) {
+            Reaction selectedReaction = selectedReactions.get(i);
+            List<KineticLawImporter> possibleKineticLawImporters = new ArrayList<KineticLawImporter>();
+            List<KineticLawImporter> impossibleKineticLawImporters = new ArrayList<KineticLawImporter>();
+            List<KineticLawImporter> totalKineticLawImporters = new ArrayList<KineticLawImporter>();
+            for (KineticLaw kineticLaw : kineticLaws.get(i)) {
+                if (kineticLaw != null) {
+                    if (cvTermIndex == null) {
+                        // All reactions belong to the same model.
+                        cvTermIndex = new CVTermIndex(selectedReaction.getModel());
+                    }
+                    KineticLawImporter kineticLawImporter = new KineticLawImporter(
+                            kineticLaw, selectedReaction, cvTermIndex);
+                    totalKineticLawImporters.add(kineticLawImporter);
+                    if (kineticLawImporter.isImportableKineticLaw()) {
+                        possibleKineticLawImporters.add(kineticLawImporter);
+                    } else {
+                        impossibleKineticLawImporters
+                                .add(kineticLawImporter);
                     }
                 }
             }
@@ -52,6 +52,7 @@ import org.sbml.squeezer.sabiork.util.WebServiceResponseException;
 import org.sbml.squeezer.sabiork.wizard.gui.JDialogWizard.ButtonState;
 import org.sbml.squeezer.sabiork.wizard.gui.JDialogWizard.CardID;
 import org.sbml.squeezer.sabiork.wizard.gui.TableModelSearchAResults.SearchAResult;
+import org.sbml.squeezer.sabiork.wizard.model.CVTermIndex;
 import org.sbml.squeezer.sabiork.wizard.model.KineticLawImporter;
 import org.sbml.squeezer.sabiork.wizard.model.WizardModel;
 import org.sbml.squeezer.sabiork.wizard.model.WizardProperties;
@@ -308,11 +309,14 @@ PropertyChangeListener {
     protected Void doInBackground() {
       List<Reaction> selectedReactions = model.getSelectedReactions();
       int selectedReactionCount = selectedReactions.size();
+      /*
+       * First, only the entry ids are requested for each reaction, the
+       * kinetic laws of all reactions are then retrieved together.
+       */
+      List<List<Integer>> ids = new ArrayList<List<Integer>>(selectedReactionCount);
       for (int i = 0; i < selectedReactionCount; i++) {
         Reaction selectedReaction = selectedReactions.get(i);
-        List<KineticLawImporter> possibleKineticLawImporters = new ArrayList<KineticLawImporter>();
-        List<KineticLawImporter> impossibleKineticLawImporters = new ArrayList<KineticLawImporter>();
-        List<KineticLawImporter> totalKineticLawImporters = new ArrayList<KineticLawImporter>();
+        List<Integer> idsOfReaction = new ArrayList<Integer>();
         HashMap<SABIORK.QueryField, List<String>> reactionIDs = model.getReactionIDs(selectedReaction);
 
         if(!reactionIDs.isEmpty()) {
@@ -334,19 +338,7 @@ PropertyChangeListener {
           query.append(filterOptionsQuery);
           //System.out.println("Query: " + query);
           try {
-            List<KineticLaw> kineticLaws = SABIORK.getKineticLaws(query.toString());
-            for (KineticLaw kineticLaw : kineticLaws) {
-              if (kineticLaw != null) {
-                KineticLawImporter kineticLawImporter = new KineticLawImporter(
-                        kineticLaw, selectedReaction);
-                totalKineticLawImporters.add(kineticLawImporter);
-                if (kineticLawImporter.isImportableKineticLaw()) {
-                  possibleKineticLawImporters.add(kineticLawImporter);
-                } else {
-                  impossibleKineticLawImporters.add(kineticLawImporter);
-                }
-              }
-            }
+            idsOfReaction = SABIORK.getIDs(query.toString());
           } catch (WebServiceConnectException e) {
             JDialogWizard.showErrorDialog(e);
             e.printStackTrace();
@@ -359,11 +351,57 @@ PropertyChangeListener {
             e.printStackTrace();
           }
         }
+        ids.add(idsOfReaction);
+        if (isCancelled()) {
+          return null;
+        }
+        setProgress(Math.round((i + 1f) / selectedReactionCount * 50f));
+      }
+
+      List<List<KineticLaw>> kineticLaws = null;
+      try {
+        kineticLaws = SABIORK.getKineticLawsForIDs(ids, null);
+      } catch (WebServiceConnectException e) {
+        JDialogWizard.showErrorDialog(e);
+        e.printStackTrace();
+      } catch (WebServiceResponseException e) {
+        JDialogWizard.showErrorDialog(e);
+        e.printStackTrace();
+      } catch (IOException e) {
+        e.printStackTrace();
+      } catch (XMLStreamException e) {
+        e.printStackTrace();
+      }
+
+      CVTermIndex cvTermIndex = null;
+      for (int i = 0; i < selectedReactionCount; i++) {
+        Reaction selectedReaction = selectedReactions.get(i);
+        List<KineticLawImporter> possibleKineticLawImporters = new ArrayList<KineticLawImporter>();
+        List<KineticLawImporter> impossibleKineticLawImporters = new ArrayList<KineticLawImporter>();
+        List<KineticLawImporter> totalKineticLawImporters = new ArrayList<KineticLawImporter>();
+        if (kineticLaws != null) {
+          for (KineticLaw kineticLaw : kineticLaws.get(i)) {
+            if (kineticLaw != null) {
+              if (cvTermIndex == null) {
+                // All reactions belong to the same model.
+                cvTermIndex = new CVTermIndex(selectedReaction.getModel());
+              }
+              KineticLawImporter kineticLawImporter = new KineticLawImporter(
+                      kineticLaw, selectedReaction, cvTermIndex);
+              totalKineticLawImporters.add(kineticLawImporter);
+              if (kineticLawImporter.isImportableKineticLaw()) {
+                possibleKineticLawImporters.add(kineticLawImporter);
+              } else {
+                impossibleKineticLawImporters.add(kineticLawImporter);
+              }
+            }
+          }
+        }
         if (!isCancelled()) {
           publish(tableResultsModel.createSearchAResult(selectedReaction,
                   possibleKineticLawImporters, impossibleKineticLawImporters,
                   totalKineticLawImporters));
-          setProgress(Math.round((i + 1f) / selectedReactionCount * 100f));
+          setProgress(Math.round(50f + (i + 1f) / selectedReactionCount * 50f));
         } else {
           break;
         }
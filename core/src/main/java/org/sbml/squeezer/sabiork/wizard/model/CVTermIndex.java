@@ -0,0 +1,197 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.sabiork.wizard.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sbml.jsbml.CVTerm;
+import org.sbml.jsbml.CVTerm.Qualifier;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.SBase;
+import org.sbml.jsbml.util.filters.CVTermFilter;
+
+/**
+ * Maps the resources of the controlled vocabulary terms of all compartments,
+ * species and reactions in a {@link Model} to these components. A
+ * {@link KineticLawImporter} uses this index to find the components that
+ * match a component of the imported {@link org.sbml.jsbml.KineticLaw} with a
+ * single lookup per resource. Since building the index requires a pass
+ * through the whole {@link Model}, it should be created only once and be
+ * shared by all importers into the same {@link Model}. The index does not
+ * notice later changes of the annotations in the {@link Model}.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class CVTermIndex {
+  
+  /**
+   * The qualifiers whose resources are indexed.
+   */
+  private static final Qualifier QUALIFIERS[] = {Qualifier.BQB_IS, Qualifier.BQB_HAS_VERSION};
+  
+  /**
+   * Returns all cvterm resources of a given component with regard to the
+   * specified qualifier.
+   * 
+   * @param qualifier
+   * @param component
+   * @return the resources of all cvterms of the component with the given
+   *         qualifier
+   */
+  public static List<String> getCVTermResources(Qualifier qualifier, SBase component) {
+    List<String> cvTermResources = new ArrayList<String>();
+    CVTermFilter cvTermFilter = new CVTermFilter(qualifier);
+    for (CVTerm cvTerm : component.getCVTerms()) {
+      if (cvTermFilter.accepts(cvTerm)) {
+        cvTermResources.addAll(cvTerm.getResources());
+      }
+    }
+    return cvTermResources;
+  }
+  
+  /**
+   * For each indexed qualifier, the components by resource.
+   */
+  private final Map<Qualifier, Map<String, List<SBase>>> components;
+  
+  /**
+   * The indexed {@link Model}.
+   */
+  private final Model model;
+  
+  /**
+   * 
+   * @param model
+   *        the {@link Model} whose components are to be indexed.
+   */
+  public CVTermIndex(Model model) {
+    this(model, true);
+  }
+  
+  /**
+   * 
+   * @param model
+   * @param indexModel
+   *        whether to index all components of the {@link Model}
+   */
+  private CVTermIndex(Model model, boolean indexModel) {
+    this.model = model;
+    components = new EnumMap<Qualifier, Map<String, List<SBase>>>(Qualifier.class);
+    for (Qualifier qualifier : QUALIFIERS) {
+      components.put(qualifier, new HashMap<String, List<SBase>>());
+    }
+    if (!indexModel) {
+      return;
+    }
+    if (model.isSetListOfCompartments()) {
+      addAll(model.getListOfCompartments());
+    }
+    if (model.isSetListOfSpecies()) {
+      addAll(model.getListOfSpecies());
+    }
+    if (model.isSetListOfReactions()) {
+      addAll(model.getListOfReactions());
+    }
+  }
+  
+  /**
+   * Creates an index of some selected components only.
+   * 
+   * @param model
+   *        the {@link Model} of the components
+   * @param components
+   *        the components to be indexed.
+   */
+  CVTermIndex(Model model, Collection<? extends SBase> components) {
+    this(model, false);
+    addAll(components);
+  }
+  
+  /**
+   * 
+   * @param components
+   */
+  private void addAll(Collection<? extends SBase> components) {
+    for (SBase component : components) {
+      add(component);
+    }
+  }
+  
+  /**
+   * 
+   * @param component
+   */
+  private void add(SBase component) {
+    if (component.getCVTermCount() == 0) {
+      return;
+    }
+    for (Qualifier qualifier : QUALIFIERS) {
+      Map<String, List<SBase>> index = components.get(qualifier);
+      for (String resource : getCVTermResources(qualifier, component)) {
+        List<SBase> list = index.get(resource);
+        if (list == null) {
+          list = new ArrayList<SBase>(1);
+          index.put(resource, list);
+        }
+        list.add(component);
+      }
+    }
+  }
+  
+  /**
+   * 
+   * @param qualifier
+   *        either {@link Qualifier#BQB_IS} or
+   *        {@link Qualifier#BQB_HAS_VERSION}
+   * @param resource
+   * @return all components in the {@link Model} that are annotated with the
+   *         given resource and qualifier in the order of the {@link Model}.
+   */
+  public List<SBase> getComponents(Qualifier qualifier, String resource) {
+    Map<String, List<SBase>> index = components.get(qualifier);
+    if (index == null) {
+      throw new IllegalArgumentException(qualifier.toString());
+    }
+    List<SBase> list = index.get(resource);
+    if (list == null) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(list);
+  }
+  
+  /**
+   * @return the indexed {@link Model}
+   */
+  public Model getModel() {
+    return model;
+  }
+  
+}
@@ -24,10 +24,14 @@
 package org.sbml.squeezer.sabiork.wizard.model;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 import org.sbml.jsbml.ASTNode;
 import org.sbml.jsbml.CVTerm;
 import org.sbml.jsbml.CVTerm.Qualifier;
@@ -73,6 +77,7 @@ public class KineticLawImporter {
   private HashSet<SpeciesReference> referenceableSpeciesReferences;
   private HashMap<CallableSBase, CallableSBase> matches;
   private StringBuilder report;
+  private CVTermIndex cvTermIndex;
   
   /**
    * 
@@ -80,8 +85,26 @@ public class KineticLawImporter {
    * @param reaction
    */
   public KineticLawImporter(KineticLaw kineticLaw, Reaction reaction) {
+    this(kineticLaw, reaction, null);
+  }
+  
+  /**
+   * 
+   * @param kineticLaw
+   * @param reaction
+   * @param cvTermIndex
+   *        the index of the {@link Model} of the {@link Reaction}, which can
+   *        be shared by all importers into this {@link Model}, or
+   *        {@code null} to index only the components of the {@link Reaction}
+   */
+  public KineticLawImporter(KineticLaw kineticLaw, Reaction reaction,
+    CVTermIndex cvTermIndex) {
+    if ((cvTermIndex != null) && (cvTermIndex.getModel() != reaction.getModel())) {
+      throw new IllegalArgumentException("The index does not belong to the model of reaction " + reaction.getId());
+    }
     this.kineticLaw = kineticLaw;
     this.reaction = reaction;
+    this.cvTermIndex = cvTermIndex;
     reactionModel = reaction.getModel();
     referencedCompartments = new HashSet<Compartment>();
     referencedFunctionDefinitions = new HashSet<FunctionDefinition>();
@@ -92,7 +115,6 @@ public class KineticLawImporter {
     referencedSpeciesReferences = new HashSet<SpeciesReference>();
     referencedUnitDefinitions = new HashSet<UnitDefinition>();
     referenceableCompartments = new HashSet<Compartment>();
-    referenceableReactions = new HashSet<Reaction>();
     referenceableSpecies = new HashSet<Species>();
     referenceableSpeciesReferences = new HashSet<SpeciesReference>();
     matches = new HashMap<CallableSBase, CallableSBase>();
@@ -106,6 +128,15 @@ public class KineticLawImporter {
   private void initialize() {
     addReferencedComponents();
     addReferenceableComponents();
+    if (cvTermIndex == null) {
+      List<SBase> components = new ArrayList<SBase>();
+      components.addAll(referenceableCompartments);
+      components.addAll(referenceableSpecies);
+      if (!referencedReactions.isEmpty()) {
+        components.addAll(getReferenceableReactions());
+      }
+      cvTermIndex = new CVTermIndex(reactionModel, components);
+    }
     addMatches();
   }
   
@@ -166,9 +197,7 @@ public class KineticLawImporter {
    * Adds all referenceable components of the given {@link Reaction}
    */
   private void addReferenceableComponents() {
-    if (reactionModel.isSetListOfReactions()) {
-      referenceableReactions.addAll(reactionModel.getListOfReactions());
-    }
+    // The reactions are only collected on demand, see getReferenceableReactions().
     if (reactionModel.isSetListOfSpecies()) {
       for (Species species : reactionModel.getListOfSpecies()) {
         if (reaction.hasReactant(species) || reaction.hasModifier(species)
@@ -207,131 +236,112 @@ public class KineticLawImporter {
       matches.put(referencedSpeciesReference, null);
     }
     for (Compartment referencedCompartment : referencedCompartments) {
-      for (Compartment referenceableCompartment : referenceableCompartments) {
-        if (isMatch(referencedCompartment, referenceableCompartment)) {
-          matches.put(referencedCompartment, referenceableCompartment);
-          break;
-        }
+      Compartment match = null;
+      if (referenceableCompartments.size() == 1) {
+        match = referenceableCompartments.iterator().next();
+      } else {
+        match = getFirstMatch(getCandidates(Qualifier.BQB_IS,
+          referencedCompartment, Qualifier.BQB_IS), referenceableCompartments);
+      }
+      if (match != null) {
+        matches.put(referencedCompartment, match);
       }
     }
     for (Reaction referencedReaction : referencedReactions) {
-      for (Reaction referenceableReaction : referenceableReactions) {
-        if (isMatch(referencedReaction, referenceableReaction)) {
-          matches.put(referencedReaction, referenceableReaction);
-          break;
+      Set<SBase> candidates = getCandidates(Qualifier.BQB_IS,
+        referencedReaction, Qualifier.BQB_IS);
+      // Components of other types may share the same resources.
+      for (Iterator<SBase> iterator = candidates.iterator(); iterator.hasNext();) {
+        if (!(iterator.next() instanceof Reaction)) {
+          iterator.remove();
         }
       }
+      Reaction match = null;
+      if (candidates.size() == 1) {
+        // All reactions of the model are referenceable.
+        match = (Reaction) candidates.iterator().next();
+      } else {
+        match = getFirstMatch(candidates, getReferenceableReactions());
+      }
+      if (match != null) {
+        matches.put(referencedReaction, match);
+      }
     }
     for (Species referencedSpecie : referencedSpecies) {
-      for (Species referenceableSpecie : referenceableSpecies) {
-        if (isMatch(referencedSpecie, referenceableSpecie)) {
-          matches.put(referencedSpecie, referenceableSpecie);
-          break;
-        }
+      Species match = getFirstMatch(getCandidates(referencedSpecie),
+        referenceableSpecies);
+      if (match != null) {
+        matches.put(referencedSpecie, match);
       }
     }
     for (SpeciesReference referencedSpeciesReference : referencedSpeciesReferences) {
-      for (SpeciesReference referenceableSpeciesReference : referenceableSpeciesReferences) {
-        if (isMatch(referencedSpeciesReference, referenceableSpeciesReference)) {
-          matches.put(referencedSpeciesReference, referenceableSpeciesReference);
-          break;
+      if (referencedSpeciesReference.isSetSpeciesInstance()) {
+        Set<SBase> candidates = getCandidates(referencedSpeciesReference.getSpeciesInstance());
+        for (SpeciesReference referenceableSpeciesReference : referenceableSpeciesReferences) {
+          if (referenceableSpeciesReference.isSetSpeciesInstance()
+              && candidates.contains(referenceableSpeciesReference.getSpeciesInstance())) {
+            matches.put(referencedSpeciesReference, referenceableSpeciesReference);
+            break;
+          }
         }
       }
     }
   }
   
   /**
-   * Returns all cvterm resources of a given component with regard to the
-   * specified qualifier.
-   * 
-   * @param qualifier
-   * @param component
-   * @return
-   */
-  private List<String> getCVTermResources(Qualifier qualifier, SBase component) {
-    List<String> cvTermResources = new ArrayList<String>();
-    CVTermFilter cvTermFilter = new CVTermFilter(qualifier);
-    for (CVTerm cvTerm : component.getCVTerms()) {
-      if (cvTermFilter.accepts(cvTerm)) {
-        cvTermResources.addAll(cvTerm.getResources());
-      }
-    }
-    return cvTermResources;
-  }
-  
-  /**
-   * Returns {@code true} if at least one cvterm resource of component1 and
-   * component2 is equal with regard to the specified qualifier .
+   * Returns all components of the {@link Model} that share at least one
+   * cvterm resource with the given component.
    * 
-   * @param qualifier1
-   * @param component1
-   * @param qualifier2
-   * @param component2
-   * @return
+   * @param referencedQualifier
+   *        the qualifier of the resources of the given component
+   * @param referencedComponent
+   * @param referenceableQualifier
+   *        the qualifier of the resources of the components in the
+   *        {@link Model}
+   * @return the matching components of the {@link Model}
    */
-  private boolean hasCommonCVTermResource(Qualifier qualifier1,
-    SBase component1, Qualifier qualifier2, SBase component2) {
-    boolean hasCommonCVTermResource = false;
-    List<String> cvTermResources1 = getCVTermResources(qualifier1, component1);
-    List<String> cvTermResources2 = getCVTermResources(qualifier2, component2);
-    for (String cvTermResource1 : cvTermResources1) {
-      if (cvTermResources2.contains(cvTermResource1)) {
-        hasCommonCVTermResource = true;
-        break;
-      }
+  private Set<SBase> getCandidates(Qualifier referencedQualifier,
+    SBase referencedComponent, Qualifier referenceableQualifier) {
+    Set<SBase> candidates = Collections.newSetFromMap(new IdentityHashMap<SBase, Boolean>());
+    for (String cvTermResource : CVTermIndex.getCVTermResources(
+      referencedQualifier, referencedComponent)) {
+      candidates.addAll(cvTermIndex.getComponents(referenceableQualifier,
+        cvTermResource));
     }
-    return hasCommonCVTermResource;
-  }
-  
-  /**
-   * @param compartment1
-   * @param compartment2
-   * @return {@code true} if both {@link Compartment} can be considered a
-   * match.
-   */
-  private boolean isMatch(Compartment compartment1, Compartment compartment2) {
-    return (hasCommonCVTermResource(Qualifier.BQB_IS, compartment1,
-      Qualifier.BQB_IS, compartment2) || referenceableCompartments.size() == 1);
-  }
-  
-  /**
-   * @param reaction1
-   * @param reaction2
-   * @return {@code true} if both {@link Reaction} can be considered a match.
-   */
-  private boolean isMatch(Reaction reaction1, Reaction reaction2) {
-    return hasCommonCVTermResource(Qualifier.BQB_IS, reaction1,
-      Qualifier.BQB_IS, reaction2);
+    return candidates;
   }
   
   /**
-   * @param species1
-   * @param species2
-   * @return {@code true} if both {@link Species} can be considered a match.
+   * @param species
+   * @return all {@link Species} of the {@link Model} that can be considered
+   *         a match of the given {@link Species}.
    */
-  private boolean isMatch(Species species1, Species species2) {
-    return (hasCommonCVTermResource(Qualifier.BQB_IS, species1,
-      Qualifier.BQB_IS, species2)
-      || hasCommonCVTermResource(Qualifier.BQB_HAS_VERSION, species1,
-        Qualifier.BQB_IS, species2) || hasCommonCVTermResource(
-          Qualifier.BQB_IS, species1, Qualifier.BQB_HAS_VERSION, species2));
+  private Set<SBase> getCandidates(Species species) {
+    Set<SBase> candidates = getCandidates(Qualifier.BQB_IS, species,
+      Qualifier.BQB_IS);
+    candidates.addAll(getCandidates(Qualifier.BQB_HAS_VERSION, species,
+      Qualifier.BQB_IS));
+    candidates.addAll(getCandidates(Qualifier.BQB_IS, species,
+      Qualifier.BQB_HAS_VERSION));
+    return candidates;
   }
   
   /**
-   * @param speciesReference1
-   * @param speciesReference2
-   * @return {@code true} if both {@link SpeciesReference} can be considered a
-   * match.
+   * @param candidates
+   * @param referenceableComponents
+   * @return the first referenceable component that is among the candidates
+   *         or {@code null}.
    */
-  private boolean isMatch(SpeciesReference speciesReference1,
-    SpeciesReference speciesReference2) {
-    if (speciesReference1.isSetSpeciesInstance()
-        && speciesReference2.isSetSpeciesInstance()) {
-      return isMatch(speciesReference1.getSpeciesInstance(),
-        speciesReference2.getSpeciesInstance());
-    } else {
-      return false;
+  private <T extends SBase> T getFirstMatch(Set<SBase> candidates,
+    Set<T> referenceableComponents) {
+    if (!candidates.isEmpty()) {
+      for (T referenceableComponent : referenceableComponents) {
+        if (candidates.contains(referenceableComponent)) {
+          return referenceableComponent;
+        }
+      }
     }
+    return null;
   }
   
   /**
@@ -347,7 +357,7 @@ public class KineticLawImporter {
       matches.put(referencedComponent, referenceableComponent);
     }
     if (referencedReactions.contains(referencedComponent)
-        && referenceableReactions.contains(referenceableComponent)) {
+        && getReferenceableReactions().contains(referenceableComponent)) {
       matches.put(referencedComponent, referenceableComponent);
     }
     if (referencedSpecies.contains(referencedComponent)
@@ -711,10 +721,18 @@ public class KineticLawImporter {
   }
   
   /**
+   * Since all {@link Reaction}s of the {@link Model} can be referenced, this
+   * set is only created when it is needed for the first time.
    * 
    * @return
    */
   public HashSet<Reaction> getReferenceableReactions() {
+    if (referenceableReactions == null) {
+      referenceableReactions = new HashSet<Reaction>();
+      if (reactionModel.isSetListOfReactions()) {
+        referenceableReactions.addAll(reactionModel.getListOfReactions());
+      }
+    }
     return referenceableReactions;
   }
   
@@ -796,7 +814,7 @@ public class KineticLawImporter {
     System.out.println("Reaction Model: " + reactionModel);
     System.out.println("Referenceable Compartments: "
         + referenceableCompartments);
-    System.out.println("Referenceable Reactions: " + referenceableReactions);
+    System.out.println("Referenceable Reactions: " + getReferenceableReactions());
     System.out.println("Referenceable Species: " + referenceableSpecies);
     System.out.println("Referenceable SpeciesReferences: "
         + referenceableSpeciesReferences);
@@ -0,0 +1,83 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.util;
+
+import java.util.ResourceBundle;
+import java.util.concurrent.CancellationException;
+
+import de.zbit.util.ResourceManager;
+
+/**
+ * Supports the cooperative cancellation of long-running operations. A thread
+ * is asked to stop by interrupting it, for instance, through
+ * {@link java.util.concurrent.Future#cancel(boolean)}. Such operations call
+ * {@link #checkpoint()} at points where they can stop without leaving the
+ * original model in an inconsistent state.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public final class Cancellation {
+  
+  /**
+   * Localization support.
+   */
+  public static final transient ResourceBundle MESSAGES = ResourceManager.getBundle(Bundles.MESSAGES);
+  
+  /**
+   * 
+   */
+  private Cancellation() {
+  }
+  
+  /**
+   * Stops the current operation if the current thread has been interrupted.
+   * The interrupted status of the thread remains set, such that all callers
+   * can see that the operation has been cancelled.
+   * 
+   * @throws CancellationException
+   *         if the current thread has been interrupted.
+   */
+  public static void checkpoint() {
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException(MESSAGES.getString("OPERATION_CANCELLED"));
+    }
+  }
+  
+  /**
+   * 
+   * @param exc
+   *        an exception thrown while waiting for another thread.
+   * @return an exception that reports the cancellation of the current
+   *         operation, the interrupted status of the current thread is set
+   *         again.
+   */
+  public static CancellationException cancelled(InterruptedException exc) {
+    Thread.currentThread().interrupt();
+    CancellationException cancellation = new CancellationException(MESSAGES.getString("OPERATION_CANCELLED"));
+    cancellation.initCause(exc);
+    return cancellation;
+  }
+  
+}
@@ -24,15 +24,52 @@
 package org.sbml.squeezer.util;
 
 import java.beans.PropertyChangeEvent;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.swing.tree.TreeNode;
+
+import org.sbml.jsbml.ASTNode;
+import org.sbml.jsbml.Assignment;
+import org.sbml.jsbml.Compartment;
+import org.sbml.jsbml.InitialAssignment;
+import org.sbml.jsbml.KineticLaw;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.Parameter;
+import org.sbml.jsbml.Reaction;
+import org.sbml.jsbml.Rule;
+import org.sbml.jsbml.SimpleSpeciesReference;
+import org.sbml.jsbml.Species;
+import org.sbml.jsbml.UnitDefinition;
+import org.sbml.jsbml.util.TreeNodeChangeEvent;
 import org.sbml.jsbml.util.TreeNodeChangeListener;
 import org.sbml.jsbml.util.TreeNodeRemovedEvent;
 
 
 /**
+ * A journal of all changes of a {@link Model} that are relevant for the
+ * creation of kinetic equations. It records the identifiers of changed
+ * reactions, species, compartments and global parameters, where changes of
+ * the reactants, products and modifiers of a reaction count as changes of this
+ * reaction. Changes of rules and initial assignments count as changes of
+ * their variables.
+ * Changes of unit definitions or of the units of the model affect all
+ * reactions. Kinetic laws are the result of SBMLsqueezer and therefore not
+ * recorded, except for the removal of a kinetic law, which counts as a change
+ * of its reaction.
+ * <p>
+ * The journal is attached to a {@link Model} with {@link #attach(Model)}.
+ * It is {@link #isValid() valid} after it has been
+ * {@link #reset(String) reset} at the end of a generation of kinetic laws,
+ * and then tells which reactions have to be created again, see
+ * {@link #getAffectedReactions()}. All events are also logged at level
+ * {@link Level#FINE}.
+ * 
  * @author Andreas Dr&auml;ger
  *
  * @since 2.0
@@ -42,13 +79,333 @@ public class ModelChangeListener implements TreeNodeChangeListener {
   /**
    * A {@link Logger} for this class.
    */
-  private Logger logger = Logger.getLogger(ModelChangeListener.class.getName());
+  private static final transient Logger logger = Logger.getLogger(ModelChangeListener.class.getName());
+  
+  /**
+   * The key under which a journal is stored as user object of its
+   * {@link Model}.
+   */
+  private static final String USER_OBJECT_KEY = ModelChangeListener.class.getName();
+  
+  /**
+   * The model whose changes are recorded or {@code null}.
+   */
+  private Model model;
+  
+  /**
+   * The identifiers of changed reactions.
+   */
+  private final Set<String> reactions;
+  
+  /**
+   * The identifiers of changed species.
+   */
+  private final Set<String> species;
+  
+  /**
+   * The identifiers of changed compartments.
+   */
+  private final Set<String> compartments;
+  
+  /**
+   * The identifiers of changed global parameters and of all variables whose
+   * rules or initial assignments have been changed.
+   */
+  private final Set<String> parameters;
+  
+  /**
+   * Whether all reactions are affected by the recorded changes.
+   */
+  private boolean global;
+  
+  /**
+   * Whether changes are currently not recorded.
+   */
+  private boolean paused;
+  
+  /**
+   * The settings of the last generation of kinetic laws or {@code null} if
+   * this journal has not been reset yet.
+   */
+  private String settings;
   
   /**
    * 
    */
   public ModelChangeListener() {
     super();
+    reactions = new HashSet<String>();
+    species = new HashSet<String>();
+    compartments = new HashSet<String>();
+    parameters = new HashSet<String>();
+  }
+  
+  /**
+   * 
+   * @param model
+   * @return the journal that has been attached to the given {@link Model} or
+   *         {@code null} if there is none.
+   */
+  public static ModelChangeListener getJournal(Model model) {
+    Object journal = model.getUserObject(USER_OBJECT_KEY);
+    if ((journal instanceof ModelChangeListener)
+        && (((ModelChangeListener) journal).model == model)) {
+      return (ModelChangeListener) journal;
+    }
+    return null;
+  }
+  
+  /**
+   * Attaches a new journal to the given {@link Model} unless it already has
+   * one. A new journal is not valid until it has been reset.
+   * 
+   * @param model
+   * @return the journal of the given {@link Model}
+   */
+  public static ModelChangeListener attach(Model model) {
+    ModelChangeListener journal = getJournal(model);
+    if (journal == null) {
+      journal = new ModelChangeListener();
+      journal.model = model;
+      model.addTreeNodeChangeListener(journal);
+      // A copy of the model would also copy this entry, hence the check in getJournal.
+      model.putUserObject(USER_OBJECT_KEY, journal);
+    }
+    return journal;
+  }
+  
+  /**
+   * Forgets all changes. From now on, this journal is valid for the given
+   * settings.
+   * 
+   * @param settings
+   *        a description of all settings of the generation of kinetic laws
+   *        that has just been completed.
+   */
+  public synchronized void reset(String settings) {
+    reactions.clear();
+    species.clear();
+    compartments.clear();
+    parameters.clear();
+    global = false;
+    this.settings = settings;
+  }
+  
+  /**
+   * 
+   * @return {@code true} if this journal has been reset at least once.
+   */
+  public synchronized boolean isValid() {
+    return settings != null;
+  }
+  
+  /**
+   * 
+   * @param settings
+   * @return {@code true} if this journal is valid and has been reset with
+   *         equal settings.
+   */
+  public synchronized boolean isValidFor(String settings) {
+    return (this.settings != null) && this.settings.equals(settings);
+  }
+  
+  /**
+   * While paused, changes are only logged, but not recorded. This is used
+   * when SBMLsqueezer changes the model itself.
+   * 
+   * @param paused
+   */
+  public synchronized void setPaused(boolean paused) {
+    this.paused = paused;
+  }
+  
+  /**
+   * 
+   * @return {@code true} if a recorded change affects all reactions.
+   */
+  public synchronized boolean isGlobalChange() {
+    return global;
+  }
+  
+  /**
+   * 
+   * @return {@code true} if nothing has been recorded.
+   */
+  public synchronized boolean isEmpty() {
+    return !global && reactions.isEmpty() && species.isEmpty() && compartments.isEmpty()
+        && parameters.isEmpty();
+  }
+  
+  /**
+   * 
+   * @return the identifiers of all changed reactions.
+   */
+  public synchronized Set<String> getChangedReactions() {
+    return Collections.unmodifiableSet(new HashSet<String>(reactions));
+  }
+  
+  /**
+   * 
+   * @return the identifiers of all changed species.
+   */
+  public synchronized Set<String> getChangedSpecies() {
+    return Collections.unmodifiableSet(new HashSet<String>(species));
+  }
+  
+  /**
+   * 
+   * @return the identifiers of all changed compartments.
+   */
+  public synchronized Set<String> getChangedCompartments() {
+    return Collections.unmodifiableSet(new HashSet<String>(compartments));
+  }
+  
+  /**
+   * 
+   * @return the identifiers of all changed global parameters and of all
+   *         variables whose rules or initial assignments have been changed.
+   */
+  public synchronized Set<String> getChangedParameters() {
+    return Collections.unmodifiableSet(new HashSet<String>(parameters));
+  }
+  
+  /**
+   * Determines all reactions of the model whose kinetic laws might be
+   * different if they were created again: changed reactions, reactions that
+   * refer to changed species, reactions that take place in changed
+   * compartments or involve species located there, reactions whose kinetic
+   * law refers to a changed global parameter or to a variable of a changed
+   * rule or initial assignment, and all reactions without a kinetic law or
+   * without math.
+   * 
+   * @return the identifiers of all affected reactions that are still part of
+   *         the model or {@code null} if all reactions are affected.
+   */
+  public synchronized Set<String> getAffectedReactions() {
+    if (global) {
+      return null;
+    }
+    Set<String> affected = new HashSet<String>();
+    for (Reaction reaction : model.getListOfReactions()) {
+      if (!reaction.isSetKineticLaw() || !reaction.getKineticLaw().isSetMath()
+          || reactions.contains(reaction.getId())
+          || (reaction.isSetCompartment() && compartments.contains(reaction.getCompartment()))
+          // Only existing lists, because JSBML creates missing lists on access.
+          || (reaction.isSetListOfReactants() && isAffected(reaction.getListOfReactants()))
+          || (reaction.isSetListOfProducts() && isAffected(reaction.getListOfProducts()))
+          || (reaction.isSetListOfModifiers() && isAffected(reaction.getListOfModifiers()))
+          || refersToParameters(reaction.getKineticLaw())) {
+        affected.add(reaction.getId());
+      }
+    }
+    return affected;
+  }
+  
+  /**
+   * 
+   * @param kineticLaw
+   * @return {@code true} if the math of the given {@link KineticLaw} refers
+   *         to one of the changed {@link #parameters} that is not shadowed by
+   *         a local parameter.
+   */
+  private boolean refersToParameters(KineticLaw kineticLaw) {
+    if (parameters.isEmpty()) {
+      return false;
+    }
+    // Iteratively, because math can be deeply nested.
+    Deque<ASTNode> stack = new ArrayDeque<ASTNode>();
+    stack.push(kineticLaw.getMath());
+    while (!stack.isEmpty()) {
+      ASTNode node = stack.pop();
+      if (node.isString() && (node.getName() != null) && parameters.contains(node.getName())
+          && (kineticLaw.getLocalParameter(node.getName()) == null)) {
+        return true;
+      }
+      for (ASTNode child : node.getChildren()) {
+        stack.push(child);
+      }
+    }
+    return false;
+  }
+  
+  /**
+   * 
+   * @param listOfReferences
+   * @return {@code true} if one of the referenced species or its compartment
+   *         has been changed, or if it is the variable of a changed rule or
+   *         initial assignment.
+   */
+  private boolean isAffected(Iterable<? extends SimpleSpeciesReference> listOfReferences) {
+    for (SimpleSpeciesReference reference : listOfReferences) {
+      if (species.contains(reference.getSpecies()) || parameters.contains(reference.getSpecies())) {
+        return true;
+      }
+      if (!compartments.isEmpty() || !parameters.isEmpty()) {
+        Species s = reference.getSpeciesInstance();
+        if ((s != null) && (compartments.contains(s.getCompartment())
+            || parameters.contains(s.getCompartment()))) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+  
+  /**
+   * Records the element that contains the given node.
+   * 
+   * @param node
+   *        the node that has been changed, added or removed.
+   * @param parent
+   *        the parent of the node if it has been removed, {@code null}
+   *        otherwise.
+   * @param property
+   *        the name of the changed property, {@code null} if the node has
+   *        been added or removed.
+   */
+  private synchronized void record(TreeNode node, TreeNode parent, String property) {
+    if (paused) {
+      return;
+    }
+    TreeNode current = node;
+    while (current != null) {
+      if (current instanceof KineticLaw) {
+        if ((current == node) && (parent instanceof Reaction)) {
+          // The reaction has lost its kinetic law.
+          reactions.add(((Reaction) parent).getId());
+        }
+        return;
+      } else if (current instanceof Reaction) {
+        reactions.add(((Reaction) current).getId());
+        return;
+      } else if (current instanceof Species) {
+        species.add(((Species) current).getId());
+        return;
+      } else if (current instanceof Compartment) {
+        compartments.add(((Compartment) current).getId());
+        return;
+      } else if (current instanceof Parameter) {
+        parameters.add(((Parameter) current).getId());
+        return;
+      } else if ((current instanceof Rule) || (current instanceof InitialAssignment)) {
+        if ((current instanceof Assignment) && ((Assignment) current).isSetVariable()
+            && !((current == node) && TreeNodeChangeEvent.variable.equals(property))) {
+          parameters.add(((Assignment) current).getVariable());
+        } else {
+          // Algebraic rules and changed variables cannot be traced.
+          global = true;
+        }
+        return;
+      } else if (current instanceof UnitDefinition) {
+        global = true;
+        return;
+      } else if (current instanceof Model) {
+        global |= (current == node) && (property != null) && property.endsWith("Units");
+        return;
+      }
+      TreeNode next = current.getParent();
+      current = ((next == null) && (current == node)) ? parent : next;
+    }
   }
   
   /* (non-Javadoc)
@@ -56,7 +413,10 @@ public class ModelChangeListener implements TreeNodeChangeListener {
    */
   @Override
   public void nodeAdded(TreeNode node) {
-    logger.log(Level.FINE, "[ADD] " + node.toString());
+    if (logger.isLoggable(Level.FINE)) {
+      logger.log(Level.FINE, "[ADD] " + node.toString());
+    }
+    record(node, null, null);
   }
   
   /* (non-Javadoc)
@@ -64,7 +424,12 @@ public class ModelChangeListener implements TreeNodeChangeListener {
    */
   @Override
   public void propertyChange(PropertyChangeEvent event) {
-    logger.log(Level.FINE, "[CHG] " + event.toString());
+    if (logger.isLoggable(Level.FINE)) {
+      logger.log(Level.FINE, "[CHG] " + event.toString());
+    }
+    if (event.getSource() instanceof TreeNode) {
+      record((TreeNode) event.getSource(), null, event.getPropertyName());
+    }
   }
   
   /* (non-Javadoc)
@@ -74,7 +439,10 @@ public class ModelChangeListener implements TreeNodeChangeListener {
   public void nodeRemoved(TreeNodeRemovedEvent evt) {
     TreeNode node = evt.getSource();
     
-    logger.log(Level.FINE, "[DEL] " + node.toString());
+    if (logger.isLoggable(Level.FINE)) {
+      logger.log(Level.FINE, "[DEL] " + node.toString());
+    }
+    record(node, evt.getPreviousParent(), null);
   }
   
 }
@@ -0,0 +1,104 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.test.cases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+import org.sbml.jsbml.Model;
+import org.sbml.squeezer.BatchSqueezer;
+import org.sbml.squeezer.SBMLsqueezer;
+import org.sbml.squeezer.io.SqSBMLReader;
+import org.sbml.squeezer.io.SqSBMLWriter;
+
+/**
+ * Tests that the {@link BatchSqueezer} reports the outcome of every file.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class BatchSqueezerTest {
+  
+  /**
+   * The bundled models to be squeezed.
+   */
+  private static final String MODELS[] = {"epsp_ach.xml", "glycolysis_t_brucei.xml"};
+  
+  /**
+   * 
+   */
+  private String testPath = System.getProperty("user.dir") + "/src/test/resources/additional_xml_files";
+  
+  /**
+   * Squeezes a directory with two valid models and a broken file using two
+   * threads.
+   * 
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  @Test
+  public void testSqueeze() throws IOException, InterruptedException {
+    File dir = Files.createTempDirectory("batch").toFile();
+    dir.deleteOnExit();
+    Map<File, String> ioPairs = new LinkedHashMap<File, String>();
+    for (String model : MODELS) {
+      ioPairs.put(new File(testPath, model), new File(dir, model).getAbsolutePath());
+    }
+    File broken = new File(dir, "broken.xml");
+    broken.deleteOnExit();
+    FileWriter writer = new FileWriter(broken);
+    writer.write("<sbml");
+    writer.close();
+    ioPairs.put(broken, new File(dir, "broken_out.xml").getAbsolutePath());
+    
+    SBMLsqueezer<Model> squeezer = new SBMLsqueezer<Model>(new SqSBMLReader(), new SqSBMLWriter());
+    BatchSqueezer<Model> batch = new BatchSqueezer<Model>(squeezer, 2, false);
+    List<BatchSqueezer.Result> results = batch.squeeze(ioPairs);
+    
+    assertEquals(ioPairs.size(), results.size());
+    for (int i = 0; i < MODELS.length; i++) {
+      BatchSqueezer.Result result = results.get(i);
+      assertEquals(MODELS[i], result.getInFile().getName());
+      assertTrue(result.toString(), result.isSuccessful());
+      assertTrue(result.getOutFile().length() > 0);
+      result.getOutFile().deleteOnExit();
+    }
+    BatchSqueezer.Result result = results.get(MODELS.length);
+    assertEquals(broken, result.getInFile());
+    assertFalse(result.isSuccessful());
+    assertNotNull(result.getError());
+  }
+  
+}
@@ -0,0 +1,216 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.test.cases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.sbml.jsbml.ASTNode;
+import org.sbml.jsbml.Compartment;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.ext.qual.InputTransitionEffect;
+import org.sbml.jsbml.ext.qual.OutputTransitionEffect;
+import org.sbml.jsbml.ext.qual.QualConstants;
+import org.sbml.jsbml.ext.qual.QualModelPlugin;
+import org.sbml.jsbml.ext.qual.Sign;
+import org.sbml.jsbml.ext.qual.Transition;
+import org.sbml.squeezer.functionTermGenerator.BooleanNetworkSimulator;
+import org.sbml.squeezer.functionTermGenerator.BooleanNetworkSimulator.Attractor;
+import org.sbml.squeezer.functionTermGenerator.DefaultTerm;
+import org.sbml.squeezer.functionTermGenerator.FunctionTermGenerator;
+
+/**
+ * Tests the {@link BooleanNetworkSimulator} with small networks whose
+ * attractors are known. The {@link #main(String[])} method measures the
+ * number of states per second for a large random network.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class BooleanNetworkSimulatorTest {
+  
+  /**
+   * 
+   * @param rules
+   *        pairs of species identifiers, the first one of which is the output
+   *        and the second one the input of a transition. The input activates
+   *        the output if its identifier starts with {@code +} and inhibits it
+   *        otherwise.
+   * @return a Boolean network with default function terms
+   * @throws Exception
+   */
+  private static Model createNetwork(String... rules) throws Exception {
+    SBMLDocument doc = new SBMLDocument(3, 1);
+    doc.enablePackage(QualConstants.namespaceURI);
+    Model model = doc.createModel("network");
+    Compartment c = model.createCompartment("c");
+    QualModelPlugin qm = (QualModelPlugin) model.getPlugin(QualConstants.shortLabel);
+    for (int i = 0; i < rules.length; i += 2) {
+      String output = rules[i];
+      String input = rules[i + 1].substring(1);
+      for (String id : new String[] {output, input}) {
+        if (qm.getQualitativeSpecies(id) == null) {
+          qm.createQualitativeSpecies(id, c, false).setMaxLevel(1);
+        }
+      }
+      Transition t = qm.createTransition("t" + i);
+      t.createInput("t" + i + "_in", input, InputTransitionEffect.none).setSign(
+        rules[i + 1].startsWith("+") ? Sign.positive : Sign.negative);
+      t.createOutput("t" + i + "_out", output, OutputTransitionEffect.assignmentLevel);
+    }
+    FunctionTermGenerator ftg = new FunctionTermGenerator();
+    ftg.setSign(Sign.positive);
+    ftg.setDefaultTerm(DefaultTerm.allActivatorsAndNoInhibitor);
+    ftg.setDefaultSign(model);
+    ftg.generateFunctionTerms(model);
+    ftg.storeChanges(model);
+    return model;
+  }
+  
+  /**
+   * Two mutually inhibiting species have two fixed points and, under
+   * synchronous updates, a cycle of length two.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void testToggleSwitch() throws Exception {
+    BooleanNetworkSimulator simulator = new BooleanNetworkSimulator(createNetwork("a", "-b", "b", "-a"));
+    List<Attractor> attractors = simulator.findAttractors(200, new Random(1L), 100);
+    assertEquals(3, attractors.size());
+    int fixedPoints = 0, hits = 0;
+    for (Attractor attractor : attractors) {
+      if (attractor.isFixedPoint()) {
+        fixedPoints++;
+        long state = attractor.getStates().get(0)[0];
+        assertTrue((state == 1L) || (state == 2L));
+      } else {
+        assertEquals(2, attractor.getLength());
+        assertEquals(0L, attractor.getStates().get(0)[0]);
+        assertEquals(3L, attractor.getStates().get(1)[0]);
+      }
+      hits += attractor.getHits();
+    }
+    assertEquals(2, fixedPoints);
+    assertEquals(200, hits);
+    
+    // Asynchronous updates always end in one of the fixed points.
+    Random random = new Random(2L);
+    long state[] = simulator.createState();
+    for (int i = 0; i < state.length; i++) {
+      state[i] = random.nextLong();
+    }
+    for (int step = 0; step < 100; step++) {
+      simulator.stepAsynchronous(state, random);
+    }
+    assertEquals(-1L, simulator.getFixedPoints(state));
+    assertEquals(-1L, state[simulator.indexOf("a")] ^ state[simulator.indexOf("b")]);
+  }
+  
+  /**
+   * A negative feedback loop of two species oscillates with period four.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void testOscillator() throws Exception {
+    BooleanNetworkSimulator simulator = new BooleanNetworkSimulator(createNetwork("a", "+b", "b", "-a"));
+    simulator.setNumberOfThreads(2);
+    List<Attractor> attractors = simulator.findAttractors(130, new Random(3L), 100);
+    assertEquals(1, attractors.size());
+    assertEquals(4, attractors.get(0).getLength());
+    assertEquals(130, attractors.get(0).getHits());
+    
+    long state[] = simulator.createState(), next[] = simulator.createState();
+    simulator.setLane(state, 5, new long[] {1L});
+    simulator.stepSynchronous(state, next);
+    // a = 1, b = 0 turns into a = 0, b = 0
+    assertEquals(0L, simulator.getLane(next, 5)[0]);
+    assertEquals(0L, simulator.getFixedPoints(next) & (1L << 5));
+  }
+  
+  /**
+   * Measures the number of states per second that synchronous updates and
+   * the search for attractors reach in a random network.
+   * 
+   * @param args
+   *        the number of species (default: 300) and the number of threads
+   *        (default: 1)
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+    int species = (args.length > 0) ? Integer.parseInt(args[0]) : 300;
+    int threads = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+    Model model = FunctionTermGeneratorTest.createNetwork(species, species, 3, 1L);
+    FunctionTermGenerator ftg = new FunctionTermGenerator();
+    ftg.setSign(Sign.positive);
+    ftg.setDefaultTerm(DefaultTerm.allActivatorsAndNoInhibitor);
+    ftg.setDefaultSign(model);
+    ftg.generateFunctionTerms(model);
+    ftg.storeChanges(model);
+    BooleanNetworkSimulator simulator = new BooleanNetworkSimulator(model);
+    simulator.setNumberOfThreads(threads);
+    
+    Random random = new Random(1L);
+    long state[] = simulator.createState(), next[] = simulator.createState();
+    for (int i = 0; i < state.length; i++) {
+      state[i] = random.nextLong();
+    }
+    for (int run = 0; run < 3; run++) {
+      int steps = 100000;
+      long time = System.nanoTime();
+      for (int step = 0; step < steps; step++) {
+        simulator.stepSynchronous(state, next);
+        long tmp[] = state;
+        state = next;
+        next = tmp;
+      }
+      time = System.nanoTime() - time;
+      System.out.println(species + " species, synchronous: " + Math.round(64d * steps / (time / 1E9d)) + " states/s");
+      
+      time = System.nanoTime();
+      for (int step = 0; step < steps; step++) {
+        simulator.stepAsynchronous(state, random);
+      }
+      time = System.nanoTime() - time;
+      System.out.println(species + " species, asynchronous: " + Math.round(64d * steps / (time / 1E9d)) + " states/s");
+      
+      time = System.nanoTime();
+      List<Attractor> attractors = simulator.findAttractors(64 * 64, random, 10000);
+      time = System.nanoTime() - time;
+      int hits = 0;
+      for (Attractor attractor : attractors) {
+        hits += attractor.getHits();
+      }
+      System.out.println(attractors.size() + " attractors reached from " + hits + " of " + (64 * 64)
+        + " initial states in " + (time / 1000000) + " ms");
+    }
+  }
+  
+}
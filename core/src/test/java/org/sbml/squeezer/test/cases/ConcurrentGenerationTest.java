@@ -0,0 +1,87 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.test.cases;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+
+import org.junit.Test;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.SBMLReader;
+import org.sbml.jsbml.SBMLWriter;
+import org.sbml.squeezer.KineticLawGenerator;
+
+/**
+ * Tests that the concurrent creation of kinetic laws yields the same models
+ * as the sequential one.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class ConcurrentGenerationTest {
+  
+  /**
+   * The bundled models to be squeezed.
+   */
+  private static final String MODELS[] = {"e_coli_core.xml", "epsp_ach.xml", "glycolysis_t_brucei.xml"};
+  
+  /**
+   * 
+   */
+  private String testPath = System.getProperty("user.dir") + "/src/test/resources/additional_xml_files";
+  
+  /**
+   * 
+   * @param file
+   * @param numberOfThreads
+   * @return the squeezed model without any meta identifiers.
+   * @throws Throwable
+   */
+  private String squeeze(File file, int numberOfThreads) throws Throwable {
+    SBMLDocument doc = SBMLReader.read(file);
+    KineticLawGenerator klg = new KineticLawGenerator(doc.getModel());
+    klg.setNumberOfThreads(numberOfThreads);
+    klg.generateLaws();
+    klg.storeKineticLaws();
+    // Meta identifiers depend on the order in which elements are created.
+    return new SBMLWriter().writeSBMLToString(doc).replaceAll(" metaid=\"[^\"]*\"", "").replaceAll(
+      " rdf:about=\"#[^\"]*\"", "");
+  }
+  
+  /**
+   * Squeezing with several threads must result in the same model as
+   * squeezing with one thread.
+   * 
+   * @throws Throwable
+   */
+  @Test
+  public void testConcurrentGeneration() throws Throwable {
+    for (String model : MODELS) {
+      File file = new File(testPath, model);
+      assertEquals(model, squeeze(file, 1), squeeze(file, 4));
+    }
+  }
+  
+}
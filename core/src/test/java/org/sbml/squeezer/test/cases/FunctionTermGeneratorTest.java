@@ -0,0 +1,335 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.test.cases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import org.sbml.jsbml.ASTNode;
+import org.sbml.jsbml.Compartment;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.ext.qual.InputTransitionEffect;
+import org.sbml.jsbml.ext.qual.OutputTransitionEffect;
+import org.sbml.jsbml.ext.qual.QualConstants;
+import org.sbml.jsbml.ext.qual.QualModelPlugin;
+import org.sbml.jsbml.ext.qual.Sign;
+import org.sbml.jsbml.ext.qual.Transition;
+import org.sbml.jsbml.text.parser.FormulaParserLL3;
+import org.sbml.squeezer.functionTermGenerator.DefaultTerm;
+import org.sbml.squeezer.functionTermGenerator.FunctionTermGenerator;
+
+/**
+ * Tests the default function terms of the {@link FunctionTermGenerator}. The
+ * {@link #main(String[])} method measures the time needed to create the
+ * terms of a large random network.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class FunctionTermGeneratorTest {
+  
+  /**
+   * 
+   * @param species
+   *        the number of qualitative species
+   * @param transitions
+   *        the number of transitions
+   * @param inputs
+   *        the maximal number of inputs per transition
+   * @param seed
+   * @return a qual model whose transitions have random inputs with random
+   *         signs.
+   */
+  public static Model createNetwork(int species, int transitions, int inputs, long seed) {
+    SBMLDocument doc = new SBMLDocument(3, 1);
+    doc.enablePackage(QualConstants.namespaceURI);
+    Model model = doc.createModel("network");
+    Compartment c = model.createCompartment("c");
+    c.setConstant(true);
+    QualModelPlugin qm = (QualModelPlugin) model.getPlugin(QualConstants.shortLabel);
+    for (int i = 0; i < species; i++) {
+      qm.createQualitativeSpecies("s" + i, c, false).setMaxLevel(1);
+    }
+    Random random = new Random(seed);
+    Sign signs[] = Sign.values();
+    for (int i = 0; i < transitions; i++) {
+      Transition t = qm.createTransition("t" + i);
+      int count = 1 + random.nextInt(inputs);
+      for (int j = 0; j < count; j++) {
+        t.createInput("t" + i + "_in" + j, "s" + random.nextInt(species),
+          InputTransitionEffect.none).setSign(signs[random.nextInt(signs.length)]);
+      }
+      t.createOutput("t" + i + "_out", "s" + random.nextInt(species),
+        OutputTransitionEffect.assignmentLevel);
+    }
+    return model;
+  }
+  
+  /**
+   * 
+   * @param model
+   * @param defaultTerm
+   * @param threads
+   * @return the generator after creating the function terms for all
+   *         transitions of the given model.
+   * @throws Exception
+   */
+  private static FunctionTermGenerator generate(Model model, DefaultTerm defaultTerm, int threads) throws Exception {
+    FunctionTermGenerator ftg = new FunctionTermGenerator();
+    ftg.setNumberOfThreads(threads);
+    ftg.setSign(Sign.positive);
+    ftg.setDefaultTerm(defaultTerm);
+    ftg.setDefaultSign(model);
+    ftg.generateFunctionTerms(model);
+    ftg.storeChanges(model);
+    return ftg;
+  }
+  
+  /**
+   * Activators, inhibitors and dual inputs must be combined to one term
+   * without any detour through formulas, such that identifiers of species
+   * are never mistaken for constants.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void testDefaultTerm() throws Exception {
+    SBMLDocument doc = new SBMLDocument(3, 1);
+    doc.enablePackage(QualConstants.namespaceURI);
+    Model model = doc.createModel("m");
+    Compartment c = model.createCompartment("c");
+    QualModelPlugin qm = (QualModelPlugin) model.getPlugin(QualConstants.shortLabel);
+    for (String id : new String[] {"a", "b", "pi", "d", "e", "f"}) {
+      qm.createQualitativeSpecies(id, c, false);
+    }
+    Transition t = qm.createTransition("t");
+    t.createInput("i1", "a", InputTransitionEffect.none).setSign(Sign.positive);
+    t.createInput("i2", "b", InputTransitionEffect.none).setSign(Sign.positive);
+    t.createInput("i3", "pi", InputTransitionEffect.none).setSign(Sign.negative);
+    t.createInput("i4", "d", InputTransitionEffect.none).setSign(Sign.negative);
+    t.createInput("i5", "e", InputTransitionEffect.none).setSign(Sign.dual);
+    t.createInput("i6", "f", InputTransitionEffect.none);
+    t.createOutput("o", "a", OutputTransitionEffect.assignmentLevel);
+    
+    FunctionTermGenerator ftg = new FunctionTermGenerator();
+    ftg.setSign(Sign.positive);
+    ftg.setDefaultTerm(DefaultTerm.oneActivatorAndNoInhibitor);
+    ftg.setDefaultSign(model);
+    ftg.generateFunctionTerms(model);
+    assertEquals(1, ftg.getCreatedFunctionTermsCount());
+    // The model remains unchanged until the terms are stored.
+    assertEquals(0, t.getFunctionTermCount());
+    assertFalse(t.getListOfInputs().get("i6").isSetSign());
+    ftg.storeChanges(model);
+    ftg.storeChanges(model);
+    assertEquals(1, t.getFunctionTermCount());
+    assertEquals(Sign.positive, t.getListOfInputs().get("i6").getSign());
+    ASTNode math = qm.getTransition("t").getListOfFunctionTerms().get(0).getMath();
+    assertEquals(ASTNode.Type.LOGICAL_AND, math.getType());
+    assertEquals(3, math.getChildCount());
+    assertEquals(ASTNode.Type.LOGICAL_OR, math.getChild(0).getType());
+    // The unspecified sign of f has become positive.
+    assertEquals(3, math.getChild(0).getChildCount());
+    assertEquals(ASTNode.Type.LOGICAL_AND, math.getChild(1).getType());
+    assertEquals(ASTNode.Type.LOGICAL_XOR, math.getChild(2).getType());
+    ASTNode eq = math.getChild(1).getChild(0);
+    assertEquals(ASTNode.Type.RELATIONAL_EQ, eq.getType());
+    assertEquals(ASTNode.Type.NAME, eq.getChild(0).getType());
+    assertEquals("pi", eq.getChild(0).getName());
+    assertEquals(0, eq.getChild(1).getInteger());
+  }
+  
+  /**
+   * Function terms that are created concurrently must be identical to those
+   * created sequentially and must be stored in the order of the transitions.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void testConcurrentGeneration() throws Exception {
+    Model sequential = createNetwork(50, 200, 6, 7L);
+    Model concurrent = createNetwork(50, 200, 6, 7L);
+    FunctionTermGenerator ftg = generate(sequential, DefaultTerm.allActivatorsAndNoInhibitor, 1);
+    FunctionTermGenerator concurrentFtg = generate(concurrent, DefaultTerm.allActivatorsAndNoInhibitor, 4);
+    assertEquals(ftg.getCreatedFunctionTermsCount(), concurrentFtg.getCreatedFunctionTermsCount());
+    for (int i = 0; i < ftg.getModifiedTransitions().size(); i++) {
+      assertEquals(ftg.getModifiedTransitions().get(i).getId(),
+        concurrentFtg.getModifiedTransitions().get(i).getId());
+      assertEquals(ftg.getGeneratedFunctionTerm(i).toFormula(),
+        concurrentFtg.getGeneratedFunctionTerm(i).toFormula());
+    }
+  }
+  
+  /**
+   * Minimized function terms must be equivalent to the original ones, and
+   * contradictions and tautologies must be recognized.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void testMinimization() throws Exception {
+    Model model = createNetwork(8, 300, 5, 11L);
+    QualModelPlugin qm = (QualModelPlugin) model.getPlugin(QualConstants.shortLabel);
+    Transition t = qm.createTransition("contradiction");
+    t.createInput("contradiction_in0", "s0", InputTransitionEffect.none).setSign(Sign.positive);
+    t.createInput("contradiction_in1", "s0", InputTransitionEffect.none).setSign(Sign.negative);
+    t = qm.createTransition("tautology");
+    t.createInput("tautology_in0", "s1", InputTransitionEffect.none).setSign(Sign.dual);
+    
+    FunctionTermGenerator ftg = new FunctionTermGenerator();
+    ftg.setNumberOfThreads(1);
+    ftg.setSign(Sign.positive);
+    ftg.setDefaultTerm(DefaultTerm.allActivatorsAndNoInhibitor);
+    ftg.setDefaultSign(model);
+    ftg.setMinimizeFunctionTerms(false);
+    ftg.generateFunctionTerms(model);
+    List<ASTNode> original = new ArrayList<ASTNode>();
+    for (int i = 0; i < ftg.getCreatedFunctionTermsCount(); i++) {
+      original.add(ftg.getGeneratedFunctionTerm(i));
+    }
+    ftg.setMinimizeFunctionTerms(true);
+    ftg.generateFunctionTerms(model);
+    assertEquals(original.size(), ftg.getCreatedFunctionTermsCount());
+    
+    Map<String, Integer> state = new HashMap<String, Integer>();
+    for (int i = 0; i < original.size(); i++) {
+      ASTNode minimized = ftg.getGeneratedFunctionTerm(i);
+      assertTrue(size(minimized) <= size(original.get(i)));
+      for (int bits = 0; bits < (1 << 8); bits++) {
+        for (int j = 0; j < 8; j++) {
+          state.put("s" + j, Integer.valueOf((bits >> j) & 1));
+        }
+        assertEquals(evaluate(original.get(i), state), evaluate(minimized, state));
+      }
+    }
+    List<Transition> constant = ftg.getTransitionsWithConstantFunctionTerms();
+    assertTrue(constant.contains(qm.getTransition("contradiction")));
+    assertTrue(constant.contains(qm.getTransition("tautology")));
+    int last = ftg.getCreatedFunctionTermsCount() - 1;
+    assertEquals(ASTNode.Type.CONSTANT_FALSE, ftg.getGeneratedFunctionTerm(last - 1).getType());
+    assertEquals(ASTNode.Type.CONSTANT_TRUE, ftg.getGeneratedFunctionTerm(last).getType());
+  }
+  
+  /**
+   * 
+   * @param node
+   * @param state
+   *        the level of each species
+   * @return the truth value of the given Boolean term
+   */
+  private static boolean evaluate(ASTNode node, Map<String, Integer> state) {
+    boolean value;
+    switch (node.getType()) {
+    case CONSTANT_TRUE:
+      return true;
+    case CONSTANT_FALSE:
+      return false;
+    case LOGICAL_AND:
+      value = true;
+      for (ASTNode child : node.getChildren()) {
+        value &= evaluate(child, state);
+      }
+      return value;
+    case LOGICAL_OR:
+      value = false;
+      for (ASTNode child : node.getChildren()) {
+        value |= evaluate(child, state);
+      }
+      return value;
+    case LOGICAL_XOR:
+      value = false;
+      for (ASTNode child : node.getChildren()) {
+        value ^= evaluate(child, state);
+      }
+      return value;
+    case RELATIONAL_EQ:
+      return state.get(node.getChild(0).getName()).intValue() == node.getChild(1).getInteger();
+    case RELATIONAL_NEQ:
+      return state.get(node.getChild(0).getName()).intValue() != node.getChild(1).getInteger();
+    default:
+      throw new IllegalArgumentException(node.getType().toString());
+    }
+  }
+  
+  /**
+   * 
+   * @param node
+   * @return the number of nodes of the given tree
+   */
+  private static int size(ASTNode node) {
+    int size = 1;
+    for (ASTNode child : node.getChildren()) {
+      size += size(child);
+    }
+    return size;
+  }
+  
+  /**
+   * Measures the time needed to create the function terms of a large random
+   * network and the time that converting all terms to formulas and parsing
+   * them again would additionally take.
+   * 
+   * @param args
+   *        the number of transitions (default: 50000) and the number of
+   *        threads (default: 1)
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception {
+    int transitions = (args.length > 0) ? Integer.parseInt(args[0]) : 50000;
+    int threads = (args.length > 1) ? Integer.parseInt(args[1]) : 1;
+    for (int run = 0; run < 3; run++) {
+      Model model = createNetwork(transitions / 2, transitions, 8, run);
+      FunctionTermGenerator ftg = new FunctionTermGenerator();
+      ftg.setNumberOfThreads(threads);
+      ftg.setSign(Sign.positive);
+      ftg.setDefaultTerm(DefaultTerm.allActivatorsAndNoInhibitor);
+      ftg.setDefaultSign(model);
+      long time = System.nanoTime();
+      ftg.generateFunctionTerms(model);
+      long generation = System.nanoTime() - time;
+      ftg.storeChanges(model);
+      
+      QualModelPlugin qm = (QualModelPlugin) model.getPlugin(QualConstants.shortLabel);
+      time = System.nanoTime();
+      for (Transition t : qm.getListOfTransitions()) {
+        ASTNode.parseFormula(t.getListOfFunctionTerms().get(0).getMath().toFormula(),
+          new FormulaParserLL3(new StringReader("")));
+      }
+      long roundTrip = System.nanoTime() - time;
+      System.out.println(transitions + " transitions: generation " + generation / 1000000
+        + " ms, formula round trip " + roundTrip / 1000000 + " ms");
+    }
+  }
+  
+}
@@ -0,0 +1,264 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.test.cases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sbml.jsbml.ASTNode;
+import org.sbml.jsbml.Compartment;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.Parameter;
+import org.sbml.jsbml.Reaction;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.squeezer.KineticLawGenerator;
+import org.sbml.squeezer.OptionsGeneral;
+import org.sbml.squeezer.util.ModelChangeListener;
+
+import de.zbit.util.prefs.SBPreferences;
+
+/**
+ * Tests that the {@link ModelChangeListener} of a model tells which kinetic
+ * laws have to be created again.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class ModelChangeListenerTest {
+  
+  /**
+   * User settings for the test cases.
+   */
+  private SBPreferences prefs;
+  
+  /**
+   * The setting for overwriting existing rate laws before the test.
+   */
+  private boolean overwrite;
+  
+  /**
+   * The setting for global parameters before the test.
+   */
+  private boolean global;
+  
+  /**
+   * Existing kinetic laws are replaced unless a test says otherwise.
+   */
+  @Before
+  public void setUp() {
+    prefs = SBPreferences.getPreferencesFor(OptionsGeneral.class);
+    overwrite = prefs.getBoolean(OptionsGeneral.OVERWRITE_EXISTING_RATE_LAWS);
+    global = prefs.getBoolean(OptionsGeneral.NEW_PARAMETERS_GLOBAL);
+    prefs.put(OptionsGeneral.OVERWRITE_EXISTING_RATE_LAWS, Boolean.TRUE);
+  }
+  
+  /**
+   * 
+   */
+  @After
+  public void tearDown() {
+    prefs.put(OptionsGeneral.OVERWRITE_EXISTING_RATE_LAWS, Boolean.valueOf(overwrite));
+    prefs.put(OptionsGeneral.NEW_PARAMETERS_GLOBAL, Boolean.valueOf(global));
+  }
+  
+  /**
+   * 
+   * @return a squeezed model with the reactions A + B -> C, C <-> D and
+   *         E -> F.
+   * @throws Throwable
+   */
+  private Model createModel() throws Throwable {
+    SBMLDocument doc = new SBMLDocument(3, 1);
+    Model model = doc.createModel("journal_model");
+    Compartment c = model.createCompartment("c");
+    c.setSize(1d);
+    c.setSpatialDimensions(3d);
+    c.setConstant(true);
+    for (String id : new String[] {"A", "B", "C", "D", "E", "F"}) {
+      model.createSpecies(id, c).setHasOnlySubstanceUnits(false);
+    }
+    Reaction r1 = model.createReaction("r1");
+    r1.createReactant(model.getSpecies("A")).setStoichiometry(1d);
+    r1.createReactant(model.getSpecies("B")).setStoichiometry(1d);
+    r1.createProduct(model.getSpecies("C")).setStoichiometry(1d);
+    r1.setReversible(false);
+    Reaction r2 = model.createReaction("r2");
+    r2.createReactant(model.getSpecies("C")).setStoichiometry(1d);
+    r2.createProduct(model.getSpecies("D")).setStoichiometry(1d);
+    r2.setReversible(true);
+    Reaction r3 = model.createReaction("r3");
+    r3.createReactant(model.getSpecies("E")).setStoichiometry(1d);
+    r3.createProduct(model.getSpecies("F")).setStoichiometry(1d);
+    r3.setReversible(false);
+    KineticLawGenerator klg = new KineticLawGenerator(model);
+    klg.generateLaws();
+    klg.storeKineticLaws();
+    return model;
+  }
+  
+  /**
+   * 
+   * @param model
+   * @return the identifiers of all reactions that are created again.
+   * @throws Throwable
+   */
+  private Set<String> regenerate(Model model) throws Throwable {
+    KineticLawGenerator klg = new KineticLawGenerator(model);
+    klg.generateLaws(true);
+    Set<String> ids = new HashSet<String>();
+    for (Reaction r : klg.getSubmodel().getListOfReactions()) {
+      ids.add(r.getId());
+    }
+    klg.storeKineticLaws();
+    return ids;
+  }
+  
+  /**
+   * Storing kinetic laws must not be recorded as a change.
+   * 
+   * @throws Throwable
+   */
+  @Test
+  public void testOwnChanges() throws Throwable {
+    Model model = createModel();
+    ModelChangeListener journal = ModelChangeListener.getJournal(model);
+    assertNotNull(journal);
+    assertTrue(journal.isValid());
+    assertTrue(journal.isEmpty());
+  }
+  
+  /**
+   * Changing a species affects all reactions that refer to it, changing a
+   * reaction only this reaction.
+   * 
+   * @throws Throwable
+   */
+  @Test
+  public void testAffectedReactions() throws Throwable {
+    Model model = createModel();
+    model.getSpecies("D").setInitialConcentration(2d);
+    assertEquals(Collections.singleton("r2"), regenerate(model));
+    
+    model.getReaction("r3").createModifier(model.getSpecies("A"));
+    assertEquals(Collections.singleton("r3"), regenerate(model));
+    
+    model.getSpecies("C").setInitialConcentration(3d);
+    assertEquals(new HashSet<String>(Arrays.asList("r1", "r2")), regenerate(model));
+    
+    ModelChangeListener journal = ModelChangeListener.getJournal(model);
+    assertTrue(journal.isEmpty());
+    assertFalse(model.getReaction("r3").getKineticLaw().getMath().toFormula().isEmpty());
+  }
+  
+  /**
+   * Changes of units affect all reactions.
+   * 
+   * @throws Throwable
+   */
+  @Test
+  public void testGlobalChange() throws Throwable {
+    Model model = createModel();
+    model.setTimeUnits("second");
+    ModelChangeListener journal = ModelChangeListener.getJournal(model);
+    assertTrue(journal.isGlobalChange());
+    assertNull(journal.getAffectedReactions());
+    assertEquals(3, regenerate(model).size());
+  }
+  
+  /**
+   * A reaction whose kinetic law has been removed must be created again.
+   * 
+   * @throws Throwable
+   */
+  @Test
+  public void testRemovedKineticLaw() throws Throwable {
+    Model model = createModel();
+    model.getReaction("r3").unsetKineticLaw();
+    ModelChangeListener journal = ModelChangeListener.getJournal(model);
+    assertEquals(Collections.singleton("r3"), journal.getChangedReactions());
+    model.getSpecies("D").setInitialConcentration(2d);
+    assertEquals(new HashSet<String>(Arrays.asList("r2", "r3")), regenerate(model));
+    assertTrue(model.getReaction("r3").isSetKineticLaw());
+  }
+  
+  /**
+   * Affected reactions must keep their kinetic laws if existing ones are not
+   * to be overwritten.
+   * 
+   * @throws Throwable
+   */
+  @Test
+  public void testKeepExistingLaws() throws Throwable {
+    prefs.put(OptionsGeneral.OVERWRITE_EXISTING_RATE_LAWS, Boolean.FALSE);
+    Model model = createModel();
+    Reaction r2 = model.getReaction("r2");
+    r2.getKineticLaw().setMath(new ASTNode(model.getSpecies("C")));
+    model.getSpecies("C").setInitialConcentration(3d);
+    assertTrue(regenerate(model).isEmpty());
+    assertEquals("C", r2.getKineticLaw().getMath().toFormula());
+  }
+  
+  /**
+   * Removing a global parameter affects all reactions whose kinetic laws
+   * refer to it.
+   * 
+   * @throws Throwable
+   */
+  @Test
+  public void testRemovedParameter() throws Throwable {
+    prefs.put(OptionsGeneral.NEW_PARAMETERS_GLOBAL, Boolean.TRUE);
+    Model model = createModel();
+    Reaction r2 = model.getReaction("r2");
+    assertEquals(0, r2.getKineticLaw().getLocalParameterCount());
+    Parameter parameter = null;
+    for (Parameter p : model.getListOfParameters()) {
+      if (r2.getKineticLaw().getMath().refersTo(p.getId())
+          && !model.getReaction("r1").getKineticLaw().getMath().refersTo(p.getId())
+          && !model.getReaction("r3").getKineticLaw().getMath().refersTo(p.getId())) {
+        parameter = p;
+        break;
+      }
+    }
+    assertNotNull(parameter);
+    String id = parameter.getId();
+    model.removeParameter(parameter);
+    ModelChangeListener journal = ModelChangeListener.getJournal(model);
+    assertEquals(Collections.singleton(id), journal.getChangedParameters());
+    assertEquals(Collections.singleton("r2"), journal.getAffectedReactions());
+    assertEquals(Collections.singleton("r2"), regenerate(model));
+    assertNotNull(model.getParameter(id));
+  }
+  
+}
@@ -0,0 +1,139 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.test.cases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Test;
+import org.sbml.jsbml.Compartment;
+import org.sbml.jsbml.KineticLaw;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.Reaction;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.squeezer.KineticLawGenerator;
+import org.sbml.squeezer.RateLawCache;
+
+/**
+ * Tests that kinetic laws from the {@link RateLawCache} equal newly created
+ * ones.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class RateLawCacheTest {
+  
+  /**
+   * 
+   * @return a model with the reactions A + B -> C and C <-> D.
+   */
+  private Model createModel() {
+    SBMLDocument doc = new SBMLDocument(3, 1);
+    Model model = doc.createModel("cache_model");
+    Compartment c = model.createCompartment("c");
+    c.setSize(1d);
+    c.setSpatialDimensions(3d);
+    c.setConstant(true);
+    for (String id : new String[] {"A", "B", "C", "D"}) {
+      model.createSpecies(id, c).setHasOnlySubstanceUnits(false);
+    }
+    Reaction r1 = model.createReaction("r1");
+    r1.createReactant(model.getSpecies("A")).setStoichiometry(1d);
+    r1.createReactant(model.getSpecies("B")).setStoichiometry(1d);
+    r1.createProduct(model.getSpecies("C")).setStoichiometry(1d);
+    r1.setReversible(false);
+    Reaction r2 = model.createReaction("r2");
+    r2.createReactant(model.getSpecies("C")).setStoichiometry(1d);
+    r2.createProduct(model.getSpecies("D")).setStoichiometry(2d);
+    r2.setReversible(true);
+    return model;
+  }
+  
+  /**
+   * 
+   * @param cache
+   * @return the model with all generated kinetic laws.
+   * @throws Throwable
+   */
+  private Model generateLaws(RateLawCache cache) throws Throwable {
+    Model model = createModel();
+    KineticLawGenerator klg = new KineticLawGenerator(model);
+    klg.setRateLawCache(cache);
+    klg.generateLaws();
+    klg.storeKineticLaws();
+    return model;
+  }
+  
+  /**
+   * Kinetic laws taken from the cache must equal newly created ones.
+   * 
+   * @throws Throwable
+   */
+  @Test
+  public void testRestore() throws Throwable {
+    File file = File.createTempFile("ratelaws", ".cache");
+    file.delete();
+    file.deleteOnExit();
+    Model expected = generateLaws(null);
+    RateLawCache cache = RateLawCache.getCache(file, 10);
+    Model cold = generateLaws(cache);
+    assertEquals(0L, cache.getHitCount());
+    assertEquals(2, cache.size());
+    assertTrue(file.exists());
+    Model warm = generateLaws(cache);
+    assertEquals(2L, cache.getHitCount());
+    for (Reaction r : expected.getListOfReactions()) {
+      KineticLaw kl = r.getKineticLaw();
+      for (Model model : new Model[] {cold, warm}) {
+        KineticLaw cached = model.getReaction(r.getId()).getKineticLaw();
+        assertEquals(kl.getMath().toFormula(), cached.getMath().toFormula());
+        assertEquals(kl.getLocalParameterCount(), cached.getLocalParameterCount());
+      }
+    }
+    assertEquals(expected.getParameterCount(), warm.getParameterCount());
+    assertEquals(expected.getUnitDefinitionCount(), warm.getUnitDefinitionCount());
+  }
+  
+  /**
+   * The least recently used kinetic law must be discarded first.
+   * 
+   * @throws Throwable
+   */
+  @Test
+  public void testEviction() throws Throwable {
+    File file = File.createTempFile("ratelaws", ".cache");
+    file.delete();
+    file.deleteOnExit();
+    RateLawCache cache = RateLawCache.getCache(file, 1);
+    generateLaws(cache);
+    assertEquals(1, cache.size());
+    // Each reaction displaces the kinetic law of the other one:
+    generateLaws(cache);
+    assertEquals(0L, cache.getHitCount());
+    assertEquals(4L, cache.getMissCount());
+  }
+  
+}
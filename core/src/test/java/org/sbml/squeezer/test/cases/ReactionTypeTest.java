@@ -0,0 +1,338 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.test.cases;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.sbml.jsbml.Compartment;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.Reaction;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.SBMLReader;
+import org.sbml.jsbml.SBO;
+import org.sbml.jsbml.Species;
+import org.sbml.squeezer.RateLawNotApplicableException;
+import org.sbml.squeezer.ReactionType;
+import org.sbml.squeezer.kinetics.AdditiveModelLinear;
+import org.sbml.squeezer.kinetics.BasicKineticLaw;
+import org.sbml.squeezer.kinetics.ConvenienceKinetics;
+import org.sbml.squeezer.kinetics.GeneralizedMassAction;
+import org.sbml.squeezer.kinetics.HillEquation;
+import org.sbml.squeezer.kinetics.ZerothOrderForwardGMAK;
+import org.sbml.squeezer.kinetics.ZerothOrderReverseGMAK;
+
+/**
+ * Tests that the selection of possible kinetic equations in
+ * {@link ReactionType} yields the same kinetic equations as a filtering of
+ * the public sets of kinetic equations.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+@SuppressWarnings("rawtypes")
+public class ReactionTypeTest {
+  
+  /**
+   * The bundled models whose reactions are analyzed.
+   */
+  private static final String MODELS[] = {"e_coli_core.xml", "epsp_ach.xml", "glycolysis_t_brucei.xml"};
+  
+  /**
+   * 
+   */
+  private String testPath = System.getProperty("user.dir") + "/src/test/resources/additional_xml_files";
+  
+  /**
+   * 
+   * @return a model with a synthesis of a protein that is regulated by a
+   *         gene, a degradation of an RNA, a transcription, a translation,
+   *         and an influx of a metabolite.
+   */
+  private Model createModel() {
+    SBMLDocument doc = new SBMLDocument(3, 1);
+    Model model = doc.createModel("gene_model");
+    Compartment c = model.createCompartment("c");
+    c.setSize(1d);
+    c.setSpatialDimensions(3d);
+    c.setConstant(true);
+    Species gene = model.createSpecies("gene", c);
+    gene.setSBOTerm(SBO.getGene());
+    Species rna = model.createSpecies("rna", c);
+    rna.setSBOTerm(SBO.getRNA());
+    Species protein = model.createSpecies("protein", c);
+    protein.setSBOTerm(SBO.getProtein());
+    model.createSpecies("metabolite", c);
+    for (Species s : model.getListOfSpecies()) {
+      s.setHasOnlySubstanceUnits(false);
+    }
+    Reaction synthesis = model.createReaction("synthesis");
+    synthesis.createProduct(protein).setStoichiometry(1d);
+    synthesis.createModifier(gene);
+    synthesis.setReversible(false);
+    Reaction degradation = model.createReaction("degradation");
+    degradation.createReactant(rna).setStoichiometry(1d);
+    degradation.setReversible(true);
+    Reaction transcription = model.createReaction("transcription");
+    transcription.createReactant(gene).setStoichiometry(1d);
+    transcription.createProduct(rna).setStoichiometry(1d);
+    transcription.setReversible(false);
+    Reaction translation = model.createReaction("translation");
+    translation.createReactant(rna).setStoichiometry(1d);
+    translation.createProduct(protein).setStoichiometry(1d);
+    translation.setReversible(true);
+    Reaction influx = model.createReaction("influx");
+    influx.createProduct(model.getSpecies("metabolite")).setStoichiometry(1d);
+    influx.setReversible(false);
+    return model;
+  }
+  
+  /**
+   * 
+   * @param reaction
+   * @param clazz
+   * @return {@code true} if the given kinetic equation can be applied with
+   *         respect to the reversibility of the given reaction.
+   */
+  private boolean checkReversibility(Reaction reaction, Class<?> clazz) {
+    return (reaction.isReversible() && ReactionType.getKineticsReversible().contains(clazz))
+        || (!reaction.isReversible() && ReactionType.getKineticsIrreversible().contains(clazz));
+  }
+  
+  /**
+   * Selects the possible kinetic equations by filtering the public sets of
+   * kinetic equations, as {@link ReactionType} used to do.
+   * 
+   * @param type
+   * @param reversibility
+   *        whether all reactions are treated as reversible.
+   * @return the possible kinetic equations, sorted by their names.
+   */
+  private Class<?>[] filterKinetics(ReactionType type, boolean reversibility) {
+    Reaction reaction = type.getReaction();
+    Set<Class> notIrreversible = new HashSet<Class>(ReactionType.getKineticsReversible());
+    notIrreversible.removeAll(ReactionType.getKineticsIrreversible());
+    Set<Class> notReversible = new HashSet<Class>(ReactionType.getKineticsIrreversible());
+    notReversible.removeAll(ReactionType.getKineticsReversible());
+    boolean genesOrRNAs = type.isReactionWithGenes() || type.isReactionWithRNAs();
+    boolean emptyListOfReactants = ReactionType.representsEmptySet(reaction.getListOfReactants());
+    boolean emptyListOfProducts = ReactionType.representsEmptySet(reaction.getListOfProducts());
+    boolean enzymeKinetics = false;
+    Set<Class> types = new HashSet<Class>();
+    if (emptyListOfReactants || ((reaction.isReversible() || reversibility) && emptyListOfProducts)) {
+      if (!genesOrRNAs) {
+        if (emptyListOfReactants) {
+          types.addAll(ReactionType.getKineticsZeroReactants());
+        } else {
+          for (Class<?> clazz : ReactionType.getKineticsZeroProducts()) {
+            if (ReactionType.getKineticsReversible().contains(clazz)) {
+              types.add(clazz);
+            }
+          }
+        }
+      }
+      if (genesOrRNAs) {
+        for (Class<?> clazz : ReactionType.getKineticsGeneRegulatoryNetworks()) {
+          if (((reaction.isReversible() && !notReversible.contains(clazz))
+              || (!reaction.isReversible() && !notIrreversible.contains(clazz)))
+              && (!emptyListOfReactants || ReactionType.getKineticsZeroReactants().contains(clazz))
+              && (!emptyListOfProducts || ReactionType.getKineticsZeroProducts().contains(clazz))) {
+            types.add(clazz);
+          }
+        }
+      } else if (!type.isNonEnzyme() && !emptyListOfReactants) {
+        enzymeKinetics = true;
+      }
+    } else {
+      if (type.isNonEnzyme()) {
+        types.addAll(reaction.isReversible() ? ReactionType.getKineticsReversibleNonEnzyme()
+            : ReactionType.getKineticsIrreversibleNonEnzyme());
+      } else {
+        enzymeKinetics = true;
+      }
+      if (type.isUniUni()) {
+        int reactant = reaction.getReactant(0).getSpeciesInstance().getSBOTerm();
+        int product = reaction.getProduct(0).getSpeciesInstance().getSBOTerm();
+        if (genesOrRNAs || SBO.isGeneOrGeneCodingRegion(reactant)
+            || (SBO.isEmptySet(reactant) && (SBO.isRNAOrMessengerRNA(product)
+                || SBO.isProtein(product) || SBO.isGeneric(product)))) {
+          for (Class<?> clazz : ReactionType.getKineticsGeneRegulatoryNetworks()) {
+            if ((reaction.isReversible() && !notReversible.contains(clazz))
+                || (!reaction.isReversible() && !notIrreversible.contains(clazz))) {
+              types.add(clazz);
+            }
+          }
+        }
+      }
+    }
+    if (enzymeKinetics) {
+      boolean integerStoichiometry = type.isIntegerStoichiometry();
+      boolean withoutModulation = type.isWithoutModulation();
+      boolean treatReversible = reaction.isReversible() || reversibility;
+      if (reaction.isReversible() || !emptyListOfProducts) {
+        for (Class<?> clazz : ReactionType.getKineticsArbitraryEnzymeMechanism()) {
+          if (checkReversibility(reaction, clazz)
+              && (!ReactionType.getKineticsIntStoichiometry().contains(clazz) || integerStoichiometry)
+              && (ReactionType.getKineticsModulated().contains(clazz) || withoutModulation)) {
+            types.add(clazz);
+          }
+        }
+      }
+      Set<Class> candidates = null;
+      if (type.isUniUni() || ((type.getStoichiometryLeft() == 1d) && !treatReversible)) {
+        candidates = new HashSet<Class>(ReactionType.getKineticsUniUni());
+      } else if (type.isBiUni() || ((type.getStoichiometryLeft() == 2d) && !treatReversible)) {
+        candidates = new HashSet<Class>(ReactionType.getKineticsBiUni());
+      } else if (type.isBiBi()) {
+        candidates = new HashSet<Class>(ReactionType.getKineticsBiBi());
+        // Bi-bi kinetics do not depend on the integer stoichiometry.
+        integerStoichiometry = true;
+      }
+      if (candidates != null) {
+        candidates.removeAll(ReactionType.getKineticsArbitraryEnzymeMechanism());
+        if (!integerStoichiometry) {
+          candidates.removeAll(ReactionType.getKineticsIntStoichiometry());
+        }
+        if (!withoutModulation) {
+          candidates.retainAll(ReactionType.getKineticsModulated());
+        }
+        for (Class<?> clazz : candidates) {
+          if (checkReversibility(reaction, clazz)) {
+            types.add(clazz);
+          }
+        }
+      }
+    }
+    return sortByName(types);
+  }
+  
+  /**
+   * 
+   * @param kinetics
+   * @return the given kinetic equations, sorted by their names.
+   */
+  private Class<?>[] sortByName(Set<Class> kinetics) {
+    Class<?> sorted[] = kinetics.toArray(new Class<?>[kinetics.size()]);
+    Arrays.sort(sorted, new Comparator<Class<?>>() {
+      
+      /* (non-Javadoc)
+       * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+       */
+      @Override
+      public int compare(Class<?> clazz1, Class<?> clazz2) {
+        return clazz1.getName().compareTo(clazz2.getName());
+      }
+      
+    });
+    return sorted;
+  }
+  
+  /**
+   * Compares the possible kinetic equations of all reactions in the given
+   * model for all combinations of treating reactions as reversible and as
+   * enzyme-catalyzed.
+   * 
+   * @param model
+   * @return the number of compared reactions.
+   */
+  private int compare(Model model) {
+    int count = 0;
+    for (boolean reversibility : new boolean[] {false, true}) {
+      for (boolean allReactionsAsEnzymeCatalyzed : new boolean[] {false, true}) {
+        for (Reaction reaction : model.getListOfReactions()) {
+          ReactionType type;
+          try {
+            type = new ReactionType(reaction, reversibility, allReactionsAsEnzymeCatalyzed, false);
+          } catch (RateLawNotApplicableException exc) {
+            continue;
+          }
+          String message = reaction.getId() + ", reversibility=" + reversibility
+              + ", enzyme=" + allReactionsAsEnzymeCatalyzed;
+          Class<?> expected[] = filterKinetics(type, reversibility);
+          assertArrayEquals(message, expected, type.identifyPossibleKineticLaws());
+          // The second call is answered from the cache.
+          assertArrayEquals(message, expected, type.identifyPossibleKineticLaws());
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+  
+  /**
+   * The possible kinetic equations for the reactions of the bundled models
+   * must equal those of the filtered sets.
+   * 
+   * @throws Throwable
+   */
+  @Test
+  public void testPossibleKineticLaws() throws Throwable {
+    for (String model : MODELS) {
+      SBMLDocument doc = SBMLReader.read(new File(testPath, model));
+      assertEquals(model, 4 * doc.getModel().getReactionCount(), compare(doc.getModel()));
+    }
+  }
+  
+  /**
+   * The possible kinetic equations for gene-regulatory reactions and
+   * reactions without reactants must equal those of the filtered sets.
+   */
+  @Test
+  public void testPossibleGeneRegulatoryKineticLaws() {
+    Model model = createModel();
+    assertEquals(4 * model.getReactionCount(), compare(model));
+  }
+  
+  /**
+   * If the selected gene-regulatory kinetics cannot be applied to a reaction
+   * without reactants, the first applicable one in the order of the names
+   * must be chosen.
+   * 
+   * @throws Throwable
+   */
+  @Test
+  public void testGeneRegulatoryFallback() throws Throwable {
+    Set<Class> applicable = new HashSet<Class>(ReactionType.getKineticsGeneRegulatoryNetworks());
+    applicable.retainAll(ReactionType.getKineticsZeroReactants());
+    Class<?> expected = sortByName(applicable)[0];
+    assertEquals(AdditiveModelLinear.class, expected);
+    for (String id : new String[] {"synthesis", "degradation"}) {
+      ReactionType type = new ReactionType(createModel().getReaction(id), false, false, false);
+      Class<? extends BasicKineticLaw> kinetics = type.identifyPossibleKineticLaw(HillEquation.class,
+        ZerothOrderForwardGMAK.class, ZerothOrderReverseGMAK.class, GeneralizedMassAction.class,
+        GeneralizedMassAction.class, ConvenienceKinetics.class, ConvenienceKinetics.class,
+        ConvenienceKinetics.class, ConvenienceKinetics.class, ConvenienceKinetics.class,
+        ConvenienceKinetics.class, ConvenienceKinetics.class, ConvenienceKinetics.class);
+      assertEquals(id, expected, kinetics);
+    }
+  }
+  
+}
@@ -34,10 +34,12 @@ import org.junit.runners.Suite.SuiteClasses;
  */
 @RunWith(value=Suite.class)
 @SuiteClasses(value = {
-    BiBiKineticsTest.class, BiUniKineticsTest.class,
-    GeneralizedMassActionTest.class, GeneRegulatoryKineticsTest.class,
-    ReversibleKinetics.class, UniUniKineticsTest.class, ZeroProductsTest.class,
-    ZeroReactantsTest.class
+    BatchSqueezerTest.class, BiBiKineticsTest.class, BiUniKineticsTest.class, BooleanNetworkSimulatorTest.class,
+    ConcurrentGenerationTest.class,
+    FunctionTermGeneratorTest.class, GeneralizedMassActionTest.class, GeneRegulatoryKineticsTest.class,
+    ModelChangeListenerTest.class, RateLawCacheTest.class, ReactionTypeTest.class, ReversibleKinetics.class,
+    SparseRankTest.class,
+    UniUniKineticsTest.class, ZeroProductsTest.class, ZeroReactantsTest.class
 })
 public class SBMLsqueezerTestSuite {
 }
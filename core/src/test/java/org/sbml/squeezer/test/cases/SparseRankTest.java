@@ -0,0 +1,105 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.test.cases;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.sbml.squeezer.math.SparseMatrix;
+import org.sbml.squeezer.math.SparseRank;
+
+/**
+ * Tests the exact rank computation of {@link SparseRank}.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class SparseRankTest {
+  
+  /**
+   * Two reactions A -> B and B -> A are linearly dependent.
+   */
+  @Test
+  public void testDependentReactions() {
+    SparseRank rank = new SparseRank(new SparseMatrix(new double[][] {
+        {-1d, 1d},
+        { 1d, -1d}
+    }));
+    assertEquals(1, rank.getColumnRank());
+    assertFalse(rank.hasFullRank());
+  }
+  
+  /**
+   * Non-integer stoichiometries must not lead to rounding errors.
+   */
+  @Test
+  public void testFractions() {
+    double[][] matrix = new double[][] {
+        {0.5d, 1.5d, 1d},
+        {0.25d, 0.75d, 0d},
+        {1d, 3d, 0.125d}
+    };
+    assertEquals(2, new SparseRank(new SparseMatrix(matrix)).getColumnRank());
+  }
+  
+  /**
+   * Entries given for the same position twice must not be added.
+   */
+  @Test
+  public void testCoordinateFormat() {
+    SparseMatrix matrix = new SparseMatrix(3, 2,
+      new int[] {0, 1, 1, 2, 1},
+      new int[] {0, 0, 1, 1, 0},
+      new double[] {-1d, 5d, -1d, 1d, 1d});
+    assertEquals(4, matrix.getNonZeroCount());
+    assertEquals(1d, matrix.get(1, 0), 0d);
+    assertEquals(0d, matrix.get(2, 0), 0d);
+    assertTrue(new SparseRank(matrix).hasFullRank());
+  }
+  
+  /**
+   * A long linear pathway, whose rank could not be computed by the recursive
+   * {@link org.sbml.squeezer.math.GaussianRank} without a stack overflow.
+   */
+  @Test
+  public void testLinearPathway() {
+    int n = 20000;
+    int rows[] = new int[2 * n], columns[] = new int[2 * n];
+    double values[] = new double[2 * n];
+    for (int j = 0; j < n; j++) {
+      rows[2 * j] = j;
+      columns[2 * j] = j;
+      values[2 * j] = -1d;
+      rows[2 * j + 1] = j + 1;
+      columns[2 * j + 1] = j;
+      values[2 * j + 1] = 1d;
+    }
+    SparseRank rank = new SparseRank(new SparseMatrix(n + 1, n, rows, columns, values));
+    assertEquals(n, rank.getColumnRank());
+    assertTrue(rank.hasFullRank());
+  }
+  
+}
@@ -0,0 +1,198 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.test.sabiork;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.sbml.jsbml.CVTerm;
+import org.sbml.jsbml.Model;
+import org.sbml.jsbml.Reaction;
+import org.sbml.jsbml.SBMLDocument;
+import org.sbml.jsbml.SBMLWriter;
+import org.sbml.squeezer.sabiork.AutomaticSearch;
+import org.sbml.squeezer.sabiork.SABIORK;
+import org.sbml.squeezer.sabiork.util.HttpTransport;
+import org.sbml.squeezer.sabiork.util.RateLimitedTransport;
+import org.sbml.squeezer.sabiork.util.WebServiceTransport;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the {@link AutomaticSearch} against a local stand-in for SABIO-RK.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class AutomaticSearchTest {
+  
+  /**
+   * A model with one kinetic law for a reaction without any participants.
+   */
+  private static final String RESPONSE = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+      + "<sbml xmlns=\"http://www.sbml.org/sbml/level2/version4\" level=\"2\" version=\"4\">"
+      + "<model id=\"m\"><listOfReactions><reaction id=\"r\"><kineticLaw metaid=\"kl\">"
+      + "<annotation><sbrk:sabiork xmlns:sbrk=\"http://sabiork.h-its.org\">"
+      + "<sbrk:kineticLawID>42</sbrk:kineticLawID></sbrk:sabiork></annotation>"
+      + "<math xmlns=\"http://www.w3.org/1998/Math/MathML\"><cn>1</cn></math>"
+      + "</kineticLaw></reaction></listOfReactions></model></sbml>";
+  
+  /**
+   * All queries that the stand-in has received.
+   */
+  private List<String> queries;
+  
+  /**
+   * 
+   */
+  private HttpServer server;
+  
+  /**
+   * 
+   */
+  private WebServiceTransport transport;
+  
+  /**
+   * Starts the local stand-in for SABIO-RK.
+   * 
+   * @throws IOException
+   */
+  @Before
+  public void startServer() throws IOException {
+    queries = Collections.synchronizedList(new ArrayList<String>());
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", new HttpHandler() {
+      /* (non-Javadoc)
+       * @see com.sun.net.httpserver.HttpHandler#handle(com.sun.net.httpserver.HttpExchange)
+       */
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        String query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+        queries.add(query);
+        String response = null;
+        if (query.contains("R00002") && query.contains("\"Escherichia coli\"")) {
+          response = "<SabioEntryIDs><SabioEntryID>42</SabioEntryID></SabioEntryIDs>";
+        } else if (query.equals("kinlawids=42")) {
+          response = RESPONSE;
+        }
+        if (response != null) {
+          byte bytes[] = response.getBytes("UTF-8");
+          exchange.sendResponseHeaders(200, bytes.length);
+          OutputStream out = exchange.getResponseBody();
+          out.write(bytes);
+          out.close();
+        } else {
+          exchange.sendResponseHeaders(404, -1);
+          exchange.close();
+        }
+      }
+    });
+    server.start();
+    transport = SABIORK.getTransport();
+    SABIORK.setBaseURL("http://localhost:" + server.getAddress().getPort() + "/");
+    SABIORK.setTransport(new RateLimitedTransport(new HttpTransport(), 2, 0d));
+  }
+  
+  /**
+   * 
+   */
+  @After
+  public void stopServer() {
+    SABIORK.setBaseURL(SABIORK.DEFAULT_BASE_URL);
+    SABIORK.setTransport(transport);
+    server.stop(0);
+  }
+  
+  /**
+   * 
+   * @param model
+   * @param id
+   * @param keggReactionID
+   */
+  private void createReaction(Model model, String id, String keggReactionID) {
+    Reaction r = model.createReaction(id);
+    r.setMetaId("meta_" + id);
+    if (keggReactionID != null) {
+      r.addCVTerm(new CVTerm(CVTerm.Qualifier.BQB_IS, "urn:miriam:kegg.reaction:" + keggReactionID));
+    }
+  }
+  
+  /**
+   * If the organism of a model does not lead to any result, its species is to
+   * be used for this and all subsequent reactions.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void testAlternativeOrganism() throws Exception {
+    File root = Files.createTempDirectory("search").toFile();
+    File models = new File(root, "models");
+    models.mkdir();
+    SBMLDocument doc = new SBMLDocument(2, 4);
+    Model model = doc.createModel("m");
+    model.setMetaId("meta_m");
+    model.addCVTerm(new CVTerm(CVTerm.Qualifier.BQB_OCCURS_IN, "urn:miriam:taxonomy:83333"));
+    createReaction(model, "r1", "R00001");
+    createReaction(model, "r2", "R00002");
+    createReaction(model, "r3", null);
+    SBMLWriter.write(doc, new File(models, "m.xml"), ' ', (short) 2);
+    File taxonomy = new File(root, "names.dmp");
+    FileWriter writer = new FileWriter(taxonomy);
+    writer.write("1\t|\troot\t|\t\t|\tscientific name\t|\n");
+    writer.write("83333\t|\tEscherichia coli K-12\t|\t\t|\tscientific name\t|\n");
+    writer.close();
+    File output = new File(root, "output");
+    
+    AutomaticSearch.automaticSearch(models.getAbsolutePath(), taxonomy.getAbsolutePath(), output.getAbsolutePath(), 2);
+    
+    BufferedReader reader = new BufferedReader(new FileReader(new File(output, "result.txt")));
+    String result = reader.readLine();
+    reader.close();
+    // organism, matched, no kinetic law found, matching not possible, no KEGG id
+    assertEquals("Escherichia coli K-12\t1\t1\t0\t1", result);
+    assertTrue(queries.contains("q=KeggReactionID:R00001 AND Organism:\"Escherichia coli K-12\" AND hasKineticData:true"));
+    assertTrue(queries.contains("q=KeggReactionID:R00002 AND Organism:\"Escherichia coli\" AND hasKineticData:true"));
+    assertTrue(queries.contains("kinlawids=42"));
+    assertTrue(new File(new File(output, "models"), "m.xml").exists());
+  }
+  
+}
@@ -0,0 +1,195 @@
+/*
+ * $Id$
+ * $URL$
+ * ---------------------------------------------------------------------
+ * This file is part of SBMLsqueezer, a Java program that creates rate
+ * equations for reactions in SBML files (http://sbml.org).
+ *
+ * Copyright (C) 2006-2016 by the University of Tuebingen, Germany.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ * ---------------------------------------------------------------------
+ */
+package org.sbml.squeezer.test.sabiork;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import org.sbml.squeezer.sabiork.SABIORK;
+import org.sbml.squeezer.sabiork.util.CachingTransport;
+import org.sbml.squeezer.sabiork.util.CachingTransport.Mode;
+import org.sbml.squeezer.sabiork.util.WebServiceConnectException;
+import org.sbml.squeezer.sabiork.util.WebServiceTransport;
+
+/**
+ * Tests the local store of {@link CachingTransport} without network access.
+ * 
+ * @author Andreas Dr&auml;ger
+ * @since 2.2
+ */
+public class CachingTransportTest {
+  
+  /**
+   * Answers every query with its URL, except for queries without any
+   * results, and counts the queries.
+   */
+  private static class EchoTransport implements WebServiceTransport {
+    
+    private int count;
+    
+    /* (non-Javadoc)
+     * @see org.sbml.squeezer.sabiork.util.WebServiceTransport#getResponse(java.lang.String)
+     */
+    @Override
+    public String getResponse(String url) {
+      count++;
+      if (url.endsWith("none")) {
+        return NO_RESULTS;
+      }
+      return "<response>" + url + "</response>";
+    }
+    
+  }
+  
+  /**
+   * 
+   * @return an empty temporary directory.
+   * @throws IOException
+   */
+  private File createDirectory() throws IOException {
+    File directory = Files.createTempDirectory("sabiork").toFile();
+    directory.deleteOnExit();
+    return directory;
+  }
+  
+  /**
+   * Recorded responses must be replayed without querying the web service.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void testRecordReplay() throws Exception {
+    File directory = createDirectory();
+    EchoTransport echo = new EchoTransport();
+    CachingTransport record = new CachingTransport(echo, directory, Mode.RECORD, 0L, 0L);
+    record.getResponse("http://a");
+    record.getResponse("http://a");
+    assertEquals(2, echo.count);
+    CachingTransport replay = new CachingTransport(echo, directory, Mode.REPLAY, 1L, 0L);
+    assertEquals("<response>http://a</response>", replay.getResponse("http://a"));
+    assertEquals(2, echo.count);
+    assertEquals(1L, replay.getHitCount());
+    try {
+      replay.getResponse("http://b");
+      fail();
+    } catch (WebServiceConnectException exc) {
+      assertEquals(2, echo.count);
+    }
+  }
+  
+  /**
+   * Responses that are read as streams must be stored and replayed in the
+   * same way as other responses.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void testStream() throws Exception {
+    File directory = createDirectory();
+    EchoTransport echo = new EchoTransport();
+    CachingTransport record = new CachingTransport(echo, directory, Mode.RECORD, 0L, 0L);
+    assertEquals("<response>http://a</response>", read(record.openStream("http://a")));
+    assertNull(record.openStream("http://none"));
+    CachingTransport replay = new CachingTransport(echo, directory, Mode.REPLAY, 0L, 0L);
+    assertEquals("<response>http://a</response>", read(replay.openStream("http://a")));
+    assertEquals("<response>http://a</response>", replay.getResponse("http://a"));
+    assertNull(replay.openStream("http://none"));
+    assertEquals(WebServiceTransport.NO_RESULTS, replay.getResponse("http://none"));
+    assertEquals(2, echo.count);
+    assertEquals(4L, replay.getHitCount());
+  }
+  
+  /**
+   * 
+   * @param in
+   * @return the complete content of the given stream.
+   * @throws IOException
+   */
+  private String read(InputStream in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      byte buffer[] = new byte[8192];
+      for (int length = in.read(buffer); length >= 0; length = in.read(buffer)) {
+        bytes.write(buffer, 0, length);
+      }
+    } finally {
+      in.close();
+    }
+    return new String(bytes.toByteArray(), "UTF-8");
+  }
+  
+  /**
+   * The oldest responses must be removed if the directory becomes too large.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void testEviction() throws Exception {
+    File directory = createDirectory();
+    EchoTransport echo = new EchoTransport();
+    CachingTransport cache = new CachingTransport(echo, directory, Mode.CACHE, 0L, 1L);
+    cache.getResponse("http://a");
+    cache.getResponse("http://b");
+    assertEquals(0, directory.listFiles().length);
+    cache = new CachingTransport(echo, directory, Mode.CACHE, 0L, 0L);
+    cache.getResponse("http://a");
+    cache.getResponse("http://a");
+    assertEquals(3, echo.count);
+    assertEquals(1L, cache.getHitCount());
+    assertEquals(1L, cache.getMissCount());
+  }
+  
+  /**
+   * Configuring the same directory again, e.g., for the next file of a batch,
+   * must keep the current transport.
+   * 
+   * @throws Exception
+   */
+  @Test
+  public void testConfigureTransport() throws Exception {
+    WebServiceTransport previous = SABIORK.getTransport();
+    try {
+      File directory = createDirectory();
+      SABIORK.configureTransport(directory, Mode.CACHE, 1, 10);
+      WebServiceTransport transport = SABIORK.getTransport();
+      SABIORK.configureTransport(new File(directory.getPath()), Mode.CACHE, 1, 10);
+      assertSame(transport, SABIORK.getTransport());
+      SABIORK.configureTransport(directory, Mode.CACHE, 2, 10);
+      assertNotSame(transport, SABIORK.getTransport());
+    } finally {
+      SABIORK.setTransport(previous);
+    }
+  }
+  
+}